@@ -23,7 +23,10 @@
 
 package io.bosonnetwork;
 
-import java.util.Arrays;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Objects;
 
 import io.bosonnetwork.crypto.CryptoBox;
 import io.bosonnetwork.crypto.CryptoBox.Nonce;
@@ -38,17 +41,36 @@ import io.bosonnetwork.crypto.CryptoException;
  * to ensure message uniqueness and replay protection.
  * </p>
  * <p>
- * <b>Thread Safety:</b> The nonce generation for outgoing messages is synchronized to ensure
- * thread safety when used from multiple threads. The class is otherwise not strictly thread-safe
- * for other operations.
+ * The nonce of an outgoing message is a little-endian 64-bit counter followed by a 128-bit salt,
+ * both randomly initialized per context. The counter takes the leading bytes so the layout is the
+ * same as a random nonce incremented by libsodium, which is what the older versions send. The
+ * nonces of the incoming messages are checked against a sliding window of the last 64
+ * counters, so reordered messages are accepted and the duplicates are rejected.
+ * </p>
+ * <p>
+ * The outgoing nonce is kept in a reusable buffer per context and its counter is incremented in
+ * place, the incoming nonce is read from the packet through a reusable buffer as well, so the
+ * nonces take no allocation on the Java side.
+ * </p>
+ * <p>
+ * <b>Thread Safety:</b> The nonce buffers are guarded by short per-buffer locks and the replay
+ * check is lock-free, a context can be used to encrypt and decrypt from multiple threads concurrently.
  * </p>
  */
 public class CryptoContext {
+	// Little-endian 64-bit view of the nonce bytes: counter || salt0 || salt1
+	private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final int SALT0_OFFSET = Long.BYTES;
+	private static final int SALT1_OFFSET = Long.BYTES * 2;
+
 	private final Id id;
 	private final CryptoBox box;
 
-	private Nonce nextNonce;
-	private volatile Nonce lastPeerNonce;
+	// The next outgoing nonce: counter || salt0 || salt1, the counter is incremented in place
+	private final byte[] nonce;
+	// The nonce of the incoming message being decrypted
+	private final byte[] peerNonce;
+	private final NonceWindow peerNonces;
 
     /**
      * Constructs a CryptoContext with the given Id and CryptoBox.
@@ -62,7 +84,10 @@ public class CryptoContext {
 	public CryptoContext(Id id, CryptoBox box) {
 		this.id = id;
 		this.box = box;
-		this.nextNonce = Nonce.random();
+
+		this.nonce = Nonce.random().bytes().clone();
+		this.peerNonce = new byte[Nonce.BYTES];
+		this.peerNonces = new NonceWindow();
 	}
 
     /**
@@ -100,17 +125,34 @@ public class CryptoContext {
 	}
 
     /**
-     * Generates and returns the next unique nonce for encryption, then increments the internal counter.
-     * <p>
-     * This method is synchronized to ensure thread safety for nonce generation.
-     * </p>
+     * Allocates the next unique nonce for encryption and writes it into the given buffer.
      *
-     * @return The next {@link Nonce} to use for encryption.
+     * @param buf    The buffer to write the nonce to.
+     * @param offset The offset of the nonce in the buffer.
+     * @return The {@link Nonce} to use for encryption.
      */
-	private synchronized Nonce getAndIncrementNonce() {
-		Nonce nonce = nextNonce;
-		nextNonce = nonce.increment();
-		return nonce;
+	private Nonce nextNonce(byte[] buf, int offset) {
+		synchronized (nonce) {
+			System.arraycopy(nonce, 0, buf, offset, Nonce.BYTES);
+			// The binding copies the nonce bytes, the buffer can be reused right after
+			Nonce current = Nonce.fromBytes(nonce);
+			LONG_LE.set(nonce, 0, (long) LONG_LE.get(nonce, 0) + 1);
+			return current;
+		}
+	}
+
+    /**
+     * Reads the nonce of an incoming message from the given buffer.
+     *
+     * @param buf    The buffer to read the nonce from.
+     * @param offset The offset of the nonce in the buffer.
+     * @return The {@link Nonce} to use for decryption.
+     */
+	private Nonce peerNonce(byte[] buf, int offset) {
+		synchronized (peerNonce) {
+			System.arraycopy(buf, offset, peerNonce, 0, Nonce.BYTES);
+			return Nonce.fromBytes(peerNonce);
+		}
 	}
 
     /**
@@ -125,22 +167,61 @@ public class CryptoContext {
      * @throws NullPointerException if {@code data} is {@code null}.
      */
 	public byte[] encrypt(byte[] data) {
-		// TODO: how to avoid the memory copy?!
-		Nonce nonce = getAndIncrementNonce();
-		byte[] cipher = box.encrypt(data, nonce);
+		return encrypt(data, 0);
+	}
+
+    /**
+     * Encrypts the given plaintext data into a new array of {@code headroom || nonce || ciphertext}.
+     * <p>
+     * The headroom bytes are left zeroed for the caller to fill its own header, so the
+     * outbound packet can be assembled without another copy.
+     * </p>
+     *
+     * @param data     The plaintext data to encrypt.
+     * @param headroom The number of bytes reserved at the beginning of the returned array.
+     * @return The encrypted data, with the headroom and the nonce prepended.
+     * @throws NullPointerException if {@code data} is {@code null}.
+     * @throws IllegalArgumentException if {@code headroom} is negative.
+     */
+	public byte[] encrypt(byte[] data, int headroom) {
+		if (headroom < 0)
+			throw new IllegalArgumentException("Invalid headroom: " + headroom);
 
-		byte[] buf = new byte[Nonce.BYTES + cipher.length];
-		System.arraycopy(nonce.bytes(), 0, buf, 0, Nonce.BYTES);
-		System.arraycopy(cipher, 0, buf, Nonce.BYTES, cipher.length);
+		byte[] buf = new byte[headroom + Nonce.BYTES + data.length + CryptoBox.MAC_BYTES];
+		encrypt(data, 0, data.length, buf, headroom);
 		return buf;
 	}
 
+    /**
+     * Encrypts a slice of the given array and writes {@code nonce || ciphertext} into the output
+     * array at the given offset.
+     * <p>
+     * This allows encrypting an encoded message straight into an outbound packet buffer.
+     * </p>
+     *
+     * @param data      The array containing the plaintext data.
+     * @param offset    The offset of the plaintext data in the array.
+     * @param length    The length of the plaintext data.
+     * @param out       The output array, with room for {@code Nonce.BYTES + length + MAC_BYTES} bytes.
+     * @param outOffset The offset of the encrypted data in the output array.
+     * @return The number of bytes written to the output array.
+     * @throws NullPointerException if {@code data} or {@code out} is {@code null}.
+     * @throws IndexOutOfBoundsException if a slice is out of its array bounds.
+     */
+	public int encrypt(byte[] data, int offset, int length, byte[] out, int outOffset) {
+		Objects.checkFromIndexSize(offset, length, data.length);
+		Objects.checkFromIndexSize(outOffset, Nonce.BYTES + length + CryptoBox.MAC_BYTES, out.length);
+
+		Nonce current = nextNonce(out, outOffset);
+		return Nonce.BYTES + box.encrypt(data, offset, length, current, out, outOffset + Nonce.BYTES);
+	}
+
     /**
      * Decrypts the given data, verifying and extracting the prepended nonce.
      * <p>
      * This method checks for nonce reuse to prevent replay attacks. If the nonce
-     * is duplicated (i.e., the same as the last received nonce), a {@link CryptoException}
-     * is thrown.
+     * was already received, or is too old to be checked against the replay window,
+     * a {@link CryptoException} is thrown.
      * </p>
      *
      * @param data The encrypted data, with the nonce prepended (nonce || ciphertext).
@@ -149,32 +230,56 @@ public class CryptoContext {
      * @throws NullPointerException if {@code data} is {@code null}.
      */
 	public byte[] decrypt(byte[] data) throws CryptoException {
-		if (data.length <= Nonce.BYTES + CryptoBox.MAC_BYTES)
+		return decrypt(data, 0, data.length);
+	}
+
+    /**
+     * Decrypts a slice of the given array, the slice is the encrypted data with the nonce prepended.
+     * <p>
+     * This allows decrypting directly from a received packet buffer without copying the
+     * payload first. The nonce is checked for reuse as {@link #decrypt(byte[])} does.
+     * </p>
+     *
+     * @param data   The array containing the encrypted data.
+     * @param offset The offset of the encrypted data (nonce || ciphertext) in the array.
+     * @param length The length of the encrypted data.
+     * @return The decrypted plaintext data.
+     * @throws CryptoException If the input is invalid, the nonce is duplicated, or decryption fails.
+     * @throws NullPointerException if {@code data} is {@code null}.
+     * @throws IndexOutOfBoundsException if the slice is out of the array bounds.
+     */
+	public byte[] decrypt(byte[] data, int offset, int length) throws CryptoException {
+		Objects.checkFromIndexSize(offset, length, data.length);
+		if (length <= Nonce.BYTES + CryptoBox.MAC_BYTES)
 			throw new CryptoException("Invalid cipher size");
 
-		// TODO: how to avoid the memory copy?!
-		byte[] n = Arrays.copyOfRange(data, 0, Nonce.BYTES);
-		Nonce nonce = Nonce.fromBytes(n);
-		if (nonce.equals(lastPeerNonce))
+		long counter = (long) LONG_LE.get(data, offset);
+		long peerSalt0 = (long) LONG_LE.get(data, offset + SALT0_OFFSET);
+		long peerSalt1 = (long) LONG_LE.get(data, offset + SALT1_OFFSET);
+		// Reject the replayed messages before touching the native box
+		if (!peerNonces.check(peerSalt0, peerSalt1, counter))
 			throw new CryptoException("Duplicated nonce");
 
-		lastPeerNonce = nonce;
+		Nonce nonce = peerNonce(data, offset);
+		byte[] plain = box.decrypt(data, offset + Nonce.BYTES, length - Nonce.BYTES, nonce);
+
+		// Only the authenticated messages move the window, a concurrent duplicate loses here
+		if (!peerNonces.update(peerSalt0, peerSalt1, counter))
+			throw new CryptoException("Duplicated nonce");
 
-		byte[] cipher = Arrays.copyOfRange(data, Nonce.BYTES, data.length);
-		return box.decrypt(cipher, nonce);
+		return plain;
 	}
 
 	/**
-	 * Resets the last peer nonce within this CryptoContext.
+	 * Resets the replay window of the peer nonces within this CryptoContext.
 	 * <p>
-	 * This method clears the stored nonce received from the peer by setting it
-	 * to {@code null}. It is typically used to reset nonce state, ensuring that
-	 * subsequent operations do not reference or validate against previously
-	 * stored nonce. This can be important to prevent conflicts or errors related
-	 * to nonce reuse in cryptographic operations.
+	 * This method clears the nonces received from the peer. It is typically used to
+	 * reset nonce state, ensuring that subsequent operations do not validate against
+	 * previously received nonces. This can be important to prevent conflicts or errors
+	 * related to nonce reuse in cryptographic operations.
 	 */
 	public void resetNonce() {
-		lastPeerNonce = null;
+		peerNonces.reset();
 	}
 
     /**
@@ -69,6 +69,11 @@ public class DefaultNodeConfiguration implements NodeConfiguration {
 	 */
 	private static final int DEFAULT_DHT_PORT = 39001;
 
+	/**
+	 * The default maximum number of the cached crypto contexts.
+	 */
+	private static final int DEFAULT_CRYPTO_CONTEXT_CACHE_SIZE = 4096;
+
 	/**
 	 * Vert.x instance used for the node's asynchronous operations.
 	 * May be null if not set.
@@ -99,9 +104,30 @@ public class DefaultNodeConfiguration implements NodeConfiguration {
 	/** Database schema name. Available for PostgreSQL only*/
 	private String databaseSchemaName;
 
+	/** Database write-behind delay in milliseconds, 0 to write through. */
+	private int databaseWriteDelay;
+
+	/** Database write-behind batch size, 0 for the storage default. */
+	private int databaseWriteBatchSize;
+
+	/** Whether the buffered database writes are acknowledged after commit. */
+	private boolean databaseDurableWrites;
+
+	/** Storage read cache size in megabytes, 0 to disable. */
+	private int databaseCacheSize;
+
 	/** Set of bootstrap nodes for joining the DHT network. */
 	private final Set<NodeInfo> bootstraps;
 
+	/** Number of RPC ingress shards per address family. */
+	private int rpcIngressShards;
+
+	/** Lookup result TTL in milliseconds, 0 to disable. */
+	private int lookupCacheTTL;
+
+	/** Maximum number of the cached crypto contexts. */
+	private int cryptoContextCacheSize;
+
 	/** Whether spam throttling is enabled for this node. */
 	private boolean enableSpamThrottling;
 
@@ -124,6 +150,13 @@ public class DefaultNodeConfiguration implements NodeConfiguration {
 		this.databaseUri = "jdbc:sqlite:node.db";
 		this.databasePoolSize = 0;
 		this.databaseSchemaName = null;
+		this.databaseWriteDelay = 0;
+		this.databaseWriteBatchSize = 0;
+		this.databaseDurableWrites = false;
+		this.databaseCacheSize = 0;
+		this.rpcIngressShards = 1;
+		this.lookupCacheTTL = 0;
+		this.cryptoContextCacheSize = DEFAULT_CRYPTO_CONTEXT_CACHE_SIZE;
 		this.enableSpamThrottling = true;
 		this.enableSuspiciousNodeDetector = true;
 		this.enableDeveloperMode = false;
@@ -218,6 +251,26 @@ public class DefaultNodeConfiguration implements NodeConfiguration {
 		return databaseSchemaName;
 	}
 
+	@Override
+	public int databaseWriteDelay() {
+		return databaseWriteDelay;
+	}
+
+	@Override
+	public int databaseWriteBatchSize() {
+		return databaseWriteBatchSize;
+	}
+
+	@Override
+	public boolean databaseDurableWrites() {
+		return databaseDurableWrites;
+	}
+
+	@Override
+	public int databaseCacheSize() {
+		return databaseCacheSize;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @return the collection of bootstrap nodes for this configuration.
@@ -227,6 +280,33 @@ public class DefaultNodeConfiguration implements NodeConfiguration {
 		return bootstraps;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * @return the number of RPC ingress shards.
+	 */
+	@Override
+	public int rpcIngressShards() {
+		return rpcIngressShards;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @return the lookup result TTL in milliseconds.
+	 */
+	@Override
+	public int lookupCacheTTL() {
+		return lookupCacheTTL;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * @return the maximum number of the cached crypto contexts.
+	 */
+	@Override
+	public int cryptoContextCacheSize() {
+		return cryptoContextCacheSize;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * @return true if spam throttling is enabled.
@@ -277,7 +357,14 @@ public class DefaultNodeConfiguration implements NodeConfiguration {
 	 *   <li>{@code databaseUri} (String, required) - Database URI (defaults to "jdbc:sqlite:node.db")</li>
 	 *   <li>{@code databasePoolSize} (int, optional) - Database pool size (defaults to 0)</li>
 	 *   <li>{@code databaseSchemaName} (String, optional) - Database schema name (defaults to null)</li>
+	 *   <li>{@code databaseWriteDelay} (int, optional) - Database write-behind delay in ms (defaults to 0, write through)</li>
+	 *   <li>{@code databaseWriteBatchSize} (int, optional) - Database write-behind batch size (defaults to 0)</li>
+	 *   <li>{@code databaseDurableWrites} (Boolean, optional) - Acknowledge buffered writes after commit (default: false)</li>
+	 *   <li>{@code databaseCacheSize} (int, optional) - Storage read cache size in MB (defaults to 0, disabled)</li>
 	 *   <li>{@code bootstraps} (List&lt;List&lt;Object&gt;&gt; optional) - Bootstrap nodes as [id, host, port] triplets</li>
+	 *   <li>{@code rpcIngressShards} (int, optional) - Number of RPC ingress shards (default: 1)</li>
+	 *   <li>{@code lookupCacheTTL} (int, optional) - Lookup result TTL in ms (default: 0, disabled)</li>
+	 *   <li>{@code cryptoContextCacheSize} (int, optional) - Maximum number of the cached crypto contexts (default: 4096)</li>
 	 *   <li>{@code enableSpamThrottling} (Boolean, optional) - Enable spam throttling (default: true)</li>
 	 *   <li>{@code enableSuspiciousNodeDetector} (Boolean, optional) - Enable suspicious node detection (default: true)</li>
 	 *   <li>{@code enableDeveloperMode} (Boolean, optional) - Enable developer mode (default: false)</li>
@@ -332,6 +419,16 @@ public class DefaultNodeConfiguration implements NodeConfiguration {
 			} else {
 				config.databaseSchemaName = null;
 			}
+			config.databaseWriteDelay = db.getInteger("writeDelay", config.databaseWriteDelay);
+			if (config.databaseWriteDelay < 0)
+				throw new IllegalArgumentException("Invalid database write delay: " + config.databaseWriteDelay);
+			config.databaseWriteBatchSize = db.getInteger("writeBatchSize", config.databaseWriteBatchSize);
+			if (config.databaseWriteBatchSize < 0)
+				throw new IllegalArgumentException("Invalid database write batch size: " + config.databaseWriteBatchSize);
+			config.databaseDurableWrites = db.getBoolean("durableWrites", config.databaseDurableWrites);
+			config.databaseCacheSize = db.getInteger("cacheSize", config.databaseCacheSize);
+			if (config.databaseCacheSize < 0)
+				throw new IllegalArgumentException("Invalid database cache size: " + config.databaseCacheSize);
 		}
 
 		List<List<Object>> lst = m.getList("bootstraps");
@@ -352,6 +449,18 @@ public class DefaultNodeConfiguration implements NodeConfiguration {
 			});
 		}
 
+		config.rpcIngressShards = m.getInteger("rpcIngressShards", config.rpcIngressShards);
+		if (config.rpcIngressShards < 1)
+			throw new IllegalArgumentException("Invalid RPC ingress shards: " + config.rpcIngressShards);
+
+		config.lookupCacheTTL = m.getInteger("lookupCacheTTL", config.lookupCacheTTL);
+		if (config.lookupCacheTTL < 0)
+			throw new IllegalArgumentException("Invalid lookup cache TTL: " + config.lookupCacheTTL);
+
+		config.cryptoContextCacheSize = m.getInteger("cryptoContextCacheSize", config.cryptoContextCacheSize);
+		if (config.cryptoContextCacheSize < 1)
+			throw new IllegalArgumentException("Invalid crypto context cache size: " + config.cryptoContextCacheSize);
+
 		config.enableSpamThrottling = m.getBoolean("enableSpamThrottling", config.enableSpamThrottling);
 		config.enableSuspiciousNodeDetector = m.getBoolean("enableSuspiciousNodeDetector", config.enableSuspiciousNodeDetector);
 		config.enableDeveloperMode = m.getBoolean("enableDeveloperMode", config.enableDeveloperMode);
@@ -391,6 +500,15 @@ public class DefaultNodeConfiguration implements NodeConfiguration {
 			db.put("poolSize", databasePoolSize);
 		if (databaseSchemaName != null)
 			db.put("schema", databaseSchemaName);
+		if (databaseWriteDelay > 0) {
+			db.put("writeDelay", databaseWriteDelay);
+			if (databaseWriteBatchSize > 0)
+				db.put("writeBatchSize", databaseWriteBatchSize);
+			if (databaseDurableWrites)
+				db.put("durableWrites", true);
+		}
+		if (databaseCacheSize > 0)
+			db.put("cacheSize", databaseCacheSize);
 		map.put("database", db);
 
 		if (!bootstraps.isEmpty()) {
@@ -399,6 +517,15 @@ public class DefaultNodeConfiguration implements NodeConfiguration {
 			map.put("bootstraps", lst);
 		}
 
+		if (rpcIngressShards > 1)
+			map.put("rpcIngressShards", rpcIngressShards);
+
+		if (lookupCacheTTL > 0)
+			map.put("lookupCacheTTL", lookupCacheTTL);
+
+		if (cryptoContextCacheSize != DEFAULT_CRYPTO_CONTEXT_CACHE_SIZE)
+			map.put("cryptoContextCacheSize", cryptoContextCacheSize);
+
 		map.put("enableSpamThrottling", enableSpamThrottling);
 		map.put("enableSuspiciousNodeDetector", enableSuspiciousNodeDetector);
 		map.put("enableDeveloperMode", enableDeveloperMode);
@@ -719,7 +846,7 @@ public class DefaultNodeConfiguration implements NodeConfiguration {
 			if (poolSize < 0)
 				throw new IllegalArgumentException("Invalid pool size: " + poolSize);
 
-			if (!uri.startsWith("postgresql://") && !uri.startsWith("jdbc:sqlite:"))
+			if (!uri.startsWith("postgresql://") && !uri.startsWith("jdbc:sqlite:") && !uri.startsWith("memory:"))
 				throw new IllegalArgumentException("Unsupported storage URL: " + uri);
 			config().databaseUri = uri;
 			config().databasePoolSize = poolSize;
@@ -763,6 +890,43 @@ public class DefaultNodeConfiguration implements NodeConfiguration {
 			return this;
 		}
 
+		/**
+		 * Enables the write-behind mode of the database storage: the writes are buffered, coalesced
+		 * per key and flushed in batches.
+		 *
+		 * @param delay     the maximum time in milliseconds a write stays buffered, 0 to write through
+		 * @param batchSize the maximum number of writes per batch, 0 for the storage default
+		 * @param durable   {@code true} to acknowledge the writes after their batch is committed
+		 * @return the builder instance for method chaining
+		 * @throws IllegalArgumentException if the delay or the batch size is negative
+		 */
+		public Builder databaseWriteBehind(int delay, int batchSize, boolean durable) {
+			if (delay < 0)
+				throw new IllegalArgumentException("Invalid write delay: " + delay);
+			if (batchSize < 0)
+				throw new IllegalArgumentException("Invalid write batch size: " + batchSize);
+
+			config().databaseWriteDelay = delay;
+			config().databaseWriteBatchSize = batchSize;
+			config().databaseDurableWrites = durable;
+			return this;
+		}
+
+		/**
+		 * Sets the size of the in-memory read cache in front of the storage.
+		 *
+		 * @param size the cache size in megabytes, 0 to disable the cache
+		 * @return the builder instance for method chaining
+		 * @throws IllegalArgumentException if the size is negative
+		 */
+		public Builder databaseCacheSize(int size) {
+			if (size < 0)
+				throw new IllegalArgumentException("Invalid cache size: " + size);
+
+			config().databaseCacheSize = size;
+			return this;
+		}
+
 		/**
 		 * Add a new bootstrap node to the configuration.
 		 *
@@ -840,6 +1004,50 @@ public class DefaultNodeConfiguration implements NodeConfiguration {
 			return this;
 		}
 
+		/**
+		 * Set the number of RPC ingress shards per address family. Values greater than one bind
+		 * multiple sockets to the DHT port with SO_REUSEPORT, each on its own event loop.
+		 * @param shards the number of ingress shards (must be 1 or greater)
+		 * @return this Builder for chaining
+		 * @throws IllegalArgumentException if shards is less than 1
+		 */
+		public Builder rpcIngressShards(int shards) {
+			if (shards < 1)
+				throw new IllegalArgumentException("Invalid RPC ingress shards: " + shards);
+
+			config().rpcIngressShards = shards;
+			return this;
+		}
+
+		/**
+		 * Set how long the lookup results are reused by the identical lookups.
+		 * @param ttl the lookup result TTL in milliseconds, 0 to disable
+		 * @return this Builder for chaining
+		 * @throws IllegalArgumentException if ttl is negative
+		 */
+		public Builder lookupCacheTTL(int ttl) {
+			if (ttl < 0)
+				throw new IllegalArgumentException("Invalid lookup cache TTL: " + ttl);
+
+			config().lookupCacheTTL = ttl;
+			return this;
+		}
+
+		/**
+		 * Set the maximum number of the cached crypto contexts, each holds a precomputed shared key
+		 * in native memory.
+		 * @param size the maximum number of the cached crypto contexts (must be 1 or greater)
+		 * @return this Builder for chaining
+		 * @throws IllegalArgumentException if size is less than 1
+		 */
+		public Builder cryptoContextCacheSize(int size) {
+			if (size < 1)
+				throw new IllegalArgumentException("Invalid crypto context cache size: " + size);
+
+			config().cryptoContextCacheSize = size;
+			return this;
+		}
+
 		/**
 		 * Enables spam throttling for the node.
 		 * @return this Builder for chaining
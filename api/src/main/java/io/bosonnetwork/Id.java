@@ -23,7 +23,10 @@
 
 package io.bosonnetwork;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.math.BigInteger;
+import java.nio.ByteOrder;
 import java.security.SecureRandom;
 import java.util.Arrays;
 
@@ -37,6 +40,10 @@ import io.bosonnetwork.utils.Hex;
  * nodes, values, peers, and other objects. This class is immutable and thread-safe.
  * All instances are guaranteed to have a valid byte array of length {@link #BYTES}.
  * The internal state cannot be modified after construction.
+ * <p>
+ * The XOR metric and the ordering operations read the identifier as four big-endian 64-bit
+ * words through a byte array view, so they run as 4-word operations and, except for the
+ * methods that return a new identifier, never allocate.
  */
 public class Id implements Comparable<Id> {
 	/**
@@ -61,6 +68,9 @@ public class Id implements Comparable<Id> {
 	public static final Id MAX_ID = createMaxId();
 
 	private static final String DID_PREFIX = "did:boson:";
+	// Big-endian 64-bit view of the identifier bytes
+	private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+	private static final int WORDS = BYTES / Long.BYTES;
 	private static final SecureRandom RANDOM = new SecureRandom();
 
 	private final byte[] bytes;
@@ -331,6 +341,16 @@ public class Id implements Comparable<Id> {
 		return bytes;
 	}
 
+	/**
+	 * Reads the 64-bit word at the given index, the word 0 holds the most significant bits.
+	 *
+	 * @param index the word index (0 to 3).
+	 * @return the word in big-endian order.
+	 */
+	private long word(int index) {
+		return (long) LONG.get(bytes, index << 3);
+	}
+
 	/**
 	 * Reads four bytes from the specified offset and returns them as an unsigned integer
 	 * in big-endian order.
@@ -418,13 +438,8 @@ public class Id implements Comparable<Id> {
 			throw new NullPointerException("Identifier cannot be null");
 
 		final Id result = new Id();
-
-		final byte[] r = result.bytes;
-		final byte[] a = id1.bytes;
-		final byte[] b = id2.bytes;
-
-		for (int i = 0; i < BYTES; i++)
-			r[i] = (byte) (a[i] ^ b[i]);
+		for (int i = 0; i < WORDS; i++)
+			LONG.set(result.bytes, i << 3, id1.word(i) ^ id2.word(i));
 
 		return result;
 	}
@@ -479,7 +494,14 @@ public class Id implements Comparable<Id> {
 		if (id1 == null || id2 == null)
 			throw new NullPointerException("Identifier cannot be null");
 
-		return SIZE - id1.distance(id2).getLeadingZeros();
+		// leading zeros of the XOR distance, without materializing it
+		for (int i = 0; i < WORDS; i++) {
+			long d = id1.word(i) ^ id2.word(i);
+			if (d != 0)
+				return SIZE - (i << 6) - Long.numberOfLeadingZeros(d);
+		}
+
+		return 0;
 	}
 
 	/**
@@ -494,15 +516,16 @@ public class Id implements Comparable<Id> {
 		if (id1 == null || id2 == null)
 			throw new NullPointerException("Identifier cannot be null");
 
-		final int mmi = Arrays.mismatch(id1.bytes, id2.bytes);
-		if (mmi == -1)
-			return 0;
-
-		int r = bytes[mmi] & 0xff;
-		int a = id1.bytes[mmi] & 0xff;
-		int b = id2.bytes[mmi] & 0xff;
+		for (int i = 0; i < WORDS; i++) {
+			long a = id1.word(i);
+			long b = id2.word(i);
+			if (a != b) {
+				long r = word(i);
+				return Long.compareUnsigned(a ^ r, b ^ r) < 0 ? -1 : 1;
+			}
+		}
 
-		return Integer.compareUnsigned(a ^ r, b ^ r);
+		return 0;
 	}
 
 	/**
@@ -511,23 +534,13 @@ public class Id implements Comparable<Id> {
 	 * @return the number of leading zeros (0 to {@link #SIZE}).
 	 */
 	public int getLeadingZeros() {
-		int msb = 0;
-
-		int i = 0;
-		while (i < BYTES && bytes[i] == 0) i++;
-		msb += i << 3;
-
-		if (i < BYTES) {
-			byte b = bytes[i];
-			if (b > 0) {
-				int n = 7;
-				if (b >= 1 <<  4) { n -=  4; b >>>=  4; }
-				if (b >= 1 <<  2) { n -=  2; b >>>=  2; }
-				msb += (n - (b >>> 1));
-			}
+		for (int i = 0; i < WORDS; i++) {
+			long w = word(i);
+			if (w != 0)
+				return (i << 6) + Long.numberOfLeadingZeros(w);
 		}
 
-		return msb;
+		return SIZE;
 	}
 
 	/**
@@ -536,24 +549,13 @@ public class Id implements Comparable<Id> {
 	 * @return the number of trailing zeros (0 to {@link #SIZE}).
 	 */
 	public int getTrailingZeros() {
-		int lsb = 0;
-
-		int i =  BYTES - 1;
-		while (i >= 0 && bytes[i] == 0) i--;
-		lsb += (BYTES - 1 - i) << 3;
-
-		if (i >= 0) {
-			byte b = (byte)(~bytes[i] & (bytes[i] - 1));
-			if (b <= 0) {
-				lsb += (b & 8);
-			} else {
-				if (b > 1 <<  4) { lsb +=  4; b >>>=  4; }
-				if (b > 1 <<  2) { lsb +=  2; b >>>=  2; }
-				lsb += ((b >>> 1) + 1);
-			}
+		for (int i = WORDS - 1; i >= 0; i--) {
+			long w = word(i);
+			if (w != 0)
+				return ((WORDS - 1 - i) << 6) + Long.numberOfTrailingZeros(w);
 		}
 
-		return lsb;
+		return SIZE;
 	}
 
 	/**
@@ -573,13 +575,15 @@ public class Id implements Comparable<Id> {
 		if (depth < 0 || depth >= SIZE)
 			throw new IllegalArgumentException("Depth of bits must be in range [0, " + SIZE + ")");
 
-		int indexToCheck = depth >>> 3;
-
-		int diff = (id1.bytes[indexToCheck] ^ id2.bytes[indexToCheck]) & 0xff;
-		boolean bitsDiff = (diff & (0xff80 >>> (depth & 0x07))) == 0;
+		// bits [0, depth] must be equal
+		final int last = depth >>> 6;
+		for (int i = 0; i < last; i++) {
+			if (id1.word(i) != id2.word(i))
+				return false;
+		}
 
-		return Arrays.mismatch(id1.bytes, 0, indexToCheck,
-				id2.bytes, 0, indexToCheck) == -1 && bitsDiff;
+		long mask = 0x8000000000000000L >> (depth & 0x3F);
+		return ((id1.word(last) ^ id2.word(last)) & mask) == 0;
 	}
 
 	/**
@@ -641,7 +645,14 @@ public class Id implements Comparable<Id> {
 	 *		 equal to, or greater than {@code id2}.
 	 */
 	public static int compare(Id id1, Id id2) {
-		return Arrays.compareUnsigned(id1.bytes, id2.bytes);
+		for (int i = 0; i < WORDS; i++) {
+			long a = id1.word(i);
+			long b = id2.word(i);
+			if (a != b)
+				return Long.compareUnsigned(a, b);
+		}
+
+		return 0;
 	}
 
 	/**
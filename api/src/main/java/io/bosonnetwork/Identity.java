@@ -22,6 +22,9 @@
 
 package io.bosonnetwork;
 
+import java.util.Arrays;
+import java.util.Objects;
+
 import io.bosonnetwork.crypto.CryptoException;
 
 
@@ -98,6 +101,83 @@ public interface Identity {
 	 */
 	byte[] decrypt(Id sender, byte[] data) throws CryptoException;
 
+	/**
+	 * Encrypts the provided data for the specified receiver, reserving {@code headroom} bytes at the
+	 * beginning of the returned array. The caller can fill the headroom with its own header, avoiding
+	 * another copy when assembling the outbound packet.
+	 * <p>
+	 * The default implementation delegates to {@link #encrypt(Id, byte[])} and copies the result,
+	 * implementations should override this method to write the cipher directly.
+	 * </p>
+	 *
+	 * @param receiver the {@link Id} of the intended receiver for whom the data is encrypted
+	 * @param data the plaintext data to encrypt
+	 * @param headroom the number of bytes reserved at the beginning of the returned array
+	 * @return the array of {@code headroom || nonce || cipher}
+	 * @throws CryptoException if the encryption process fails due to cryptographic errors
+	 */
+	default byte[] encrypt(Id receiver, byte[] data, int headroom) throws CryptoException {
+		if (headroom < 0)
+			throw new IllegalArgumentException("Invalid headroom: " + headroom);
+
+		byte[] cipher = encrypt(receiver, data);
+		if (headroom == 0)
+			return cipher;
+
+		byte[] buf = new byte[headroom + cipher.length];
+		System.arraycopy(cipher, 0, buf, headroom, cipher.length);
+		return buf;
+	}
+
+	/**
+	 * Encrypts a slice of the provided array for the specified receiver, writing {@code nonce || cipher}
+	 * into the given output array. This allows encrypting from a reusable encoder buffer directly into
+	 * an outbound packet buffer.
+	 * <p>
+	 * The default implementation copies the slice, delegates to {@link #encrypt(Id, byte[])} and copies
+	 * the result, implementations should override this method to encrypt between the arrays directly.
+	 * </p>
+	 *
+	 * @param receiver the {@link Id} of the intended receiver for whom the data is encrypted
+	 * @param data the array containing the plaintext data
+	 * @param offset the offset of the plaintext data in the array
+	 * @param length the length of the plaintext data
+	 * @param out the array to write the encrypted data to, with room for
+	 *            {@code CryptoBox.Nonce.BYTES + length + CryptoBox.MAC_BYTES} bytes
+	 * @param outOffset the offset in the output array to write at
+	 * @return the number of bytes written to the output array
+	 * @throws CryptoException if the encryption process fails due to cryptographic errors
+	 */
+	default int encrypt(Id receiver, byte[] data, int offset, int length, byte[] out, int outOffset) throws CryptoException {
+		Objects.checkFromIndexSize(offset, length, data.length);
+		byte[] cipher = encrypt(receiver, offset == 0 && length == data.length ?
+				data : Arrays.copyOfRange(data, offset, offset + length));
+		Objects.checkFromIndexSize(outOffset, cipher.length, out.length);
+		System.arraycopy(cipher, 0, out, outOffset, cipher.length);
+		return cipher.length;
+	}
+
+	/**
+	 * Decrypts a slice of the provided array, the slice is the encrypted data prefixed with nonce.
+	 * This allows decrypting directly from a received packet without copying the payload first.
+	 * <p>
+	 * The default implementation copies the slice and delegates to {@link #decrypt(Id, byte[])},
+	 * implementations should override this method to decrypt from the slice directly.
+	 * </p>
+	 *
+	 * @param sender the {@link Id} of the sender who originally encrypted the data
+	 * @param data the array containing the encrypted data
+	 * @param offset the offset of the encrypted data in the array
+	 * @param length the length of the encrypted data
+	 * @return the decrypted plaintext data as a byte array
+	 * @throws CryptoException if decryption fails due to cryptographic errors or invalid parameters
+	 */
+	default byte[] decrypt(Id sender, byte[] data, int offset, int length) throws CryptoException {
+		Objects.checkFromIndexSize(offset, length, data.length);
+		return decrypt(sender, offset == 0 && length == data.length ?
+				data : Arrays.copyOfRange(data, offset, offset + length));
+	}
+
 	/**
 	 * Decrypts the provided data sent by the specified sender using a one-shot decryption operation.
 	 * Nonce is also used in the decryption process to ensure proper data integrity and uniqueness.
@@ -116,6 +196,11 @@ public interface Identity {
 	 * The returned {@link CryptoContext} can be used for multiple encryption and decryption operations
 	 * with the given peer.
 	 * </p>
+	 * <p>
+	 * The caller owns the returned context and must {@link CryptoContext#close() close} it exactly once
+	 * when done with it, the context can not be used after it is closed. An implementation may return a
+	 * handle on a context shared with other callers, so closing it only gives the caller's hold back.
+	 * </p>
 	 *
 	 * @param id the {@link Id} of the peer to establish a context with
 	 * @return a new {@link CryptoContext} for secure communication
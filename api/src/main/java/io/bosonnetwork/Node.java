@@ -440,7 +440,8 @@ public interface Node extends Identity {
 	byte[] decrypt(Id sender, byte[] data) throws CryptoException;
 
 	/**
-	 * Creates a {@link CryptoContext} object for the target ID.
+	 * Creates a {@link CryptoContext} object for the target ID. The caller must close the
+	 * returned context exactly once when done with it, see {@link Identity#createCryptoContext(Id)}.
 	 *
 	 * @param id the target {@link Id}
 	 * @return the {@link CryptoContext} object for the ID
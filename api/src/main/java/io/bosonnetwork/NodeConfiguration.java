@@ -150,6 +150,56 @@ public interface NodeConfiguration {
 		return null;
 	}
 
+	/**
+	 * Returns the write-behind delay of the database storage, in milliseconds.
+	 * <p>
+	 * When greater than zero, the value and peer writes are buffered in memory, coalesced per key,
+	 * and flushed to the database in one batched transaction once the delay elapses or the buffer
+	 * reaches {@link #databaseWriteBatchSize()}. Acknowledged writes not yet flushed may be lost on
+	 * a crash, unless {@link #databaseDurableWrites()} is enabled.
+	 * </p>
+	 *
+	 * @return the write-behind delay in milliseconds, or {@code 0} to write through.
+	 */
+	default int databaseWriteDelay() {
+		return 0;
+	}
+
+	/**
+	 * Returns the maximum number of buffered writes flushed in one batch when write-behind is enabled.
+	 *
+	 * @return the write batch size, or {@code 0} to use the default of the storage.
+	 */
+	default int databaseWriteBatchSize() {
+		return 0;
+	}
+
+	/**
+	 * Whether the buffered writes are acknowledged only after their batch is committed.
+	 * <p>
+	 * Only applies when write-behind is enabled. The writes are still batched and share one
+	 * transaction (group commit), but the callers wait for the commit instead of the buffer.
+	 * </p>
+	 *
+	 * @return {@code true} to acknowledge writes after commit, {@code false} after buffering.
+	 */
+	default boolean databaseDurableWrites() {
+		return false;
+	}
+
+	/**
+	 * Returns the size of the in-memory read cache in front of the storage, in megabytes.
+	 * <p>
+	 * When greater than zero, the value and peer lookups served to the network are cached, bounded
+	 * by the approximate memory of the cached records. The writes invalidate the affected keys.
+	 * </p>
+	 *
+	 * @return the cache size in megabytes, or {@code 0} to disable the cache.
+	 */
+	default int databaseCacheSize() {
+		return 0;
+	}
+
 	/**
 	 * Returns a collection of bootstrap nodes that the DHT node will use to join the network.
 	 * <p>
@@ -163,6 +213,49 @@ public interface NodeConfiguration {
 		return Collections.emptyList();
 	}
 
+	/**
+	 * Returns the number of RPC ingress shards per address family.
+	 * <p>
+	 * When greater than one, the DHT binds that many datagram sockets to the same port with
+	 * {@code SO_REUSEPORT}, each on its own event loop, so packet decryption and decoding are
+	 * spread across multiple cores. Requires a native transport (epoll or io_uring); falls back
+	 * to a single socket otherwise.
+	 * </p>
+	 *
+	 * @return the number of RPC ingress shards, {@code 1} to disable sharding.
+	 */
+	default int rpcIngressShards() {
+		return 1;
+	}
+
+	/**
+	 * Returns how long the results of the network lookups are kept, in milliseconds.
+	 * <p>
+	 * The concurrent identical lookups always share one lookup. When greater than zero, the
+	 * results, including the empty ones, are also reused by the identical lookups issued within
+	 * this period. The local writes of a value or peer invalidate its cached lookups.
+	 * </p>
+	 *
+	 * @return the lookup result TTL in milliseconds, or {@code 0} to disable the result cache.
+	 */
+	default int lookupCacheTTL() {
+		return 0;
+	}
+
+	/**
+	 * Returns the maximum number of the cached crypto contexts.
+	 * <p>
+	 * A context keeps the shared key precomputed for a remote node, in about 16 KiB of native
+	 * memory. The contexts of the routing table entries are prepared ahead up to this limit, so it
+	 * should be sized for the routing table and the other active nodes of a busy node.
+	 * </p>
+	 *
+	 * @return the maximum number of the cached crypto contexts.
+	 */
+	default int cryptoContextCacheSize() {
+		return 4096;
+	}
+
 	/**
 	 * Indicates whether metrics collection is enabled for the DHT node.
 	 * <p>
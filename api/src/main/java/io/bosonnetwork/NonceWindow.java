@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Sliding-window replay check for the nonces received from a peer.
+ * <p>
+ * A nonce is a 64-bit counter plus a salt that is fixed for the lifetime of the sender's context.
+ * The window tracks the highest counter accepted for the current salt and a bitmap of the
+ * {@link #SIZE} counters below it, so the packets reordered within the window are accepted and
+ * the duplicates are rejected. The counters are compared with the wrap-around arithmetic.
+ * <p>
+ * A nonce with a salt never seen before starts a new window: the peer created a new context for us.
+ * The previous salt is retired, and the nonces with a retired salt are rejected, otherwise a replayed
+ * message from an old context of the peer would reset the window and re-open the current one to the
+ * replays. The last {@link #MAX_RETIRED_SALTS} salts are remembered.
+ * <p>
+ * The window state is immutable and replaced by compare-and-set, the window is lock-free.
+ */
+final class NonceWindow {
+	/**
+	 * The number of counters tracked below the highest one.
+	 */
+	static final int SIZE = Long.SIZE;
+	/**
+	 * The number of the retired salts remembered.
+	 */
+	static final int MAX_RETIRED_SALTS = 8;
+
+	private static final long[] NO_SALTS = new long[0];
+
+	private final AtomicReference<State> state = new AtomicReference<>();
+
+	// bit i of the bitmap is the counter (top - i), retired holds the salt pairs, the newest first
+	private record State(long salt0, long salt1, long top, long bitmap, long[] retired) {
+		boolean sameSalt(long salt0, long salt1) {
+			return this.salt0 == salt0 && this.salt1 == salt1;
+		}
+
+		boolean isRetired(long salt0, long salt1) {
+			for (int i = 0; i < retired.length; i += 2) {
+				if (retired[i] == salt0 && retired[i + 1] == salt1)
+					return true;
+			}
+
+			return false;
+		}
+
+		// starts the window of a new salt, retires the current one
+		State renew(long salt0, long salt1, long counter) {
+			int length = Math.min(retired.length + 2, MAX_RETIRED_SALTS * 2);
+			long[] salts = new long[length];
+			salts[0] = this.salt0;
+			salts[1] = this.salt1;
+			System.arraycopy(retired, 0, salts, 2, length - 2);
+			return new State(salt0, salt1, counter, 1L, salts);
+		}
+	}
+
+	/**
+	 * Checks if the nonce can be accepted, without updating the window.
+	 *
+	 * @param salt0   the first half of the nonce salt.
+	 * @param salt1   the second half of the nonce salt.
+	 * @param counter the nonce counter.
+	 * @return {@code true} if the nonce was not seen, is not too old and its salt is not retired,
+	 *         {@code false} otherwise.
+	 */
+	boolean check(long salt0, long salt1, long counter) {
+		State s = state.get();
+		if (s == null)
+			return true;
+
+		if (s.sameSalt(salt0, salt1))
+			return next(s, counter) != null;
+
+		return !s.isRetired(salt0, salt1);
+	}
+
+	/**
+	 * Accepts the nonce into the window. Should be called only after the message is authenticated,
+	 * so a forged packet can not move the window.
+	 *
+	 * @param salt0   the first half of the nonce salt.
+	 * @param salt1   the second half of the nonce salt.
+	 * @param counter the nonce counter.
+	 * @return {@code true} if the nonce is accepted, {@code false} if it was seen, is too old, or its
+	 *         salt is retired.
+	 */
+	boolean update(long salt0, long salt1, long counter) {
+		while (true) {
+			State s = state.get();
+			State n;
+			if (s == null)
+				n = new State(salt0, salt1, counter, 1L, NO_SALTS);
+			else if (s.sameSalt(salt0, salt1))
+				n = next(s, counter);
+			else
+				n = s.isRetired(salt0, salt1) ? null : s.renew(salt0, salt1, counter);
+
+			if (n == null)
+				return false;
+
+			if (state.compareAndSet(s, n))
+				return true;
+		}
+	}
+
+	/**
+	 * Clears the window and the retired salts, any nonce will be accepted next.
+	 */
+	void reset() {
+		state.set(null);
+	}
+
+	private static State next(State s, long counter) {
+		long diff = counter - s.top; // wrap-around safe
+		if (diff > 0) {
+			long bitmap = diff < SIZE ? (s.bitmap << diff) | 1L : 1L;
+			return new State(s.salt0, s.salt1, counter, bitmap, s.retired);
+		}
+
+		if (diff <= -SIZE)
+			return null; // too old
+
+		long bit = 1L << -diff;
+		if ((s.bitmap & bit) != 0)
+			return null; // duplicated
+
+		return new State(s.salt0, s.salt1, s.top, s.bitmap | bit, s.retired);
+	}
+}
@@ -1,10 +1,15 @@
 package io.bosonnetwork.crypto;
 
+import java.util.Collection;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Policy;
 import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 
 import io.bosonnetwork.CryptoContext;
 import io.bosonnetwork.Id;
@@ -17,9 +22,114 @@ import io.bosonnetwork.Identity;
  * providing better performance compared to a non-caching {@code CryptoIdentity}.
  * <p>
  * The cache is implemented using Caffeine with configurable settings to control resource usage and cache expiration.
+ * Each cached context holds a precomputed shared key in native memory, so the cache should be bounded, see
+ * {@link #CONTEXT_FOOTPRINT} for its estimated size. An evicted context is closed once the in-flight operations
+ * are finished and the handles returned by {@link #createCryptoContext(Id)} are closed.
  */
 public class CachedCryptoIdentity extends CryptoIdentity implements Identity {
-	private volatile LoadingCache<Id, CryptoContext> cryptoContexts;
+	/**
+	 * The estimated memory footprint of a cached context in bytes. The precomputed shared key is kept in
+	 * a guarded native allocation, which takes a few memory pages, plus the Java objects of the context.
+	 */
+	public static final int CONTEXT_FOOTPRINT = 16 * 1024;
+
+	private volatile LoadingCache<Id, CachedContext> cryptoContexts;
+
+	/**
+	 * A cached context with a reference count: one reference held by the cache, plus one per in-flight
+	 * operation and one per {@link ContextHandle} not closed yet. The shared key is released when the
+	 * count drops to zero, after the cache removed the context.
+	 */
+	private static final class CachedContext extends CryptoContext {
+		private final CryptoBox box;
+		private final AtomicInteger refs;
+
+		CachedContext(Id id, CryptoBox box) {
+			super(id, box);
+			this.box = box;
+			this.refs = new AtomicInteger(1);
+		}
+
+		boolean retain() {
+			while (true) {
+				int n = refs.get();
+				if (n == 0)
+					return false; // already closed
+
+				if (refs.compareAndSet(n, n + 1))
+					return true;
+			}
+		}
+
+		void release() {
+			if (refs.decrementAndGet() == 0)
+				super.close();
+		}
+	}
+
+	/**
+	 * The handle of a cached context returned by {@link #createCryptoContext(Id)}. Each handle holds
+	 * one reference on the shared context and gives it back on the first {@link #close()}, the later
+	 * calls have no effect. A closed handle can not be used anymore.
+	 */
+	private static final class ContextHandle extends CryptoContext {
+		private final CachedContext context;
+		private final AtomicBoolean closed;
+
+		ContextHandle(CachedContext context) {
+			super(context.getId(), context.box);
+			this.context = context;
+			this.closed = new AtomicBoolean(false);
+		}
+
+		private CachedContext context() {
+			if (closed.get())
+				throw new IllegalStateException("Context already closed");
+
+			return context;
+		}
+
+		@Override
+		public byte[] encrypt(byte[] data) {
+			return context().encrypt(data);
+		}
+
+		@Override
+		public byte[] encrypt(byte[] data, int headroom) {
+			return context().encrypt(data, headroom);
+		}
+
+		@Override
+		public int encrypt(byte[] data, int offset, int length, byte[] out, int outOffset) {
+			return context().encrypt(data, offset, length, out, outOffset);
+		}
+
+		@Override
+		public byte[] decrypt(byte[] data) throws CryptoException {
+			return context().decrypt(data);
+		}
+
+		@Override
+		public byte[] decrypt(byte[] data, int offset, int length) throws CryptoException {
+			return context().decrypt(data, offset, length);
+		}
+
+		@Override
+		public void resetNonce() {
+			context().resetNonce();
+		}
+
+		@Override
+		public void close() {
+			if (closed.compareAndSet(false, true))
+				context.release();
+		}
+	}
+
+	@FunctionalInterface
+	private interface ContextOperation<T> {
+		T apply(CryptoContext context) throws CryptoException;
+	}
 
 	/**
 	 * Constructs a new {@code CachedCryptoIdentity} with a randomly generated signature key pair
@@ -57,7 +167,8 @@ public class CachedCryptoIdentity extends CryptoIdentity implements Identity {
 
 	/**
 	 * Initializes the cache with the provided Caffeine builder and attaches a removal listener
-	 * that closes {@link CryptoContext} instances when they are removed from the cache.
+	 * that closes {@link CryptoContext} instances when they are removed from the cache and no
+	 * longer in use.
 	 *
 	 * @param caffeine the Caffeine cache builder used to configure the cache; must not be {@code null}
 	 * @throws NullPointerException if {@code caffeine} is {@code null}
@@ -69,10 +180,10 @@ public class CachedCryptoIdentity extends CryptoIdentity implements Identity {
 		if (cryptoContexts != null)
 			throw new IllegalStateException("Cache already initialized");
 
-		this.cryptoContexts = caffeine.removalListener((Id id, CryptoContext ctx, RemovalCause cause) -> {
+		this.cryptoContexts = caffeine.removalListener((Id id, CachedContext ctx, RemovalCause cause) -> {
 			if (ctx != null)
-				ctx.close();
-		}).build(super::createCryptoContext);
+				ctx.release();
+		}).build(id -> new CachedContext(id, createCryptoBox(id)));
 	}
 
 	/**
@@ -90,8 +201,85 @@ public class CachedCryptoIdentity extends CryptoIdentity implements Identity {
 			cryptoContexts.invalidateAll();
 	}
 
-	private CryptoContext getContext(Id id) throws CryptoException {
-		return cryptoContexts != null ? cryptoContexts.get(id) : super.createCryptoContext(id);
+	/**
+	 * Precomputes and caches the contexts for the given identities that are not cached yet, so the
+	 * first packets exchanged with them skip the key conversion and the shared key computation.
+	 * <p>
+	 * The warm-up stops when a bounded cache is full, it never evicts the cached contexts to make
+	 * room for the new ones. The identities should be given in the order of preference.
+	 * <p>
+	 * The precomputation is CPU bound, the caller should invoke this method from a worker thread.
+	 *
+	 * @param ids the identities to prepare the contexts for
+	 * @return the number of the contexts created
+	 */
+	public int warmUp(Collection<Id> ids) {
+		Objects.requireNonNull(ids, "ids");
+
+		LoadingCache<Id, CachedContext> cache = cryptoContexts;
+		if (cache == null)
+			return 0;
+
+		long capacity = cache.policy().eviction()
+				.filter(eviction -> !eviction.isWeighted())
+				.map(Policy.Eviction::getMaximum).orElse(Long.MAX_VALUE);
+		int created = 0;
+		for (Id id : ids) {
+			if (cache.estimatedSize() >= capacity)
+				break;
+
+			// checks the map view, not to count the warm-up in the hit/miss statistics
+			if (!cache.asMap().containsKey(id)) {
+				cache.get(id);
+				created++;
+			}
+		}
+
+		return created;
+	}
+
+	/**
+	 * Returns the statistics of the context cache, empty if the cache is not initialized or was not
+	 * built with {@link Caffeine#recordStats()}.
+	 *
+	 * @return the cache statistics
+	 */
+	public CacheStats getCacheStats() {
+		LoadingCache<Id, CachedContext> cache = cryptoContexts;
+		return cache != null ? cache.stats() : CacheStats.empty();
+	}
+
+	/**
+	 * Returns the approximate number of the cached contexts.
+	 *
+	 * @return the estimated cache size
+	 */
+	public long getCacheSize() {
+		LoadingCache<Id, CachedContext> cache = cryptoContexts;
+		return cache != null ? cache.estimatedSize() : 0;
+	}
+
+	private <T> T withContext(Id id, ContextOperation<T> operation) throws CryptoException {
+		LoadingCache<Id, CachedContext> cache = cryptoContexts;
+		if (cache == null) {
+			CryptoContext context = super.createCryptoContext(id);
+			try {
+				return operation.apply(context);
+			} finally {
+				context.close();
+			}
+		}
+
+		CachedContext cached;
+		do {
+			cached = cache.get(id);
+		} while (!cached.retain()); // removed and closed in between, load again
+
+		try {
+			return operation.apply(cached);
+		} finally {
+			cached.release();
+		}
 	}
 
 	/**
@@ -110,7 +298,7 @@ public class CachedCryptoIdentity extends CryptoIdentity implements Identity {
 	public byte[] encrypt(Id receiver, byte[] data) throws CryptoException {
 		Objects.requireNonNull(receiver, "receiver");
 		Objects.requireNonNull(data, "data");
-		return getContext(receiver).encrypt(data);
+		return withContext(receiver, ctx -> ctx.encrypt(data));
 	}
 
 	/**
@@ -132,14 +320,80 @@ public class CachedCryptoIdentity extends CryptoIdentity implements Identity {
 		if (data.length <= CryptoBox.Nonce.BYTES + CryptoBox.MAC_BYTES)
 			throw new CryptoException("Invalid cipher size");
 
-		return getContext(sender).decrypt(data);
+		return withContext(sender, ctx -> ctx.decrypt(data));
+	}
+
+	/**
+	 * Performs one-shot encryption of the given data for the specified receiver, with the
+	 * headroom bytes reserved at the beginning of the returned array.
+	 *
+	 * @param receiver the receiver's {@link Id}; must not be {@code null}
+	 * @param data the plaintext data to encrypt; must not be {@code null}
+	 * @param headroom the number of bytes reserved at the beginning of the returned array
+	 * @return the array of {@code headroom || nonce || cipher}
+	 * @throws NullPointerException if {@code receiver} or {@code data} is {@code null}
+	 * @throws CryptoException if an error occurs during encryption
+	 */
+	@Override
+	public byte[] encrypt(Id receiver, byte[] data, int headroom) throws CryptoException {
+		Objects.requireNonNull(receiver, "receiver");
+		Objects.requireNonNull(data, "data");
+		return withContext(receiver, ctx -> ctx.encrypt(data, headroom));
+	}
+
+	/**
+	 * Performs one-shot encryption of a slice of the given array for the specified receiver,
+	 * writing {@code nonce || cipher} into the output array using the cached context.
+	 *
+	 * @param receiver the receiver's {@link Id}; must not be {@code null}
+	 * @param data the array containing the plaintext data; must not be {@code null}
+	 * @param offset the offset of the plaintext data in the array
+	 * @param length the length of the plaintext data
+	 * @param out the array to write the encrypted data to; must not be {@code null}
+	 * @param outOffset the offset in the output array to write at
+	 * @return the number of bytes written to the output array
+	 * @throws NullPointerException if {@code receiver}, {@code data} or {@code out} is {@code null}
+	 * @throws CryptoException if an error occurs during encryption
+	 */
+	@Override
+	public int encrypt(Id receiver, byte[] data, int offset, int length, byte[] out, int outOffset) throws CryptoException {
+		Objects.requireNonNull(receiver, "receiver");
+		Objects.requireNonNull(data, "data");
+		Objects.requireNonNull(out, "out");
+		return withContext(receiver, ctx -> ctx.encrypt(data, offset, length, out, outOffset));
+	}
+
+	/**
+	 * Performs one-shot decryption of a slice of the given array from the specified sender,
+	 * without copying the slice first.
+	 *
+	 * @param sender the sender's {@link Id}; must not be {@code null}
+	 * @param data the array containing the encrypted data including the nonce prepended
+	 * @param offset the offset of the encrypted data in the array
+	 * @param length the length of the encrypted data
+	 * @return the decrypted plaintext data
+	 * @throws CryptoException if the cipher size is invalid or an error occurs during decryption
+	 */
+	@Override
+	public byte[] decrypt(Id sender, byte[] data, int offset, int length) throws CryptoException {
+		Objects.requireNonNull(sender, "sender");
+		Objects.requireNonNull(data, "data");
+
+		if (length <= CryptoBox.Nonce.BYTES + CryptoBox.MAC_BYTES)
+			throw new CryptoException("Invalid cipher size");
+
+		return withContext(sender, ctx -> ctx.decrypt(data, offset, length));
 	}
 
 	/**
 	 * Creates a {@link CryptoContext} for secure communications with the specified identity.
 	 * <p>
 	 * This method returns a cached {@link CryptoContext} instance if available, minimizing
-	 * repeated computation and improving performance.
+	 * repeated computation and improving performance. Each call returns a new handle on the shared
+	 * context, which takes a reference on it: the caller must {@link CryptoContext#close() close}
+	 * the handle when done, which gives the reference back. Closing a handle again has no effect.
+	 * The shared key is released after the context is evicted from the cache and all the handles
+	 * are closed.
 	 *
 	 * @param id the identity to create the crypto context for; must not be {@code null}
 	 * @return a {@link CryptoContext} instance associated with the specified identity
@@ -148,6 +402,17 @@ public class CachedCryptoIdentity extends CryptoIdentity implements Identity {
 	@Override
 	public CryptoContext createCryptoContext(Id id) throws CryptoException {
 		Objects.requireNonNull(id, "id");
-		return getContext(id);
+
+		LoadingCache<Id, CachedContext> cache = cryptoContexts;
+		if (cache == null)
+			return super.createCryptoContext(id);
+
+		CachedContext cached;
+		do {
+			cached = cache.get(id);
+		} while (!cached.retain());
+
+		// released by the caller on close()
+		return new ContextHandle(cached);
 	}
 }
\ No newline at end of file
@@ -24,6 +24,7 @@
 package io.bosonnetwork.crypto;
 
 import java.util.Arrays;
+import java.util.Objects;
 
 import javax.security.auth.Destroyable;
 
@@ -487,6 +488,31 @@ public class CryptoBox implements AutoCloseable, Destroyable {
 		return box.encrypt(message, nonce.raw());
 	}
 
+	/**
+	 * Encrypt a slice of the message with this precomputed box, and write the cipher into the
+	 * given array at the given offset.
+	 * <p>
+	 * The native binding only takes whole arrays, a slice that does not cover the message array
+	 * is copied before the call.
+	 *
+	 * @param message the array containing the message to encrypt.
+	 * @param offset the offset of the message in the array.
+	 * @param length the length of the message.
+	 * @param nonce a unique nonce object.
+	 * @param out the array to write the cipher to, with room for {@code length + MAC_BYTES} bytes.
+	 * @param outOffset the offset of the cipher in the output array.
+	 * @return the number of the cipher bytes written.
+	 * @throws IndexOutOfBoundsException if a slice is out of its array bounds.
+	 */
+	public int encrypt(byte[] message, int offset, int length, Nonce nonce, byte[] out, int outOffset) {
+		Objects.checkFromIndexSize(offset, length, message.length);
+		Objects.checkFromIndexSize(outOffset, length + MAC_BYTES, out.length);
+
+		byte[] cipher = box.encrypt(slice(message, offset, length), nonce.raw());
+		System.arraycopy(cipher, 0, out, outOffset, cipher.length);
+		return cipher.length;
+	}
+
 	/**
 	 * Encrypt a message with the given keys
 	 *
@@ -539,6 +565,29 @@ public class CryptoBox implements AutoCloseable, Destroyable {
 		return plain;
 	}
 
+	/**
+	 * Decrypt a slice of the cipher array with this precomputed box.
+	 * <p>
+	 * The native binding only takes whole arrays, a slice that does not cover the cipher array
+	 * is copied before the call.
+	 *
+	 * @param cipher the array containing the cipher text to decrypt.
+	 * @param offset the offset of the cipher text in the array.
+	 * @param length the length of the cipher text.
+	 * @param nonce the nonce that was used for encryption.
+	 * @return The decrypted data.
+	 * @throws CryptoException if the verification or decryption failed.
+	 * @throws IndexOutOfBoundsException if the slice is out of the array bounds.
+	 */
+	public byte[] decrypt(byte[] cipher, int offset, int length, Nonce nonce) throws CryptoException {
+		Objects.checkFromIndexSize(offset, length, cipher.length);
+		return decrypt(slice(cipher, offset, length), nonce);
+	}
+
+	private static byte[] slice(byte[] data, int offset, int length) {
+		return offset == 0 && length == data.length ? data : Arrays.copyOfRange(data, offset, offset + length);
+	}
+
 	/**
 	 * Decrypt a message using the given keys.
 	 *
@@ -178,11 +178,20 @@ public class CryptoIdentity implements Identity {
 	@Override
 	public CryptoContext createCryptoContext(Id id) throws CryptoException {
 		Objects.requireNonNull(id, "id");
+		return new CryptoContext(id, createCryptoBox(id));
+	}
 
+	/**
+	 * Precomputes the crypto box with the shared key for the specified identity.
+	 *
+	 * @param id the identity of the peer
+	 * @return the precomputed {@link CryptoBox}, which holds the shared key in native memory
+	 * @throws CryptoException if the shared key can not be computed
+	 */
+	CryptoBox createCryptoBox(Id id) throws CryptoException {
 		try {
 			CryptoBox.PublicKey pk = id.toEncryptionKey();
-			CryptoBox box = CryptoBox.fromKeys(pk, encryptionKeyPair.privateKey());
-			return new CryptoContext(id, box);
+			return CryptoBox.fromKeys(pk, encryptionKeyPair.privateKey());
 		} catch (SodiumException e) {
 			throw new CryptoException(e);
 		}
@@ -339,6 +339,47 @@ public class IdTests {
 		assertFalse(Id.bitsEqual(id1, id2, Id.SIZE -1));
 	}
 
+	@Test
+	void testWordBoundaries() {
+		// ids differing at a single bit, around each 64-bit word boundary
+		var base = Id.random();
+		var r = new Random();
+		for (int bit = 0; bit < Id.SIZE; bit++) {
+			var bytes = base.getBytes();
+			bytes[bit >>> 3] ^= (byte) (0x80 >>> (bit & 0x07));
+			var other = Id.of(bytes);
+
+			BigInteger a = base.toInteger();
+			BigInteger b = other.toInteger();
+			assertEquals(a.compareTo(b), Id.compare(base, other));
+			assertEquals(Id.SIZE - bit, Id.approxDistance(base, other));
+			assertEquals(bit, Id.distance(base, other).getLeadingZeros());
+			assertEquals(Id.SIZE - 1 - bit, Id.distance(base, other).getTrailingZeros());
+
+			for (int depth = 0; depth < Id.SIZE; depth++)
+				assertEquals(depth < bit, Id.bitsEqual(base, other, depth));
+
+			var target = Id.random();
+			int n = target.toInteger().xor(a).compareTo(target.toInteger().xor(b));
+			assertEquals(n, target.threeWayCompare(base, other));
+		}
+
+		for (int i = 0; i < 1000; i++) {
+			var id1 = Id.random();
+			var bytes = id1.getBytes();
+			// keep a random-length common prefix
+			int prefix = r.nextInt(Id.BYTES);
+			for (int j = prefix; j < Id.BYTES; j++)
+				bytes[j] = (byte) r.nextInt();
+			var id2 = Id.of(bytes);
+
+			assertEquals(Integer.signum(id1.toInteger().compareTo(id2.toInteger())), Integer.signum(id1.compareTo(id2)));
+			BigInteger d = id1.toInteger().xor(id2.toInteger());
+			assertEquals(Id.SIZE - d.bitLength(), Id.distance(id1, id2).getLeadingZeros());
+			assertEquals(d.signum() == 0 ? Id.SIZE : d.getLowestSetBit(), Id.distance(id1, id2).getTrailingZeros());
+		}
+	}
+
 	@Test
 	void testBitsCopy() {
 		for (int i = 0; i < Id.SIZE; i++) {
@@ -0,0 +1,165 @@
+package io.bosonnetwork;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class NonceWindowTests {
+	private static final long SALT0 = 0x0123456789ABCDEFL;
+	private static final long SALT1 = 0xFEDCBA9876543210L;
+
+	private static boolean accept(NonceWindow window, long counter) {
+		return window.check(SALT0, SALT1, counter) && window.update(SALT0, SALT1, counter);
+	}
+
+	@Test
+	void testInOrder() {
+		NonceWindow window = new NonceWindow();
+		for (long i = 100; i < 1000; i++)
+			assertTrue(accept(window, i));
+
+		for (long i = 100; i < 1000; i++)
+			assertFalse(accept(window, i));
+	}
+
+	@Test
+	void testReordered() {
+		NonceWindow window = new NonceWindow();
+		List<Long> counters = new ArrayList<>();
+		for (long i = 0; i < NonceWindow.SIZE; i++)
+			counters.add(i);
+
+		Collections.shuffle(counters);
+		for (long c : counters)
+			assertTrue(accept(window, c));
+
+		for (long c : counters)
+			assertFalse(accept(window, c));
+	}
+
+	@Test
+	void testTooOld() {
+		NonceWindow window = new NonceWindow();
+		assertTrue(accept(window, 1000));
+		assertTrue(accept(window, 1000 - NonceWindow.SIZE + 1));
+		assertFalse(accept(window, 1000 - NonceWindow.SIZE));
+		assertFalse(accept(window, 0));
+
+		// a large jump slides the whole window
+		assertTrue(accept(window, 1000 + NonceWindow.SIZE * 10L));
+		assertFalse(accept(window, 1000));
+	}
+
+	@Test
+	void testWrapAround() {
+		NonceWindow window = new NonceWindow();
+		assertTrue(accept(window, -2));
+		assertTrue(accept(window, -1));
+		assertTrue(accept(window, 0));
+		assertTrue(accept(window, 1));
+		assertFalse(accept(window, -1));
+		assertTrue(accept(window, -3));
+	}
+
+	@Test
+	void testCheckDoesNotUpdate() {
+		NonceWindow window = new NonceWindow();
+		assertTrue(window.check(SALT0, SALT1, 10));
+		assertTrue(window.check(SALT0, SALT1, 10));
+		assertTrue(window.update(SALT0, SALT1, 10));
+		assertFalse(window.check(SALT0, SALT1, 10));
+		assertFalse(window.update(SALT0, SALT1, 10));
+	}
+
+	@Test
+	void testNewSalt() {
+		NonceWindow window = new NonceWindow();
+		assertTrue(accept(window, 10));
+		assertTrue(window.check(SALT0 + 1, SALT1, 10));
+		assertTrue(window.update(SALT0 + 1, SALT1, 10));
+		assertTrue(window.update(SALT0 + 1, SALT1, 11));
+		// the previous salt is retired
+		assertFalse(window.check(SALT0, SALT1, 11));
+		assertFalse(window.update(SALT0, SALT1, 11));
+	}
+
+	@Test
+	void testSaltInterleavingReplay() {
+		NonceWindow window = new NonceWindow();
+		// Q from an old context of the peer, then P from the current one
+		assertTrue(window.update(SALT0 + 1, SALT1, 7));
+		assertTrue(accept(window, 100));
+
+		for (int i = 0; i < 4; i++) {
+			// replaying Q must not switch back to the old salt and re-open P
+			assertFalse(window.check(SALT0 + 1, SALT1, 7));
+			assertFalse(window.update(SALT0 + 1, SALT1, 7));
+			assertFalse(accept(window, 100));
+		}
+	}
+
+	@Test
+	void testRetiredSalts() {
+		NonceWindow window = new NonceWindow();
+		int salts = NonceWindow.MAX_RETIRED_SALTS + 2;
+		for (int i = 0; i < salts; i++)
+			assertTrue(window.update(i, SALT1, 1));
+
+		// the recent retired salts are rejected, the oldest ones are forgotten
+		for (int i = salts - 2; i >= salts - 1 - NonceWindow.MAX_RETIRED_SALTS; i--)
+			assertFalse(window.check(i, SALT1, 2));
+
+		assertTrue(window.check(0, SALT1, 2));
+	}
+
+	@Test
+	void testReset() {
+		NonceWindow window = new NonceWindow();
+		assertTrue(accept(window, 10));
+		assertTrue(window.update(SALT0 + 1, SALT1, 10));
+		assertFalse(accept(window, 10));
+		window.reset();
+		assertTrue(accept(window, 10));
+	}
+
+	@Test
+	void testConcurrentUpdates() throws Exception {
+		NonceWindow window = new NonceWindow();
+		AtomicInteger accepted = new AtomicInteger();
+		int threads = 4;
+		int counters = 10000;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(() -> {
+					// every thread replays the same counters
+					for (long c = 0; c < counters; c++) {
+						if (window.update(SALT0, SALT1, c))
+							accepted.incrementAndGet();
+					}
+				}));
+			}
+
+			for (Future<?> f : futures)
+				f.get();
+		} finally {
+			executor.shutdown();
+		}
+
+		// a counter is never accepted twice, some may fall out of the window
+		assertTrue(accepted.get() <= counters);
+		assertFalse(accept(window, counters - 1));
+		assertFalse(window.check(SALT0, SALT1, 0));
+	}
+}
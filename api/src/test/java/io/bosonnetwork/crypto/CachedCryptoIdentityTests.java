@@ -1,19 +1,23 @@
 package io.bosonnetwork.crypto;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
-import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.List;
+import java.util.stream.Stream;
+
 import com.github.benmanes.caffeine.cache.Caffeine;
 
 import org.junit.jupiter.api.Test;
 
 import io.bosonnetwork.CryptoContext;
+import io.bosonnetwork.Id;
 import io.bosonnetwork.Identity;
 
 public class CachedCryptoIdentityTests {
@@ -119,6 +123,37 @@ public class CachedCryptoIdentityTests {
 		assertArrayEquals(message, plain);
 	}
 
+	@Test
+	void testEncryptWithHeadroomAndDecryptSlice() throws Exception {
+		Identity alice = new CachedCryptoIdentity(Caffeine.newBuilder());
+		Identity bob = new CachedCryptoIdentity(Caffeine.newBuilder());
+		Identity bob2 = new CryptoIdentity(((CryptoIdentity) bob).getKeyPair());
+
+		byte[] message = "packet payload".getBytes();
+		byte[] header = alice.getId().bytes();
+
+		byte[] packet = alice.encrypt(bob.getId(), message, header.length);
+		assertEquals(header.length + CryptoBox.Nonce.BYTES + CryptoBox.MAC_BYTES + message.length, packet.length);
+		System.arraycopy(header, 0, packet, 0, header.length);
+
+		byte[] plain = bob.decrypt(alice.getId(), packet, header.length, packet.length - header.length);
+		assertArrayEquals(message, plain);
+
+		// the default implementation should be compatible
+		packet = alice.encrypt(bob.getId(), message, header.length);
+		plain = bob2.decrypt(alice.getId(), packet, header.length, packet.length - header.length);
+		assertArrayEquals(message, plain);
+
+		packet = bob2.encrypt(alice.getId(), message, header.length);
+		plain = alice.decrypt(bob.getId(), packet, header.length, packet.length - header.length);
+		assertArrayEquals(message, plain);
+
+		// replayed packet should be rejected
+		byte[] replayed = packet;
+		assertThrows(CryptoException.class,
+				() -> alice.decrypt(bob.getId(), replayed, header.length, replayed.length - header.length));
+	}
+
 	@Test
 	void testCache() throws Exception {
 		CachedCryptoIdentity alice = new CachedCryptoIdentity(null);
@@ -128,9 +163,109 @@ public class CachedCryptoIdentityTests {
 		CryptoContext ctx2 = alice.createCryptoContext(bob.getId());
 		assertNotSame(ctx1, ctx2);
 
-		alice.initCache(Caffeine.newBuilder());
+		alice.initCache(Caffeine.newBuilder().recordStats());
 		ctx1 = alice.createCryptoContext(bob.getId());
 		ctx2 = alice.createCryptoContext(bob.getId());
-		assertSame(ctx1, ctx2);
+		// separate handles on the same cached context
+		assertNotSame(ctx1, ctx2);
+		assertEquals(1, alice.getCacheSize());
+		assertEquals(1, alice.getCacheStats().hitCount());
+	}
+
+	@Test
+	void testBoundedCache() throws Exception {
+		CachedCryptoIdentity alice = new CachedCryptoIdentity(Caffeine.newBuilder()
+				.executor(Runnable::run)
+				.maximumSize(4)
+				.recordStats());
+		List<CryptoIdentity> peers = Stream.generate(CryptoIdentity::new).limit(32).toList();
+
+		byte[] message = "bounded cache".getBytes();
+		for (CryptoIdentity peer : peers) {
+			byte[] cipher = alice.encrypt(peer.getId(), message);
+			assertArrayEquals(message, peer.decrypt(alice.getId(), cipher));
+		}
+
+		assertTrue(alice.getCacheSize() <= 4);
+		assertTrue(alice.getCacheStats().evictionCount() >= 28);
+
+		// the evicted contexts are created again on demand
+		for (CryptoIdentity peer : peers) {
+			byte[] cipher = peer.encrypt(alice.getId(), message);
+			assertArrayEquals(message, alice.decrypt(peer.getId(), cipher));
+		}
+	}
+
+	@Test
+	void testSharedContextSurvivesEviction() throws Exception {
+		CachedCryptoIdentity alice = new CachedCryptoIdentity(Caffeine.newBuilder().executor(Runnable::run));
+		CryptoIdentity bob = new CryptoIdentity();
+
+		CryptoContext shared = alice.createCryptoContext(bob.getId());
+		alice.clearCache();
+		assertEquals(0, alice.getCacheSize());
+
+		// the context handed out is not closed by the cache
+		byte[] message = "shared context".getBytes();
+		byte[] cipher = shared.encrypt(message);
+		assertArrayEquals(message, bob.decrypt(alice.getId(), cipher));
+
+		// gives the reference back, the evicted context is released now
+		shared.close();
+
+		// closing the handle again has no effect
+		shared.close();
+		assertThrows(IllegalStateException.class, () -> shared.encrypt(message));
+
+		CryptoContext cached = alice.createCryptoContext(bob.getId());
+		CryptoContext another = alice.createCryptoContext(bob.getId());
+		assertNotSame(shared, cached);
+		assertNotSame(cached, another);
+
+		// a handle closed twice gives only its own reference back
+		cached.close();
+		cached.close();
+		assertThrows(IllegalStateException.class, () -> cached.encrypt(message));
+
+		// still held by the cache and the other handle
+		cipher = alice.encrypt(bob.getId(), message);
+		assertArrayEquals(message, bob.decrypt(alice.getId(), cipher));
+		cipher = another.encrypt(message);
+		assertArrayEquals(message, bob.decrypt(alice.getId(), cipher));
+		another.close();
+
+		cipher = alice.encrypt(bob.getId(), message);
+		assertArrayEquals(message, bob.decrypt(alice.getId(), cipher));
+	}
+
+	@Test
+	void testWarmUp() throws Exception {
+		CachedCryptoIdentity alice = new CachedCryptoIdentity(Caffeine.newBuilder().recordStats());
+		List<Id> ids = Stream.generate(() -> new CryptoIdentity().getId()).limit(8).toList();
+
+		assertEquals(8, alice.warmUp(ids));
+		assertEquals(0, alice.warmUp(ids));
+		assertEquals(8, alice.getCacheSize());
+		assertEquals(0, alice.getCacheStats().hitCount());
+
+		alice.encrypt(ids.get(0), "warm".getBytes());
+		assertEquals(1, alice.getCacheStats().hitCount());
+
+		assertEquals(0, new CachedCryptoIdentity(null).warmUp(ids));
+	}
+
+	@Test
+	void testBoundedWarmUp() throws Exception {
+		CachedCryptoIdentity alice = new CachedCryptoIdentity(Caffeine.newBuilder()
+				.executor(Runnable::run)
+				.maximumSize(4)
+				.recordStats());
+		List<Id> ids = Stream.generate(() -> new CryptoIdentity().getId()).limit(8).toList();
+
+		// stops when the cache is full, never evicts to make room
+		assertEquals(4, alice.warmUp(ids));
+		assertEquals(0, alice.warmUp(ids));
+		assertEquals(4, alice.getCacheSize());
+		assertEquals(0, alice.getCacheStats().evictionCount());
 	}
-}
\ No newline at end of file
+}
@@ -1,12 +1,19 @@
 package io.bosonnetwork.crypto;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.junit.jupiter.api.Test;
 
 import io.bosonnetwork.CryptoContext;
@@ -97,4 +104,76 @@ public class CryptoIdentityTests {
 		plain = ctxAlice.decrypt(cipher);
 		assertArrayEquals(message, plain);
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testCryptoContextReplay() throws Exception {
+		Identity alice = new CryptoIdentity();
+		Identity bob = new CryptoIdentity();
+
+		//noinspection resource
+		CryptoContext ctxAlice = alice.createCryptoContext(bob.getId());
+		//noinspection resource
+		CryptoContext ctxBob = bob.createCryptoContext(alice.getId());
+
+		byte[] message = "context message".getBytes();
+		byte[][] ciphers = new byte[8][];
+		Set<String> nonces = new HashSet<>();
+		for (int i = 0; i < ciphers.length; i++) {
+			ciphers[i] = ctxAlice.encrypt(message);
+			assertTrue(nonces.add(Arrays.toString(Arrays.copyOf(ciphers[i], CryptoBox.Nonce.BYTES))));
+		}
+
+		// reordered messages are accepted
+		for (int i = ciphers.length - 1; i >= 0; i--)
+			assertArrayEquals(message, ctxBob.decrypt(ciphers[i]));
+
+		// duplicates are rejected
+		for (byte[] cipher : ciphers)
+			assertThrows(CryptoException.class, () -> ctxBob.decrypt(cipher));
+
+		// a forged message does not move the window
+		byte[] forged = ctxAlice.encrypt(message);
+		byte[] genuine = forged.clone();
+		forged[forged.length - 1] ^= 1;
+		assertThrows(CryptoException.class, () -> ctxBob.decrypt(forged));
+		assertArrayEquals(message, ctxBob.decrypt(genuine));
+
+		ctxBob.resetNonce();
+		assertArrayEquals(message, ctxBob.decrypt(ciphers[0]));
+	}
+
+	@Test
+	void testCryptoContextSlices() throws Exception {
+		Identity alice = new CryptoIdentity();
+		Identity bob = new CryptoIdentity();
+
+		//noinspection resource
+		CryptoContext ctxAlice = alice.createCryptoContext(bob.getId());
+		//noinspection resource
+		CryptoContext ctxBob = bob.createCryptoContext(alice.getId());
+
+		byte[] message = "context message".getBytes();
+		byte[] data = new byte[message.length + 16];
+		System.arraycopy(message, 0, data, 8, message.length);
+
+		int headroom = 32;
+		byte[] out1 = new byte[headroom + CryptoBox.Nonce.BYTES + message.length + CryptoBox.MAC_BYTES + 8];
+		byte[] out2 = new byte[out1.length];
+		int size = ctxAlice.encrypt(data, 8, message.length, out1, headroom);
+		assertEquals(CryptoBox.Nonce.BYTES + message.length + CryptoBox.MAC_BYTES, size);
+		ctxAlice.encrypt(data, 8, message.length, out2, headroom);
+
+		// the counter is incremented in place, the salt is kept
+		ByteBuffer n1 = ByteBuffer.wrap(out1, headroom, CryptoBox.Nonce.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		ByteBuffer n2 = ByteBuffer.wrap(out2, headroom, CryptoBox.Nonce.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(n1.getLong() + 1, n2.getLong());
+		assertEquals(n1.getLong(), n2.getLong());
+		assertEquals(n1.getLong(), n2.getLong());
+
+		assertArrayEquals(message, ctxBob.decrypt(out1, headroom, size));
+		assertArrayEquals(message, bob.decrypt(alice.getId(), out2, headroom, size));
+
+		assertThrows(IndexOutOfBoundsException.class,
+				() -> ctxAlice.encrypt(data, 8, message.length, new byte[size], 1));
+	}
+}
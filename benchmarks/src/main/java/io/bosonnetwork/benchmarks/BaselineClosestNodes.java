@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.kademlia.routing.KBucket;
+import io.bosonnetwork.kademlia.routing.KBucketEntry;
+import io.bosonnetwork.kademlia.routing.RoutingTable;
+
+/**
+ * The closest nodes selection as implemented before the heap based {@code KClosestNodes}: collects
+ * the entries of the visited buckets through lambdas and streams, then sorts and trims them.
+ * Kept as the baseline of {@link RoutingTableBenchmark}, the result is the same.
+ */
+final class BaselineClosestNodes {
+	private BaselineClosestNodes() {
+	}
+
+	static List<KBucketEntry> fill(RoutingTable routingTable, Id localId, Id target, int capacity,
+								   Predicate<KBucketEntry> customFilter, boolean includeReplacements) {
+		final Predicate<KBucketEntry> filter = customFilter == null ?
+				e -> e.eligibleForNodesList() && !e.getId().equals(localId) :
+				customFilter.and(e -> !e.getId().equals(localId));
+		final List<KBucketEntry> entries = new ArrayList<>(capacity + KBucket.MAX_ENTRIES);
+
+		final List<KBucket> buckets = routingTable.buckets();
+		if (buckets.isEmpty())
+			return entries;
+
+		final int idx = indexOf(buckets, target);
+		addEntries(buckets.get(idx), filter, includeReplacements, entries);
+
+		int low = idx;
+		int high = idx;
+		while (entries.size() < capacity) {
+			KBucket lowBucket = low > 0 ? buckets.get(low - 1) : null;
+			KBucket highBucket = high < buckets.size() - 1 ? buckets.get(high + 1) : null;
+
+			if (lowBucket == null && highBucket == null)
+				break;
+
+			if (lowBucket == null) {
+				high++;
+				addEntries(highBucket, filter, includeReplacements, entries);
+			} else if (highBucket == null) {
+				low--;
+				addEntries(lowBucket, filter, includeReplacements, entries);
+			} else {
+				int dir = target.threeWayCompare(lowBucket.prefix().last(), highBucket.prefix().first());
+				if (dir < 0) {
+					low--;
+					addEntries(lowBucket, filter, includeReplacements, entries);
+				} else if (dir > 0) {
+					high++;
+					addEntries(highBucket, filter, includeReplacements, entries);
+				} else {
+					low--;
+					high++;
+					addEntries(lowBucket, filter, includeReplacements, entries);
+					addEntries(highBucket, filter, includeReplacements, entries);
+				}
+			}
+		}
+
+		entries.sort((e1, e2) -> target.threeWayCompare(e1.getId(), e2.getId()));
+		int overshoot = entries.size() - capacity;
+		if (overshoot > 0)
+			entries.subList(entries.size() - overshoot, entries.size()).clear();
+
+		return entries;
+	}
+
+	private static void addEntries(KBucket bucket, Predicate<KBucketEntry> filter, boolean includeReplacements,
+								   List<KBucketEntry> entries) {
+		bucket.entries().forEach(e -> {
+			if (filter.test(e))
+				entries.add(e);
+		});
+
+		if (includeReplacements) {
+			bucket.replacementStream()
+					.filter(KBucketEntry::isReachable)
+					.filter(filter)
+					.forEach(entries::add);
+		}
+	}
+
+	private static int indexOf(List<KBucket> buckets, Id id) {
+		int low = 0;
+		int mid = 0;
+		int high = buckets.size() - 1;
+		int cmp = 0;
+
+		while (low <= high) {
+			mid = (low + high) >>> 1;
+			cmp = id.compareTo(buckets.get(mid).prefix());
+			if (cmp > 0)
+				low = mid + 1;
+			else if (cmp < 0)
+				high = mid - 1;
+			else
+				return mid;
+		}
+
+		return cmp < 0 ? mid - 1 : mid;
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.NodeInfo;
+import io.bosonnetwork.kademlia.routing.KBucket;
+import io.bosonnetwork.kademlia.tasks.CandidateNode;
+import io.bosonnetwork.kademlia.tasks.ClosestCandidates;
+
+/**
+ * The candidate queue of the lookup tasks, with the capacity used by the lookup tasks.
+ * <p>
+ * {@code add} merges four lookup responses of 8 nodes each into a new queue, so it covers the
+ * deduplication and the pruning once the queue is full; {@code next} picks the next candidate
+ * from a full queue.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ClosestCandidatesBenchmark {
+	private static final int CAPACITY = KBucket.MAX_ENTRIES * 3;
+	private static final int RESPONSES = 64; // power of 2
+	private static final int RESPONSES_PER_ROUND = 4;
+
+	@Param({"false", "true"})
+	public boolean developerMode;
+
+	private Id target;
+	private List<NodeInfo>[] responses;
+	private ClosestCandidates full;
+	private int index;
+
+	@SuppressWarnings("unchecked")
+	@Setup(Level.Trial)
+	public void setup() {
+		target = Id.random();
+		responses = new List[RESPONSES];
+		for (int i = 0; i < RESPONSES; i++)
+			responses[i] = Fixtures.randomNodes(KBucket.MAX_ENTRIES, false);
+
+		full = new ClosestCandidates(target, CAPACITY, developerMode);
+		for (int i = 0; i < RESPONSES_PER_ROUND; i++)
+			full.add(responses[i]);
+	}
+
+	@Benchmark
+	public ClosestCandidates add() {
+		ClosestCandidates candidates = new ClosestCandidates(target, CAPACITY, developerMode);
+		for (int i = 0; i < RESPONSES_PER_ROUND; i++)
+			candidates.add(responses[index++ & (RESPONSES - 1)]);
+
+		return candidates;
+	}
+
+	@Benchmark
+	public CandidateNode next() {
+		return full.next();
+	}
+}
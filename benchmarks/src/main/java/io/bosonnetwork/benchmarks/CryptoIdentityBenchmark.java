@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.bosonnetwork.crypto.CachedCryptoIdentity;
+import io.bosonnetwork.crypto.CryptoException;
+import io.bosonnetwork.crypto.CryptoIdentity;
+
+/**
+ * Encryption and decryption between two identities, with and without the cached crypto contexts.
+ * <p>
+ * The plain {@link CryptoIdentity} derives the shared key on every call, the
+ * {@link CachedCryptoIdentity} derives it once per peer, so the difference between the two is the
+ * cost of the key agreement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CryptoIdentityBenchmark {
+	@Param({"false", "true"})
+	public boolean cached;
+
+	@Param({"64", "1024"})
+	public int size;
+
+	private CryptoIdentity sender;
+	private CryptoIdentity receiver;
+	private byte[] plain;
+	private byte[] cipher;
+
+	@Setup(Level.Trial)
+	public void setup() throws CryptoException {
+		sender = cached ? new CachedCryptoIdentity(Caffeine.newBuilder()) : new CryptoIdentity();
+		receiver = cached ? new CachedCryptoIdentity(Caffeine.newBuilder()) : new CryptoIdentity();
+		plain = Fixtures.randomBytes(size);
+		cipher = sender.encrypt(receiver.getId(), plain);
+	}
+
+	@Benchmark
+	public byte[] encrypt() throws CryptoException {
+		return sender.encrypt(receiver.getId(), plain);
+	}
+
+	@Benchmark
+	public byte[] decrypt() throws CryptoException {
+		return receiver.decrypt(sender.getId(), cipher);
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.bosonnetwork.PeerInfo;
+import io.bosonnetwork.Value;
+import io.bosonnetwork.kademlia.storage.DataStorage;
+
+/**
+ * Single record writes and reads of the storage backends, measured end to end from the caller:
+ * each operation waits for its future, so the numbers include the hop to the worker pool.
+ * <p>
+ * The storage is populated with the whole record pool before the measurement, so the reads
+ * always hit and the writes always update an existing record. Each write stores the next sequence
+ * number of the record, so the upsert really rewrites the row instead of skipping a stale version.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataStorageBenchmark {
+	private static final int POOL_SIZE = 1024; // power of 2
+	private static final long EXPIRATION = TimeUnit.HOURS.toMillis(2);
+
+	@Param({"sqlite", "memory"})
+	public String backend;
+
+	private Path dir;
+	private Vertx vertx;
+	private DataStorage storage;
+	private Value[] values;
+	private PeerInfo[] peers;
+	private int index;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		dir = Files.createTempDirectory("boson-benchmark-");
+		String uri = switch (backend) {
+			case "sqlite" -> "jdbc:sqlite:" + dir.resolve("storage.db");
+			case "memory" -> "memory:" + dir.resolve("storage.snapshot");
+			default -> throw new IllegalArgumentException("Unknown backend: " + backend);
+		};
+
+		vertx = Vertx.vertx();
+		storage = DataStorage.create(uri, 4, null);
+		await(storage.initialize(vertx, EXPIRATION, EXPIRATION));
+
+		values = new Value[POOL_SIZE];
+		peers = new PeerInfo[POOL_SIZE];
+		List<PeerInfo> delegated = Fixtures.peers(POOL_SIZE / 2);
+		for (int i = 0; i < POOL_SIZE; i++) {
+			values[i] = Fixtures.signedValue(256);
+			peers[i] = i % 2 == 0 ? delegated.get(i / 2) : Fixtures.peer(true);
+			await(storage.putValue(values[i]));
+			await(storage.putPeer(peers[i]));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		await(storage.close());
+		await(vertx.close());
+
+		try (Stream<Path> paths = Files.walk(dir)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+				try {
+					Files.delete(path);
+				} catch (IOException ignore) {
+				}
+			});
+		}
+	}
+
+	private static <T> T await(Future<T> future) throws ExecutionException, InterruptedException {
+		return future.toCompletionStage().toCompletableFuture().get();
+	}
+
+	private int next() {
+		return index++ & (POOL_SIZE - 1);
+	}
+
+	// The storage does not verify the signatures, bumping the sequence number is enough for a new
+	// version; cheaper than signing, which would dominate the measurement
+	private static Value nextVersion(Value value) {
+		return Value.of(value.getPublicKey(), value.getPrivateKey(), value.getRecipient(), value.getNonce(),
+				value.getSequenceNumber() + 1, value.getSignature(), value.getData());
+	}
+
+	private static PeerInfo nextVersion(PeerInfo peer) {
+		return PeerInfo.of(peer.getId(), peer.getPrivateKey(), peer.getNonce(), peer.getSequenceNumber() + 1,
+				peer.getNodeId(), peer.getNodeSignature(), peer.getSignature(), peer.getFingerprint(),
+				peer.getEndpoint(), peer.getExtraData());
+	}
+
+	@Benchmark
+	public Value putValue() throws Exception {
+		int i = next();
+		values[i] = nextVersion(values[i]);
+		return await(storage.putValue(values[i]));
+	}
+
+	@Benchmark
+	public Value getValue() throws Exception {
+		return await(storage.getValue(values[next()].getId()));
+	}
+
+	@Benchmark
+	public PeerInfo putPeer() throws Exception {
+		int i = next();
+		peers[i] = nextVersion(peers[i]);
+		return await(storage.putPeer(peers[i]));
+	}
+
+	@Benchmark
+	public PeerInfo getPeer() throws Exception {
+		PeerInfo peer = peers[next()];
+		return await(storage.getPeer(peer.getId(), peer.getFingerprint()));
+	}
+}
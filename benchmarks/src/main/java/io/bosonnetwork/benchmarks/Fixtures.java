@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.NodeInfo;
+import io.bosonnetwork.PeerInfo;
+import io.bosonnetwork.Value;
+import io.bosonnetwork.crypto.CryptoIdentity;
+import io.bosonnetwork.crypto.Random;
+import io.bosonnetwork.crypto.Signature;
+
+/**
+ * Test data shared by the benchmarks. All the data is created in the setup phase, never in the
+ * measured methods.
+ */
+final class Fixtures {
+	private Fixtures() {
+	}
+
+	static byte[] randomBytes(int length) {
+		byte[] bytes = new byte[length];
+		Random.random().nextBytes(bytes);
+		return bytes;
+	}
+
+	static List<NodeInfo> randomNodes(int count, boolean ipv6) {
+		List<NodeInfo> nodes = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			byte[] addr = randomBytes(ipv6 ? 16 : 4);
+			if (ipv6) {
+				// global unicast 2001::/16
+				addr[0] = 0x20;
+				addr[1] = 0x01;
+			} else {
+				// avoid the special purpose 0.0.0.0/8 and 127.0.0.0/8 blocks
+				addr[0] = (byte) (1 + Random.random().nextInt(0, 126));
+			}
+
+			nodes.add(new NodeInfo(Id.random(), addr, 1024 + Random.random().nextInt(0, 60000)));
+		}
+
+		return nodes;
+	}
+
+	static Value immutableValue(int size) {
+		return Value.immutableBuilder().data(randomBytes(size)).build();
+	}
+
+	static Value signedValue(int size) {
+		return Value.signedBuilder().data(randomBytes(size)).build();
+	}
+
+	static Value encryptedValue(int size) {
+		return Value.encryptedBuilder()
+				.recipient(Id.of(Signature.KeyPair.random().publicKey().bytes()))
+				.data(randomBytes(size))
+				.build();
+	}
+
+	static PeerInfo peer(boolean delegated) {
+		PeerInfo.Builder builder = PeerInfo.builder().endpoint("tcp://203.0.113.10:" + (1024 + Random.random().nextInt(0, 60000)));
+		if (delegated)
+			builder.node(new CryptoIdentity());
+
+		return builder.build();
+	}
+
+	static List<PeerInfo> peers(int count) {
+		Signature.KeyPair keyPair = Signature.KeyPair.random();
+		List<PeerInfo> peers = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+			peers.add(PeerInfo.builder().key(keyPair).fingerprint(i + 1).endpoint("tcp://203.0.113.10:" + (8000 + i)).build());
+
+		return peers;
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.bosonnetwork.Id;
+
+/**
+ * The XOR metric primitives on the identifiers, used by every routing table query and every
+ * candidate ordering of the lookups.
+ * <p>
+ * The operands are taken from a pool of random identifiers, to keep the branch predictor from
+ * learning a single mismatch position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class IdBenchmark {
+	private static final int POOL_SIZE = 1024; // power of 2
+
+	private Id target;
+	private Id[] ids;
+	private int index;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		target = Id.random();
+		ids = new Id[POOL_SIZE];
+		for (int i = 0; i < POOL_SIZE; i++)
+			ids[i] = Id.random();
+	}
+
+	private Id next() {
+		return ids[index++ & (POOL_SIZE - 1)];
+	}
+
+	@Benchmark
+	public Id distance() {
+		return target.distance(next());
+	}
+
+	@Benchmark
+	public int approxDistance() {
+		return target.approxDistance(next());
+	}
+
+	@Benchmark
+	public int threeWayCompare() {
+		return target.threeWayCompare(next(), next());
+	}
+
+	@Benchmark
+	public int compareTo() {
+		return next().compareTo(next());
+	}
+}
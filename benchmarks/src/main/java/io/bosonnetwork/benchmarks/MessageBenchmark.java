@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.kademlia.protocol.Message;
+
+/**
+ * CBOR serialization and deserialization of the RPC messages, one request and one response per
+ * {@link Message.Method}.
+ * <p>
+ * The responses carry the typical payload of a busy node: 8 IPv4 and 8 IPv6 nodes for the lookup
+ * responses, a signed value of 256 bytes and 8 peers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MessageBenchmark {
+	@Param({"PING", "FIND_NODE", "ANNOUNCE_PEER", "FIND_PEER", "STORE_VALUE", "FIND_VALUE"})
+	public Message.Method method;
+
+	@Param({"REQUEST", "RESPONSE"})
+	public Message.Type type;
+
+	private Id nodeId;
+	private Message message;
+	private byte[] bytes;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		nodeId = Id.random();
+		message = type == Message.Type.REQUEST ? request() : response();
+		message.setId(nodeId);
+		bytes = message.toBytes();
+	}
+
+	private Message request() {
+		Id target = Id.random();
+		return switch (method) {
+			case PING -> Message.pingRequest();
+			case FIND_NODE -> Message.findNodeRequest(target, true, true, true);
+			case ANNOUNCE_PEER -> Message.announcePeerRequest(Fixtures.peer(true), 0x12345678, -1);
+			case FIND_PEER -> Message.findPeerRequest(target, true, true, -1, 8);
+			case STORE_VALUE -> Message.storeValueRequest(Fixtures.signedValue(256), 0x12345678, -1);
+			case FIND_VALUE -> Message.findValueRequest(target, true, true, -1);
+			default -> throw new IllegalArgumentException("Unsupported method: " + method);
+		};
+	}
+
+	private Message response() {
+		long txid = 0x7654321;
+		return switch (method) {
+			case PING -> Message.pingResponse(txid);
+			case FIND_NODE -> Message.findNodeResponse(txid, Fixtures.randomNodes(8, false),
+					Fixtures.randomNodes(8, true), 0x12345678);
+			case ANNOUNCE_PEER -> Message.announcePeerResponse(txid);
+			case FIND_PEER -> Message.findPeerResponse(txid, Fixtures.peers(8));
+			case STORE_VALUE -> Message.storeValueResponse(txid);
+			case FIND_VALUE -> Message.findValueResponse(txid, Fixtures.signedValue(256));
+			default -> throw new IllegalArgumentException("Unsupported method: " + method);
+		};
+	}
+
+	@Benchmark
+	public byte[] toBytes() {
+		return message.toBytes();
+	}
+
+	@Benchmark
+	public Message parse() {
+		return Message.parse(bytes, nodeId);
+	}
+}
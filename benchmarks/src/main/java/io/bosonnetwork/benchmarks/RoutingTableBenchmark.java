@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.NodeInfo;
+import io.bosonnetwork.kademlia.routing.KBucket;
+import io.bosonnetwork.kademlia.routing.KBucketEntry;
+import io.bosonnetwork.kademlia.routing.KClosestNodes;
+import io.bosonnetwork.kademlia.routing.RoutingTable;
+
+/**
+ * Routing table updates and the closest nodes queries, on a table populated with the given number
+ * of reachable nodes (the table keeps only the ones its buckets can hold).
+ * <p>
+ * {@code closestNodes} is the query answering the lookup requests, {@code lookupCandidates} is the
+ * one seeding the local lookup tasks. The {@code *Baseline} variants run the previous stream and
+ * sort based selection ({@link BaselineClosestNodes}) on the same table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RoutingTableBenchmark {
+	private static final int POOL_SIZE = 1024; // power of 2
+
+	@Param({"256", "4096"})
+	public int nodes;
+
+	private Id localId;
+	private RoutingTable routingTable;
+	private KBucketEntry[] entries;
+	private Id[] targets;
+	private int index;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		localId = Id.random();
+		routingTable = new RoutingTable(localId);
+		for (NodeInfo node : Fixtures.randomNodes(nodes, false))
+			routingTable.put(reachable(node));
+
+		// Half of the pool are known nodes, the other half are new ones
+		List<NodeInfo> fresh = Fixtures.randomNodes(POOL_SIZE / 2, false);
+		List<KBucketEntry> known = routingTable.getClosestNodes(Id.random(), POOL_SIZE / 2)
+				.includeReplacements().fill().entries();
+
+		entries = new KBucketEntry[POOL_SIZE];
+		targets = new Id[POOL_SIZE];
+		for (int i = 0; i < POOL_SIZE; i++) {
+			entries[i] = i % 2 == 0 || known.isEmpty() ?
+					reachable(fresh.get(i / 2)) : new KBucketEntry(known.get((i / 2) % known.size()));
+			targets[i] = Id.random();
+		}
+	}
+
+	private static KBucketEntry reachable(NodeInfo node) {
+		KBucketEntry entry = new KBucketEntry(node);
+		entry.onResponded(50);
+		return entry;
+	}
+
+	private int next() {
+		return index++ & (POOL_SIZE - 1);
+	}
+
+	@Benchmark
+	public void put() {
+		routingTable.put(entries[next()]);
+	}
+
+	@Benchmark
+	public KClosestNodes closestNodes() {
+		return routingTable.getClosestNodes(targets[next()], KBucket.MAX_ENTRIES).fill();
+	}
+
+	@Benchmark
+	public KClosestNodes lookupCandidates() {
+		return routingTable.getClosestNodes(targets[next()], KBucket.MAX_ENTRIES * 3)
+				.filter(KBucketEntry::eligibleForLocalLookup)
+				.fill();
+	}
+
+	@Benchmark
+	public List<KBucketEntry> closestNodesBaseline() {
+		return BaselineClosestNodes.fill(routingTable, localId, targets[next()], KBucket.MAX_ENTRIES, null, false);
+	}
+
+	@Benchmark
+	public List<KBucketEntry> lookupCandidatesBaseline() {
+		return BaselineClosestNodes.fill(routingTable, localId, targets[next()], KBucket.MAX_ENTRIES * 3,
+				KBucketEntry::eligibleForLocalLookup, false);
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.benchmarks;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Threads;
+
+import io.bosonnetwork.kademlia.security.SpamThrottle;
+import io.bosonnetwork.kademlia.utils.AddressKeys;
+
+/**
+ * The per address rate limiting of the RPC server, over the given number of distinct remote hosts.
+ * <p>
+ * {@code incrementAndCheckHost} is the inbound path, which starts from the host string of the
+ * remote socket address; {@code incrementAndCheckKey} excludes the address parsing;
+ * {@code incrementAndEstimateDelay} is the outbound path. The
+ * {@code contended} variant runs the inbound check from 4 threads on the same throttle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SpamThrottleBenchmark {
+	@Param({"1", "1024"})
+	public int hosts;
+
+	private SpamThrottle throttle;
+	private InetAddress[] addresses;
+	private String[] hostStrings;
+	private long[] keys;
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		int index;
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws UnknownHostException {
+		throttle = SpamThrottle.create();
+		addresses = new InetAddress[hosts];
+		hostStrings = new String[hosts];
+		keys = new long[hosts];
+		for (int i = 0; i < hosts; i++) {
+			addresses[i] = InetAddress.getByAddress(new byte[] { 10, (byte) (i >> 16), (byte) (i >> 8), (byte) i });
+			hostStrings[i] = addresses[i].getHostAddress();
+			keys[i] = AddressKeys.of(addresses[i]);
+		}
+	}
+
+	@Benchmark
+	public boolean incrementAndCheckHost(Cursor cursor) {
+		return throttle.incrementAndCheck(hostStrings[cursor.index++ % hosts]);
+	}
+
+	@Benchmark
+	public boolean incrementAndCheckKey(Cursor cursor) {
+		return throttle.incrementAndCheck(keys[cursor.index++ % hosts]);
+	}
+
+	@Benchmark
+	public boolean incrementAndCheckAddress(Cursor cursor) {
+		return throttle.incrementAndCheck(addresses[cursor.index++ % hosts]);
+	}
+
+	@Benchmark
+	public int incrementAndEstimateDelay(Cursor cursor) {
+		return throttle.incrementAndEstimateDelay(addresses[cursor.index++ % hosts]);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public boolean incrementAndCheckHostContended(Cursor cursor) {
+		return throttle.incrementAndCheck(hostStrings[cursor.index++ % hosts]);
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.benchmarks;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.net.SocketAddress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.kademlia.impl.TokenManager;
+
+/**
+ * Generation and verification of the write tokens.
+ * <p>
+ * The {@code SocketAddress} variants are the ones used by the DHT request handlers, they include
+ * the conversion of the Vert.x socket address. {@code verifyPreviousToken} verifies a token issued
+ * in the previous token period, the slow path that computes the token twice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TokenManagerBenchmark {
+	private TokenManager tokenManager;
+	private Id nodeId;
+	private Id targetId;
+	private InetAddress address;
+	private SocketAddress socketAddress;
+	private int port;
+	private int token;
+
+	@Setup(Level.Trial)
+	public void setup() throws UnknownHostException {
+		tokenManager = new TokenManager();
+		nodeId = Id.random();
+		targetId = Id.random();
+		address = InetAddress.getByAddress(new byte[] { (byte) 203, 0, 113, 10 });
+		port = 39001;
+		socketAddress = SocketAddress.inetSocketAddress(port, address.getHostAddress());
+		token = tokenManager.generateToken(nodeId, address, port, targetId);
+	}
+
+	@Benchmark
+	public int generateToken() {
+		return tokenManager.generateToken(nodeId, address, port, targetId);
+	}
+
+	@Benchmark
+	public int generateTokenBySocketAddress() {
+		return tokenManager.generateToken(nodeId, socketAddress, targetId);
+	}
+
+	@Benchmark
+	public boolean verifyToken() {
+		return tokenManager.verifyToken(token, nodeId, address, port, targetId);
+	}
+
+	@Benchmark
+	public boolean verifyTokenBySocketAddress() {
+		return tokenManager.verifyToken(token, nodeId, socketAddress, targetId);
+	}
+
+	@Benchmark
+	public boolean verifyPreviousToken() {
+		// never matches the current token, so both periods are checked
+		return tokenManager.verifyToken(~token, nodeId, address, port, targetId);
+	}
+}
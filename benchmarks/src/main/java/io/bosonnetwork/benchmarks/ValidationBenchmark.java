@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.bosonnetwork.PeerInfo;
+import io.bosonnetwork.Value;
+import io.bosonnetwork.kademlia.security.VerificationCache;
+
+/**
+ * Validation of the values and peers, the signature verification dominates for the mutable
+ * values and all the peers.
+ * <p>
+ * The {@code cached*} benchmarks measure the hit path of the {@link VerificationCache}, to compare
+ * against the raw verification.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ValidationBenchmark {
+	@State(Scope.Benchmark)
+	public static class ValueState {
+		@Param({"immutable", "signed", "encrypted"})
+		public String type;
+
+		Value value;
+		VerificationCache cache;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			value = switch (type) {
+				case "immutable" -> Fixtures.immutableValue(256);
+				case "signed" -> Fixtures.signedValue(256);
+				case "encrypted" -> Fixtures.encryptedValue(256);
+				default -> throw new IllegalArgumentException("Unknown value type: " + type);
+			};
+
+			cache = new VerificationCache();
+			cache.isValid(value);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class PeerState {
+		@Param({"false", "true"})
+		public boolean delegated;
+
+		PeerInfo peer;
+		VerificationCache cache;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			peer = Fixtures.peer(delegated);
+
+			cache = new VerificationCache();
+			cache.isValid(peer);
+		}
+	}
+
+	@Benchmark
+	public boolean valueIsValid(ValueState state) {
+		return state.value.isValid();
+	}
+
+	@Benchmark
+	public boolean cachedValueIsValid(ValueState state) {
+		return state.cache.isValid(state.value);
+	}
+
+	@Benchmark
+	public boolean peerIsValid(PeerState state) {
+		return state.peer.isValid();
+	}
+
+	@Benchmark
+	public boolean cachedPeerIsValid(PeerState state) {
+		return state.cache.isValid(state.peer);
+	}
+}
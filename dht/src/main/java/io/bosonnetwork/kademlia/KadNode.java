@@ -10,10 +10,14 @@ import java.util.Objects;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.micrometer.backends.BackendRegistries;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,13 +41,21 @@ import io.bosonnetwork.kademlia.exceptions.ImmutableSubstitutionFail;
 import io.bosonnetwork.kademlia.exceptions.NotOwnerException;
 import io.bosonnetwork.kademlia.exceptions.SequenceNotExpected;
 import io.bosonnetwork.kademlia.impl.DHT;
+import io.bosonnetwork.kademlia.impl.ReAnnouncer;
 import io.bosonnetwork.kademlia.impl.SimpleNodeConfiguration;
 import io.bosonnetwork.kademlia.impl.TokenManager;
+import io.bosonnetwork.kademlia.metrics.DHTMetrics;
+import io.bosonnetwork.kademlia.metrics.MicrometerDHTMetrics;
 import io.bosonnetwork.kademlia.routing.KBucketEntry;
 import io.bosonnetwork.kademlia.security.Blacklist;
+import io.bosonnetwork.kademlia.security.SignatureVerifier;
+import io.bosonnetwork.kademlia.security.VerificationCache;
+import io.bosonnetwork.kademlia.storage.CachedDataStorage;
 import io.bosonnetwork.kademlia.storage.DataStorage;
+import io.bosonnetwork.kademlia.storage.DatabaseStorage;
 import io.bosonnetwork.kademlia.tasks.EligiblePeers;
 import io.bosonnetwork.kademlia.tasks.EligibleValue;
+import io.bosonnetwork.kademlia.utils.SingleFlight;
 import io.bosonnetwork.utils.Variable;
 import io.bosonnetwork.vertx.BosonVerticle;
 import io.bosonnetwork.vertx.VertxCaffeine;
@@ -70,9 +82,18 @@ public class KadNode extends BosonVerticle implements Node {
 	private Blacklist blacklist;
 
 	private TokenManager tokenManager;
+	private VerificationCache verificationCache;
+	private SignatureVerifier signatureVerifier;
+
+	// Concurrent identical lookups share one lookup, and optionally its result for a short period
+	private final SingleFlight<LookupKey, Result<NodeInfo>> nodeLookups;
+	private final SingleFlight<LookupKey, Value> valueLookups;
+	private final SingleFlight<LookupKey, List<PeerInfo>> peerLookups;
 	private DataStorage storage;
 
 	private final List<Long> timers;
+	private ReAnnouncer<Value> valueReAnnouncer;
+	private ReAnnouncer<PeerInfo> peerReAnnouncer;
 
 	private volatile boolean running;
 	private ConnectionStatusListener connectionStatusListener;
@@ -102,6 +123,13 @@ public class KadNode extends BosonVerticle implements Node {
 		this.running = false;
 
 		this.timers = new ArrayList<>(4);
+
+		this.nodeLookups = new SingleFlight<>(this.config.lookupCacheTTL());
+		this.valueLookups = new SingleFlight<>(this.config.lookupCacheTTL());
+		this.peerLookups = new SingleFlight<>(this.config.lookupCacheTTL());
+	}
+
+	private record LookupKey(Id target, int expectedSequenceNumber, int expectedCount, LookupOption option) {
 	}
 
 	private void checkConfig(NodeConfiguration config) {
@@ -223,12 +251,16 @@ public class KadNode extends BosonVerticle implements Node {
 	protected void prepare(Vertx vertx, Context context) {
 		super.prepare(vertx, context);
 		identity.initCache(VertxCaffeine.newBuilder(vertx)
-				.expireAfterAccess(KBucketEntry.OLD_AND_STALE_TIME, TimeUnit.MILLISECONDS));
+				.expireAfterAccess(KBucketEntry.OLD_AND_STALE_TIME, TimeUnit.MILLISECONDS)
+				.maximumSize(config.cryptoContextCacheSize())
+				.recordStats());
 	}
 
 	@Override
 	protected Future<Void> deploy() {
 		tokenManager = new TokenManager();
+		verificationCache = new VerificationCache();
+		signatureVerifier = new SignatureVerifier(vertx, verificationCache);
 
 		String storageURI = config.databaseUri();
 		// fix the sqlite database file location
@@ -236,8 +268,17 @@ public class KadNode extends BosonVerticle implements Node {
 			Path dbFile = Path.of(storageURI.substring("jdbc:sqlite:".length()));
 			if (!dbFile.isAbsolute())
 				storageURI = "jdbc:sqlite:" + config.dataDir().resolve(dbFile).toAbsolutePath();
+		} else if (storageURI.startsWith("memory:") && storageURI.length() > "memory:".length()) {
+			// fix the in-memory storage snapshot file location
+			Path snapshotFile = Path.of(storageURI.substring("memory:".length()));
+			if (!snapshotFile.isAbsolute())
+				storageURI = "memory:" + config.dataDir().resolve(snapshotFile).toAbsolutePath();
 		}
-		storage = DataStorage.create(storageURI, config.databasePoolSize(), config.databaseSchemaName());
+		DataStorage backend = DataStorage.create(storageURI, config.databasePoolSize(), config.databaseSchemaName());
+		if (config.databaseWriteDelay() > 0 && backend instanceof DatabaseStorage db)
+			db.setWriteBehind(config.databaseWriteDelay(), config.databaseWriteBatchSize(), config.databaseDurableWrites());
+		storage = config.databaseCacheSize() > 0 ?
+				new CachedDataStorage(backend, config.databaseCacheSize() * 1024L * 1024L) : backend;
 
 		// TODO: empty blacklist for now
 		blacklist = Blacklist.empty();
@@ -269,14 +310,19 @@ public class KadNode extends BosonVerticle implements Node {
 		};
 
 		return storage.initialize(vertx, MAX_VALUE_AGE, MAX_PEER_AGE).compose(unused -> {
+			if (config.enableMetrics())
+				bindMetrics();
+
 			ArrayList<Future<Void>> futures = new ArrayList<>(2);
 			if (config.host4() != null) {
 				dht4 = new DHT(identity, Network.IPv4, config.host4(), config.port(), config.bootstrapNodes(),
 						storage, config.dataDir().resolve("dht4.cache"),
 						tokenManager, blacklist, config.enableSuspiciousNodeDetector(),
-						config.enableSpamThrottling(), null, config.enableDeveloperMode());
+						config.enableSpamThrottling(), createMetrics(Network.IPv4), config.enableDeveloperMode(),
+						config.rpcIngressShards());
 
 				dht4.setConnectionStatusListener(listener);
+				dht4.setSignatureVerifier(signatureVerifier);
 
 				Future<Void> future = vertx.deployVerticle(dht4).andThen(ar -> {
 					if (ar.failed())
@@ -290,9 +336,11 @@ public class KadNode extends BosonVerticle implements Node {
 				dht6 = new DHT(identity, Network.IPv6, config.host6(), config.port(), config.bootstrapNodes(),
 						storage, config.dataDir().resolve("dht6.cache"),
 						tokenManager, blacklist, config.enableSuspiciousNodeDetector(),
-						config.enableSpamThrottling(), null, config.enableDeveloperMode());
+						config.enableSpamThrottling(), createMetrics(Network.IPv6), config.enableDeveloperMode(),
+						config.rpcIngressShards());
 
 				dht6.setConnectionStatusListener(listener);
+				dht6.setSignatureVerifier(signatureVerifier);
 
 				Future<Void> future = vertx.deployVerticle(dht6).andThen(ar -> {
 					if (ar.failed())
@@ -307,6 +355,17 @@ public class KadNode extends BosonVerticle implements Node {
 				long timer = vertx.setPeriodic(30_000, STORAGE_EXPIRE_INTERVAL, unused -> storage.purge());
 				timers.add(timer);
 
+				valueReAnnouncer = new ReAnnouncer<>(vertxContext, "value",
+						(before, offset, limit) -> storage.getValues(true, before, offset, limit),
+						before -> storage.countValues(true, before),
+						value -> doStoreValue(value, value.getSequenceNumber()),
+						values -> storage.updateValuesAnnouncedTime(values.stream().map(Value::getId).toList()));
+				peerReAnnouncer = new ReAnnouncer<>(vertxContext, "peer",
+						(before, offset, limit) -> storage.getPeers(true, before, offset, limit),
+						before -> storage.countPeers(true, before),
+						peer -> doAnnouncePeer(peer, -1),
+						storage::updatePeersAnnouncedTime);
+
 				timer = vertx.setPeriodic(60_000, RE_ANNOUNCE_INTERVAL, unused -> persistentAnnounce());
 				timers.add(timer);
 
@@ -333,6 +392,16 @@ public class KadNode extends BosonVerticle implements Node {
 				timers.forEach(vertx::cancelTimer);
 				timers.clear();
 			}
+
+			if (valueReAnnouncer != null) {
+				valueReAnnouncer.cancel();
+				valueReAnnouncer = null;
+			}
+
+			if (peerReAnnouncer != null) {
+				peerReAnnouncer.cancel();
+				peerReAnnouncer = null;
+			}
 		}).compose(v -> {
 			List<Future<Void>> stopFutures = new ArrayList<>(2);
 
@@ -360,6 +429,14 @@ public class KadNode extends BosonVerticle implements Node {
 					storage.close().andThen(ar -> storage = null).otherwiseEmpty()
 		).andThen(ar -> {
 			tokenManager = null;
+			nodeLookups.clear();
+			valueLookups.clear();
+			peerLookups.clear();
+			if (signatureVerifier != null) {
+				signatureVerifier.close();
+				signatureVerifier = null;
+			}
+			verificationCache = null;
 			identity.clearCache();
 		});
 	}
@@ -369,6 +446,52 @@ public class KadNode extends BosonVerticle implements Node {
 		return running;
 	}
 
+	private DHTMetrics createMetrics(Network network) {
+		if (!config.enableMetrics())
+			return null;
+
+		DHTMetrics metrics = MicrometerDHTMetrics.create(network);
+		if (metrics == null)
+			log.warn("Metrics enabled, but the Vert.x Micrometer metrics backend is not available, DHT {} metrics disabled", network);
+
+		return metrics;
+	}
+
+	private void bindMetrics() {
+		MeterRegistry registry = BackendRegistries.getDefaultNow();
+		if (registry == null)
+			return;
+
+		verificationCache.bindTo(registry);
+		signatureVerifier.bindTo(registry);
+		bindCryptoContextMetrics(registry);
+
+		DataStorage backend = storage;
+		if (backend instanceof CachedDataStorage cached) {
+			cached.bindTo(registry);
+			backend = cached.getDelegate();
+		}
+
+		if (backend instanceof DatabaseStorage db && db.getWriteBehind() != null)
+			db.getWriteBehind().bindTo(registry);
+	}
+
+	private void bindCryptoContextMetrics(MeterRegistry registry) {
+		String prefix = "boson.dht.crypto.contexts.";
+
+		FunctionCounter.builder(prefix + "requests", identity, i -> i.getCacheStats().hitCount())
+				.tags("result", "hit")
+				.register(registry);
+		FunctionCounter.builder(prefix + "requests", identity, i -> i.getCacheStats().missCount())
+				.tags("result", "miss")
+				.register(registry);
+		FunctionCounter.builder(prefix + "evictions", identity, i -> i.getCacheStats().evictionCount())
+				.register(registry);
+		Gauge.builder(prefix + "size", identity, CachedCryptoIdentity::getCacheSize)
+				.description("Cached crypto contexts")
+				.register(registry);
+	}
+
 	private void checkRunning() {
 		if (!running)
 			throw new IllegalStateException("Node is not running");
@@ -409,7 +532,8 @@ public class KadNode extends BosonVerticle implements Node {
 		final LookupOption lookupOption = option == null ? defaultLookupOption : option;
 
 		Promise<Result<NodeInfo>> promise = Promise.promise();
-		runOnContext(v -> doFindNode(id, lookupOption).onComplete(promise));
+		runOnContext(v -> nodeLookups.execute(new LookupKey(id, -1, 0, lookupOption),
+				() -> doFindNode(id, lookupOption)).onComplete(promise));
 		return VertxFuture.of(promise.future());
 	}
 
@@ -447,33 +571,36 @@ public class KadNode extends BosonVerticle implements Node {
 		final LookupOption lookupOption = option == null ? defaultLookupOption : option;
 		Promise<Value> promise = Promise.promise();
 
-		runOnContext(v -> {
-			EligibleValue eligible = new EligibleValue(id, expectedSequenceNumber);
-			Variable<Value> local = Variable.empty();
+		runOnContext(v -> valueLookups.execute(new LookupKey(id, expectedSequenceNumber, 0, lookupOption),
+				() -> lookupValue(id, expectedSequenceNumber, lookupOption)).onComplete(promise));
+
+		return VertxFuture.of(promise.future());
+	}
 
-			storage.getValue(id).compose(value -> {
-				if (value != null) {
-					eligible.update(value);
+	private Future<Value> lookupValue(Id id, int expectedSequenceNumber, LookupOption lookupOption) {
+		EligibleValue eligible = new EligibleValue(id, expectedSequenceNumber, verificationCache::isValid);
+		Variable<Value> local = Variable.empty();
 
-					if (!value.isMutable())
-						return Future.succeededFuture(eligible);
+		return storage.getValue(id).compose(value -> {
+			if (value != null) {
+				eligible.update(value);
 
-					if (lookupOption != LookupOption.CONSERVATIVE && !eligible.isEmpty())
-						return Future.succeededFuture(eligible);
+				if (!value.isMutable())
+					return Future.succeededFuture(eligible);
 
-					local.set(value);
-				}
+				if (lookupOption != LookupOption.CONSERVATIVE && !eligible.isEmpty())
+					return Future.succeededFuture(eligible);
 
-				return doFindValue(id, expectedSequenceNumber, lookupOption, eligible).map(eligible);
-			}).compose(vv -> {
-				if (eligible.isEmpty() || (local.isPresent() && eligible.getValue().equals(local.get())))
-					return Future.succeededFuture(eligible.getValue());
+				local.set(value);
+			}
 
-				return storage.putValue(eligible.getValue());
-			}).onComplete(promise);
-		});
+			return doFindValue(id, expectedSequenceNumber, lookupOption, eligible).map(eligible);
+		}).compose(vv -> {
+			if (eligible.isEmpty() || (local.isPresent() && eligible.getValue().equals(local.get())))
+				return Future.succeededFuture(eligible.getValue());
 
-		return VertxFuture.of(promise.future());
+			return storage.putValue(eligible.getValue());
+		});
 	}
 
 	private Future<Void> doFindValue(Id id, int expectedSequenceNumber, LookupOption option, EligibleValue result) {
@@ -543,6 +670,7 @@ public class KadNode extends BosonVerticle implements Node {
 
 		Promise<Void> promise = Promise.promise();
 
+		valueLookups.invalidate(k -> k.target().equals(value.getId()));
 		runOnContext(na -> checkValue(value, expectedSequenceNumber)
 				.compose(v -> storage.putValue(value, persistent))
 				.compose(v -> doStoreValue(value, expectedSequenceNumber))
@@ -578,34 +706,39 @@ public class KadNode extends BosonVerticle implements Node {
 		final LookupOption lookupOption = option == null ? defaultLookupOption : option;
 		Promise<List<PeerInfo>> promise = Promise.promise();
 
-		runOnContext(v -> {
-			EligiblePeers eligible = new EligiblePeers(id, expectedSequenceNumber, expectedCount);
+		runOnContext(v -> peerLookups.execute(new LookupKey(id, expectedSequenceNumber, expectedCount, lookupOption),
+				() -> lookupPeers(id, expectedSequenceNumber, expectedCount, lookupOption)).onComplete(promise));
 
-			storage.getPeers(id, expectedSequenceNumber, expectedCount).compose(peers -> {
-				eligible.add(peers);
+		return VertxFuture.of(promise.future());
+	}
 
-				if (!eligible.isEmpty()) {
-					if (lookupOption == LookupOption.LOCAL)
-						return Future.succeededFuture(eligible);
+	private Future<List<PeerInfo>> lookupPeers(Id id, int expectedSequenceNumber, int expectedCount,
+											   LookupOption lookupOption) {
+		EligiblePeers eligible = new EligiblePeers(id, expectedSequenceNumber, expectedCount,
+				verificationCache::isValid);
 
-					if (lookupOption != LookupOption.CONSERVATIVE && expectedCount > 0 && eligible.reachedCapacity())
-						return Future.succeededFuture(eligible);
-				}
+		return storage.getPeers(id, expectedSequenceNumber, expectedCount).compose(peers -> {
+			eligible.add(peers);
 
-				return doFindPeer(id, expectedSequenceNumber, expectedCount, lookupOption, eligible)
-						.map(eligible);
-			}).compose(el -> {
-				if (eligible.isEmpty())
-					return Future.succeededFuture(List.<PeerInfo>of());
+			if (!eligible.isEmpty()) {
+				if (lookupOption == LookupOption.LOCAL)
+					return Future.succeededFuture(eligible);
 
-				return storage.putPeers(eligible.getPeers()).map(l -> {
-					eligible.prune();
-					return eligible.getPeers();
-				});
-			}).onComplete(promise);
-		});
+				if (lookupOption != LookupOption.CONSERVATIVE && expectedCount > 0 && eligible.reachedCapacity())
+					return Future.succeededFuture(eligible);
+			}
 
-		return VertxFuture.of(promise.future());
+			return doFindPeer(id, expectedSequenceNumber, expectedCount, lookupOption, eligible)
+					.map(eligible);
+		}).compose(el -> {
+			if (eligible.isEmpty())
+				return Future.succeededFuture(List.<PeerInfo>of());
+
+			return storage.putPeers(eligible.getPeers()).map(l -> {
+				eligible.prune();
+				return eligible.getPeers();
+			});
+		});
 	}
 
 	private Future<Void> doFindPeer(Id id, int expectedSequenceNumber, int expectedCount,
@@ -670,6 +803,7 @@ public class KadNode extends BosonVerticle implements Node {
 
 		Promise<Void> promise = Promise.promise();
 
+		peerLookups.invalidate(k -> k.target().equals(peer.getId()));
 		runOnContext(na -> checkPeer(peer, expectedSequenceNumber)
 				.compose(v -> storage.putPeer(peer, persistent))
 				.compose(v -> doAnnouncePeer(peer, expectedSequenceNumber))
@@ -716,41 +850,15 @@ public class KadNode extends BosonVerticle implements Node {
 	private void persistentAnnounce() {
 		log.info("Re-announce the persistent values and peers...");
 
-		long before = System.currentTimeMillis() - MAX_VALUE_AGE + RE_ANNOUNCE_INTERVAL * 2;
-		storage.getValues(true, before).map(values -> {
-			for (Value value : values) {
-				log.debug("Re-announce the value: {}", value.getId());
-				doStoreValue(value, value.getSequenceNumber()).compose(v ->
-						storage.updateValueAnnouncedTime(value.getId())
-				).andThen(ar -> {
-					if (ar.succeeded())
-						log.debug("Re-announce the value {} success", value.getId());
-					else
-						log.error("Re-announce the value {} failed", value.getId(), ar.cause());
-				});
-			}
+		// Spread the pages over most of the interval, leave some slack before the next round
+		long now = System.currentTimeMillis();
+		long window = RE_ANNOUNCE_INTERVAL * 4L / 5;
 
-			return null;
-		}).onFailure(e ->
+		valueReAnnouncer.run(now - MAX_VALUE_AGE + RE_ANNOUNCE_INTERVAL * 2, window).onFailure(e ->
 				log.error("Failed to re-announce the values", e)
 		);
 
-		before = System.currentTimeMillis() - MAX_PEER_AGE + RE_ANNOUNCE_INTERVAL * 2;
-		storage.getPeers(true, before).map(peers -> {
-			for (PeerInfo peer : peers) {
-				log.debug("Re-announce the peer: {}", peer.getId());
-				doAnnouncePeer(peer, -1).compose(v ->
-						storage.updatePeerAnnouncedTime(peer.getId(), peer.getFingerprint())
-				).andThen(ar -> {
-					if (ar.succeeded())
-						log.debug("Re-announce the peer {} success", peer.getId());
-					else
-						log.error("Re-announce the peer {} failed", peer.getId(), ar.cause());
-				});
-			}
-
-			return null;
-		}).onFailure(e ->
+		peerReAnnouncer.run(now - MAX_PEER_AGE + RE_ANNOUNCE_INTERVAL * 2, window).onFailure(e ->
 				log.error("Failed to re-announce the peers", e)
 		);
 	}
@@ -767,6 +875,7 @@ public class KadNode extends BosonVerticle implements Node {
 	public VertxFuture<Boolean> removeValue(Id valueId) {
 		Objects.requireNonNull(valueId, "valueId");
 		checkRunning();
+		valueLookups.invalidate(k -> k.target().equals(valueId));
 		Future<Boolean> future = storage.removeValue(valueId);
 		return VertxFuture.of(future);
 	}
@@ -783,6 +892,7 @@ public class KadNode extends BosonVerticle implements Node {
 	public VertxFuture<Boolean> removePeers(Id peerId) {
 		Objects.requireNonNull(peerId, "peerId");
 		checkRunning();
+		peerLookups.invalidate(k -> k.target().equals(peerId));
 		Future<Boolean> future = storage.removePeers(peerId);
 		return VertxFuture.of(future);
 	}
@@ -799,6 +909,7 @@ public class KadNode extends BosonVerticle implements Node {
 	public VertxFuture<Boolean> removePeer(Id peerId, long fingerprint) {
 		Objects.requireNonNull(peerId, "peerId");
 		checkRunning();
+		peerLookups.invalidate(k -> k.target().equals(peerId));
 		Future<Boolean> future = storage.removePeer(peerId, fingerprint);
 		return VertxFuture.of(future);
 	}
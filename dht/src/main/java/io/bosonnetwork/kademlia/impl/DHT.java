@@ -1,6 +1,5 @@
 package io.bosonnetwork.kademlia.impl;
 
-import java.io.IOException;
 import java.io.PrintStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -31,6 +30,7 @@ import io.bosonnetwork.NodeInfo;
 import io.bosonnetwork.PeerInfo;
 import io.bosonnetwork.Result;
 import io.bosonnetwork.Value;
+import io.bosonnetwork.crypto.CachedCryptoIdentity;
 import io.bosonnetwork.kademlia.exceptions.ImmutableSubstitutionFail;
 import io.bosonnetwork.kademlia.exceptions.InvalidPeer;
 import io.bosonnetwork.kademlia.exceptions.InvalidToken;
@@ -49,11 +49,14 @@ import io.bosonnetwork.kademlia.protocol.StoreValueRequest;
 import io.bosonnetwork.kademlia.routing.KBucket;
 import io.bosonnetwork.kademlia.routing.KBucketEntry;
 import io.bosonnetwork.kademlia.routing.RoutingTable;
+import io.bosonnetwork.kademlia.routing.RoutingTableFile;
+import io.bosonnetwork.kademlia.routing.RoutingTableView;
 import io.bosonnetwork.kademlia.rpc.RpcCall;
 import io.bosonnetwork.kademlia.rpc.RpcCallListener;
 import io.bosonnetwork.kademlia.rpc.RpcServer;
 import io.bosonnetwork.kademlia.security.Blacklist;
 import io.bosonnetwork.kademlia.security.SuspiciousNodeDetector;
+import io.bosonnetwork.kademlia.security.SignatureVerifier;
 import io.bosonnetwork.kademlia.storage.DataStorage;
 import io.bosonnetwork.kademlia.tasks.ClosestSet;
 import io.bosonnetwork.kademlia.tasks.NodeLookupTask;
@@ -72,6 +75,7 @@ public class DHT extends BosonVerticle {
 	public static final int SELF_LOOKUP_INTERVAL = 30 * 60 * 1000;                // 30 minutes
 	public static final int ROUTING_TABLE_PERSIST_INTERVAL = 10 * 60 * 1000;    // 10 minutes
 	public static final int ROUTING_TABLE_MAINTENANCE_INTERVAL = 4 * 60 * 1000;    // 4 minutes
+	public static final int ROUTING_TABLE_PUBLISH_INTERVAL = 1000;                // 1 second
 	public static final int RANDOM_LOOKUP_INTERVAL = 10 * 60 * 1000;            // 10 minutes
 	public static final int RANDOM_PING_INTERVAL = 10 * 1000;                    // 10 seconds
 	public static final int BOOTSTRAP_IF_LESS_THAN_X_ENTRIES = 30;
@@ -93,6 +97,7 @@ public class DHT extends BosonVerticle {
 	private final boolean enableSpamThrottling;
 	private final DHTMetrics metrics;
 	private final boolean enableDeveloperMode;
+	private final int rpcIngressShards;
 
 	private KadContext kadContext;
 	private RpcServer rpcServer;
@@ -102,6 +107,7 @@ public class DHT extends BosonVerticle {
 	private volatile boolean running;
 	private ConnectionStatus status;
 	private ConnectionStatusListener connectionStatusListener;
+	private SignatureVerifier signatureVerifier;
 
 	private List<NodeInfo> bootstrapNodes;
 	private List<Id> bootstrapIds;
@@ -126,6 +132,14 @@ public class DHT extends BosonVerticle {
 			   DataStorage storage, Path persistFile, TokenManager tokenManager, Blacklist blacklist,
 			   boolean enableSuspiciousNodeDetector, boolean enableSpamThrottling, DHTMetrics metrics,
 			   boolean enableDeveloperMode) {
+		this(identity, network, host, port, bootstrapNodes, storage, persistFile, tokenManager, blacklist,
+				enableSuspiciousNodeDetector, enableSpamThrottling, metrics, enableDeveloperMode, 1);
+	}
+
+	public DHT(Identity identity, Network network, String host, int port, Collection<NodeInfo> bootstrapNodes,
+			   DataStorage storage, Path persistFile, TokenManager tokenManager, Blacklist blacklist,
+			   boolean enableSuspiciousNodeDetector, boolean enableSpamThrottling, DHTMetrics metrics,
+			   boolean enableDeveloperMode, int rpcIngressShards) {
 		this.identity = identity;
 		this.network = network;
 		this.host = host;
@@ -139,6 +153,7 @@ public class DHT extends BosonVerticle {
 		this.enableSpamThrottling = enableSpamThrottling;
 		this.metrics = metrics;
 		this.enableDeveloperMode = enableDeveloperMode;
+		this.rpcIngressShards = rpcIngressShards;
 
 		this.routingTable = new RoutingTable(identity.getId());
 
@@ -197,10 +212,24 @@ public class DHT extends BosonVerticle {
 		this.connectionStatusListener = listener;
 	}
 
+	/**
+	 * Sets the signature verifier shared with the other DHT instance, must be called before deployment.
+	 * Without it, every received record is verified on a Vert.x worker thread, or on the event loop
+	 * during the lookups.
+	 *
+	 * @param signatureVerifier the signature verifier
+	 */
+	public void setSignatureVerifier(SignatureVerifier signatureVerifier) {
+		this.signatureVerifier = signatureVerifier;
+	}
+
 	@Override
 	protected void prepare(Vertx vertx, Context context) {
 		super.prepare(vertx, context);
-		this.kadContext = new KadContext(vertx, context, identity, network, this, enableDeveloperMode);
+		this.kadContext = new KadContext(vertx, context, identity, network, this, enableDeveloperMode,
+				signatureVerifier);
+		// Coalesce the routing table changes into one view per event loop task
+		routingTable.setPublisher(kadContext);
 	}
 
 	@Override
@@ -210,21 +239,33 @@ public class DHT extends BosonVerticle {
 
 		log.info("Starting DHT {}:{} on {}:{}......", network, identity.getId(), host, port);
 
-		final boolean needPingCachedRoutingTable;
+		// Completes with true if cached entries were restored and need to be pinged
+		final Future<Boolean> routingTableLoaded;
 		if (persistFile != null && Files.exists(persistFile) && Files.isRegularFile(persistFile)) {
 			log.info("Loading routing table from {} ...", persistFile);
-			routingTable.load(persistFile);
-			needPingCachedRoutingTable = !routingTable.isEmpty();
+			// Read and parse the file on a worker thread, only the restore runs on the event loop
+			routingTableLoaded = kadContext.executeBlocking(() -> RoutingTableFile.read(persistFile))
+					.map(snapshot -> {
+						routingTable.restore(snapshot);
+						warmUpCryptoContexts();
+						return routingTable.getNumberOfEntries() > 0;
+					}).recover(e -> {
+						log.error("Can not load the routing table.", e);
+						return Future.succeededFuture(false);
+					});
 		} else {
-			needPingCachedRoutingTable = false;
+			routingTableLoaded = Future.succeededFuture(false);
 		}
 
-		rpcServer = new RpcServer(kadContext, host, port, blacklist, suspiciousNodeDetector, enableSpamThrottling, metrics);
+		rpcServer = new RpcServer(kadContext, host, port, blacklist, suspiciousNodeDetector, enableSpamThrottling,
+				metrics, rpcIngressShards);
 		rpcServer.setMessageHandler(this::onMessage);
 		rpcServer.setCallSentHandler(this::onSend);
 		rpcServer.setCallTimeoutHandler(this::onTimeout);
-		return rpcServer.start().map(v -> {
-			this.taskManager = new TaskManager(kadContext);
+		return routingTableLoaded.compose(needPingCachedRoutingTable ->
+				rpcServer.start().map(needPingCachedRoutingTable)
+		).map(needPingCachedRoutingTable -> {
+			this.taskManager = new TaskManager(kadContext, metrics);
 			setStatus(ConnectionStatus.Connecting);
 
 			rpcServer.setReachableHandler(reachable -> {
@@ -301,15 +342,10 @@ public class DHT extends BosonVerticle {
 				rpcServer.setReachableHandler(null);
 				return rpcServer.stop().andThen(ar -> rpcServer = null);
 			}
-		}).andThen(ar -> {
-			if (persistFile != null) {
-				try {
-					log.info("Persisting routing table on shutdown...");
-					routingTable.save(persistFile);
-				} catch (IOException e) {
-					log.error("Persisting routing table failed", e);
-				}
-			}
+		}).compose(v -> persistRoutingTable(), e -> persistRoutingTable().compose(v -> Future.failedFuture(e)))
+		.andThen(ar -> {
+			if (metrics != null)
+				metrics.close();
 
 			if (ar.succeeded())
 				log.info("Stopped DHT {}:{} on {}:{}.", network, identity.getId(), host, port);
@@ -330,6 +366,11 @@ public class DHT extends BosonVerticle {
 		timer = kadContext.setPeriodic(RANDOM_PING_INTERVAL, RANDOM_PING_INTERVAL, this::randomPing);
 		timers.add(timer);
 
+		// Publish the routing table metadata updates (last send, RTT, failures) to the view
+		timer = kadContext.setPeriodic(ROUTING_TABLE_PUBLISH_INTERVAL, ROUTING_TABLE_PUBLISH_INTERVAL,
+				unused -> routingTable.publish());
+		timers.add(timer);
+
 		if (enableSuspiciousNodeTracking) {
 			timer = kadContext.setPeriodic(60 * 1000, 30 * 1000, unused -> suspiciousNodeDetector.purge());
 			timers.add(timer);
@@ -373,13 +414,46 @@ public class DHT extends BosonVerticle {
 				tryPingMaintenance(bucket, false, false, true,
 						"RoutingTable maintenance: refreshing bucket - " + bucket.prefix())
 		);
+
+		// The bounded context cache may have dropped some routing table entries under load
+		warmUpCryptoContexts();
+	}
+
+	/**
+	 * Precomputes the crypto contexts of the routing table entries on a worker thread, so the
+	 * packets to and from the known nodes don't pay for the shared key computation on the event loop.
+	 * Only the entries that fit in the free room of the context cache are prepared, a routing table
+	 * larger than the cache doesn't evict and rebuild the contexts on every maintenance.
+	 */
+	private void warmUpCryptoContexts() {
+		if (!(identity instanceof CachedCryptoIdentity cached))
+			return;
+
+		RoutingTableView view = routingTable.view();
+		if (view.getNumberOfEntries() == 0)
+			return;
+
+		kadContext.executeBlocking(() -> {
+			List<Id> ids = new ArrayList<>(view.getNumberOfEntries());
+			for (KBucket bucket : view.buckets())
+				bucket.stream().forEach(entry -> ids.add(entry.getId()));
+
+			return cached.warmUp(ids);
+		}).onComplete(ar -> {
+			if (ar.succeeded())
+				log.debug("Prepared {} crypto contexts for the routing table entries", ar.result());
+			else
+				log.warn("Failed to prepare the crypto contexts for the routing table entries", ar.cause());
+		});
 	}
 
 	private void randomLookup(long unusedTimerId) {
 		if (rpcServer.isReachable()) {
 			log.info("Periodic: random lookup ...");
 			NodeLookupTask task = new NodeLookupTask(kadContext, Id.random())
-					.setName("Periodic: random node Lookup");
+					.setName("Periodic: random node Lookup")
+					.setPriority(Task.Priority.MAINTENANCE)
+					.setDeadline(System.currentTimeMillis() + RANDOM_LOOKUP_INTERVAL);
 			taskManager.add(task);
 		} else {
 			log.info("Periodic: not performing random lookup, server is unreachable.");
@@ -401,12 +475,37 @@ public class DHT extends BosonVerticle {
 	}
 
 	private void persistRoutingTable(long unusedTimerId) {
-		try {
-			log.info("Periodic: persisting routing table ...");
-			routingTable.save(persistFile);
-		} catch (IOException e) {
-			log.error("Can not save the routing table: {}", e.getMessage(), e);
+		log.info("Periodic: persisting routing table ...");
+		persistRoutingTable();
+	}
+
+	/**
+	 * Captures the routing table on the event loop and writes it to the persistent file on a worker
+	 * thread. The ordered blocking executions of the context keep the writes in sequence.
+	 *
+	 * @return a Future that completes when the file is written, never fails
+	 */
+	private Future<Void> persistRoutingTable() {
+		if (persistFile == null)
+			return Future.succeededFuture();
+
+		if (routingTable.getNumberOfEntries() == 0) {
+			log.trace("Skip to save the empty routing table.");
+			return Future.succeededFuture();
 		}
+
+		routingTable.publish();
+		RoutingTableFile.Snapshot snapshot = routingTable.snapshot();
+		return kadContext.executeBlocking(() -> {
+			if (Files.exists(persistFile) && !Files.isRegularFile(persistFile))
+				throw new IllegalStateException("Not a regular file: " + persistFile);
+
+			RoutingTableFile.write(snapshot, persistFile);
+			return (Void) null;
+		}).recover(e -> {
+			log.error("Can not save the routing table: {}", e.getMessage(), e);
+			return Future.succeededFuture();
+		});
 	}
 
 	public Future<Void> bootstrap(Collection<NodeInfo> nodes) {
@@ -619,7 +718,8 @@ public class DHT extends BosonVerticle {
 					.checkAll(checkAll)
 					.removeOnTimeout(removeOnTimeout)
 					.probeReplacement(probeReplacement)
-					.bucket(bucket);
+					.bucket(bucket)
+					.setDeadline(System.currentTimeMillis() + ROUTING_TABLE_MAINTENANCE_INTERVAL);
 
 			if (maintenanceTasks.putIfAbsent(bucket, task) == null) {
 				task.addListener(t -> maintenanceTasks.remove(bucket, task));
@@ -730,20 +830,20 @@ public class DHT extends BosonVerticle {
 	private void onStoreValue(Message request) {
 		StoreValueRequest body = request.getBody();
 
-		kadContext.executeBlocking(() -> {
-			Value value = body.getValue();
+		Value value = body.getValue();
 
-			if (!tokenManager.verifyToken(body.getToken(), request.getId(),
-					request.getRemoteAddress(), value.getId())) {
-				log.warn("Received a store value request with invalid token from {}", request.getRemoteAddress());
-				throw new InvalidToken("Invalid token for STORE VALUE request");
-			}
+		Future<Boolean> verified;
+		if (tokenManager.verifyToken(body.getToken(), request.getId(), request.getRemoteAddress(), value.getId())) {
+			verified = verify(value);
+		} else {
+			log.warn("Received a store value request with invalid token from {}", request.getRemoteAddress());
+			verified = Future.failedFuture(new InvalidToken("Invalid token for STORE VALUE request"));
+		}
 
-			if (!value.isValid())
-				throw new InvalidValue("Invalid value for STORE VALUE request");
+		verified.compose(valid -> {
+			if (!valid)
+				return Future.failedFuture(new InvalidValue("Invalid value for STORE VALUE request"));
 
-			return value;
-		}).compose(value -> {
 			return storage.getValue(value.getId()).compose(existing -> {
 				if (existing != null) {
 					// Immutable check
@@ -813,20 +913,20 @@ public class DHT extends BosonVerticle {
 			return;
 		}
 
-		kadContext.executeBlocking(() -> {
-			PeerInfo peer = body.getPeer();
+		PeerInfo peer = body.getPeer();
 
-			if (!tokenManager.verifyToken(body.getToken(), request.getId(),
-					request.getRemoteAddress(), peer.getId())) {
-				log.warn("Received a announce peer request with invalid token from {}", request.getRemoteAddress());
-				throw new InvalidToken("Invalid token for ANNOUNCE PEER request");
-			}
+		Future<Boolean> verified;
+		if (tokenManager.verifyToken(body.getToken(), request.getId(), request.getRemoteAddress(), peer.getId())) {
+			verified = verify(List.of(peer));
+		} else {
+			log.warn("Received a announce peer request with invalid token from {}", request.getRemoteAddress());
+			verified = Future.failedFuture(new InvalidToken("Invalid token for ANNOUNCE PEER request"));
+		}
 
-			if (!peer.isValid())
-				throw new InvalidPeer("Invalid value for ANNOUNCE PEER request");
+		verified.compose(valid -> {
+			if (!valid)
+				return Future.failedFuture(new InvalidPeer("Invalid value for ANNOUNCE PEER request"));
 
-			return peer;
-		}).compose(peer -> {
 			return storage.getPeer(peer.getId(), peer.getFingerprint()).compose(existing -> {
 				if (existing != null) {
 					int expectedSequenceNumber = body.getExpectedSequenceNumber();
@@ -893,6 +993,18 @@ public class DHT extends BosonVerticle {
 		routingTable.onRequestSent(nodeId);
 	}
 
+	// Verifies the signatures off the event loop, the verification may be shed under load
+	private Future<Boolean> verify(Value value) {
+		SignatureVerifier verifier = kadContext.getSignatureVerifier();
+		return verifier != null ? verifier.verify(value) : kadContext.executeBlocking(value::isValid);
+	}
+
+	private Future<Boolean> verify(List<PeerInfo> peers) {
+		SignatureVerifier verifier = kadContext.getSignatureVerifier();
+		return verifier != null ? verifier.verify(peers) :
+				kadContext.executeBlocking(() -> peers.stream().allMatch(PeerInfo::isValid));
+	}
+
 	private Message exceptionToError(Message.Method method, long txid, Throwable cause) {
 		int code;
 		String msg;
@@ -1007,26 +1119,29 @@ public class DHT extends BosonVerticle {
 		if (v4 > 0) {
 			DHT dht4 = network == Network.IPv4 ? this : sibling;
 			if (dht4 != null) {
-				nodes4 = routingTable.getClosestNodes(target, v4)
-						.includeReplacements(routingTable.getNumberOfEntries() < v4)
+				// The sibling runs on its own context, query the published view of its routing table
+				RoutingTableView view = dht4.routingTable.view();
+				nodes4 = view.getClosestNodes(target, v4)
+						.includeReplacements(view.getNumberOfEntries() < v4)
 						.fill()
 						.nodes();
 				// Add self to the list if needed
 				if (nodes4.size() < v4)
-					nodes4.add(nodeInfo);
+					nodes4.add(dht4.nodeInfo);
 			}
 		}
 
 		if (v6 > 0) {
 			DHT dht6 = network == Network.IPv6 ? this : sibling;
 			if (dht6 != null) {
-				nodes6 = routingTable.getClosestNodes(target, v6)
-						.includeReplacements(routingTable.getNumberOfEntries() < v6)
+				RoutingTableView view = dht6.routingTable.view();
+				nodes6 = view.getClosestNodes(target, v6)
+						.includeReplacements(view.getNumberOfEntries() < v6)
 						.fill()
 						.nodes();
 				// Add self to the list if needed
 				if (nodes6.size() < v6)
-					nodes6.add(nodeInfo);
+					nodes6.add(dht6.nodeInfo);
 			}
 		}
 
@@ -1089,6 +1204,7 @@ public class DHT extends BosonVerticle {
 			NodeLookupTask lookupTask = new NodeLookupTask(kadContext, value.getId())
 					.setWantToken(true)
 					.setName("Store value: lookup closest node to - " + value.getId())
+					.setPriority(Task.Priority.ANNOUNCE)
 					.setNestedTask(announceTask)
 					.addListener(t -> {
 						if (t.getState() != Task.State.COMPLETED)
@@ -1139,6 +1255,7 @@ public class DHT extends BosonVerticle {
 			NodeLookupTask lookupTask = new NodeLookupTask(kadContext, peer.getId())
 					.setWantToken(true)
 					.setName("Announce peer: lookup closest node to - " + peer.getId())
+					.setPriority(Task.Priority.ANNOUNCE)
 					.setNestedTask(announceTask)
 					.addListener(t -> {
 						if (t.getState() != Task.State.COMPLETED)
@@ -1163,11 +1280,8 @@ public class DHT extends BosonVerticle {
 	}
 
 	public Future<Void> dumpRoutingTable(PrintStream out) {
-		Promise<Void> promise = Promise.promise();
-		runOnContext(v -> {
-			routingTable.dump(out);
-			promise.complete();
-		});
-		return promise.future();
+		// the published view is safe to read from the caller thread
+		routingTable.view().dump(out);
+		return Future.succeededFuture();
 	}
 }
\ No newline at end of file
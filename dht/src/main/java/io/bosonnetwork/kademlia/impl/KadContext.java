@@ -11,6 +11,8 @@ import io.vertx.core.Vertx;
 import io.bosonnetwork.Id;
 import io.bosonnetwork.Identity;
 import io.bosonnetwork.Network;
+import io.bosonnetwork.kademlia.security.SignatureVerifier;
+import io.bosonnetwork.kademlia.security.VerificationCache;
 import io.bosonnetwork.kademlia.utils.Timer;
 
 public class KadContext implements Timer, Executor {
@@ -20,15 +22,24 @@ public class KadContext implements Timer, Executor {
 	private final Network network;
 	private final DHT dht;
 	private final boolean developerMode;
+	private final SignatureVerifier signatureVerifier;
+	private final VerificationCache verificationCache;
 	private DHT sibling;
 
-	public KadContext(Vertx vertx, Context vertxContext, Identity identity, Network network, DHT dht, boolean developerMode) {
+	public KadContext(Vertx vertx, Context vertxContext, Identity identity, Network network, DHT dht,
+					  boolean developerMode, SignatureVerifier signatureVerifier) {
 		this.vertx = vertx;
 		this.vertxContext = vertxContext;
 		this.identity = identity;
 		this.network = network;
 		this.dht = dht;
 		this.developerMode = developerMode;
+		this.signatureVerifier = signatureVerifier;
+		this.verificationCache = signatureVerifier != null ? signatureVerifier.getCache() : VerificationCache.disabled();
+	}
+
+	public KadContext(Vertx vertx, Context vertxContext, Identity identity, Network network, DHT dht, boolean developerMode) {
+		this(vertx, vertxContext, identity, network, dht, developerMode, null);
 	}
 
 	public KadContext(Vertx vertx, Context vertxContext, Identity identity, Network network, DHT dht) {
@@ -79,6 +90,19 @@ public class KadContext implements Timer, Executor {
 		return developerMode;
 	}
 
+	public VerificationCache getVerificationCache() {
+		return verificationCache;
+	}
+
+	/**
+	 * Returns the verifier that offloads the signature verifications from the event loop.
+	 *
+	 * @return the signature verifier, or null to verify on the calling thread
+	 */
+	public SignatureVerifier getSignatureVerifier() {
+		return signatureVerifier;
+	}
+
 	public void runOnContext(Consumer<Void> action) {
 		vertxContext.runOnContext(action::accept);
 	}
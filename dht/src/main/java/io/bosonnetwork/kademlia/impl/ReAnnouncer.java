@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streams the persistent records out of the storage and re-announces them page by page.
+ * <p>
+ * Each round walks the records that were announced before a given timestamp, one page at a time:
+ * the records of a page are announced with at most {@code maxInFlight} announcements running
+ * concurrently, then the announced time of the successful ones is updated in one batch. The
+ * updated records drop out of the query, so the next page is read from an offset that only counts
+ * the records failed in this round. The pages are spread over the given time window: each round
+ * counts the records to re-announce first, and paces its pages from that count, falling back to
+ * the number of records seen in the previous round if the count fails.
+ * <p>
+ * All the state is confined to the given Vert.x context; {@link #run(long, long)} must be called
+ * on that context.
+ *
+ * @param <T> the record type, a value or a peer
+ */
+public class ReAnnouncer<T> {
+	public static final int DEFAULT_PAGE_SIZE = 64;
+	public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+
+	private final Context context;
+	private final String name;
+	private final PageLoader<T> loader;
+	private final LongFunction<Future<Long>> counter;
+	private final Function<T, Future<?>> announcer;
+	private final Function<List<T>, Future<?>> updater;
+	private final int pageSize;
+	private final int maxInFlight;
+
+	private Round round;
+	private int lastTotal;
+	private long timer;
+	private volatile boolean cancelled;
+
+	private static final Logger log = LoggerFactory.getLogger(ReAnnouncer.class);
+
+	/**
+	 * Loads a page of the records announced before the given timestamp.
+	 *
+	 * @param <T> the record type
+	 */
+	@FunctionalInterface
+	public interface PageLoader<T> {
+		Future<List<T>> load(long announcedBefore, int offset, int limit);
+	}
+
+	private static class Round {
+		final long announcedBefore;
+		final Promise<Integer> promise;
+		long pageInterval;
+		int offset;
+		int total;
+		int announced;
+
+		Round(long announcedBefore) {
+			this.announcedBefore = announcedBefore;
+			this.promise = Promise.promise();
+		}
+	}
+
+	/**
+	 * Creates a re-announcer.
+	 *
+	 * @param context     the Vert.x context that owns this re-announcer
+	 * @param name        the record type name, for logging
+	 * @param loader      loads a page of the records to re-announce
+	 * @param counter     counts the records announced before the given timestamp
+	 * @param announcer   announces a record
+	 * @param updater     updates the announced time of a batch of records
+	 * @param pageSize    the number of records per page
+	 * @param maxInFlight the maximum number of concurrent announcements
+	 */
+	public ReAnnouncer(Context context, String name, PageLoader<T> loader, LongFunction<Future<Long>> counter,
+					   Function<T, Future<?>> announcer, Function<List<T>, Future<?>> updater,
+					   int pageSize, int maxInFlight) {
+		if (pageSize <= 0)
+			throw new IllegalArgumentException("Invalid page size: " + pageSize);
+		if (maxInFlight <= 0)
+			throw new IllegalArgumentException("Invalid max in-flight: " + maxInFlight);
+
+		this.context = context;
+		this.name = name;
+		this.loader = loader;
+		this.counter = counter;
+		this.announcer = announcer;
+		this.updater = updater;
+		this.pageSize = pageSize;
+		this.maxInFlight = maxInFlight;
+	}
+
+	public ReAnnouncer(Context context, String name, PageLoader<T> loader, LongFunction<Future<Long>> counter,
+					   Function<T, Future<?>> announcer, Function<List<T>, Future<?>> updater) {
+		this(context, name, loader, counter, announcer, updater, DEFAULT_PAGE_SIZE, DEFAULT_MAX_IN_FLIGHT);
+	}
+
+	/**
+	 * Starts a re-announce round. If the previous round is still running, it is left to finish
+	 * and no new round is started.
+	 *
+	 * @param announcedBefore re-announce the records announced before this timestamp
+	 * @param window          the time window (in milliseconds) to spread the round across
+	 * @return a Future that completes with the number of records re-announced in this round
+	 */
+	public Future<Integer> run(long announcedBefore, long window) {
+		if (cancelled)
+			return Future.succeededFuture(0);
+
+		if (round != null) {
+			log.warn("The previous {} re-announce round is still running, skipped", name);
+			return Future.succeededFuture(0);
+		}
+
+		Round current = new Round(announcedBefore);
+		round = current;
+		counter.apply(announcedBefore).otherwise(cause -> {
+			log.warn("Failed to count the {}s to re-announce, paced by the previous round", name, cause);
+			return (long) lastTotal;
+		}).onComplete(ar -> context.runOnContext(unused -> {
+			if (round != current)
+				return;
+
+			long estimatedPages = (ar.result() + pageSize - 1) / pageSize;
+			current.pageInterval = estimatedPages > 1 ? window / estimatedPages : 0;
+			nextPage(current);
+		}));
+		return current.promise.future();
+	}
+
+	/**
+	 * Cancels the running round and stops accepting new rounds.
+	 */
+	public void cancel() {
+		cancelled = true;
+		if (timer != 0) {
+			context.owner().cancelTimer(timer);
+			timer = 0;
+		}
+
+		if (round != null)
+			complete(round);
+	}
+
+	private void nextPage(Round current) {
+		timer = 0;
+		if (cancelled || round != current)
+			return;
+
+		long pageStart = System.currentTimeMillis();
+		int[] counts = new int[2]; // loaded, announced
+		loader.load(current.announcedBefore, current.offset, pageSize).compose(page -> {
+			counts[0] = page.size();
+			return page.isEmpty() ? Future.succeededFuture(List.<T>of()) : announcePage(page);
+		}).compose(announced -> {
+			if (announced.isEmpty())
+				return Future.succeededFuture();
+
+			return updater.apply(announced).andThen(ar -> {
+				if (ar.succeeded())
+					counts[1] = announced.size();
+				else
+					log.error("Failed to update the announced time of {} {}s", announced.size(), name, ar.cause());
+			}).otherwiseEmpty();
+		}).onComplete(ar -> context.runOnContext(unused -> {
+			if (round != current)
+				return;
+
+			if (ar.failed()) {
+				log.error("Failed to load the {}s to re-announce", name, ar.cause());
+				complete(current);
+				return;
+			}
+
+			current.total += counts[0];
+			current.announced += counts[1];
+			// the updated records dropped out of the query, skip the failed ones only
+			current.offset += counts[0] - counts[1];
+
+			if (counts[0] < pageSize) {
+				complete(current);
+				return;
+			}
+
+			long delay = pageStart + current.pageInterval - System.currentTimeMillis();
+			if (delay > 0)
+				timer = context.owner().setTimer(delay, id -> context.runOnContext(v -> nextPage(current)));
+			else
+				nextPage(current);
+		}));
+	}
+
+	private Future<List<T>> announcePage(List<T> page) {
+		AtomicInteger next = new AtomicInteger();
+		Queue<T> announced = new ConcurrentLinkedQueue<>();
+
+		int workers = Math.min(maxInFlight, page.size());
+		List<Future<Void>> futures = new ArrayList<>(workers);
+		for (int i = 0; i < workers; i++)
+			futures.add(announceNext(page, next, announced));
+
+		return Future.all(futures).map(v -> new ArrayList<>(announced));
+	}
+
+	private Future<Void> announceNext(List<T> page, AtomicInteger next, Queue<T> announced) {
+		int index = next.getAndIncrement();
+		if (index >= page.size() || cancelled)
+			return Future.succeededFuture();
+
+		T item = page.get(index);
+		return announcer.apply(item).transform(ar -> {
+			if (ar.succeeded())
+				announced.add(item);
+			else
+				log.error("Re-announce the {} {} failed", name, item, ar.cause());
+
+			return announceNext(page, next, announced);
+		});
+	}
+
+	private void complete(Round current) {
+		round = null;
+		if (!cancelled)
+			lastTotal = current.total;
+
+		log.info("Re-announced {}/{} persistent {}s", current.announced, current.total, name);
+		current.promise.tryComplete(current.announced);
+	}
+}
@@ -25,7 +25,14 @@ public class SimpleNodeConfiguration implements NodeConfiguration {
 	private final String databaseUri;
 	private final int databasePoolSize;
 	private final String databaseSchemaName;
+	private final int databaseWriteDelay;
+	private final int databaseWriteBatchSize;
+	private final boolean databaseDurableWrites;
+	private final int databaseCacheSize;
 	private final ArrayList<NodeInfo> bootstrapNodes;
+	private final int rpcIngressShards;
+	private final int lookupCacheTTL;
+	private final int cryptoContextCacheSize;
 	private final boolean enableSpamThrottling;
 	private final boolean enableSuspiciousNodeDetector;
 	private final boolean enableMetrics;
@@ -41,17 +48,28 @@ public class SimpleNodeConfiguration implements NodeConfiguration {
 		this.databaseUri = config.databaseUri();
 		this.databasePoolSize = config.databasePoolSize();
 		this.databaseSchemaName = config.databaseSchemaName();
+		this.databaseWriteDelay = Math.max(0, config.databaseWriteDelay());
+		this.databaseWriteBatchSize = Math.max(0, config.databaseWriteBatchSize());
+		this.databaseDurableWrites = config.databaseDurableWrites();
+		this.databaseCacheSize = Math.max(0, config.databaseCacheSize());
 		this.bootstrapNodes = new ArrayList<>(config.bootstrapNodes() != null ? config.bootstrapNodes() : Collections.emptyList());
+		this.rpcIngressShards = Math.max(1, config.rpcIngressShards());
+		this.lookupCacheTTL = Math.max(0, config.lookupCacheTTL());
+		this.cryptoContextCacheSize = Math.max(1, config.cryptoContextCacheSize());
 		this.enableSpamThrottling = config.enableSpamThrottling();
 		this.enableSuspiciousNodeDetector = config.enableSuspiciousNodeDetector();
 		this.enableMetrics = config.enableMetrics();
 		this.enableDeveloperMode = config.enableDeveloperMode();
 
-		this.vertx = config.vertx() != null ? config.vertx() : createDefaultVertx(enableMetrics);
+		this.vertx = config.vertx() != null ? config.vertx() : createDefaultVertx(enableMetrics, rpcIngressShards > 1);
 	}
 
-	private static Vertx createDefaultVertx(boolean enableMetrics) {
+	private static Vertx createDefaultVertx(boolean enableMetrics, boolean preferNativeTransport) {
 		VertxOptions options = new VertxOptions();
+		// SO_REUSEPORT based RPC ingress sharding requires the native transport
+		if (preferNativeTransport)
+			options.setPreferNativeTransport(true);
+
 		if (enableMetrics) {
 			options.setMetricsOptions(
 					new MicrometerMetricsOptions()
@@ -112,11 +130,46 @@ public class SimpleNodeConfiguration implements NodeConfiguration {
 		return databaseSchemaName;
 	}
 
+	@Override
+	public int databaseWriteDelay() {
+		return databaseWriteDelay;
+	}
+
+	@Override
+	public int databaseWriteBatchSize() {
+		return databaseWriteBatchSize;
+	}
+
+	@Override
+	public boolean databaseDurableWrites() {
+		return databaseDurableWrites;
+	}
+
+	@Override
+	public int databaseCacheSize() {
+		return databaseCacheSize;
+	}
+
 	@Override
 	public Collection<NodeInfo> bootstrapNodes() {
 		return Collections.unmodifiableList(bootstrapNodes);
 	}
 
+	@Override
+	public int rpcIngressShards() {
+		return rpcIngressShards;
+	}
+
+	@Override
+	public int lookupCacheTTL() {
+		return lookupCacheTTL;
+	}
+
+	@Override
+	public int cryptoContextCacheSize() {
+		return cryptoContextCacheSize;
+	}
+
 	@Override
 	public boolean enableMetrics() {
 		return enableMetrics;
@@ -23,32 +23,53 @@
 
 package io.bosonnetwork.kademlia.impl;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.net.UnknownHostException;
-import java.nio.ByteBuffer;
-import java.security.MessageDigest;
+import java.nio.ByteOrder;
 import java.util.concurrent.atomic.AtomicLong;
 
 import io.vertx.core.net.SocketAddress;
 
 import io.bosonnetwork.Id;
-import io.bosonnetwork.crypto.Hash;
 import io.bosonnetwork.crypto.Random;
+import io.bosonnetwork.kademlia.utils.AddressKeys;
+import io.bosonnetwork.kademlia.utils.SipHash;
 
 /**
+ * Issues and verifies the write tokens.
+ * <p>
+ * A token is the SipHash-2-4 MAC, under a random session key, of a fixed layout of 12 words: the
+ * node id, the target id, the address (IPv4 zero-extended), the address length and the port, and
+ * the token timestamp; folded to 32 bits. Each thread reuses its own MAC state and address
+ * buffer, so no token allocates.
+ *
  * @hidden
  */
 public class TokenManager {
 	public static final int	TOKEN_TIMEOUT = 5 * 60 * 1000;	// 5 minutes
 
-	private final byte[] sessionSecret;
+	private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private final ThreadLocal<Scratch> scratch;
 	private final AtomicLong timestamp;
 	private volatile long previousTimestamp;
 
+	private static class Scratch {
+		final SipHash mac;
+		final byte[] address;
+
+		Scratch(long k0, long k1) {
+			mac = new SipHash(k0, k1);
+			address = new byte[16];
+		}
+	}
+
 	public TokenManager() {
-		this.sessionSecret = new byte[32];
-		Random.secureRandom().nextBytes(sessionSecret);
+		long k0 = Random.secureRandom().nextLong();
+		long k1 = Random.secureRandom().nextLong();
+		this.scratch = ThreadLocal.withInitial(() -> new Scratch(k0, k1));
 		timestamp = new AtomicLong(System.currentTimeMillis());
 	}
 
@@ -64,20 +85,46 @@ public class TokenManager {
 		}
 	}
 
+	private static int generateToken(SipHash mac, Id nodeId, byte[] address, int addressLength, int port,
+									 Id targetId, long timestamp) {
+		mac.reset();
+
+		byte[] id = nodeId.bytes();
+		for (int i = 0; i < Id.BYTES; i += Long.BYTES)
+			mac.update((long) LONG_LE.get(id, i));
+
+		id = targetId.bytes();
+		for (int i = 0; i < Id.BYTES; i += Long.BYTES)
+			mac.update((long) LONG_LE.get(id, i));
+
+		if (addressLength == 16) {
+			mac.update((long) LONG_LE.get(address, 0));
+			mac.update((long) LONG_LE.get(address, 8));
+		} else {
+			mac.update(0);
+			mac.update((address[0] & 0xffL) | (address[1] & 0xffL) << 8 |
+					(address[2] & 0xffL) << 16 | (address[3] & 0xffL) << 24);
+		}
+
+		mac.update((long) addressLength << 16 | (port & 0xffff));
+		mac.update(timestamp);
+
+		long digest = mac.finish();
+		return (int) (digest ^ (digest >>> 32));
+	}
+
 	private int generateToken(Id nodeId, InetAddress address, int port, Id targetId, long timestamp) {
-		MessageDigest sha256 = Hash.sha256();
-		sha256.update(nodeId.bytes());
-		sha256.update(address.getAddress());
-		sha256.update(ByteBuffer.allocate(Short.BYTES).putShort((short)port).array());
-		sha256.update(targetId.bytes());
-		sha256.update(ByteBuffer.allocate(Long.BYTES).putLong(timestamp).array());
-		sha256.update(sessionSecret);
-		byte[] digest = sha256.digest();
-		int pos = (digest[0] & 0xff) & 0x1f; // mod 32
-		return ((digest[pos] & 0xff) << 24) |
-				((digest[(pos + 1) & 0x1f] & 0xff) << 16) |
-				((digest[(pos + 2) & 0x1f] & 0xff) << 8) |
-				(digest[(pos + 3) & 0x1f] & 0xff);
+		byte[] raw = address.getAddress();
+		return generateToken(scratch.get().mac, nodeId, raw, raw.length, port, targetId, timestamp);
+	}
+
+	// raw bytes of the host address, parsed in place instead of through InetAddress.getByName()
+	private static int rawAddress(SocketAddress address, byte[] dest) {
+		int length = AddressKeys.toBytes(address, dest);
+		if (length < 0)
+			throw new IllegalArgumentException("Not an IP socket address: " + address);
+
+		return length;
 	}
 
 	public int generateToken(Id nodeId, InetSocketAddress address, Id targetId) {
@@ -85,11 +132,9 @@ public class TokenManager {
 	}
 
 	public int generateToken(Id nodeId, SocketAddress address, Id targetId) {
-		try {
-			return generateToken(nodeId, InetAddress.getByName(address.hostAddress()), address.port(), targetId, timestamp.get());
-		} catch (UnknownHostException e) {
-			throw new IllegalArgumentException(e);
-		}
+		Scratch s = scratch.get();
+		int length = rawAddress(address, s.address);
+		return generateToken(s.mac, nodeId, s.address, length, address.port(), targetId, timestamp.get());
 	}
 
 	public int generateToken(Id nodeId, InetAddress address, int port, Id targetId) {
@@ -110,10 +155,13 @@ public class TokenManager {
 	}
 
 	public boolean verifyToken(int token, Id nodeId, SocketAddress address, Id targetId) {
-		try {
-			return verifyToken(token, nodeId, InetAddress.getByName(address.hostAddress()), address.port(), targetId);
-		} catch (UnknownHostException e) {
-			throw new IllegalArgumentException(e);
-		}
+		Scratch s = scratch.get();
+		int length = rawAddress(address, s.address);
+		int currentToken = generateToken(s.mac, nodeId, s.address, length, address.port(), targetId, timestamp.get());
+		if (token == currentToken)
+			return true;
+
+		int previousToken = generateToken(s.mac, nodeId, s.address, length, address.port(), targetId, previousTimestamp);
+		return token == previousToken;
 	}
-}
\ No newline at end of file
+}
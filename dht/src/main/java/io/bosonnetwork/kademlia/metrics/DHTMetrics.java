@@ -3,6 +3,7 @@ package io.bosonnetwork.kademlia.metrics;
 import io.vertx.core.net.SocketAddress;
 
 import io.bosonnetwork.kademlia.protocol.Message;
+import io.bosonnetwork.kademlia.tasks.Task;
 import io.bosonnetwork.metrics.Metrics;
 
 public interface DHTMetrics extends Metrics {
@@ -77,6 +78,16 @@ public interface DHTMetrics extends Metrics {
 	default void throttledOutbound(String host, int delay) {
 	}
 
+	// queued - waiting for a slot - taskStarted - running - taskEnded | taskDropped
+	default void taskStarted(Task.Priority priority, long queueWait) {
+	}
+
+	default void taskEnded(Task.Priority priority, long runTime) {
+	}
+
+	default void taskDropped(Task.Priority priority) {
+	}
+
 	/**
 	 * Called when exceptions occur for a specific connection.
 	 *
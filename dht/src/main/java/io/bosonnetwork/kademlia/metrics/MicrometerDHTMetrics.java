@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.metrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.micrometer.backends.BackendRegistries;
+
+import io.bosonnetwork.Network;
+import io.bosonnetwork.kademlia.protocol.Message;
+import io.bosonnetwork.kademlia.rpc.RpcCall;
+import io.bosonnetwork.kademlia.rpc.RpcServer;
+import io.bosonnetwork.kademlia.tasks.Task;
+import io.bosonnetwork.kademlia.utils.ExponentialWeightedMovingAverage;
+
+/**
+ * {@link DHTMetrics} implementation backed by a Micrometer {@link MeterRegistry}.
+ * <p>
+ * All meters are registered up front and kept in arrays indexed by the enum ordinals, so the
+ * hot path is a plain array lookup plus an atomic increment. The meters are tagged by the
+ * network, {@link Message.Method}, {@link Message.Type}, {@link DHTMetrics.Reason} and
+ * {@link Task.Priority} only; the remote addresses are deliberately never used as tags to keep
+ * the time series cardinality bounded.
+ * <p>
+ * The counters and timers are thread-safe, the loss rate averages are updated from the DHT
+ * context only.
+ */
+public class MicrometerDHTMetrics implements DHTMetrics {
+	private static final String PREFIX = "boson.dht.";
+
+	// Fixed RTT buckets, much cheaper than the full percentile histograms
+	private static final Duration[] RTT_BUCKETS = {
+			Duration.ofMillis(10), Duration.ofMillis(25), Duration.ofMillis(50), Duration.ofMillis(100),
+			Duration.ofMillis(200), Duration.ofMillis(400), Duration.ofMillis(800), Duration.ofMillis(1600),
+			Duration.ofMillis(3200), Duration.ofMillis(6400), Duration.ofMillis(RpcServer.RPC_CALL_TIMEOUT_MAX)
+	};
+
+	private static final Message.Method[] METHODS = Message.Method.values();
+	private static final Message.Type[] TYPES = Message.Type.values();
+	private static final Reason[] REASONS = Reason.values();
+	private static final Task.Priority[] PRIORITIES = Task.Priority.values();
+
+	private final MeterRegistry registry;
+	private final List<Meter> meters;
+
+	private final Counter bytesRead;
+	private final Counter bytesWritten;
+	private final Counter bytesDropped;
+	private final Counter messagesReceived;
+	private final Counter messagesSent;
+	private final Counter messagesSendFailed;
+	private final Counter[] messagesDropped;
+	private final Counter[] requestsReceived;
+	private final Counter[] requestsSent;
+	private final Counter[][] responsesSent;
+	private final Counter[][] responsesReceived;
+	private final Counter[] responseTimeouts;
+	private final Timer[] rtt;
+	private final Counter throttledInbound;
+	private final Counter throttledOutbound;
+	private final DistributionSummary throttledOutboundDelay;
+	private final Counter exceptions;
+	private final Timer[] taskQueueWait;
+	private final Timer[] taskRunTime;
+	private final Counter[] tasksDropped;
+
+	private final ExponentialWeightedMovingAverage verifiedLossRate;
+	private final ExponentialWeightedMovingAverage unverifiedLossRate;
+
+	/**
+	 * Creates the DHT metrics and registers all the meters to the given registry.
+	 *
+	 * @param registry the meter registry
+	 * @param network the network of the DHT instance, used as the common tag
+	 */
+	public MicrometerDHTMetrics(MeterRegistry registry, Network network) {
+		this.registry = registry;
+		this.meters = new ArrayList<>(128);
+
+		Tags common = Tags.of("network", network.name().toLowerCase());
+
+		bytesRead = counter("bytes.read", common);
+		bytesWritten = counter("bytes.written", common);
+		bytesDropped = counter("bytes.dropped", common);
+		messagesReceived = counter("messages.received", common);
+		messagesSent = counter("messages.sent", common);
+		messagesSendFailed = counter("messages.send.failed", common);
+
+		messagesDropped = new Counter[REASONS.length];
+		for (Reason reason : REASONS)
+			messagesDropped[reason.ordinal()] = counter("messages.dropped", common.and("reason", tag(reason)));
+
+		requestsReceived = new Counter[METHODS.length];
+		requestsSent = new Counter[METHODS.length];
+		responsesSent = new Counter[METHODS.length][TYPES.length];
+		responsesReceived = new Counter[METHODS.length][TYPES.length];
+		responseTimeouts = new Counter[METHODS.length];
+		rtt = new Timer[METHODS.length];
+
+		for (Message.Method method : METHODS) {
+			int m = method.ordinal();
+			Tags tags = common.and("method", tag(method));
+
+			requestsReceived[m] = counter("requests.received", tags);
+			requestsSent[m] = counter("requests.sent", tags);
+			responseTimeouts[m] = counter("responses.timeout", tags);
+
+			for (Message.Type type : TYPES) {
+				if (type == Message.Type.REQUEST)
+					continue;
+
+				Tags typeTags = tags.and("type", tag(type));
+				responsesSent[m][type.ordinal()] = counter("responses.sent", typeTags);
+				responsesReceived[m][type.ordinal()] = counter("responses.received", typeTags);
+			}
+
+			rtt[m] = register(Timer.builder(PREFIX + "rpc.rtt")
+					.description("Round-trip time of the RPC calls")
+					.tags(tags)
+					.serviceLevelObjectives(RTT_BUCKETS)
+					.register(registry));
+		}
+
+		throttledInbound = counter("throttled.inbound", common);
+		throttledOutbound = counter("throttled.outbound", common);
+		throttledOutboundDelay = register(DistributionSummary.builder(PREFIX + "throttled.outbound.delay")
+				.baseUnit("milliseconds")
+				.tags(common)
+				.register(registry));
+		exceptions = counter("exceptions", common);
+
+		taskQueueWait = new Timer[PRIORITIES.length];
+		taskRunTime = new Timer[PRIORITIES.length];
+		tasksDropped = new Counter[PRIORITIES.length];
+		for (Task.Priority priority : PRIORITIES) {
+			int p = priority.ordinal();
+			Tags tags = common.and("priority", tag(priority));
+
+			taskQueueWait[p] = register(Timer.builder(PREFIX + "task.queue.wait")
+					.description("Time the tasks waited in the queue before started")
+					.tags(tags)
+					.register(registry));
+			taskRunTime[p] = register(Timer.builder(PREFIX + "task.run")
+					.description("Time the tasks took from started to ended")
+					.tags(tags)
+					.register(registry));
+			tasksDropped[p] = counter("tasks.dropped", tags);
+		}
+
+		verifiedLossRate = new ExponentialWeightedMovingAverage(0.01);
+		unverifiedLossRate = new ExponentialWeightedMovingAverage(0.01);
+		register(Gauge.builder(PREFIX + "loss.rate", verifiedLossRate, ExponentialWeightedMovingAverage::getAverage)
+				.tags(common.and("verified", "true"))
+				.register(registry));
+		register(Gauge.builder(PREFIX + "loss.rate", unverifiedLossRate, ExponentialWeightedMovingAverage::getAverage)
+				.tags(common.and("verified", "false"))
+				.register(registry));
+	}
+
+	/**
+	 * Creates the DHT metrics on the default Vert.x Micrometer backend registry.
+	 *
+	 * @param network the network of the DHT instance
+	 * @return the DHT metrics, or null if the Vert.x Micrometer metrics are not enabled
+	 */
+	public static MicrometerDHTMetrics create(Network network) {
+		MeterRegistry registry = BackendRegistries.getDefaultNow();
+		return registry == null ? null : new MicrometerDHTMetrics(registry, network);
+	}
+
+	private static String tag(Enum<?> value) {
+		return value.name().toLowerCase();
+	}
+
+	private <T extends Meter> T register(T meter) {
+		meters.add(meter);
+		return meter;
+	}
+
+	private Counter counter(String name, Tags tags) {
+		return register(Counter.builder(PREFIX + name).tags(tags).register(registry));
+	}
+
+	@Override
+	public void bytesRead(SocketAddress remoteAddress, long numberOfBytes) {
+		bytesRead.increment(numberOfBytes);
+	}
+
+	@Override
+	public void bytesDropped(SocketAddress remoteAddress, long numberOfBytes) {
+		bytesDropped.increment(numberOfBytes);
+	}
+
+	@Override
+	public void bytesWritten(SocketAddress remoteAddress, long numberOfBytes) {
+		bytesWritten.increment(numberOfBytes);
+	}
+
+	@Override
+	public void messageReceived(SocketAddress remoteAddress) {
+		messagesReceived.increment();
+	}
+
+	@Override
+	public void messageDropped(SocketAddress remoteAddress, Reason reason) {
+		messagesDropped[reason.ordinal()].increment();
+	}
+
+	@Override
+	public void messageSent(SocketAddress remoteAddress) {
+		messagesSent.increment();
+	}
+
+	@Override
+	public void messageSendFailed(SocketAddress remoteAddress, Throwable error) {
+		messagesSendFailed.increment();
+	}
+
+	@Override
+	public void requestReceived(Message request) {
+		requestsReceived[request.getMethod().ordinal()].increment();
+	}
+
+	@Override
+	public void responseSent(Message response) {
+		Counter counter = responsesSent[response.getMethod().ordinal()][response.getType().ordinal()];
+		if (counter != null)
+			counter.increment();
+	}
+
+	@Override
+	public void requestSent(Message request) {
+		requestsSent[request.getMethod().ordinal()].increment();
+	}
+
+	@Override
+	public void responseReceived(Message response) {
+		int m = response.getMethod().ordinal();
+		Counter counter = responsesReceived[m][response.getType().ordinal()];
+		if (counter != null)
+			counter.increment();
+
+		RpcCall call = response.getAssociatedCall();
+		if (call != null) {
+			long rtt = call.getRTT();
+			if (rtt >= 0)
+				this.rtt[m].record(rtt, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public void responseTimeout(Message request) {
+		responseTimeouts[request.getMethod().ordinal()].increment();
+	}
+
+	@Override
+	public void verifiedLossRateUpdate(double rate) {
+		verifiedLossRate.update(rate);
+	}
+
+	@Override
+	public void unverifiedLossRateUpdate(double rate) {
+		unverifiedLossRate.update(rate);
+	}
+
+	@Override
+	public void throttledInbound(String host) {
+		throttledInbound.increment();
+	}
+
+	@Override
+	public void throttledOutbound(String host, int delay) {
+		throttledOutbound.increment();
+		throttledOutboundDelay.record(delay);
+	}
+
+	@Override
+	public void taskStarted(Task.Priority priority, long queueWait) {
+		taskQueueWait[priority.ordinal()].record(queueWait, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void taskEnded(Task.Priority priority, long runTime) {
+		taskRunTime[priority.ordinal()].record(runTime, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void taskDropped(Task.Priority priority) {
+		tasksDropped[priority.ordinal()].increment();
+	}
+
+	@Override
+	public void exceptionOccurred(Throwable error) {
+		exceptions.increment();
+	}
+
+	/**
+	 * Removes all the meters of this DHT instance from the registry.
+	 */
+	@Override
+	public void close() {
+		meters.forEach(registry::remove);
+		meters.clear();
+	}
+}
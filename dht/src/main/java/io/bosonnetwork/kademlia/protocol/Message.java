@@ -428,6 +428,8 @@ public class Message {
 	private static final ObjectWriter cborWriter = Json.cborMapper().writerFor(Message.class);
 	private static final ObjectReader jsonReader = Json.objectMapper().readerFor(Message.class);
 	private static final ObjectWriter jsonWriter = Json.objectMapper().writerFor(Message.class);
+	// The hand-written encoder is the default serializer, Jackson only handles the unknown bodies
+	private static final ThreadLocal<MessageEncoder> encoders = ThreadLocal.withInitial(MessageEncoder::new);
 
 	// nodeId -Source node ID, required to correctly deserialize inbound messages
 	public static Message parse(byte[] bytes, Id nodeId) {
@@ -460,12 +462,39 @@ public class Message {
 	}
 
 	public byte[] toBytes() {
-		try {
-			//return Json.cborMapper().writeValueAsBytes(this);
-			return cborWriter.writeValueAsBytes(this);
-		} catch (JsonProcessingException e) {
-			throw new IllegalStateException("INTERNAL ERROR: Message is not serializable", e);
+		if (!MessageEncoder.canEncode(body)) {
+			try {
+				//return Json.cborMapper().writeValueAsBytes(this);
+				return cborWriter.writeValueAsBytes(this);
+			} catch (JsonProcessingException e) {
+				throw new IllegalStateException("INTERNAL ERROR: Message is not serializable", e);
+			}
 		}
+
+		return encoders.get().encode(this).toByteArray();
+	}
+
+	/**
+	 * Encodes this message into the given encoder, the caller owns the encoder and may reuse it
+	 * for the following messages. Same wire format as {@link #toBytes()}.
+	 *
+	 * @param encoder the encoder to write into
+	 * @return the encoder
+	 * @throws IllegalArgumentException if the body is not supported by the encoder
+	 */
+	public MessageEncoder encode(MessageEncoder encoder) {
+		return encoder.encode(this);
+	}
+
+	/**
+	 * Encodes this message into the encoder of the calling thread, the same one {@link #toBytes()}
+	 * uses. The encoded content is only valid until the thread encodes the next message.
+	 *
+	 * @return the thread-local encoder holding the encoded message
+	 * @throws IllegalArgumentException if the body is not supported by the encoder
+	 */
+	public MessageEncoder encode() {
+		return encoders.get().encode(this);
 	}
 
 	public String toJson() {
@@ -0,0 +1,601 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.bosonnetwork.kademlia.protocol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.NodeInfo;
+import io.bosonnetwork.PeerInfo;
+
+/**
+ * Encodes the messages to CBOR directly, without the Jackson data binding.
+ * <p>
+ * The output is byte-for-byte identical to {@code Json.cborMapper().writeValueAsBytes(message)}:
+ * the message, the bodies and the peers are written as indefinite-length maps with the properties
+ * in the declared order and the same inclusion rules, the node lists as definite-length arrays,
+ * the nodes as indefinite-length triples, and all the integers and lengths in the shortest form.
+ * Any change to the Jackson annotations of the message classes must be mirrored here, the
+ * compatibility tests compare both encodings.
+ * <p>
+ * The encoder writes into an internal buffer that grows on demand and is reused by the following
+ * messages, so the callers can keep one encoder per thread and avoid the per-message allocations.
+ * This class is not thread-safe.
+ */
+public final class MessageEncoder {
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	// CBOR major types
+	private static final int MAJOR_UNSIGNED = 0x00;
+	private static final int MAJOR_NEGATIVE = 0x20;
+	private static final int MAJOR_BINARY = 0x40;
+	private static final int MAJOR_TEXT = 0x60;
+	private static final int MAJOR_ARRAY = 0x80;
+
+	private static final byte ARRAY_INDEFINITE = (byte) 0x9F;
+	private static final byte MAP_INDEFINITE = (byte) 0xBF;
+	private static final byte TEXT_INDEFINITE = (byte) 0x7F;
+	private static final byte NULL = (byte) 0xF6;
+	private static final byte BREAK = (byte) 0xFF;
+
+	// Jackson splits the text longer than this into chunks
+	private static final int MAX_TEXT_CHUNK_CHARS = 3996;
+
+	// Message
+	private static final byte[] KEY_TYPE = key("y");
+	private static final byte[] KEY_TXID = key("t");
+	private static final byte[] KEY_VERSION = key("v");
+	private static final byte[] KEY_REQUEST = key(Message.Type.REQUEST.bodyFieldName());
+	private static final byte[] KEY_RESPONSE = key(Message.Type.RESPONSE.bodyFieldName());
+	private static final byte[] KEY_ERROR = key(Message.Type.ERROR.bodyFieldName());
+	// LookupRequest
+	private static final byte[] KEY_TARGET = key("t");
+	private static final byte[] KEY_WANT = key("w");
+	private static final byte[] KEY_CAS = key("cas");
+	private static final byte[] KEY_EXPECTED_COUNT = key("e");
+	// LookupResponse
+	private static final byte[] KEY_NODES4 = key("n4");
+	private static final byte[] KEY_NODES6 = key("n6");
+	private static final byte[] KEY_TOKEN = key("tok");
+	private static final byte[] KEY_PEERS = key("p");
+	// Value
+	private static final byte[] KEY_PUBLIC_KEY = key("k");
+	private static final byte[] KEY_RECIPIENT = key("rec");
+	private static final byte[] KEY_NONCE = key("n");
+	private static final byte[] KEY_SEQUENCE_NUMBER = key("seq");
+	private static final byte[] KEY_SIGNATURE = key("sig");
+	private static final byte[] KEY_DATA = key("v");
+	// PeerInfo
+	private static final byte[] KEY_ID = key("id");
+	private static final byte[] KEY_NODE_ID = key("o");
+	private static final byte[] KEY_NODE_SIGNATURE = key("os");
+	private static final byte[] KEY_FINGERPRINT = key("f");
+	private static final byte[] KEY_ENDPOINT = key("e");
+	private static final byte[] KEY_EXTRA_DATA = key("ex");
+	// Error
+	private static final byte[] KEY_CODE = key("c");
+	private static final byte[] KEY_MESSAGE = key("m");
+
+	private byte[] buf;
+	private int length;
+
+	/**
+	 * Creates an encoder with the default initial capacity.
+	 */
+	public MessageEncoder() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an encoder.
+	 *
+	 * @param initialCapacity the initial capacity of the internal buffer, in bytes
+	 */
+	public MessageEncoder(int initialCapacity) {
+		if (initialCapacity <= 0)
+			throw new IllegalArgumentException("Invalid initial capacity: " + initialCapacity);
+
+		buf = new byte[initialCapacity];
+	}
+
+	/**
+	 * Checks if the encoder knows how to write the given message body. The body classes are
+	 * matched exactly, a subclass may declare extra properties.
+	 *
+	 * @param body the message body, or {@code null}
+	 * @return {@code true} if the body can be encoded by this encoder
+	 */
+	public static boolean canEncode(Object body) {
+		if (body == null)
+			return true;
+
+		Class<?> clazz = body.getClass();
+		return clazz == FindNodeRequest.class || clazz == FindNodeResponse.class ||
+				clazz == FindPeerRequest.class || clazz == FindPeerResponse.class ||
+				clazz == FindValueRequest.class || clazz == FindValueResponse.class ||
+				clazz == AnnouncePeerRequest.class || clazz == StoreValueRequest.class ||
+				clazz == Error.class;
+	}
+
+	/**
+	 * Encodes the message, replacing the previous content of the encoder.
+	 *
+	 * @param message the message to encode
+	 * @return this encoder
+	 * @throws IllegalArgumentException if the message body is not supported, see {@link #canEncode(Object)}
+	 */
+	public MessageEncoder encode(Message message) {
+		Object body = message.getBody();
+		if (!canEncode(body))
+			throw new IllegalArgumentException("Unsupported message body: " + body.getClass().getName());
+
+		reset();
+
+		ensureCapacity(32);
+		buf[length++] = MAP_INDEFINITE;
+		writeKey(KEY_TYPE);
+		writeInt(message.getCompositeType());
+		writeKey(KEY_TXID);
+		writeInt(message.getTxid());
+
+		if (body != null) {
+			writeKey(bodyKey(message.getType()));
+			if (body instanceof FindNodeRequest request)
+				writeLookupRequest(request, -1, 0);
+			else if (body instanceof FindValueRequest request)
+				writeLookupRequest(request, request.getExpectedSequenceNumber(), 0);
+			else if (body instanceof FindPeerRequest request)
+				writeLookupRequest(request, request.getExpectedSequenceNumber(), request.getExpectedCount());
+			else if (body instanceof StoreValueRequest request)
+				writeStoreValueRequest(request);
+			else if (body instanceof AnnouncePeerRequest request)
+				writeAnnouncePeerRequest(request);
+			else if (body instanceof FindNodeResponse response)
+				writeFindNodeResponse(response);
+			else if (body instanceof FindValueResponse response)
+				writeFindValueResponse(response);
+			else if (body instanceof FindPeerResponse response)
+				writeFindPeerResponse(response);
+			else
+				writeError((Error) body);
+		}
+
+		if (message.getVersion() != 0) {
+			writeKey(KEY_VERSION);
+			writeInt(message.getVersion());
+		}
+
+		writeBreak();
+		return this;
+	}
+
+	/**
+	 * Discards the encoded content, keeping the internal buffer for reuse.
+	 *
+	 * @return this encoder
+	 */
+	public MessageEncoder reset() {
+		length = 0;
+		return this;
+	}
+
+	/**
+	 * Returns the length of the encoded content.
+	 *
+	 * @return the number of the encoded bytes
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Returns the internal buffer, the encoded content is in the range {@code [0, length())}.
+	 * The buffer is overwritten by the next {@link #encode(Message)} call.
+	 *
+	 * @return the internal buffer
+	 */
+	public byte[] array() {
+		return buf;
+	}
+
+	/**
+	 * Returns a copy of the encoded content.
+	 *
+	 * @return the encoded bytes
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buf, length);
+	}
+
+	private static byte[] bodyKey(Message.Type type) {
+		return switch (type) {
+			case REQUEST -> KEY_REQUEST;
+			case RESPONSE -> KEY_RESPONSE;
+			case ERROR -> KEY_ERROR;
+		};
+	}
+
+	// {"t", "w", "cas", "e"}
+	private void writeLookupRequest(LookupRequest request, int expectedSequenceNumber, int expectedCount) {
+		writeStartMap();
+		writeKey(KEY_TARGET);
+		writeId(request.getTarget());
+		writeKey(KEY_WANT);
+		writeInt(request.getWant());
+		if (expectedSequenceNumber >= 0) {
+			writeKey(KEY_CAS);
+			writeInt(expectedSequenceNumber);
+		}
+		if (expectedCount != 0) {
+			writeKey(KEY_EXPECTED_COUNT);
+			writeInt(expectedCount);
+		}
+		writeBreak();
+	}
+
+	// {"tok", "cas", "k", "rec", "n", "seq", "sig", "v"}
+	private void writeStoreValueRequest(StoreValueRequest request) {
+		writeStartMap();
+		writeKey(KEY_TOKEN);
+		writeInt(request.getToken());
+		if (request.getCas() != null) {
+			writeKey(KEY_CAS);
+			writeInt(request.getCas());
+		}
+		if (request.getPublicKey() != null) {
+			writeKey(KEY_PUBLIC_KEY);
+			writeId(request.getPublicKey());
+		}
+		if (request.getRecipient() != null) {
+			writeKey(KEY_RECIPIENT);
+			writeId(request.getRecipient());
+		}
+		if (!isEmpty(request.getNonce())) {
+			writeKey(KEY_NONCE);
+			writeBinary(request.getNonce());
+		}
+		if (request.getSequenceNumber() != 0) {
+			writeKey(KEY_SEQUENCE_NUMBER);
+			writeInt(request.getSequenceNumber());
+		}
+		if (!isEmpty(request.getSignature())) {
+			writeKey(KEY_SIGNATURE);
+			writeBinary(request.getSignature());
+		}
+		if (!isEmpty(request.getData())) {
+			writeKey(KEY_DATA);
+			writeBinary(request.getData());
+		}
+		writeBreak();
+	}
+
+	// {"tok", "cas", "k", "n", "seq", "o", "os", "sig", "f", "e", "ex"}
+	private void writeAnnouncePeerRequest(AnnouncePeerRequest request) {
+		writeStartMap();
+		writeKey(KEY_TOKEN);
+		writeInt(request.getToken());
+		if (request.getCas() != null) {
+			writeKey(KEY_CAS);
+			writeInt(request.getCas());
+		}
+		writeKey(KEY_PUBLIC_KEY);
+		writeId(request.getPeerId());
+		writeKey(KEY_NONCE);
+		writeBinary(request.getNonce());
+		if (request.getSequenceNumber() != 0) {
+			writeKey(KEY_SEQUENCE_NUMBER);
+			writeInt(request.getSequenceNumber());
+		}
+		if (request.getNodeId() != null) {
+			writeKey(KEY_NODE_ID);
+			writeId(request.getNodeId());
+		}
+		if (!isEmpty(request.getNodeSignature())) {
+			writeKey(KEY_NODE_SIGNATURE);
+			writeBinary(request.getNodeSignature());
+		}
+		writeKey(KEY_SIGNATURE);
+		writeBinary(request.getSignature());
+		writeKey(KEY_FINGERPRINT);
+		writeInt(request.getFingerprint());
+		writeKey(KEY_ENDPOINT);
+		writeText(request.getEndpoint());
+		if (!isEmpty(request.getExtraData())) {
+			writeKey(KEY_EXTRA_DATA);
+			writeBinary(request.getExtraData());
+		}
+		writeBreak();
+	}
+
+	// {"n4", "n6", "tok"}
+	private void writeFindNodeResponse(FindNodeResponse response) {
+		writeStartMap();
+		writeNodes(response);
+		if (response.getToken() != 0) {
+			writeKey(KEY_TOKEN);
+			writeInt(response.getToken());
+		}
+		writeBreak();
+	}
+
+	// {"n4", "n6", "k", "rec", "n", "seq", "sig", "v"}
+	private void writeFindValueResponse(FindValueResponse response) {
+		writeStartMap();
+		writeNodes(response);
+		if (response.getPublicKey() != null) {
+			writeKey(KEY_PUBLIC_KEY);
+			writeId(response.getPublicKey());
+		}
+		if (response.getRecipient() != null) {
+			writeKey(KEY_RECIPIENT);
+			writeId(response.getRecipient());
+		}
+		if (!isEmpty(response.getNonce())) {
+			writeKey(KEY_NONCE);
+			writeBinary(response.getNonce());
+		}
+		if (response.getSequenceNumber() != 0) {
+			writeKey(KEY_SEQUENCE_NUMBER);
+			writeInt(response.getSequenceNumber());
+		}
+		// NON_NULL here, unlike the NON_EMPTY signature of the store request
+		if (response.getSignature() != null) {
+			writeKey(KEY_SIGNATURE);
+			writeBinary(response.getSignature());
+		}
+		if (!isEmpty(response.getData())) {
+			writeKey(KEY_DATA);
+			writeBinary(response.getData());
+		}
+		writeBreak();
+	}
+
+	// {"n4", "n6", "p"}
+	private void writeFindPeerResponse(FindPeerResponse response) {
+		writeStartMap();
+		writeNodes(response);
+		List<PeerInfo> peers = response.getPeers();
+		if (!peers.isEmpty()) {
+			writeKey(KEY_PEERS);
+			writeHead(MAJOR_ARRAY, peers.size());
+			for (PeerInfo peer : peers)
+				writePeer(peer);
+		}
+		writeBreak();
+	}
+
+	// {"c", "m"}
+	private void writeError(Error error) {
+		writeStartMap();
+		writeKey(KEY_CODE);
+		writeInt(error.getCode());
+		String message = error.getMessage();
+		if (message != null && !message.isEmpty()) {
+			writeKey(KEY_MESSAGE);
+			writeText(message);
+		}
+		writeBreak();
+	}
+
+	// "n4", "n6" of the lookup responses
+	private void writeNodes(LookupResponse response) {
+		List<NodeInfo> nodes = response.getNodes4();
+		if (!nodes.isEmpty()) {
+			writeKey(KEY_NODES4);
+			writeNodes(nodes);
+		}
+
+		nodes = response.getNodes6();
+		if (!nodes.isEmpty()) {
+			writeKey(KEY_NODES6);
+			writeNodes(nodes);
+		}
+	}
+
+	// Same as NodeInfoSerializer: [id, binary ip address or host name, port]
+	private void writeNodes(List<NodeInfo> nodes) {
+		writeHead(MAJOR_ARRAY, nodes.size());
+		for (NodeInfo node : nodes) {
+			ensureCapacity(1);
+			buf[length++] = ARRAY_INDEFINITE;
+			writeId(node.getId());
+			if (node.getAddress().isUnresolved())
+				writeText(node.getAddress().getHostString());
+			else
+				writeBinary(node.getIpAddress().getAddress());
+			writeInt(node.getPort());
+			writeBreak();
+		}
+	}
+
+	// Same as PeerInfoSerializer, without the ATTRIBUTE_OMIT_PEER_ID attribute
+	private void writePeer(PeerInfo peer) {
+		writeStartMap();
+		writeKey(KEY_ID);
+		writeId(peer.getId());
+		if (peer.getNonce() != null) {
+			writeKey(KEY_NONCE);
+			writeBinary(peer.getNonce());
+		}
+		if (peer.getSequenceNumber() > 0) {
+			writeKey(KEY_SEQUENCE_NUMBER);
+			writeInt(peer.getSequenceNumber());
+		}
+		if (peer.getNodeId() != null) {
+			writeKey(KEY_NODE_ID);
+			writeId(peer.getNodeId());
+			if (peer.getNodeSignature() != null) {
+				writeKey(KEY_NODE_SIGNATURE);
+				writeBinary(peer.getNodeSignature());
+			}
+		}
+		if (peer.getSignature() != null) {
+			writeKey(KEY_SIGNATURE);
+			writeBinary(peer.getSignature());
+		}
+		if (peer.getFingerprint() != 0) {
+			writeKey(KEY_FINGERPRINT);
+			writeInt(peer.getFingerprint());
+		}
+		writeKey(KEY_ENDPOINT);
+		writeText(peer.getEndpoint());
+		if (peer.getExtraData() != null) {
+			writeKey(KEY_EXTRA_DATA);
+			writeBinary(peer.getExtraData());
+		}
+		writeBreak();
+	}
+
+	private static boolean isEmpty(byte[] data) {
+		return data == null || data.length == 0;
+	}
+
+	private void writeStartMap() {
+		ensureCapacity(1);
+		buf[length++] = MAP_INDEFINITE;
+	}
+
+	private void writeBreak() {
+		ensureCapacity(1);
+		buf[length++] = BREAK;
+	}
+
+	private void writeNull() {
+		ensureCapacity(1);
+		buf[length++] = NULL;
+	}
+
+	private void writeKey(byte[] key) {
+		ensureCapacity(key.length);
+		System.arraycopy(key, 0, buf, length, key.length);
+		length += key.length;
+	}
+
+	private void writeInt(long value) {
+		if (value >= 0)
+			writeHead(MAJOR_UNSIGNED, value);
+		else
+			writeHead(MAJOR_NEGATIVE, -1 - value);
+	}
+
+	private void writeId(Id id) {
+		if (id == null) {
+			writeNull();
+			return;
+		}
+
+		writeHead(MAJOR_BINARY, Id.BYTES);
+		ensureCapacity(Id.BYTES);
+		System.arraycopy(id.bytes(), 0, buf, length, Id.BYTES);
+		length += Id.BYTES;
+	}
+
+	private void writeBinary(byte[] data) {
+		if (data == null) {
+			writeNull();
+			return;
+		}
+
+		writeHead(MAJOR_BINARY, data.length);
+		ensureCapacity(data.length);
+		System.arraycopy(data, 0, buf, length, data.length);
+		length += data.length;
+	}
+
+	private void writeText(String text) {
+		if (text == null) {
+			writeNull();
+			return;
+		}
+
+		int chars = text.length();
+		if (chars <= MAX_TEXT_CHUNK_CHARS) {
+			writeText(text.getBytes(StandardCharsets.UTF_8));
+			return;
+		}
+
+		// Same chunks as Jackson, never splitting a surrogate pair
+		ensureCapacity(1);
+		buf[length++] = TEXT_INDEFINITE;
+		int offset = 0;
+		while (chars - offset > MAX_TEXT_CHUNK_CHARS) {
+			int end = offset + MAX_TEXT_CHUNK_CHARS;
+			if (Character.isHighSurrogate(text.charAt(end - 1)))
+				end--;
+
+			writeText(text.substring(offset, end).getBytes(StandardCharsets.UTF_8));
+			offset = end;
+		}
+		if (offset < chars)
+			writeText(text.substring(offset).getBytes(StandardCharsets.UTF_8));
+		writeBreak();
+	}
+
+	private void writeText(byte[] utf8) {
+		writeHead(MAJOR_TEXT, utf8.length);
+		ensureCapacity(utf8.length);
+		System.arraycopy(utf8, 0, buf, length, utf8.length);
+		length += utf8.length;
+	}
+
+	// Initial byte with the shortest argument encoding
+	private void writeHead(int major, long value) {
+		ensureCapacity(9);
+		if (value < 24) {
+			buf[length++] = (byte) (major | value);
+		} else if (value <= 0xFF) {
+			buf[length++] = (byte) (major | 24);
+			buf[length++] = (byte) value;
+		} else if (value <= 0xFFFF) {
+			buf[length++] = (byte) (major | 25);
+			buf[length++] = (byte) (value >> 8);
+			buf[length++] = (byte) value;
+		} else if (value <= 0xFFFFFFFFL) {
+			buf[length++] = (byte) (major | 26);
+			buf[length++] = (byte) (value >> 24);
+			buf[length++] = (byte) (value >> 16);
+			buf[length++] = (byte) (value >> 8);
+			buf[length++] = (byte) value;
+		} else {
+			buf[length++] = (byte) (major | 27);
+			for (int shift = 56; shift >= 0; shift -= 8)
+				buf[length++] = (byte) (value >> shift);
+		}
+	}
+
+	private void ensureCapacity(int n) {
+		if (length + n > buf.length)
+			buf = Arrays.copyOf(buf, Math.max(buf.length << 1, length + n));
+	}
+
+	private static byte[] key(String name) {
+		// the property names are short ASCII strings, single byte length prefix
+		byte[] key = new byte[name.length() + 1];
+		key[0] = (byte) (MAJOR_TEXT | name.length());
+		for (int i = 0; i < name.length(); i++)
+			key[i + 1] = (byte) name.charAt(i);
+		return key;
+	}
+}
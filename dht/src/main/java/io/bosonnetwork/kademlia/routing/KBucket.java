@@ -91,6 +91,14 @@ public class KBucket implements Comparable<KBucket> {
 	 */
 	private long lastRefresh;
 
+	/**
+	 * The read-only copy of this bucket published in the routing table view,
+	 * null if the bucket was never published.
+	 */
+	private KBucket published;
+	// Changed since the last publication
+	private boolean changed = true;
+
 	protected KBucket(Prefix prefix, Predicate<Prefix> isHome) {
 		this.prefix = prefix;
 		this.homeBucket = isHome.test(prefix);
@@ -100,6 +108,21 @@ public class KBucket implements Comparable<KBucket> {
 		replacements = new ArrayList<>(MAX_ENTRIES);
 	}
 
+	// Detached copy for the routing table view, never modified after construction
+	private KBucket(KBucket bucket) {
+		this.prefix = bucket.prefix;
+		this.homeBucket = bucket.homeBucket;
+		this.lastRefresh = bucket.lastRefresh;
+
+		entries = new ArrayList<>(bucket.entries.size());
+		for (KBucketEntry entry : bucket.entries)
+			entries.add(entry.copy());
+
+		replacements = new ArrayList<>(bucket.replacements.size());
+		for (KBucketEntry entry : bucket.replacements)
+			replacements.add(entry.copy());
+	}
+
 	private static Logger log() {
 		return RoutingTable.log;
 	}
@@ -204,6 +227,16 @@ public class KBucket implements Comparable<KBucket> {
 		return entries.get(index);
 	}
 
+	/**
+	 * Returns the entry at the specified index in the replacement list.
+	 *
+	 * @param index the index of the replacement to return.
+	 * @return the KBucketEntry at the specified index.
+	 */
+	protected KBucketEntry getReplacement(int index) {
+		return replacements.get(index);
+	}
+
 	/**
 	 * Returns the entry with the specified ID, searching the main entries and optionally the replacements.
 	 *
@@ -581,28 +614,30 @@ public class KBucket implements Comparable<KBucket> {
 	}
 	 */
 
-	protected void onRequestSent(Id id) {
+	protected boolean onRequestSent(Id id) {
 		for (KBucketEntry entry : entries) {
 			if (entry.getId().equals(id)) {
 				entry.onRequestSent();
-				return;
+				return true;
 			}
 		}
 
 		for (KBucketEntry entry : replacements) {
 			if (entry.getId().equals(id)) {
 				entry.onRequestSent();
-				return;
+				return true;
 			}
 		}
+
+		return false;
 	}
 
-	protected void onResponded(Id id, int rtt) {
+	protected boolean onResponded(Id id, int rtt) {
 		for (KBucketEntry entry : entries) {
 			// update last responded
 			if (entry.getId().equals(id)) {
 				entry.onResponded(rtt);
-				return;
+				return true;
 			}
 		}
 
@@ -619,9 +654,11 @@ public class KBucket implements Comparable<KBucket> {
 					entries.sort(KBucketEntry::ageOrder);
 				}
 
-				return;
+				return true;
 			}
 		}
+
+		return false;
 	}
 
 	/**
@@ -738,6 +775,42 @@ public class KBucket implements Comparable<KBucket> {
 			entries.sort(KBucketEntry::ageOrder);
 	}
 
+	/**
+	 * Returns the read-only copy of this bucket from the last publication.
+	 *
+	 * @return the published copy, or null if this bucket was never published
+	 */
+	KBucket published() {
+		return published;
+	}
+
+	/**
+	 * Takes a new read-only copy of this bucket for the routing table view.
+	 *
+	 * @return the new published copy
+	 */
+	KBucket publish() {
+		published = new KBucket(this);
+		changed = false;
+		return published;
+	}
+
+	/**
+	 * Checks if this bucket changed since the last publication.
+	 *
+	 * @return true if the next routing table view needs a new copy
+	 */
+	boolean isChanged() {
+		return changed;
+	}
+
+	/**
+	 * Marks this bucket as changed, the next routing table view will take a new copy.
+	 */
+	void changed() {
+		changed = true;
+	}
+
 	@Override
 	public int hashCode() {
 		return prefix.hashCode();
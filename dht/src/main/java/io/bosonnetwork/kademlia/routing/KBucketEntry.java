@@ -532,6 +532,44 @@ public class KBucketEntry extends NodeInfo {
 		}
 	}
 
+	/**
+	 * Returns a detached copy of this entry with all the metadata, including the RTT and the version.
+	 *
+	 * @return The copy of this entry.
+	 */
+	KBucketEntry copy() {
+		return restore(getId(), getAddress(), created, lastSeen, lastSend, failedRequests, reachable,
+				getRTT(-1), getVersion());
+	}
+
+	/**
+	 * Restores a KBucketEntry from the persisted state.
+	 *
+	 * @param id             The node ID.
+	 * @param addr           The socket address of the node.
+	 * @param created        Creation time in milliseconds since epoch.
+	 * @param lastSeen       Last seen time in milliseconds since epoch.
+	 * @param lastSend       Last send time in milliseconds since epoch, 0 if never sent.
+	 * @param failedRequests The number of consecutive failed requests.
+	 * @param reachable      Whether the node is reachable.
+	 * @param rtt            The average RTT in milliseconds, or a negative value if unknown.
+	 * @param version        The node version.
+	 * @return The restored entry.
+	 */
+	static KBucketEntry restore(Id id, InetSocketAddress addr, long created, long lastSeen, long lastSend,
+								int failedRequests, boolean reachable, int rtt, int version) {
+		KBucketEntry entry = new KBucketEntry(id, addr);
+		entry.created = created;
+		entry.lastSeen = lastSeen;
+		entry.lastSend = lastSend;
+		entry.failedRequests = failedRequests;
+		entry.reachable = reachable;
+		if (rtt > 0)
+			entry.avgRTT.reset(rtt); // set the EMA average directly
+		entry.setVersion(version);
+		return entry;
+	}
+
 	/**
 	 * Comparator for sorting entries by ascending creation time.
 	 * The oldest entry will be first.
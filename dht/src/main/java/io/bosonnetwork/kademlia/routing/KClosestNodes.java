@@ -23,7 +23,11 @@
 
 package io.bosonnetwork.kademlia.routing;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Predicate;
@@ -37,15 +41,158 @@ import io.bosonnetwork.NodeInfo;
  * Nodes are collected from the closest bucket and expanded bidirectionally to neighboring buckets,
  * sorted by XOR distance to the target, and trimmed to the requested capacity. Supports filtering
  * and optional inclusion of replacement entries. Local node is always excluded to prevent self-referential lookups.
+ * <p>
+ * This query answers every inbound lookup request, so the selection avoids the intermediate
+ * allocations: the candidates go through a bounded max-heap keyed by the XOR distance, computed
+ * over the raw id bytes as four longs, in scratch buffers reused per thread. Only the result
+ * list is allocated.
  */
 public class KClosestNodes {
-	private final RoutingTable routingTable;
+	private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+	private static final ThreadLocal<Heap> heaps = ThreadLocal.withInitial(Heap::new);
+
+	private final Id localId;
+	private final List<KBucket> buckets;
 	private final Id target;
 	private final int capacity;
 	private final List<KBucketEntry> entries;
+	// null for the default filter
 	private Predicate<KBucketEntry> filter;
 	private boolean includeReplacements;
 
+	// Number of the entries accepted by the filter while walking the buckets
+	private int collected;
+
+	/**
+	 * Bounded max-heap of the entries keyed by the XOR distance to the target, the farthest at
+	 * the root. The distances are stored inline, four longs per entry.
+	 */
+	private static final class Heap {
+		private KBucketEntry[] entries = new KBucketEntry[64];
+		private long[] keys = new long[64 * 4];
+		private int size;
+
+		private long t0, t1, t2, t3;
+		private int capacity;
+
+		void reset(Id target, int capacity) {
+			byte[] t = target.bytes();
+			t0 = (long) LONG.get(t, 0);
+			t1 = (long) LONG.get(t, 8);
+			t2 = (long) LONG.get(t, 16);
+			t3 = (long) LONG.get(t, 24);
+
+			this.capacity = capacity;
+			this.size = 0;
+			if (entries.length < capacity) {
+				entries = new KBucketEntry[capacity];
+				keys = new long[capacity * 4];
+			}
+		}
+
+		void offer(KBucketEntry entry) {
+			byte[] b = entry.getId().bytes();
+			long d0 = (long) LONG.get(b, 0) ^ t0;
+			long d1 = (long) LONG.get(b, 8) ^ t1;
+			long d2 = (long) LONG.get(b, 16) ^ t2;
+			long d3 = (long) LONG.get(b, 24) ^ t3;
+
+			if (size < capacity) {
+				set(size, entry, d0, d1, d2, d3);
+				siftUp(size++);
+			} else if (compare(d0, d1, d2, d3, 0) < 0) {
+				// closer than the farthest one, replace the root
+				set(0, entry, d0, d1, d2, d3);
+				siftDown(0, size);
+			}
+		}
+
+		/**
+		 * Moves the entries to the list, sorted by ascending distance, and releases the references.
+		 */
+		void drainTo(List<KBucketEntry> list) {
+			// in-place heap sort, the farthest moves to the end
+			for (int end = size - 1; end > 0; end--) {
+				swap(0, end);
+				siftDown(0, end);
+			}
+
+			for (int i = 0; i < size; i++)
+				list.add(entries[i]);
+
+			Arrays.fill(entries, 0, size, null);
+			size = 0;
+		}
+
+		private void set(int i, KBucketEntry entry, long d0, long d1, long d2, long d3) {
+			entries[i] = entry;
+			int k = i << 2;
+			keys[k] = d0;
+			keys[k + 1] = d1;
+			keys[k + 2] = d2;
+			keys[k + 3] = d3;
+		}
+
+		// compares the given distance with the distance of the entry i, as unsigned 256-bit integers
+		private int compare(long d0, long d1, long d2, long d3, int i) {
+			int k = i << 2;
+			if (d0 != keys[k])
+				return Long.compareUnsigned(d0, keys[k]);
+			if (d1 != keys[k + 1])
+				return Long.compareUnsigned(d1, keys[k + 1]);
+			if (d2 != keys[k + 2])
+				return Long.compareUnsigned(d2, keys[k + 2]);
+			return Long.compareUnsigned(d3, keys[k + 3]);
+		}
+
+		private int compare(int i, int j) {
+			int k = i << 2;
+			return compare(keys[k], keys[k + 1], keys[k + 2], keys[k + 3], j);
+		}
+
+		private void swap(int i, int j) {
+			KBucketEntry e = entries[i];
+			entries[i] = entries[j];
+			entries[j] = e;
+
+			int ki = i << 2;
+			int kj = j << 2;
+			for (int n = 0; n < 4; n++) {
+				long k = keys[ki + n];
+				keys[ki + n] = keys[kj + n];
+				keys[kj + n] = k;
+			}
+		}
+
+		private void siftUp(int i) {
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (compare(i, parent) <= 0)
+					break;
+
+				swap(i, parent);
+				i = parent;
+			}
+		}
+
+		private void siftDown(int i, int size) {
+			while (true) {
+				int largest = i;
+				int left = (i << 1) + 1;
+				int right = left + 1;
+				if (left < size && compare(left, largest) > 0)
+					largest = left;
+				if (right < size && compare(right, largest) > 0)
+					largest = right;
+				if (largest == i)
+					break;
+
+				swap(i, largest);
+				i = largest;
+			}
+		}
+	}
+
 	/**
 	 * Constructs a new KClosestNodes instance.
 	 *
@@ -54,11 +201,24 @@ public class KClosestNodes {
 	 * @param capacity the maximum number of entries to return (k)
 	 */
 	protected KClosestNodes(RoutingTable routingTable, Id target, int capacity) {
-		this.routingTable = routingTable;
+		this(routingTable.getLocalId(), routingTable.buckets(), target, capacity);
+	}
+
+	/**
+	 * Constructs a new KClosestNodes instance over the given buckets.
+	 *
+	 * @param localId the local node ID, always excluded
+	 * @param buckets the sorted buckets covering the full ID space
+	 * @param target the target node ID for distance calculation
+	 * @param capacity the maximum number of entries to return (k)
+	 */
+	KClosestNodes(Id localId, List<KBucket> buckets, Id target, int capacity) {
+		this.localId = localId;
+		this.buckets = buckets;
 		this.target = target;
 		this.capacity = capacity;
-		this.entries = new ArrayList<>(capacity + KBucket.MAX_ENTRIES);
-		this.filter = e -> e.eligibleForNodesList() && !e.getId().equals(routingTable.getLocalId());
+		this.entries = new ArrayList<>(Math.max(capacity, 0));
+		this.filter = null;
 		this.includeReplacements = false;
 	}
 
@@ -106,8 +266,8 @@ public class KClosestNodes {
 	 * @throws NullPointerException if filter is null
 	 */
 	public KClosestNodes filter(Predicate<KBucketEntry> filter) {
-		this.filter = Objects.requireNonNull(filter, "Filter cannot be null")
-				.and(e -> !e.getId().equals(routingTable.getLocalId()));
+		// the local node is excluded by fill()
+		this.filter = Objects.requireNonNull(filter, "Filter cannot be null");
 		return this;
 	}
 
@@ -143,18 +303,23 @@ public class KClosestNodes {
 	 * @return this instance for chaining
 	 */
 	public KClosestNodes fill() {
-		final List<KBucket> buckets = routingTable.buckets();
-		if (buckets.isEmpty()) {
+		if (buckets.isEmpty() || capacity <= 0) {
 			return this;
 		}
 
+		// a repeated fill collects the entries again instead of appending to the previous result
+		entries.clear();
+		final Heap heap = heaps.get();
+		heap.reset(target, capacity);
+		collected = 0;
+
 		final int idx = RoutingTable.indexOf(buckets, target);
 		KBucket bucket = buckets.get(idx);
-		addEntries(bucket);
+		addEntries(bucket, heap);
 
 		int low = idx;
 		int high = idx;
-		while (entries.size() < capacity) {
+		while (collected < capacity) {
 			KBucket lowBucket = null;
 			KBucket highBucket = null;
 
@@ -169,55 +334,62 @@ public class KClosestNodes {
 
 			if (lowBucket == null) {
 				high++;
-				addEntries(highBucket);
+				addEntries(highBucket, heap);
 			} else if (highBucket == null) {
 				low--;
-				addEntries(lowBucket);
+				addEntries(lowBucket, heap);
 			} else {
 				int dir = target.threeWayCompare(lowBucket.prefix().last(), highBucket.prefix().first());
 				if (dir < 0) {
 					low--;
-					addEntries(lowBucket);
+					addEntries(lowBucket, heap);
 				} else if (dir > 0) {
 					high++;
-					addEntries(highBucket);
+					addEntries(highBucket, heap);
 				} else {
 					low--;
 					high++;
-					addEntries(lowBucket);
-					addEntries(highBucket);
+					addEntries(lowBucket, heap);
+					addEntries(highBucket, heap);
 				}
 			}
 		}
 
-		shave();
+		// keeps the closest ones only, sorted by distance
+		heap.drainTo(entries);
 		return this;
 	}
 
-	private void addEntries(KBucket bucket) {
+	private boolean accept(KBucketEntry entry, Id localId) {
+		if (entry.getId().equals(localId))
+			return false;
+
+		return filter == null ? entry.eligibleForNodesList() : filter.test(entry);
+	}
+
+	private void addEntries(KBucket bucket, Heap heap) {
 		if (bucket == null)
 			return;
 
-		bucket.entries().forEach(e -> {
-			if (filter.test(e))
-				entries.add(e);
-		});
+		for (int i = 0, n = bucket.size(); i < n; i++) {
+			KBucketEntry entry = bucket.get(i);
+			if (accept(entry, localId)) {
+				heap.offer(entry);
+				collected++;
+			}
+		}
 
 		if (includeReplacements) {
-			bucket.replacementStream()
-					.filter(KBucketEntry::isReachable)
-					.filter(filter)
-					.forEach(entries::add);
+			for (int i = 0, n = bucket.replacementSize(); i < n; i++) {
+				KBucketEntry entry = bucket.getReplacement(i);
+				if (entry.isReachable() && accept(entry, localId)) {
+					heap.offer(entry);
+					collected++;
+				}
+			}
 		}
 	}
 
-	private void shave() {
-		entries.sort((e1, e2) -> target.threeWayCompare(e1.getId(), e2.getId()));
-		int overshoot = entries.size() - capacity;
-		if (overshoot > 0)
-			entries.subList(entries.size() - overshoot, entries.size()).clear();
-	}
-
 	/**
 	 * Returns an unmodifiable view of the collected entries, sorted by XOR distance to the target.
 	 * May return fewer than capacity if the table lacks sufficient entries.
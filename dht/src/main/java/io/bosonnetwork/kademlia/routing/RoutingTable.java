@@ -24,30 +24,24 @@
 package io.bosonnetwork.kademlia.routing;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.PrintStream;
+import java.math.BigInteger;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
-import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.bosonnetwork.Id;
 import io.bosonnetwork.crypto.Random;
-import io.bosonnetwork.json.Json;
 
 /**
  * Represents a lock-free, non-thread-safe routing table used in the Kademlia Distributed Hash Table (DHT) implementation.
@@ -57,10 +51,30 @@ import io.bosonnetwork.json.Json;
  * adhering to Kademlia's bucket splitting and replacement policies.
  * <p>
  * Designed for use within single-threaded environments (e.g., Vert.x verticles), this implementation avoids synchronization overhead.
+ * <p>
+ * The routing table publishes a read-only {@link RoutingTableView} through a volatile reference, which is
+ * copied on write, bucket by bucket, and can be queried from any other thread. The structural changes
+ * (entries added, removed or moved) are published once per task of the publisher executor, or right away
+ * if there is no publisher. The per-call metadata updates (last send, RTT, failed requests) only mark the
+ * bucket as changed, they are published with the next structural change or by {@link #publish()}.
  */
 public class RoutingTable {
 	private final Id localId;
 	private final List<KBucket> buckets;
+	// The read-only view for the other threads, replaced after each publication
+	private volatile RoutingTableView view;
+	// Coalesces the structural changes into one publication per executed task
+	private Executor publisher;
+	private boolean dirty;
+	private boolean publishScheduled;
+	// The number of entries and replacements in the published copies of the current buckets
+	private int publishedEntries;
+	private int publishedReplacements;
+	// The number of entries and replacements in the current buckets, ahead of the view until it is published
+	private int liveEntries;
+	private int liveReplacements;
+	// The thread that changed or published the buckets last, the only reader of the live counts
+	private Thread owner;
 
 	protected static final Logger log = LoggerFactory.getLogger(RoutingTable.class);
 
@@ -68,6 +82,19 @@ public class RoutingTable {
 		this.localId = localId;
 		this.buckets = new ArrayList<>();
 		buckets.add(new KBucket(Prefix.all(), x -> true));
+		dirty = true;
+		publish();
+	}
+
+	/**
+	 * Sets the executor to publish the view after the structural changes, typically the event loop
+	 * context that owns this routing table. The changes made before the publication task runs are
+	 * coalesced into one view. Without a publisher, the view is published right after each change.
+	 *
+	 * @param publisher the executor to run the publication, or null to publish synchronously
+	 */
+	public void setPublisher(Executor publisher) {
+		this.publisher = publisher;
 	}
 
 	public int size() {
@@ -150,21 +177,33 @@ public class RoutingTable {
 	}
 
 	/**
-	 * Returns the total number of entries stored across all buckets.
+	 * Returns the latest published read-only view of the routing table, safe to use from any thread.
+	 *
+	 * @return the routing table view
+	 */
+	public RoutingTableView view() {
+		return view;
+	}
+
+	/**
+	 * Returns the total number of entries stored across all buckets. The thread that owns this routing
+	 * table gets the live count, including the changes not published yet; the other threads get the
+	 * count of the published view.
 	 *
 	 * @return the total number of node entries in the routing table
 	 */
 	public int getNumberOfEntries() {
-		return buckets.stream().mapToInt(KBucket::size).sum();
+		return Thread.currentThread() == owner ? liveEntries : view.getNumberOfEntries();
 	}
 
 	/**
-	 * Returns the total number of replacement entries stored across all buckets.
+	 * Returns the total number of replacement entries stored across all buckets. The thread that owns
+	 * this routing table gets the live count, the other threads get the count of the published view.
 	 *
 	 * @return the total number of replacement node entries
 	 */
 	public int getNumberOfReplacements() {
-		return buckets.stream().mapToInt(KBucket::replacementSize).sum();
+		return Thread.currentThread() == owner ? liveReplacements : view.getNumberOfReplacements();
 	}
 
 	public KBucketEntry getRandomEntry() {
@@ -176,40 +215,15 @@ public class RoutingTable {
 		return new KClosestNodes(this, target, expected);
 	}
 
-	/*/
-	// TODO: Remove
+	/**
+	 * Returns up to the given number of distinct entries picked at random, from the published view.
+	 *
+	 * @param expect the number of entries to pick
+	 * @return the detached copies of the picked entries
+	 */
 	public List<KBucketEntry> getRandomEntries(int expect) {
-		final int total = getNumberOfEntries();
-		if (total == 0)
-			return Collections.emptyList();
-
-		if (total <= expect) {
-			// Avoid unnecessary stream for small cases
-			List<KBucketEntry> result = new ArrayList<>(total);
-			buckets.forEach(bucket -> result.addAll(bucket.entries()));
-			return result;
-		}
-
-		return Random.random().ints(0, total)
-				.distinct()
-				.limit(expect)
-				.sorted()
-				.mapToObj(i -> {
-					int flatIndex = 0;
-					for (KBucket bucket : buckets) {
-						int size = bucket.size();
-						if (i < flatIndex + size)
-							return bucket.get(i - flatIndex);
-
-						flatIndex += size;
-					}
-
-					// Should not happen with valid indices
-					return null;
-				}).filter(Objects::nonNull)
-				.collect(Collectors.toList());
+		return view.getRandomEntries(expect);
 	}
-	*/
 
 	/**
 	 * Inserts or updates a node entry in the routing table.
@@ -218,6 +232,11 @@ public class RoutingTable {
 	 * @param entry the node entry to add or update
 	 */
 	public void put(KBucketEntry entry) {
+		insert(entry);
+		schedulePublish();
+	}
+
+	private void insert(KBucketEntry entry) {
 		log.trace("Putting entry: {}...", entry);
 
 		Id nodeId = entry.getId();
@@ -230,7 +249,11 @@ public class RoutingTable {
 			bucket = bucketOf(nodeId);
 		}
 
+		int entries = bucket.size();
+		int replacements = bucket.replacementSize();
 		bucket.put(entry);
+		counted(bucket, entries, replacements);
+		bucket.changed();
 		log.trace("New entry {} putted into bucket {}", entry.getId(), bucket.prefix());
 	}
 
@@ -241,7 +264,15 @@ public class RoutingTable {
 	 * @return true if the entry was removed, false otherwise
 	 */
 	public boolean remove(Id id) {
-		return  bucketOf(id).remove(id);
+		KBucket bucket = bucketOf(id);
+		int entries = bucket.size();
+		int replacements = bucket.replacementSize();
+		if (!bucket.remove(id))
+			return false;
+
+		counted(bucket, entries, replacements);
+		changed(bucket);
+		return true;
 	}
 
 	/**
@@ -253,7 +284,15 @@ public class RoutingTable {
 	 */
 	public KBucketEntry removeIfBad(Id id, boolean force) {
 		KBucket bucket = bucketOf(id);
-		return bucket.removeIfBad(id, force);
+		int entries = bucket.size();
+		int replacements = bucket.replacementSize();
+		KBucketEntry removed = bucket.removeIfBad(id, force);
+		if (removed != null) {
+			counted(bucket, entries, replacements);
+			changed(bucket);
+		}
+
+		return removed;
 	}
 
 	/**
@@ -264,7 +303,8 @@ public class RoutingTable {
 	 */
 	public void onRequestSent(Id id) {
 		KBucket bucket = bucketOf(id);
-		bucket.onRequestSent(id);
+		if (bucket.onRequestSent(id))
+			touched(bucket);
 	}
 
 	/**
@@ -276,7 +316,8 @@ public class RoutingTable {
 	 */
 	public void onResponded(Id id, int rtt) {
 		KBucket bucket = bucketOf(id);
-		bucket.onResponded(id, rtt);
+		if (bucket.onResponded(id, rtt))
+			touched(bucket);
 	}
 
 	/**
@@ -287,7 +328,19 @@ public class RoutingTable {
 	 */
 	public boolean onTimeout(Id id) {
 		KBucket bucket = bucketOf(id);
-		return bucket.onTimeout(id);
+		if (!bucket.contains(id, true))
+			return false;
+
+		int entries = bucket.size();
+		int replacements = bucket.replacementSize();
+		boolean removed = bucket.onTimeout(id);
+		if (removed) {
+			counted(bucket, entries, replacements);
+			changed(bucket);
+		} else
+			touched(bucket);
+
+		return removed;
 	}
 
 	/**
@@ -321,10 +374,32 @@ public class RoutingTable {
 	 * @param toAdd the collection of buckets to add
 	 */
 	private void modify(Collection<KBucket> toRemove, Collection<KBucket> toAdd) {
-		if (toRemove != null && !toRemove.isEmpty())
+		if (toRemove != null && !toRemove.isEmpty()) {
+			// The published copies of the removed buckets drop out of the next view
+			for (KBucket bucket : toRemove) {
+				KBucket published = bucket.published();
+				if (published != null) {
+					publishedEntries -= published.size();
+					publishedReplacements -= published.replacementSize();
+				}
+
+				liveEntries -= bucket.size();
+				liveReplacements -= bucket.replacementSize();
+			}
+
 			buckets.removeAll(toRemove);
-		if (toAdd != null && !toAdd.isEmpty())
+			dirty = true;
+		}
+
+		if (toAdd != null && !toAdd.isEmpty()) {
+			// The entries may move between the lists when redistributed, e.g. a replacement into a new bucket
+			for (KBucket bucket : toAdd) {
+				liveEntries += bucket.size();
+				liveReplacements += bucket.replacementSize();
+			}
+
 			buckets.addAll(toAdd);
+		}
 		buckets.sort(null);
 	}
 
@@ -407,6 +482,80 @@ public class RoutingTable {
 		log.debug("Finished merge buckets({})... ", buckets.size());
 	}
 
+	// Updates the live counts after a change of the bucket, given its sizes before the change
+	private void counted(KBucket bucket, int entries, int replacements) {
+		liveEntries += bucket.size() - entries;
+		liveReplacements += bucket.replacementSize() - replacements;
+	}
+
+	// Marks the bucket for the next publication after a metadata update, without scheduling one
+	private void touched(KBucket bucket) {
+		bucket.changed();
+		dirty = true;
+	}
+
+	// Schedules a new view after a structural change of the given bucket
+	private void changed(KBucket bucket) {
+		bucket.changed();
+		schedulePublish();
+	}
+
+	// Publishes a new view after all the buckets may have changed
+	private void publishAll() {
+		for (KBucket bucket : buckets)
+			bucket.changed();
+
+		dirty = true;
+		publish();
+	}
+
+	private void schedulePublish() {
+		owner = Thread.currentThread();
+		dirty = true;
+		if (publisher == null) {
+			publish();
+			return;
+		}
+
+		if (!publishScheduled) {
+			publishScheduled = true;
+			publisher.execute(() -> {
+				publishScheduled = false;
+				publish();
+			});
+		}
+	}
+
+	/**
+	 * Publishes the view of the current buckets if any bucket changed since the last publication.
+	 * Only the changed buckets are copied, the copies of the unchanged buckets and the entry counts
+	 * are carried over. Must be called on the thread that owns this routing table.
+	 */
+	public void publish() {
+		owner = Thread.currentThread();
+		if (!dirty)
+			return;
+
+		dirty = false;
+		KBucket[] published = new KBucket[buckets.size()];
+		for (int i = 0; i < published.length; i++) {
+			KBucket bucket = buckets.get(i);
+			if (bucket.isChanged()) {
+				KBucket previous = bucket.published();
+				KBucket copy = bucket.publish();
+				publishedEntries += copy.size() - (previous == null ? 0 : previous.size());
+				publishedReplacements += copy.replacementSize() - (previous == null ? 0 : previous.replacementSize());
+			}
+
+			published[i] = bucket.published();
+		}
+
+		view = new RoutingTableView(localId, published, publishedEntries, publishedReplacements);
+		// All the buckets are published, the live counts catch up with any change not counted
+		liveEntries = publishedEntries;
+		liveReplacements = publishedReplacements;
+	}
+
 	/**
 	 * Applies the given consumer function to each bucket in the routing table.
 	 *
@@ -434,7 +583,7 @@ public class RoutingTable {
 
 		for (KBucket bucket : buckets) {
 			boolean isHome = bucket.isHomeBucket();
-			bucket.cleanup(localId,  bootstrapIds, this::put);
+			bucket.cleanup(localId,  bootstrapIds, this::insert);
 
 			boolean refreshNeeded = bucket.needsToBeRefreshed();
 			boolean replacementNeeded = bucket.needsReplacementPing() || (isHome && bucket.findPingableReplacement() != null);
@@ -446,51 +595,69 @@ public class RoutingTable {
 			// Promotes one per bucket per maintenance cycle to avoid blocking; full recovery over iterations.
 			bucket.promoteVerifiedReplacement();
 		}
+
+		publishAll();
 	}
 
 	/**
-	 * Loads the routing table's state from the specified file.
-	 * The file is expected to be in CBOR format containing entries and replacements.
-	 * Existing routing table state will be updated accordingly.
+	 * Captures the persistent state of the routing table into an immutable snapshot, which can be
+	 * written to the disk by another thread. The entries that need replacement are skipped.
+	 * The snapshot is taken from the published view, so it can be called from any thread.
 	 *
-	 * @param file the path to the file to load from
+	 * @return the routing table snapshot
 	 */
-	public void load(Path file) {
-		if (Files.notExists(file) || !Files.isRegularFile(file))
-			return;
+	public RoutingTableFile.Snapshot snapshot() {
+		List<KBucket> buckets = view.buckets();
+		List<RoutingTableFile.Bucket> result = new ArrayList<>(buckets.size());
+		for (KBucket bucket : buckets) {
+			List<RoutingTableFile.Node> entries = new ArrayList<>(bucket.size());
+			for (KBucketEntry entry : bucket.entries()) {
+				if (!entry.needsReplacement())
+					entries.add(RoutingTableFile.Node.of(entry));
+			}
 
-		final long MAX_AGE = 24 * 60 * 60 * 1000;
-		int totalEntries = 0;
-		int totalReplacements = 0;
+			List<RoutingTableFile.Node> replacements = new ArrayList<>(bucket.replacementSize());
+			for (KBucketEntry entry : bucket.replacements())
+				replacements.add(RoutingTableFile.Node.of(entry));
 
-		try (InputStream in = Files.newInputStream(file)) {
-			CBORMapper mapper = new CBORMapper();
-			JsonNode root = mapper.readTree(in);
-			if (root.isEmpty())
-				return;
+			result.add(new RoutingTableFile.Bucket(bucket.prefix(), entries, replacements));
+		}
 
-			Id nodeId = null;
-			try {
-				byte[] idBytes = root.get("nodeId").binaryValue();
-				nodeId = Id.of(idBytes);
-			} catch (IllegalArgumentException e) {
-				throw new IOException("Invalid nodeId", e);
-			}
+		return new RoutingTableFile.Snapshot(localId, System.currentTimeMillis(), result);
+	}
 
-			boolean idMatched = nodeId.equals(localId);
-			long timestamp = root.get("timestamp").asLong();
-			long age = System.currentTimeMillis() - timestamp;
-			boolean staled = age > MAX_AGE;
+	/**
+	 * Restores the routing table's state from a snapshot.
+	 * <p>
+	 * If the snapshot was taken from this node recently and the routing table is still empty, the
+	 * saved bucket layout is rebuilt directly. Otherwise, the entries are inserted one by one and
+	 * the existing routing table state is updated accordingly.
+	 *
+	 * @param snapshot the routing table snapshot
+	 */
+	public void restore(RoutingTableFile.Snapshot snapshot) {
+		final long MAX_AGE = 24 * 60 * 60 * 1000;
 
-			JsonNode nodes = root.get("entries");
-			if (!nodes.isArray())
-				throw new IOException("Invalid node entries");
+		boolean idMatched = snapshot.localId().equals(localId);
+		long age = System.currentTimeMillis() - snapshot.timestamp();
+		boolean staled = age > MAX_AGE;
+		boolean pristine = buckets.size() == 1 && buckets.get(0).isEmpty() && buckets.get(0).replacementSize() == 0;
+
+		if (idMatched && !staled && pristine && isValidLayout(snapshot)) {
+			// Warm restart: no re-splitting, the saved layout is already a valid partition
+			List<KBucket> restored = new ArrayList<>(snapshot.buckets().size());
+			for (RoutingTableFile.Bucket saved : snapshot.buckets()) {
+				KBucket bucket = new KBucket(saved.prefix(), this::isHomeBucket);
+				saved.entries().forEach(node -> bucket.put(node.toEntry()));
+				saved.replacements().forEach(node -> bucket.putAsReplacement(node.toEntry()));
+				restored.add(bucket);
+			}
 
-			// Load and insert entries into the routing table
-			for (JsonNode node : nodes) {
-				Map<String, Object> map = mapper.convertValue(node, Json.mapType());
-				KBucketEntry entry = KBucketEntry.fromMap(map);
-				if (entry != null) {
+			modify(List.copyOf(buckets), restored);
+		} else {
+			for (RoutingTableFile.Bucket saved : snapshot.buckets()) {
+				for (RoutingTableFile.Node node : saved.entries()) {
+					KBucketEntry entry = node.toEntry();
 					if (idMatched && !staled) {
 						KBucket bucket = bucketOf(entry.getId());
 						while (bucket.isFull()) {
@@ -500,46 +667,74 @@ public class RoutingTable {
 						bucket.put(entry);
 					} else {
 						// TODO: need to improve
-						put(entry);
+						insert(entry);
 					}
+				}
+			}
 
-					totalEntries++;
-				} else {
-					log.warn("Invalid entry: {}", node);
+			for (RoutingTableFile.Bucket saved : snapshot.buckets()) {
+				for (RoutingTableFile.Node node : saved.replacements()) {
+					KBucketEntry entry = node.toEntry();
+					KBucket bucket = bucketOf(entry.getId());
+					if (bucket.find(entry.getId(), entry.getAddress()) == null)
+						bucket.putAsReplacement(entry);
 				}
 			}
+		}
 
-			nodes = root.get("replacements");
-			if (nodes != null) {
-				if (!nodes.isArray())
-					throw new IOException("Invalid node entries");
+		publishAll();
+		log.info("Loaded {} entries {} replacements from persistent file. it was {} old.",
+				snapshot.getNumberOfEntries(), snapshot.getNumberOfReplacements(), Duration.ofMillis(age));
+	}
 
-				for (JsonNode node : nodes) {
-					Map<String, Object> map = mapper.convertValue(node, Json.mapType());
-					KBucketEntry entry = KBucketEntry.fromMap(map);
-					if (entry != null) {
-						KBucket bucket = bucketOf(entry.getId());
-						if (bucket.find(entry.getId(), entry.getAddress()) == null)
-							bucket.putAsReplacement(entry);
+	/**
+	 * Checks that the saved buckets are ordered, cover the whole key-space without overlapping,
+	 * and every bucket holds at most {@link KBucket#MAX_ENTRIES} nodes under its own prefix.
+	 *
+	 * @param snapshot the routing table snapshot
+	 * @return true if the bucket layout can be restored as is
+	 */
+	private static boolean isValidLayout(RoutingTableFile.Snapshot snapshot) {
+		BigInteger next = BigInteger.ZERO;
+		for (RoutingTableFile.Bucket bucket : snapshot.buckets()) {
+			Prefix prefix = bucket.prefix();
+			if (!new BigInteger(1, prefix.first().bytes()).equals(next))
+				return false;
 
-						totalReplacements++;
-					} else {
-						log.warn("Invalid replacement entry: {}", node);
-					}
-				}
-			}
+			if (bucket.entries().size() > KBucket.MAX_ENTRIES || bucket.replacements().size() > KBucket.MAX_ENTRIES)
+				return false;
 
-			log.info("Loaded {} entries {} replacements from persistent file. it was {} old.",
-					totalEntries, totalReplacements, Duration.ofMillis(System.currentTimeMillis() - timestamp));
+			if (!bucket.entries().stream().allMatch(node -> prefix.isPrefixOf(node.id())) ||
+					!bucket.replacements().stream().allMatch(node -> prefix.isPrefixOf(node.id())))
+				return false;
+
+			next = next.add(BigInteger.ONE.shiftLeft(Id.SIZE - prefix.getDepth() - 1));
+		}
+
+		return next.equals(BigInteger.ONE.shiftLeft(Id.SIZE));
+	}
+
+	/**
+	 * Loads the routing table's state from the specified file, see {@link RoutingTableFile}.
+	 * Blocking, the DHT reads the file on a worker thread and calls {@link #restore} instead.
+	 *
+	 * @param file the path to the file to load from
+	 */
+	public void load(Path file) {
+		try {
+			if (Files.notExists(file) || !Files.isRegularFile(file) || Files.size(file) == 0)
+				return;
+
+			restore(RoutingTableFile.read(file));
 		} catch (IOException e) {
 			log.error("Can not load the routing table.", e);
 		}
 	}
 
 	/**
-	 * Saves the current state of the routing table to the specified file in CBOR format.
-	 * The method writes to a temporary file first and then atomically moves it to the target location to ensure data integrity.
+	 * Saves the current state of the routing table to the specified file, see {@link RoutingTableFile}.
 	 * If the routing table is empty or the target file is not a regular file, the save operation is skipped.
+	 * Blocking, the DHT captures a {@link #snapshot()} and writes it on a worker thread instead.
 	 *
 	 * @param file the path to the file where the routing table should be saved
 	 * @throws IOException if an I/O error occurs during saving
@@ -550,66 +745,10 @@ public class RoutingTable {
 			return;
 		}
 
-		if (Files.exists(file)) {
-			if (!Files.isRegularFile(file))
-				return;
-		} else {
-			Files.createDirectories(file.getParent());
-		}
-
-		long now = System.currentTimeMillis();
-		Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), "-" + now);
-		try (OutputStream out = Files.newOutputStream(tempFile)) {
-			CBORGenerator gen = Json.cborFactory().createGenerator(out);
-			gen.writeStartObject();
-			gen.writeBinaryField("nodeId", localId.bytes());
-			gen.writeNumberField("timestamp", now);
-
-			gen.writeFieldName("entries");
-			gen.writeStartArray();
-			for (KBucket bucket : buckets) {
-				for (KBucketEntry entry : bucket.entries()) {
-					if (entry.needsReplacement())
-						continue;
-
-					gen.writeStartObject();
-
-					Map<String, Object> map = entry.toMap();
-					for (Map.Entry<String, Object> kv : map.entrySet()) {
-						gen.writeFieldName(kv.getKey());
-						gen.writeObject(kv.getValue());
-					}
-
-					gen.writeEndObject();
-				}
-			}
-			gen.writeEndArray();
-
-			gen.writeFieldName("replacements");
-			gen.writeStartArray();
-			for (KBucket bucket : buckets) {
-				for (KBucketEntry entry : bucket.replacements()) {
-					gen.writeStartObject();
-
-					Map<String, Object> map = entry.toMap();
-					for (Map.Entry<String, Object> kv : map.entrySet()) {
-						gen.writeFieldName(kv.getKey());
-						gen.writeObject(kv.getValue());
-					}
+		if (Files.exists(file) && !Files.isRegularFile(file))
+			return;
 
-					gen.writeEndObject();
-				}
-			}
-			gen.writeEndArray();
-
-			gen.writeEndObject();
-			gen.close();
-			out.close();
-			Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
-		} finally {
-			// Force delete the tempFile if error occurred
-			Files.deleteIfExists(tempFile);
-		}
+		RoutingTableFile.write(snapshot(), file);
 	}
 
 	@Override
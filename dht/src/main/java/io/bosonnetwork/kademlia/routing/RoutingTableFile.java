@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.bosonnetwork.kademlia.routing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.json.Json;
+
+/**
+ * The persistent file of the routing table.
+ * <p>
+ * The routing table is captured into an immutable {@link Snapshot} on its own context, the snapshot
+ * can then be written to and read from the file on any thread, so the disk I/O never runs on the
+ * DHT event loop. The file keeps the bucket layout along with the entries and the replacements,
+ * which allows restoring a large routing table without re-splitting the buckets.
+ * <p>
+ * The binary format, all integers in big-endian:
+ * <pre>
+ *   magic      u32    "BRT" + format version
+ *   nodeId     32 bytes
+ *   timestamp  i64    the capture time, milliseconds since epoch
+ *   buckets    u32    the number of buckets, followed by the buckets:
+ *     depth          i16    the prefix depth, -1 for the whole key-space
+ *     prefix         32 bytes
+ *     entries        u16    the number of entries, followed by the nodes
+ *     replacements   u16    the number of replacements, followed by the nodes
+ *   crc32      u32    of all the preceding bytes
+ *
+ *   node:
+ *     id             32 bytes
+ *     address        u8 length (4 or 16) + the IP address bytes
+ *     port           u16
+ *     created        i64
+ *     lastSeen       i64
+ *     lastSend       i64
+ *     failedRequests i32
+ *     reachable      u8
+ *     rtt            i32    -1 if unknown
+ *     version        i32
+ * </pre>
+ * The files written by the previous versions, a CBOR document with the flat entry lists, are still
+ * readable and converted to a snapshot with a single bucket.
+ */
+public final class RoutingTableFile {
+	private static final int MAGIC = 0x42525401; // "BRT", version 1
+
+	// Sanity limits against corrupted files
+	private static final int MAX_BUCKETS = 64 * 1024;
+	private static final int MAX_BUCKET_NODES = 1024;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final Logger log = LoggerFactory.getLogger(RoutingTableFile.class);
+
+	/**
+	 * The persisted state of a routing table entry.
+	 */
+	public record Node(Id id, InetSocketAddress address, long created, long lastSeen, long lastSend,
+					   int failedRequests, boolean reachable, int rtt, int version) {
+		static Node of(KBucketEntry entry) {
+			return new Node(entry.getId(), entry.getAddress(), entry.creationTime(), entry.lastSeen(),
+					entry.lastSend(), entry.failedRequests(), entry.isReachable(), entry.getRTT(-1),
+					entry.getVersion());
+		}
+
+		KBucketEntry toEntry() {
+			return KBucketEntry.restore(id, address, created, lastSeen, lastSend, failedRequests, reachable,
+					rtt, version);
+		}
+	}
+
+	/**
+	 * The persisted state of a bucket.
+	 */
+	public record Bucket(Prefix prefix, List<Node> entries, List<Node> replacements) {
+		public Bucket {
+			entries = Collections.unmodifiableList(entries);
+			replacements = Collections.unmodifiableList(replacements);
+		}
+	}
+
+	/**
+	 * An immutable capture of a routing table, safe to hand over to another thread.
+	 */
+	public record Snapshot(Id localId, long timestamp, List<Bucket> buckets) {
+		public Snapshot {
+			buckets = Collections.unmodifiableList(buckets);
+		}
+
+		public int getNumberOfEntries() {
+			return buckets.stream().mapToInt(b -> b.entries().size()).sum();
+		}
+
+		public int getNumberOfReplacements() {
+			return buckets.stream().mapToInt(b -> b.replacements().size()).sum();
+		}
+	}
+
+	private RoutingTableFile() {
+	}
+
+	/**
+	 * Writes the snapshot to the file. The content is written to a temporary file first and then
+	 * atomically moved to the target location. Blocking, should be called from a worker thread.
+	 *
+	 * @param snapshot the routing table snapshot
+	 * @param file     the target file
+	 * @throws IOException if an I/O error occurs
+	 */
+	public static void write(Snapshot snapshot, Path file) throws IOException {
+		Path dir = file.toAbsolutePath().getParent();
+		Files.createDirectories(dir);
+
+		Path tempFile = Files.createTempFile(dir, file.getFileName().toString(), "-" + snapshot.timestamp());
+		try {
+			CheckedOutputStream checked = new CheckedOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tempFile), BUFFER_SIZE), new CRC32());
+			try (DataOutputStream out = new DataOutputStream(checked)) {
+				out.writeInt(MAGIC);
+				out.write(snapshot.localId().bytes());
+				out.writeLong(snapshot.timestamp());
+				out.writeInt(snapshot.buckets().size());
+				for (Bucket bucket : snapshot.buckets()) {
+					out.writeShort(bucket.prefix().getDepth());
+					out.write(bucket.prefix().bytes());
+					writeNodes(out, bucket.entries());
+					writeNodes(out, bucket.replacements());
+				}
+
+				out.writeInt((int) checked.getChecksum().getValue());
+			}
+
+			Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			// Force delete the tempFile if error occurred
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	private static void writeNodes(DataOutputStream out, List<Node> nodes) throws IOException {
+		out.writeShort(nodes.size());
+		for (Node node : nodes) {
+			out.write(node.id().bytes());
+			byte[] addr = node.address().getAddress().getAddress();
+			out.writeByte(addr.length);
+			out.write(addr);
+			out.writeShort(node.address().getPort());
+			out.writeLong(node.created());
+			out.writeLong(node.lastSeen());
+			out.writeLong(node.lastSend());
+			out.writeInt(node.failedRequests());
+			out.writeBoolean(node.reachable());
+			out.writeInt(node.rtt());
+			out.writeInt(node.version());
+		}
+	}
+
+	/**
+	 * Reads the snapshot from the file, in either the binary or the legacy CBOR format.
+	 * Blocking, should be called from a worker thread.
+	 *
+	 * @param file the routing table file
+	 * @return the snapshot
+	 * @throws IOException if an I/O error occurs or the file is corrupted
+	 */
+	public static Snapshot read(Path file) throws IOException {
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE)) {
+			in.mark(Integer.BYTES);
+			int magic = new DataInputStream(in).readInt();
+			in.reset();
+
+			return magic == MAGIC ? readBinary(in) : readLegacy(in);
+		}
+	}
+
+	private static Snapshot readBinary(InputStream is) throws IOException {
+		CheckedInputStream checked = new CheckedInputStream(is, new CRC32());
+		DataInputStream in = new DataInputStream(checked);
+
+		in.readInt(); // magic
+		Id localId = readId(in);
+		long timestamp = in.readLong();
+
+		int count = in.readInt();
+		if (count < 0 || count > MAX_BUCKETS)
+			throw new IOException("Invalid bucket count: " + count);
+
+		List<Bucket> buckets = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			int depth = in.readShort();
+			Id prefix = readId(in);
+			Prefix p;
+			try {
+				p = new Prefix(prefix, depth);
+			} catch (IllegalArgumentException e) {
+				throw new IOException("Invalid bucket prefix", e);
+			}
+
+			List<Node> entries = readNodes(in);
+			List<Node> replacements = readNodes(in);
+			buckets.add(new Bucket(p, entries, replacements));
+		}
+
+		int expected = (int) checked.getChecksum().getValue();
+		if (in.readInt() != expected)
+			throw new IOException("Checksum mismatch");
+
+		return new Snapshot(localId, timestamp, buckets);
+	}
+
+	private static List<Node> readNodes(DataInputStream in) throws IOException {
+		int count = in.readUnsignedShort();
+		if (count > MAX_BUCKET_NODES)
+			throw new IOException("Invalid node count: " + count);
+
+		List<Node> nodes = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			Id id = readId(in);
+			int addrLen = in.readUnsignedByte();
+			if (addrLen != 4 && addrLen != 16)
+				throw new IOException("Invalid address length: " + addrLen);
+			byte[] addr = new byte[addrLen];
+			in.readFully(addr);
+			int port = in.readUnsignedShort();
+
+			nodes.add(new Node(id, new InetSocketAddress(InetAddress.getByAddress(addr), port),
+					in.readLong(), in.readLong(), in.readLong(), in.readInt(), in.readBoolean(),
+					in.readInt(), in.readInt()));
+		}
+
+		return nodes;
+	}
+
+	private static Id readId(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[Id.BYTES];
+		in.readFully(bytes);
+		return Id.of(bytes);
+	}
+
+	private static Snapshot readLegacy(InputStream in) throws IOException {
+		CBORMapper mapper = new CBORMapper();
+		JsonNode root = mapper.readTree(in);
+		if (root == null || root.isEmpty())
+			throw new IOException("Empty routing table file");
+
+		Id localId;
+		try {
+			localId = Id.of(root.get("nodeId").binaryValue());
+		} catch (IllegalArgumentException | NullPointerException e) {
+			throw new IOException("Invalid nodeId", e);
+		}
+
+		long timestamp = root.get("timestamp").asLong();
+		List<Node> entries = readLegacyNodes(mapper, root.get("entries"));
+		List<Node> replacements = root.has("replacements") ?
+				readLegacyNodes(mapper, root.get("replacements")) : List.of();
+
+		return new Snapshot(localId, timestamp, List.of(new Bucket(Prefix.all(), entries, replacements)));
+	}
+
+	private static List<Node> readLegacyNodes(CBORMapper mapper, JsonNode nodes) throws IOException {
+		if (nodes == null || !nodes.isArray())
+			throw new IOException("Invalid node entries");
+
+		List<Node> result = new ArrayList<>(nodes.size());
+		for (JsonNode node : nodes) {
+			Map<String, Object> map = mapper.convertValue(node, Json.mapType());
+			KBucketEntry entry = KBucketEntry.fromMap(map);
+			if (entry != null)
+				result.add(Node.of(entry));
+			else
+				log.warn("Invalid entry: {}", node);
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2022 - 2023 trinity-tech.io
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.bosonnetwork.kademlia.routing;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.crypto.Random;
+
+/**
+ * A read-only view of the routing table, published by the {@link RoutingTable} after the changes.
+ * <p>
+ * The view holds detached copies of the buckets and their entries, which are never modified after
+ * the publication, so it can be queried from any thread without locks or hopping onto the DHT
+ * context. The view reflects the routing table at the time of the publication; the buckets that
+ * did not change between two publications share the same copies.
+ */
+public final class RoutingTableView {
+	private final Id localId;
+	private final List<KBucket> buckets;
+	private final int numberOfEntries;
+	private final int numberOfReplacements;
+
+	// The counts are kept by the routing table across the publications, not recounted here
+	RoutingTableView(Id localId, KBucket[] buckets, int numberOfEntries, int numberOfReplacements) {
+		this.localId = localId;
+		this.buckets = List.of(buckets);
+		this.numberOfEntries = numberOfEntries;
+		this.numberOfReplacements = numberOfReplacements;
+	}
+
+	/**
+	 * Returns the ID of the local node.
+	 *
+	 * @return the local node ID
+	 */
+	public Id getLocalId() {
+		return localId;
+	}
+
+	/**
+	 * Returns the number of the buckets.
+	 *
+	 * @return the number of the buckets
+	 */
+	public int size() {
+		return buckets.size();
+	}
+
+	/**
+	 * Returns the read-only copies of the buckets, sorted by prefix.
+	 *
+	 * @return the unmodifiable list of the buckets
+	 */
+	public List<KBucket> buckets() {
+		return buckets;
+	}
+
+	/**
+	 * Returns the bucket that covers the given node ID.
+	 *
+	 * @param id the node ID
+	 * @return the read-only copy of the bucket
+	 */
+	public KBucket bucketOf(Id id) {
+		return buckets.get(RoutingTable.indexOf(buckets, id));
+	}
+
+	/**
+	 * Returns the total number of entries stored across all buckets.
+	 *
+	 * @return the total number of node entries
+	 */
+	public int getNumberOfEntries() {
+		return numberOfEntries;
+	}
+
+	/**
+	 * Returns the total number of replacement entries stored across all buckets.
+	 *
+	 * @return the total number of replacement node entries
+	 */
+	public int getNumberOfReplacements() {
+		return numberOfReplacements;
+	}
+
+	public KBucketEntry getEntry(Id id, boolean includeReplacement) {
+		return bucketOf(id).get(id, includeReplacement);
+	}
+
+	public boolean contains(Id id, boolean includeReplacement) {
+		return bucketOf(id).contains(id, includeReplacement);
+	}
+
+	public KClosestNodes getClosestNodes(Id target, int expected) {
+		return new KClosestNodes(localId, buckets, target, expected);
+	}
+
+	/**
+	 * Returns up to the given number of distinct entries, picked at random across all buckets.
+	 *
+	 * @param expected the number of entries to pick
+	 * @return the picked entries, all the entries if there are fewer than expected
+	 */
+	public List<KBucketEntry> getRandomEntries(int expected) {
+		if (expected <= 0 || numberOfEntries == 0)
+			return Collections.emptyList();
+
+		List<KBucketEntry> result = new ArrayList<>(Math.min(expected, numberOfEntries));
+		if (numberOfEntries <= expected) {
+			for (KBucket bucket : buckets)
+				result.addAll(bucket.entries());
+
+			return result;
+		}
+
+		// Selection sampling over the flattened entries, picks each entry with the probability
+		// of the remaining picks over the remaining entries, keeps the bucket order
+		ThreadLocalRandom rnd = Random.random();
+		int remaining = numberOfEntries;
+		for (KBucket bucket : buckets) {
+			for (int i = 0, n = bucket.size(); i < n; i++, remaining--) {
+				int needed = expected - result.size();
+				if (needed == 0)
+					return result;
+
+				if (rnd.nextInt(remaining) < needed)
+					result.add(bucket.get(i));
+			}
+		}
+
+		return result;
+	}
+
+	public void dump(PrintStream out) {
+		out.printf("buckets: %d, entries: %d, replacements: %d\n",
+				buckets.size(), numberOfEntries, numberOfReplacements);
+
+		for (KBucket bucket : buckets) {
+			bucket.dump(out);
+			out.println();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "RoutingTableView[buckets: " + buckets.size() + ", entries: " + numberOfEntries +
+				", replacements: " + numberOfReplacements + "]";
+	}
+}
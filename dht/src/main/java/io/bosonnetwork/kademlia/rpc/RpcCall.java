@@ -116,10 +116,11 @@ public class RpcCall {
 		request.setRemote(target.getId(), target.getAddress());
 		request.setAssociatedCall(this);
 
-		// Initialize reachability and RTT from KBucketEntry if applicable
+		// Initialize reachability and RTT from KBucketEntry if applicable,
+		// the node without RTT samples gets the server's stall timeout instead
 		if (target instanceof KBucketEntry entry) {
 			targetIsReachable = entry.isReachable();
-			expectedRTT = entry.getRTT();
+			expectedRTT = entry.getRTT(-1);
 		}
 	}
 
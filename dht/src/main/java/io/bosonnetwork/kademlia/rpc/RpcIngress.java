@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.rpc;
+
+import io.vertx.core.Future;
+import io.vertx.core.datagram.DatagramSocket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.bosonnetwork.vertx.BosonVerticle;
+
+/**
+ * An additional inbound datagram socket of the {@link RpcServer}, bound to the server port with
+ * {@code SO_REUSEPORT}. The kernel balances the incoming packets across all sockets bound to the
+ * port by hashing the remote address, so the packets from one peer always land on the same shard.
+ * <p>
+ * Each ingress shard is deployed as a separate verticle instance, running on its own event loop.
+ * The shard performs the throttling, decryption and decoding, then dispatches the decoded messages
+ * to the DHT context of the owning {@link RpcServer}. Outbound messages are always sent through
+ * the primary socket of the server.
+ */
+class RpcIngress extends BosonVerticle {
+	private final RpcServer server;
+	private DatagramSocket socket;
+
+	private static final Logger log = LoggerFactory.getLogger(RpcIngress.class);
+
+	RpcIngress(RpcServer server) {
+		this.server = server;
+	}
+
+	@Override
+	protected Future<Void> deploy() {
+		socket = vertx.createDatagramSocket(server.socketOptions());
+		socket.handler(server::handleIngressPacket);
+		socket.exceptionHandler(server::handleSocketException);
+
+		return socket.listen(server.getPort(), server.getHost()).andThen(ar -> {
+			if (ar.succeeded())
+				log.debug("RPC ingress shard started at {}:{}", server.getHost(), server.getPort());
+			else
+				log.error("RPC ingress shard start failed at {}:{}", server.getHost(), server.getPort(), ar.cause());
+		}).mapEmpty();
+	}
+
+	@Override
+	protected Future<Void> undeploy() {
+		if (socket == null)
+			return Future.succeededFuture();
+
+		return socket.close().andThen(ar -> {
+			socket = null;
+			log.debug("RPC ingress shard at {}:{} stopped", server.getHost(), server.getPort());
+		});
+	}
+}
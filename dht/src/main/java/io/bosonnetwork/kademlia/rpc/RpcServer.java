@@ -26,13 +26,18 @@ package io.bosonnetwork.kademlia.rpc;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.datagram.DatagramPacket;
 import io.vertx.core.datagram.DatagramSocket;
 import io.vertx.core.datagram.DatagramSocketOptions;
+import io.vertx.core.internal.buffer.BufferInternal;
 import io.vertx.core.net.SocketAddress;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,9 +50,13 @@ import io.bosonnetwork.crypto.CryptoException;
 import io.bosonnetwork.kademlia.impl.KadContext;
 import io.bosonnetwork.kademlia.metrics.DHTMetrics;
 import io.bosonnetwork.kademlia.protocol.Message;
+import io.bosonnetwork.kademlia.protocol.MessageEncoder;
 import io.bosonnetwork.kademlia.security.Blacklist;
 import io.bosonnetwork.kademlia.security.SpamThrottle;
 import io.bosonnetwork.kademlia.security.SuspiciousNodeDetector;
+import io.bosonnetwork.kademlia.utils.AddressKeys;
+import io.bosonnetwork.kademlia.utils.ExponentialWeightedMovingAverage;
+import io.bosonnetwork.kademlia.utils.HashedWheelTimer;
 import io.bosonnetwork.kademlia.utils.TimeoutSampler;
 import io.bosonnetwork.metrics.Measured;
 
@@ -58,6 +67,16 @@ import io.bosonnetwork.metrics.Measured;
  * and is designed for internal use within the DHT system. It is not thread-safe and does
  * not support serialization. Integrates with {@link RpcCall} for call lifecycle management
  * and uses Vert.x for asynchronous socket operations.
+ * <p>
+ * Optionally the inbound path can be sharded: additional {@link RpcIngress} sockets are bound
+ * to the same port with {@code SO_REUSEPORT} on other event loops. The shards only perform the
+ * stateless part of packet handling (throttling, decryption and decoding); every decoded message
+ * is dispatched back to the DHT context, so the routing table, pending calls and tasks remain
+ * confined to a single thread.
+ * <p>
+ * Sharding therefore only scales the per-packet decryption and decoding. The message dispatch
+ * (call matching, routing table updates and request handling) stays single-threaded on the DHT
+ * context no matter how many shards are bound, and bounds the inbound throughput of the node.
  */
 public class RpcServer implements Measured {
 	/** Socket send buffer size (1 MB). */
@@ -73,7 +92,7 @@ public class RpcServer implements Measured {
 	/** Burst capacity for RPC calls (128). */
 	private static final int RPC_CALL_BURST_CAPACITY = 128;
 	/** Maximum number of active RPC calls. */
-	private static final int MAX_ACTIVE_CALLS = 1024;
+	public static final int MAX_ACTIVE_CALLS = 1024;
 	/** Maximum timeout for RPC calls (10 seconds). */
 	public static final int RPC_CALL_TIMEOUT_MAX = 10_000;
 	/** Minimum baseline timeout for RPC calls (100 milliseconds). */
@@ -82,6 +101,8 @@ public class RpcServer implements Measured {
 	private static final int RPC_CALL_TIMEOUT_BIN_SIZE = 50;
 	/** Initial capacity for the pending calls map (256). */
 	private static final int DEFAULT_PENDING_CALLS_CAPACITY = 256;
+	/** Maximum number of RPC ingress shards. */
+	private static final int MAX_INGRESS_SHARDS = 64;
 
 	/** Context providing access to Vert.x and DHT runtime information. */
 	private final KadContext context;
@@ -106,6 +127,11 @@ public class RpcServer implements Measured {
 
 	/** Sampler for calculating RPC call timeouts. */
 	private final TimeoutSampler timeoutSampler;
+	/** Moving average of the RPC call loss rate, 0 for a response and 1 for a timeout. */
+	private final ExponentialWeightedMovingAverage lossRate;
+
+	/** Timing wheel for the RPC call timeouts and the throttled call delays. */
+	private final HashedWheelTimer callTimer;
 
 	/** Throttle for incoming messages, maybe disabled with a disabled SpamThrottle implementation. */
 	private final SpamThrottle inboundThrottle;
@@ -116,6 +142,12 @@ public class RpcServer implements Measured {
 	/** Metrics collector, null if metrics are disabled. */
 	private final DHTMetrics metrics;
 
+	/** Number of the ingress sockets bound to the server port, 1 if ingress sharding is disabled. */
+	private int ingressShards;
+
+	/** Deployment ID of the additional ingress shards, null if not deployed. */
+	private String ingressDeploymentId;
+
 	/** Datagram socket for sending and receiving messages, null when stopped. */
 	private DatagramSocket socket;
 
@@ -124,6 +156,8 @@ public class RpcServer implements Measured {
 
 	/** Total number of received packets. */
 	private long receivedPackets;
+	/** Total number of packets received by the ingress shards, updated from the shard event loops. */
+	private final AtomicLong ingressReceivedPackets;
 	/** Number of packets received at the last reachability check. */
 	private long receivedPacketsAtLastReachableCheck;
 	/** Timestamp of the last reachability check. */
@@ -167,6 +201,29 @@ public class RpcServer implements Measured {
 	public RpcServer(KadContext context, String host, int port, Blacklist blacklist,
 					 SuspiciousNodeDetector suspiciousNodeDetector, boolean enableSpamThrottling,
 					 DHTMetrics metrics) {
+		this(context, host, port, blacklist, suspiciousNodeDetector, enableSpamThrottling, metrics, 1);
+	}
+
+	/**
+	 * Constructs an RPC server with the specified configuration and ingress sharding.
+	 *
+	 * @param context                     the DHT context providing Vert.x and configuration
+	 * @param host                        the host address to bind the server
+	 * @param port                        the port to bind the server
+	 * @param blacklist                   the blacklist for banning malicious nodes
+	 * @param suspiciousNodeDetector      the suspicious node tracker
+	 * @param enableSpamThrottling        whether to enable spam throttling
+	 * @param metrics                     the metrics collector, null to disable metrics
+	 * @param ingressShards               the number of sockets bound to the port with SO_REUSEPORT,
+	 *                                    1 to disable ingress sharding
+	 * @throws IllegalArgumentException if ingressShards is out of range
+	 */
+	public RpcServer(KadContext context, String host, int port, Blacklist blacklist,
+					 SuspiciousNodeDetector suspiciousNodeDetector, boolean enableSpamThrottling,
+					 DHTMetrics metrics, int ingressShards) {
+		if (ingressShards < 1 || ingressShards > MAX_INGRESS_SHARDS)
+			throw new IllegalArgumentException("Invalid ingress shards: " + ingressShards);
+
 		this.context = context;
 		this.network = context.getNetwork();
 		this.identity = context.getIdentity();
@@ -174,12 +231,16 @@ public class RpcServer implements Measured {
 		this.port = port;
 		this.blacklist = blacklist;
 		this.metrics = metrics;
+		this.ingressShards = ingressShards;
 
 		this.suspiciousNodeDetector = suspiciousNodeDetector;
 
 		// Initialize timeout sampler for RTT calculations
 		this.timeoutSampler = new TimeoutSampler(RPC_CALL_TIMEOUT_BIN_SIZE,
 				0, RPC_CALL_TIMEOUT_MAX, RPC_CALL_TIMEOUT_BASELINE_MIN);
+		this.lossRate = new ExponentialWeightedMovingAverage(0.01);
+		// Almost every call timer is cancelled by the response, keep them off the Vert.x scheduler
+		this.callTimer = new HashedWheelTimer(context.getVertxContext());
 
 		// Initialize throttles for spam protection
 		if (enableSpamThrottling && !context.isDeveloperMode()) {
@@ -192,6 +253,7 @@ public class RpcServer implements Measured {
 
 		// Initialize pending calls map
 		this.pendingCalls = new HashMap<>(DEFAULT_PENDING_CALLS_CAPACITY);
+		this.ingressReceivedPackets = new AtomicLong(0);
 
 		this.startTime = -1;
 		this.running = false;
@@ -233,6 +295,15 @@ public class RpcServer implements Measured {
 		return port;
 	}
 
+	/**
+	 * Gets the number of ingress sockets bound to the server port.
+	 *
+	 * @return the number of ingress shards, 1 if ingress sharding is disabled
+	 */
+	public int getIngressShards() {
+		return ingressShards;
+	}
+
 	/**
 	 * Checks if the metrics collection is enabled.
 	 *
@@ -252,14 +323,15 @@ public class RpcServer implements Measured {
 	 */
 	private void checkReachability(long unusedTimerId) {
 		long now = System.currentTimeMillis();
+		long received = receivedPackets + ingressReceivedPackets.get();
 
 		// Update reachability based on packet activity
-		if (receivedPackets != receivedPacketsAtLastReachableCheck) {
+		if (received != receivedPacketsAtLastReachableCheck) {
 			setReachable(true);
 			lastReachableCheck = now;
-			receivedPacketsAtLastReachableCheck = receivedPackets;
+			receivedPacketsAtLastReachableCheck = received;
 		} else if (now - lastReachableCheck > REACHABILITY_TIMEOUT &&
-				receivedPackets != 0 && receivedPacketsAtLastReachableCheck != 0) {
+				received != 0 && receivedPacketsAtLastReachableCheck != 0) {
 			setReachable(false);
 			// Reset timeout sampler to avoid stale RTT estimates for new connections
 			timeoutSampler.reset();
@@ -298,6 +370,34 @@ public class RpcServer implements Measured {
 		return reachable;
 	}
 
+	/**
+	 * Returns the number of the RTT samples taken since the last reset.
+	 *
+	 * @return the RTT sample count
+	 */
+	public long getRttSampleCount() {
+		return timeoutSampler.getSampleCount();
+	}
+
+	/**
+	 * Returns the observed RTT at the given quantile, e.g. 0.9 for the 90th percentile.
+	 *
+	 * @param quant the quantile, in the range [0, 1]
+	 * @return the RTT in milliseconds
+	 */
+	public int getRttQuantile(float quant) {
+		return timeoutSampler.getQuantile(quant);
+	}
+
+	/**
+	 * Returns the moving average of the RPC call loss rate.
+	 *
+	 * @return the loss rate in the range [0, 1], 0 if no call finished yet
+	 */
+	public double getLossRate() {
+		return lossRate.getAverage(0);
+	}
+
 	/**
 	 * Checks if there are any pending RPC calls.
 	 *
@@ -365,21 +465,20 @@ public class RpcServer implements Measured {
 		if (running)
 			throw new IllegalStateException("Server is already running");
 
-		socket = context.getVertx().createDatagramSocket(new DatagramSocketOptions()
-				.setSendBufferSize(SOCKET_SEND_BUFFER_SIZE)
-				.setReceiveBufferSize(SOCKET_RECEIVE_BUFFER_SIZE)
-				.setTrafficClass(0x10));
+		// SO_REUSEPORT load balancing for datagram sockets is only available with the native transports
+		if (ingressShards > 1 && !context.getVertx().isNativeTransportEnabled()) {
+			log.warn("Native transport is not available, RPC ingress sharding disabled");
+			ingressShards = 1;
+		}
+
+		socket = context.getVertx().createDatagramSocket(socketOptions());
 
 		// Set up packet and exception handlers
 		socket.handler(this::handlePacket);
-		socket.exceptionHandler(e -> {
-			log.error("DHT RPC server datagram socket error", e);
-			if (metrics != null)
-				metrics.exceptionOccurred(e);
-		});
+		socket.exceptionHandler(this::handleSocketException);
 
 		// Bind the socket and start reachability checks
-		return socket.listen(port, host).andThen(ar -> {
+		return socket.listen(port, host).compose(s -> deployIngressShards()).andThen(ar -> {
 			if (ar.succeeded()) {
 				startTime = System.currentTimeMillis();
 				running = true;
@@ -390,13 +489,30 @@ public class RpcServer implements Measured {
 				reachableCheckTimer = context.setPeriodic(REACHABILITY_CHECK_INTERVAL * 2,
 						REACHABILITY_CHECK_INTERVAL, this::checkReachability);
 
-				log.info("RPC server started at {}:{}", host, port);
+				log.info("RPC server started at {}:{}, ingress shards: {}", host, port, ingressShards);
 			} else {
 				log.error("RPC server start failed at {}:{} ", host, port, ar.cause());
 			}
 		}).mapEmpty();
 	}
 
+	/**
+	 * Deploys the additional ingress shards. The primary socket lives on the DHT context,
+	 * the remaining shards are deployed as verticle instances on the other event loops.
+	 *
+	 * @return a Future that completes when all ingress shards are bound
+	 */
+	private Future<Void> deployIngressShards() {
+		if (ingressShards <= 1)
+			return Future.succeededFuture();
+
+		return context.getVertx().deployVerticle(() -> new RpcIngress(this),
+				new DeploymentOptions().setInstances(ingressShards - 1)).andThen(ar -> {
+			if (ar.succeeded())
+				ingressDeploymentId = ar.result();
+		}).<Void>mapEmpty().recover(e -> socket.close().transform(unused -> Future.failedFuture(e)));
+	}
+
 	/**
 	 * Stops the RPC server, closing the socket and clearing resources.
 	 *
@@ -406,13 +522,21 @@ public class RpcServer implements Measured {
 		if (socket == null)
 			return Future.succeededFuture();
 
-		return socket.close().andThen(ar -> {
+		Future<Void> ingressFuture = ingressDeploymentId == null ? Future.succeededFuture() :
+				context.getVertx().undeploy(ingressDeploymentId).otherwise(e -> {
+					log.error("RPC server at {}:{} stop ingress shards failed", host, port, e);
+					return null;
+				});
+
+		return ingressFuture.compose(v -> socket.close()).andThen(ar -> {
+			ingressDeploymentId = null;
 			socket = null;
 
 			startTime = -1;
 			running = false;
 
 			context.cancelTimer(reachableCheckTimer);
+			callTimer.clear();
 
 			inboundThrottle.clear();
 			outboundThrottle.clear();
@@ -426,7 +550,31 @@ public class RpcServer implements Measured {
 	}
 
 	/**
-	 * Handles incoming datagram packets, processing messages and routing responses.
+	 * Creates the datagram socket options shared by the primary socket and the ingress shards.
+	 *
+	 * @return the datagram socket options
+	 */
+	protected DatagramSocketOptions socketOptions() {
+		return new DatagramSocketOptions()
+				.setSendBufferSize(SOCKET_SEND_BUFFER_SIZE)
+				.setReceiveBufferSize(SOCKET_RECEIVE_BUFFER_SIZE)
+				.setTrafficClass(0x10)
+				.setReusePort(ingressShards > 1);
+	}
+
+	/**
+	 * Handles the datagram socket errors, both from the primary socket and the ingress shards.
+	 *
+	 * @param e the socket error
+	 */
+	protected void handleSocketException(Throwable e) {
+		log.error("DHT RPC server datagram socket error", e);
+		if (metrics != null)
+			metrics.exceptionOccurred(e);
+	}
+
+	/**
+	 * Handles incoming datagram packets on the primary socket, processing messages and routing responses.
 	 *
 	 * @param packet the received datagram packet
 	 */
@@ -436,56 +584,122 @@ public class RpcServer implements Measured {
 		Buffer buffer = packet.data();
 		SocketAddress remoteAddress = packet.sender();
 
+		Message message = decodePacket(buffer, remoteAddress, false);
+		if (message != null)
+			dispatch(message, remoteAddress, buffer.length());
+	}
+
+	/**
+	 * Handles incoming datagram packets on an ingress shard. Runs on the shard's event loop,
+	 * the decoded message is dispatched to the DHT context.
+	 *
+	 * @param packet the received datagram packet
+	 */
+	protected void handleIngressPacket(DatagramPacket packet) {
+		ingressReceivedPackets.incrementAndGet();
+
+		Buffer buffer = packet.data();
+		SocketAddress remoteAddress = packet.sender();
+
+		Message message = decodePacket(buffer, remoteAddress, true);
+		if (message == null)
+			return;
+
+		int length = buffer.length();
+		context.runOnContext(() -> {
+			if (!running)
+				return;
+
+			// Deferred suspicious node check, the detector is confined to the DHT context
+			if (suspiciousNodeDetector.isBanned(remoteAddress.host())) {
+				log.warn("Ignored packet from suspicious node {}@{}", message.getId(), remoteAddress);
+				if (metrics != null) {
+					metrics.bytesDropped(remoteAddress, length);
+					metrics.messageDropped(remoteAddress, DHTMetrics.Reason.SUSPICIOUS);
+				}
+				return;
+			}
+
+			dispatch(message, remoteAddress, length);
+		});
+	}
+
+	/**
+	 * Validates, decrypts and decodes an incoming packet. On the ingress shards this method only
+	 * touches the thread-safe components(throttle, blacklist, identity), the suspicious node detector
+	 * is confined to the DHT context.
+	 *
+	 * @param buffer the packet data
+	 * @param remoteAddress the sender address
+	 * @param ingress true if called from an ingress shard, false if called on the DHT context
+	 * @return the decoded message, or null if the packet was dropped
+	 */
+	private Message decodePacket(Buffer buffer, SocketAddress remoteAddress, boolean ingress) {
 		if (metrics != null) {
 			metrics.bytesRead(remoteAddress, buffer.length());
 			metrics.messageReceived(remoteAddress);
 		}
 
-		// Check inbound throttle
-		if (inboundThrottle.incrementAndCheck(remoteAddress.host())) {
+		// Check inbound throttle, keyed by the sender address parsed in place, throttle on error
+		long addressKey = AddressKeys.of(remoteAddress);
+		if (addressKey == AddressKeys.INVALID || inboundThrottle.incrementAndCheck(addressKey)) {
 			log.warn("Throttled a packet from {}", remoteAddress);
 			if (metrics != null) {
 				metrics.bytesDropped(remoteAddress, buffer.length());
 				metrics.messageDropped(remoteAddress, DHTMetrics.Reason.THROTTLED);
+				metrics.throttledInbound(remoteAddress.host());
 			}
-			return;
+			return null;
 		}
 
 		// Validate packet size
 		if (buffer.length() < Id.BYTES + CryptoBox.MAC_BYTES + Message.MIN_BYTES) {
 			log.warn("Ignored invalid packet(too short) from {}", remoteAddress);
-			suspiciousNodeDetector.malformedMessage(remoteAddress);
+			malformedMessage(remoteAddress, ingress);
 			if (metrics != null) {
 				metrics.bytesDropped(remoteAddress, buffer.length());
 				metrics.messageDropped(remoteAddress, DHTMetrics.Reason.INVALID);
 			}
-			return;
+			return null;
+		}
+
+		// Access the packet data in place: the received datagram is backed by a heap array in
+		// most cases, only copy it out when the buffer is a direct buffer.
+		ByteBuf byteBuf = ((BufferInternal) buffer).getByteBuf();
+		final byte[] data;
+		final int offset;
+		if (byteBuf.hasArray()) {
+			data = byteBuf.array();
+			offset = byteBuf.arrayOffset() + byteBuf.readerIndex();
+		} else {
+			data = buffer.getBytes();
+			offset = 0;
 		}
 
 		// Extract and validate remote ID
-		Id remoteId = Id.of(buffer.getBytes(0, Id.BYTES));
+		Id remoteId = Id.of(data, offset);
 		if (blacklist.isBanned(remoteId, remoteAddress.host())) {
 			log.warn("Ignored packet from blacklisted node {}@{}", remoteId, remoteAddress);
 			if (metrics != null) {
 				metrics.bytesDropped(remoteAddress, buffer.length());
 				metrics.messageDropped(remoteAddress, DHTMetrics.Reason.BANNED);
 			}
-			return;
+			return null;
 		}
-		if (suspiciousNodeDetector.isBanned(remoteAddress.host())) {
+		if (!ingress && suspiciousNodeDetector.isBanned(remoteAddress.host())) {
 			log.warn("Ignored packet from suspicious node {}@{}", remoteId, remoteAddress);
 			if (metrics != null) {
 				metrics.bytesDropped(remoteAddress, buffer.length());
 				metrics.messageDropped(remoteAddress, DHTMetrics.Reason.SUSPICIOUS);
 			}
-			return;
+			return null;
 		}
 
 		// Decrypt and parse message
 		Message message;
 		try {
-			byte[] encryptedMsg = buffer.getBytes(Id.BYTES, buffer.length());
-			byte[] decryptedMsg = identity.decrypt(remoteId, encryptedMsg);
+			// Decrypt directly from the packet data, the plaintext is parsed without any further copy
+			byte[] decryptedMsg = identity.decrypt(remoteId, data, offset + Id.BYTES, buffer.length() - Id.BYTES);
 			message = Message.parse(decryptedMsg, remoteId);
 			message.setId(remoteId);
 			message.setRemote(remoteId, remoteAddress);
@@ -501,14 +715,41 @@ public class RpcServer implements Measured {
 				log.warn("Invalid message from {}@{}, ignored", remoteId, remoteAddress, e);
 			}
 
-			suspiciousNodeDetector.malformedMessage(remoteAddress);
+			malformedMessage(remoteAddress, ingress);
 			if (metrics != null) {
 				metrics.bytesDropped(remoteAddress, buffer.length());
 				metrics.messageDropped(remoteAddress, DHTMetrics.Reason.INVALID);
 			}
-			return;
+			return null;
 		}
 
+		return message;
+	}
+
+	/**
+	 * Reports a malformed message to the suspicious node detector on the DHT context.
+	 *
+	 * @param remoteAddress the sender address
+	 * @param ingress true if called from an ingress shard
+	 */
+	private void malformedMessage(SocketAddress remoteAddress, boolean ingress) {
+		if (ingress)
+			context.runOnContext(() -> suspiciousNodeDetector.malformedMessage(remoteAddress));
+		else
+			suspiciousNodeDetector.malformedMessage(remoteAddress);
+	}
+
+	/**
+	 * Dispatches a decoded message: requests go to the message handler, responses are matched
+	 * with the pending calls. Must be called on the DHT context.
+	 *
+	 * @param message the decoded message
+	 * @param remoteAddress the sender address
+	 * @param length the packet length, for metrics
+	 */
+	private void dispatch(Message message, SocketAddress remoteAddress, int length) {
+		Id remoteId = message.getId();
+
 		log.trace("Received {}:{} from {}@{} : {}", message.getMethod(), message.getType(),
 				remoteId, remoteAddress, message);
 
@@ -549,6 +790,7 @@ public class RpcServer implements Measured {
 					// Update the timeout sampler for non-known nodes to avoid skewing RTT estimates
 					if(!call.isReachableAtCreationTime())
 						timeoutSampler.updateAndRecalc(call.getRTT());
+					lossRate.update(0);
 
 					if (metrics != null) {
 						metrics.responseReceived(message);
@@ -575,7 +817,7 @@ public class RpcServer implements Measured {
 			suspiciousNodeDetector.inconsistent(remoteAddress, remoteId);
 
 			if (metrics != null) {
-				metrics.bytesDropped(remoteAddress, buffer.length());
+				metrics.bytesDropped(remoteAddress, length);
 				metrics.messageDropped(remoteAddress, DHTMetrics.Reason.INCONSISTENT);
 			}
 
@@ -591,7 +833,7 @@ public class RpcServer implements Measured {
 		// - stray response, uptime is high enough that it's a stray from a restart
 		log.warn("Cannot find RPC call for {}[txid:{}]", message.getType(), message.getTxid());
 		if (metrics != null) {
-			metrics.bytesDropped(remoteAddress, buffer.length());
+			metrics.bytesDropped(remoteAddress, length);
 			metrics.messageDropped(remoteAddress, DHTMetrics.Reason.NO_MATCHED_CALL);
 		}
 	}
@@ -611,7 +853,7 @@ public class RpcServer implements Measured {
 			log.info("Throttled (delay {}ms) the RPC call to remote peer {}@{}, {}",
 					delay, call.getTargetId(), call.getTarget().getHost(), call.getRequest());
 
-			context.setTimer(delay, unused -> {
+			callTimer.setTimer(delay, unused -> {
 				outboundThrottle.decrement(call.getTarget().getIpAddress());
 				sendCall(call);
 			});
@@ -624,18 +866,22 @@ public class RpcServer implements Measured {
 
 		// setup call
 		call.setExpectedRttIfAbsent(timeoutSampler::getStallTimeout)
-				.setTimer(context)
+				.setTimer(callTimer)
 				.setTimeoutHandler(c -> {
 					// Remove call and skip if already processed
 					boolean exists = pendingCalls.remove(call.getTxid(), call);
 					if (!exists)
 						return;
 
+					lossRate.update(1);
+
 					// Notify timeout handler
 					if (callTimeoutHandler != null)
 						callTimeoutHandler.accept(c);
 
 					if (metrics != null) {
+						metrics.responseTimeout(call.getRequest());
+
 						// Update loss rate: 0f for successful response, 1f for timeout
 						if (call.isReachableAtCreationTime())
 							metrics.verifiedLossRateUpdate(1f);
@@ -652,9 +898,9 @@ public class RpcServer implements Measured {
 				if (callSentHandler != null)
 					callSentHandler.accept(call);
 
-				// Clear inbound throttle to allow responses
+				// Clear inbound throttle to allow responses, keyed as the inbound count: the /64 prefix for IPv6
 				log.debug("Reset inbound throttle for {}", call.getTarget());
-				inboundThrottle.clear(call.getTarget().getIpAddress());
+				inboundThrottle.clear(AddressKeys.of(call.getTarget().getIpAddress()));
 			} else {
 				pendingCalls.remove(call.getTxid());
 				call.fail(ar.cause());
@@ -669,30 +915,52 @@ public class RpcServer implements Measured {
 	 * @return a Future that completes when the message is sent
 	 */
 	public Future<Void> sendMessage(Message message) {
-		Buffer buffer;
-
 		message.setId(identity.getId());
 
+		// Encode into the thread-local encoder, Jackson only handles the bodies it doesn't know
+		byte[] data;
+		int length;
+		if (MessageEncoder.canEncode(message.getBody())) {
+			MessageEncoder encoder = message.encode();
+			data = encoder.array();
+			length = encoder.length();
+		} else {
+			data = message.toBytes();
+			length = data.length;
+		}
+
+		// Encrypt from the encoder straight into the pooled outbound buffer, behind the sender id
+		// headroom. The buffer is released by us once the send completes.
+		int size = Id.BYTES + CryptoBox.Nonce.BYTES + length + CryptoBox.MAC_BYTES;
+		ByteBuf packet = PooledByteBufAllocator.DEFAULT.heapBuffer(size, size);
 		try {
-			byte[] encryptedMsg = identity.encrypt(message.getRemoteId(), message.toBytes());
-			buffer = Buffer.buffer(encryptedMsg.length + Id.BYTES);
-			buffer.appendBytes(message.getId().bytes());
-			buffer.appendBytes(encryptedMsg);
+			int offset = packet.arrayOffset() + packet.writerIndex();
+			System.arraycopy(message.getId().bytes(), 0, packet.array(), offset, Id.BYTES);
+			int written = identity.encrypt(message.getRemoteId(), data, 0, length, packet.array(), offset + Id.BYTES);
+			packet.writerIndex(packet.writerIndex() + Id.BYTES + written);
 		} catch (CryptoException e) {
+			packet.release();
 			log.error("!!!INTERNAL ERROR: Failed to encrypt message", e);
 			return Future.failedFuture(e);
 		}
 
+		int packetSize = packet.readableBytes();
+		Buffer buffer = BufferInternal.buffer(packet);
 		SocketAddress remote = message.getRemoteAddress();
 		return socket.send(buffer, remote.port(), remote.host()).andThen(ar -> {
+			packet.release();
+
 			if (ar.succeeded()) {
 				log.trace("Sent {}/{} to {}@{}: {}", message.getMethod(), message.getType(),
 						message.getRemoteId(), remote, message);
 
 				if (metrics != null) {
-					metrics.bytesWritten(remote, buffer.length());
+					metrics.bytesWritten(remote, packetSize);
 					metrics.messageSent(remote);
-					metrics.requestSent(message);
+					if (message.isRequest())
+						metrics.requestSent(message);
+					else
+						metrics.responseSent(message);
 				}
 			} else {
 				if (log.isDebugEnabled())
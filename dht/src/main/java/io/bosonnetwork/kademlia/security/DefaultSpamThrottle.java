@@ -23,10 +23,7 @@
 
 package io.bosonnetwork.kademlia.security;
 
-import java.net.InetAddress;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -34,15 +31,26 @@ import java.util.concurrent.atomic.AtomicLong;
  * A thread-safe rate limiter that restricts requests per IP address using a token bucket algorithm.
  * It allows a specified number of requests per second with a configurable burst capacity.
  * The throttle maintains request counts and periodically decays them based on elapsed time.
+ * <p>
+ * The counts are kept in open addressing tables of primitive arrays, keyed by the address keys
+ * and split into lock-striped segments, so counting a request allocates nothing. The decay is
+ * lazy: every entry records the decay period it was last updated in, and the elapsed periods are
+ * subtracted when the entry is visited again. {@link #decay()} only sweeps the entries decayed to
+ * zero; a segment also sweeps them before it grows.
  */
 public class DefaultSpamThrottle implements SpamThrottle {
 	private static final int DEFAULT_LIMIT_PER_SECOND = 32;
 	private static final int DEFAULT_BURST_CAPACITY = 128;
 
+	private static final int SEGMENTS = 16; // power of 2
+	private static final int SEGMENT_INITIAL_CAPACITY = 16; // power of 2
+
 	private final int limitPerSecond;
 	private final int burstCapacity;
 
-	private final Map<InetAddress, Integer> counter;
+	private final Segment[] segments;
+	// the decay periods are whole seconds since this time
+	private final long startTime;
 	private final AtomicLong lastDecayTime;
 
 	/**
@@ -59,8 +67,12 @@ public class DefaultSpamThrottle implements SpamThrottle {
 		this.limitPerSecond = limitPerSecond;
 		this.burstCapacity = burstCapacity;
 
-		this.counter = new ConcurrentHashMap<>();
-		this.lastDecayTime = new AtomicLong(System.currentTimeMillis());
+		this.segments = new Segment[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++)
+			segments[i] = new Segment();
+
+		this.startTime = System.currentTimeMillis();
+		this.lastDecayTime = new AtomicLong(startTime);
 	}
 
 	/**
@@ -70,28 +82,34 @@ public class DefaultSpamThrottle implements SpamThrottle {
 		this(DEFAULT_LIMIT_PER_SECOND, DEFAULT_BURST_CAPACITY);
 	}
 
-	@Override
-	public boolean incrementAndCheck(String addr) {
-		decay(); // decay if needed
+	private static long mix(long key) {
+		// MurmurHash3 fmix64
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return key;
+	}
 
-		try {
-			return incrementAndCheck(InetAddress.getByName(addr));
-		} catch (Exception e) {
-			return true; // throttle on error
-		}
+	private Segment segment(long hash) {
+		return segments[(int) hash & (SEGMENTS - 1)];
+	}
+
+	private int period(long now) {
+		return (int) ((now - startTime) / 1000);
 	}
 
 	/**
-	 * Increments the request count for an address and checks if the burst limit is reached.
+	 * Increments the request count for an address key and checks if the burst limit is reached.
 	 *
-	 * @param addr The IP address to track.
+	 * @param key The address key to track.
 	 * @return true if the burst limit is reached or exceeded, false otherwise.
 	 */
 	@Override
-	public boolean incrementAndCheck(InetAddress addr) {
-		decay(); // decay if needed
-
-		int count = counter.compute(addr, (a, c) -> c == null ? 1 : Math.min(c + 1, burstCapacity));
+	public boolean incrementAndCheck(long key) {
+		long hash = mix(key);
+		int count = segment(hash).increment(key, hash, period(System.currentTimeMillis()), burstCapacity);
 		return count >= burstCapacity;
 	}
 
@@ -99,41 +117,42 @@ public class DefaultSpamThrottle implements SpamThrottle {
 	 * Increments the request count and estimates the delay (in milliseconds)
 	 * needed before the next request is allowed.
 	 *
-	 * @param addr The IP address to check and increment.
+	 * @param key The address key to check and increment.
 	 * @return The estimated delay in milliseconds, or 0 if within limits.
 	 */
 	@Override
-	public int incrementAndEstimateDelay(InetAddress addr) {
-		decay(); // decay if needed
-
-		int count = counter.compute(addr, (a, c) -> c == null ? 1 : c + 1);
+	public int incrementAndEstimateDelay(long key) {
+		long now = System.currentTimeMillis();
+		long hash = mix(key);
+		int count = segment(hash).increment(key, hash, period(now), Integer.MAX_VALUE);
 		if (count < burstCapacity)
 			return 0;
 
-		long now = System.currentTimeMillis();
-		int decayDelay = (int) (1000 + lastDecayTime.get() - now);
+		int decayDelay = (int) (1000 - (now - startTime) % 1000);
 		// IMPORTANT: +1 to fix that throttled by peer
 		return decayDelay + ((count - burstCapacity + 1) * 1000 / limitPerSecond);
 	}
 
 	/**
-	 * Decrements the request count for an address, removing it if it reaches zero.
+	 * Decrements the request count for an address key, removing it if it reaches zero.
 	 *
-	 * @param addr The IP address to decrement.
+	 * @param key The address key to decrement.
 	 */
 	@Override
-	public void decrement(InetAddress addr) {
-		counter.computeIfPresent(addr, (a, c) -> c <= 1 ? null : c - 1);
+	public void decrement(long key) {
+		long hash = mix(key);
+		segment(hash).decrement(key, hash, period(System.currentTimeMillis()));
 	}
 
 	/**
-	 * Clears the request count for an address.
+	 * Clears the request count for an address key.
 	 *
-	 * @param addr The IP address to clear.
+	 * @param key The address key to clear.
 	 */
 	@Override
-	public void clear(InetAddress addr) {
-		counter.remove(addr);
+	public void clear(long key) {
+		long hash = mix(key);
+		segment(hash).remove(key, hash);
 	}
 
 	/**
@@ -141,25 +160,25 @@ public class DefaultSpamThrottle implements SpamThrottle {
 	 */
 	@Override
 	public void clear() {
-		counter.clear();
+		for (Segment segment : segments)
+			segment.clear();
 	}
 
 	/**
-	 * Checks if the address has reached or exceeded the burst limit.
+	 * Checks if the address key has reached or exceeded the burst limit.
 	 *
-	 * @param addr The IP address to check.
+	 * @param key The address key to check.
 	 * @return true if the burst limit is reached or exceeded, false otherwise.
 	 */
 	@Override
-	public boolean isLimitReached(InetAddress addr) {
-		decay(); // decay if needed
-
-		return counter.getOrDefault(addr, 0) >= burstCapacity;
+	public boolean isLimitReached(long key) {
+		long hash = mix(key);
+		return segment(hash).get(key, hash, period(System.currentTimeMillis())) >= burstCapacity;
 	}
 
 	/**
-	 * Decays request counts for all IP addresses based on elapsed time since last decay.
-	 * Removes entries with zero or negative counts after decay.
+	 * Removes the entries decayed to zero, at most once per second. The counts themselves are
+	 * decayed lazily on access.
 	 */
 	@Override
 	public void decay() {
@@ -167,23 +186,177 @@ public class DefaultSpamThrottle implements SpamThrottle {
 		long last = lastDecayTime.get();
 		long interval = TimeUnit.MILLISECONDS.toSeconds(now - last);
 
-		// use (last + interval * 1000) instead of now for randomization of decay time
 		if (interval < 1 || !lastDecayTime.compareAndSet(last, last + interval * 1000))
 			return;
 
-		int delta = (int) (interval * limitPerSecond);
-		// counter.entrySet().removeIf(entry -> entry.getValue() <= delta);
-		// counter.replaceAll((k, v) -> v - delta);
-		// ==>>
-		// remove and update entries in a single pass — safely and efficiently
-		Iterator<Map.Entry<InetAddress, Integer>> it = counter.entrySet().iterator();
-		while (it.hasNext()) {
-			Map.Entry<InetAddress, Integer> entry = it.next();
-			int value = entry.getValue();
-			if (value <= delta)
-				it.remove();
-			else
-				entry.setValue(value - delta);
+		int period = period(now);
+		for (Segment segment : segments)
+			segment.sweep(period);
+	}
+
+	/**
+	 * A linear probing hash table of the counts, guarded by its own monitor. A slot is empty if its
+	 * count is 0; the entries are deleted by backward shifting, so no tombstones are needed.
+	 */
+	private final class Segment {
+		private long[] keys;
+		private int[] counts;
+		private int[] periods;
+		private int size;
+
+		Segment() {
+			allocate(SEGMENT_INITIAL_CAPACITY);
+		}
+
+		private void allocate(int capacity) {
+			keys = new long[capacity];
+			counts = new int[capacity];
+			periods = new int[capacity];
+			size = 0;
+		}
+
+		private int slot(long hash) {
+			return (int) (hash >>> 32) & (keys.length - 1);
+		}
+
+		private int find(long key, long hash) {
+			int mask = keys.length - 1;
+			for (int i = slot(hash); counts[i] != 0; i = (i + 1) & mask) {
+				if (keys[i] == key)
+					return i;
+			}
+
+			return -1;
+		}
+
+		// the count of the slot after the lazy decay, 0 if expired
+		private int decayed(int index, int period) {
+			long elapsed = period - periods[index];
+			long count = counts[index] - elapsed * limitPerSecond;
+			return count > 0 ? (int) count : 0;
+		}
+
+		synchronized int increment(long key, long hash, int period, int max) {
+			int index = find(key, hash);
+			if (index >= 0) {
+				int count = decayed(index, period);
+				count = count < max ? count + 1 : max;
+				counts[index] = count;
+				periods[index] = period;
+				return count;
+			}
+
+			// keep the load factor under 0.75
+			if ((size + 1) << 2 > keys.length * 3)
+				rehash(period, live(period));
+
+			put(key, hash, 1, period);
+			return 1;
+		}
+
+		synchronized void decrement(long key, long hash, int period) {
+			int index = find(key, hash);
+			if (index < 0)
+				return;
+
+			int count = decayed(index, period);
+			if (count <= 1) {
+				delete(index);
+			} else {
+				counts[index] = count - 1;
+				periods[index] = period;
+			}
+		}
+
+		synchronized int get(long key, long hash, int period) {
+			int index = find(key, hash);
+			return index < 0 ? 0 : decayed(index, period);
+		}
+
+		synchronized void remove(long key, long hash) {
+			int index = find(key, hash);
+			if (index >= 0)
+				delete(index);
+		}
+
+		synchronized void clear() {
+			if (keys.length == SEGMENT_INITIAL_CAPACITY) {
+				Arrays.fill(counts, 0);
+				size = 0;
+			} else {
+				allocate(SEGMENT_INITIAL_CAPACITY);
+			}
+		}
+
+		synchronized void sweep(int period) {
+			int live = live(period);
+			if (live != size)
+				rehash(period, live);
+		}
+
+		private void put(long key, long hash, int count, int period) {
+			int mask = keys.length - 1;
+			int i = slot(hash);
+			while (counts[i] != 0)
+				i = (i + 1) & mask;
+
+			keys[i] = key;
+			counts[i] = count;
+			periods[i] = period;
+			size++;
+		}
+
+		// backward shift deletion: move up the following entries of the cluster that may not
+		// be reached from their home slots any more
+		private void delete(int index) {
+			int mask = keys.length - 1;
+			int hole = index;
+			for (int i = (hole + 1) & mask; counts[i] != 0; i = (i + 1) & mask) {
+				int home = slot(mix(keys[i]));
+				// move it if its home slot is not cyclically in (hole, i]
+				boolean reachable = hole <= i ? (home > hole && home <= i) : (home > hole || home <= i);
+				if (!reachable) {
+					keys[hole] = keys[i];
+					counts[hole] = counts[i];
+					periods[hole] = periods[i];
+					hole = i;
+				}
+			}
+
+			counts[hole] = 0;
+			size--;
+		}
+
+		private int live(int period) {
+			int live = 0;
+			for (int i = 0; i < keys.length; i++) {
+				if (counts[i] != 0 && decayed(i, period) > 0)
+					live++;
+			}
+
+			return live;
+		}
+
+		// drops the expired entries, and resizes the table to keep the live ones under half full
+		private void rehash(int period, int live) {
+			int capacity = SEGMENT_INITIAL_CAPACITY;
+			while ((live + 1) << 1 > capacity)
+				capacity <<= 1;
+
+			long[] oldKeys = keys;
+			int[] oldCounts = counts;
+			int[] oldPeriods = periods;
+			int oldLength = keys.length;
+			allocate(capacity);
+			for (int i = 0; i < oldLength; i++) {
+				if (oldCounts[i] == 0)
+					continue;
+
+				long elapsed = period - oldPeriods[i];
+				long count = oldCounts[i] - elapsed * limitPerSecond;
+				if (count > 0)
+					put(oldKeys[i], mix(oldKeys[i]), (int) count, period);
+			}
 		}
 	}
-}
\ No newline at end of file
+}
@@ -43,19 +43,37 @@ public class DisabledSpamThrottle implements SpamThrottle {
 		return false;
 	}
 
+	@Override
+	public boolean incrementAndCheck(long key) {
+		return false;
+	}
+
 	@Override
 	public int incrementAndEstimateDelay(InetAddress addr) {
 		return 0;
 	}
 
+	@Override
+	public int incrementAndEstimateDelay(long key) {
+		return 0;
+	}
+
 	@Override
 	public void decrement(InetAddress addr) {
 	}
 
+	@Override
+	public void decrement(long key) {
+	}
+
 	@Override
 	public void clear(InetAddress addr) {
 	}
 
+	@Override
+	public void clear(long key) {
+	}
+
 	@Override
 	public void clear() {
 	}
@@ -65,6 +83,11 @@ public class DisabledSpamThrottle implements SpamThrottle {
 		return false;
 	}
 
+	@Override
+	public boolean isLimitReached(long key) {
+		return false;
+	}
+
 	@Override
 	public void decay() {
 	}
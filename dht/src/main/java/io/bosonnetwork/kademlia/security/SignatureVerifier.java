@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.security;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+
+import io.bosonnetwork.PeerInfo;
+import io.bosonnetwork.Value;
+
+/**
+ * Offloads the signature verification of the inbound {@link Value}s and {@link PeerInfo}s from the
+ * event loop to a dedicated worker pool.
+ * <p>
+ * The records are first checked against the {@link VerificationCache} on the calling thread, the
+ * cache hits complete immediately. The remaining records of one message are verified as one batch
+ * on the worker pool, so a response carrying dozens of peers costs a single hop to the pool and
+ * back. The results are delivered on the calling context.
+ * <p>
+ * The number of pending batches is bounded. When the pool falls behind, the new batches are shed
+ * with a {@link RejectedExecutionException} instead of queueing up, the caller should drop the
+ * message as if it never arrived.
+ * <p>
+ * A dedicated pool keeps the CPU-bound verifications from occupying the shared Vert.x worker
+ * pool that also runs the storage operations.
+ */
+public class SignatureVerifier implements MeterBinder {
+	public static final int DEFAULT_MAX_PENDING = 1024;
+
+	private final VerificationCache cache;
+	private final WorkerExecutor executor;
+	private final int maxPending;
+
+	private final AtomicInteger pending;
+	private final LongAdder offloaded;
+	private final LongAdder rejected;
+
+	/**
+	 * Creates a signature verifier.
+	 *
+	 * @param vertx      the Vert.x instance
+	 * @param cache      the verification cache
+	 * @param poolSize   the number of the verification threads
+	 * @param maxPending the maximum number of the pending batches, the excess is shed
+	 */
+	public SignatureVerifier(Vertx vertx, VerificationCache cache, int poolSize, int maxPending) {
+		if (poolSize <= 0)
+			throw new IllegalArgumentException("Invalid pool size: " + poolSize);
+		if (maxPending <= 0)
+			throw new IllegalArgumentException("Invalid max pending: " + maxPending);
+
+		this.cache = cache;
+		this.executor = vertx.createSharedWorkerExecutor("boson-verifier", poolSize);
+		this.maxPending = maxPending;
+
+		this.pending = new AtomicInteger();
+		this.offloaded = new LongAdder();
+		this.rejected = new LongAdder();
+	}
+
+	/**
+	 * Creates a signature verifier with half of the available processors and the default
+	 * pending limit.
+	 *
+	 * @param vertx the Vert.x instance
+	 * @param cache the verification cache
+	 */
+	public SignatureVerifier(Vertx vertx, VerificationCache cache) {
+		this(vertx, cache, Math.max(1, Runtime.getRuntime().availableProcessors() / 2), DEFAULT_MAX_PENDING);
+	}
+
+	/**
+	 * Verifies the value.
+	 *
+	 * @param value the value to verify
+	 * @return a {@link Future} containing {@code true} if the value is valid, or failed with a
+	 *         {@link RejectedExecutionException} if the verification is shed
+	 */
+	public Future<Boolean> verify(Value value) {
+		Boolean valid = cache.getIfPresent(value);
+		if (valid != null)
+			return Future.succeededFuture(valid);
+
+		// immutable values are checked by a single hash, not worth the hop
+		if (value.isImmutable())
+			return Future.succeededFuture(cache.verify(value));
+
+		return offload(() -> cache.verify(value));
+	}
+
+	/**
+	 * Verifies all the peers, stops at the first invalid one.
+	 *
+	 * @param peers the peers to verify
+	 * @return a {@link Future} containing {@code true} if all the peers are valid, or failed with a
+	 *         {@link RejectedExecutionException} if the verification is shed
+	 */
+	public Future<Boolean> verify(Collection<PeerInfo> peers) {
+		List<PeerInfo> uncached = new ArrayList<>(peers.size());
+		for (PeerInfo peer : peers) {
+			Boolean valid = cache.getIfPresent(peer);
+			if (valid == null)
+				uncached.add(peer);
+			else if (!valid)
+				return Future.succeededFuture(false);
+		}
+
+		if (uncached.isEmpty())
+			return Future.succeededFuture(true);
+
+		return offload(() -> {
+			for (PeerInfo peer : uncached) {
+				if (!cache.verify(peer))
+					return false;
+			}
+
+			return true;
+		});
+	}
+
+	private Future<Boolean> offload(Callable<Boolean> batch) {
+		if (pending.incrementAndGet() > maxPending) {
+			pending.decrementAndGet();
+			rejected.increment();
+			return Future.failedFuture(new RejectedExecutionException("Too many pending verifications"));
+		}
+
+		offloaded.increment();
+		return executor.executeBlocking(batch, false).andThen(ar -> pending.decrementAndGet());
+	}
+
+	/**
+	 * Returns the verification cache.
+	 *
+	 * @return the verification cache
+	 */
+	public VerificationCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Returns the number of the batches waiting for or under verification.
+	 *
+	 * @return the number of the pending batches
+	 */
+	public int getPendingCount() {
+		return pending.get();
+	}
+
+	/**
+	 * Returns the number of the batches offloaded to the worker pool.
+	 *
+	 * @return the number of the offloaded batches
+	 */
+	public long getOffloadedCount() {
+		return offloaded.sum();
+	}
+
+	/**
+	 * Returns the number of the batches shed because of too many pending verifications.
+	 *
+	 * @return the number of the rejected batches
+	 */
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	/**
+	 * Closes the worker pool. The pending verifications are still completed.
+	 *
+	 * @return a {@link Future} that completes when the pool is closed
+	 */
+	public Future<Void> close() {
+		return executor.close();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		String prefix = "boson.dht.verification.";
+
+		FunctionCounter.builder(prefix + "batches", offloaded, LongAdder::doubleValue)
+				.tags("result", "offloaded")
+				.register(registry);
+		FunctionCounter.builder(prefix + "batches", rejected, LongAdder::doubleValue)
+				.tags("result", "rejected")
+				.register(registry);
+		Gauge.builder(prefix + "pending", pending, AtomicInteger::get)
+				.description("Batches waiting for or under verification")
+				.register(registry);
+	}
+}
@@ -25,8 +25,16 @@ package io.bosonnetwork.kademlia.security;
 
 import java.net.InetAddress;
 
+import io.bosonnetwork.kademlia.utils.AddressKeys;
+
 /**
  * Interface for throttling requests based on IP address.
+ * <p>
+ * The requests are counted per address key (see {@link AddressKeys}). The check variants for
+ * {@link InetAddress} and the address literals count per IPv4 address and per /64 prefix for IPv6,
+ * to throttle the inbound packets of a subnet together. The delay, decrement and clear variants for
+ * {@link InetAddress} count per single host ({@link AddressKeys#ofHost(InetAddress)}), so the
+ * outbound delays are not shared across a subnet, and a host can not clear the count of its subnet.
  */
 public interface SpamThrottle {
 	/**
@@ -56,8 +64,17 @@ public interface SpamThrottle {
 		return new DisabledSpamThrottle();
 	}
 
-	@Deprecated
-	boolean incrementAndCheck(String addr);
+	/**
+	 * Increments the request count for an address literal and checks if the burst limit is reached.
+	 *
+	 * @param addr The IP address literal to track.
+	 * @return true if the burst limit is reached or exceeded, or the literal is not a valid IP address;
+	 *         false otherwise.
+	 */
+	default boolean incrementAndCheck(String addr) {
+		long key = AddressKeys.of(addr);
+		return key == AddressKeys.INVALID || incrementAndCheck(key); // throttle on error
+	}
 
 	/**
 	 * Increments the request count for an address and checks if the burst limit is reached.
@@ -65,7 +82,17 @@ public interface SpamThrottle {
 	 * @param addr The IP address to track.
 	 * @return true if the burst limit is reached or exceeded, false otherwise.
 	 */
-	boolean incrementAndCheck(InetAddress addr);
+	default boolean incrementAndCheck(InetAddress addr) {
+		return incrementAndCheck(AddressKeys.of(addr));
+	}
+
+	/**
+	 * Increments the request count for an address key and checks if the burst limit is reached.
+	 *
+	 * @param key The address key, see {@link AddressKeys}.
+	 * @return true if the burst limit is reached or exceeded, false otherwise.
+	 */
+	boolean incrementAndCheck(long key);
 
 	/**
 	 * Increments the request count and estimates the delay (in milliseconds)
@@ -74,21 +101,51 @@ public interface SpamThrottle {
 	 * @param addr The IP address to check and increment.
 	 * @return The estimated delay in milliseconds, or 0 if within limits.
 	 */
-	int incrementAndEstimateDelay(InetAddress addr);
+	default int incrementAndEstimateDelay(InetAddress addr) {
+		return incrementAndEstimateDelay(AddressKeys.ofHost(addr));
+	}
+
+	/**
+	 * Increments the request count and estimates the delay (in milliseconds)
+	 * needed before the next request is allowed.
+	 *
+	 * @param key The address key to check and increment.
+	 * @return The estimated delay in milliseconds, or 0 if within limits.
+	 */
+	int incrementAndEstimateDelay(long key);
 
 	/**
 	 * Decrements the request count for an address, removing it if it reaches zero.
 	 *
 	 * @param addr The IP address to decrement.
 	 */
-	void decrement(InetAddress addr);
+	default void decrement(InetAddress addr) {
+		decrement(AddressKeys.ofHost(addr));
+	}
 
 	/**
-	 * Clears the request count for an address.
+	 * Decrements the request count for an address key, removing it if it reaches zero.
+	 *
+	 * @param key The address key to decrement.
+	 */
+	void decrement(long key);
+
+	/**
+	 * Clears the request count for an address, keyed as {@link #incrementAndCheck(InetAddress)}
+	 * does: an IPv6 address clears the count of its /64 prefix.
 	 *
 	 * @param addr The IP address to clear.
 	 */
-	void clear(InetAddress addr);
+	default void clear(InetAddress addr) {
+		clear(AddressKeys.of(addr));
+	}
+
+	/**
+	 * Clears the request count for an address key.
+	 *
+	 * @param key The address key to clear.
+	 */
+	void clear(long key);
 
 	/**
 	 * Clears all request counts.
@@ -101,11 +158,21 @@ public interface SpamThrottle {
 	 * @param addr The IP address to check.
 	 * @return true if the burst limit is reached or exceeded, false otherwise.
 	 */
-	boolean isLimitReached(InetAddress addr);
+	default boolean isLimitReached(InetAddress addr) {
+		return isLimitReached(AddressKeys.of(addr));
+	}
+
+	/**
+	 * Checks if the address key has reached or exceeded the burst limit.
+	 *
+	 * @param key The address key to check.
+	 * @return true if the burst limit is reached or exceeded, false otherwise.
+	 */
+	boolean isLimitReached(long key);
 
 	/**
 	 * Decays request counts for all IP addresses based on elapsed time since last decay.
 	 * Removes entries with zero or negative counts after decay.
 	 */
 	void decay();
-}
\ No newline at end of file
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.PeerInfo;
+import io.bosonnetwork.Value;
+import io.bosonnetwork.crypto.Hash;
+
+/**
+ * Bounded cache of the signature verification results of the {@link Value}s and {@link PeerInfo}s.
+ * <p>
+ * The same signed record arrives again and again during the lookups and re-announces, this cache
+ * turns the repeated Ed25519 verifications into a SHA-256 digest plus a hash lookup. The records
+ * are keyed by id, fingerprint, sequence number and a SHA-256 hash over all the signed fields and
+ * the signatures, so a cached result only ever applies to a byte-identical record.
+ * <p>
+ * That also makes the negative results safe to cache: a rejected record can never shadow a valid
+ * record with the same id and sequence number. The negative results expire sooner anyway, to keep
+ * a flood of garbage records from occupying the cache.
+ * <p>
+ * Immutable values are not cached, they are checked by hashing the data, as cheap as the cache key.
+ * <p>
+ * This class is thread-safe.
+ */
+public class VerificationCache implements MeterBinder {
+	public static final int DEFAULT_MAX_SIZE = 32768;
+	public static final Duration DEFAULT_VALID_EXPIRATION = Duration.ofMinutes(30);
+	public static final Duration DEFAULT_INVALID_EXPIRATION = Duration.ofMinutes(2);
+
+	private static final byte TYPE_VALUE = 1;
+	private static final byte TYPE_PEER = 2;
+
+	private static final ThreadLocal<MessageDigest> sha256 = ThreadLocal.withInitial(Hash::sha256);
+
+	private final Cache<Key, Boolean> cache;
+	private final LongAdder invalids;
+
+	private record Key(Id id, long fingerprint, int sequenceNumber, byte[] hash) {
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+
+			return o instanceof Key that && fingerprint == that.fingerprint &&
+					sequenceNumber == that.sequenceNumber && id.equals(that.id) &&
+					Arrays.equals(hash, that.hash);
+		}
+
+		@Override
+		public int hashCode() {
+			// the hash is already uniformly distributed
+			return (hash[0] & 0xFF) << 24 | (hash[1] & 0xFF) << 16 | (hash[2] & 0xFF) << 8 | (hash[3] & 0xFF);
+		}
+	}
+
+	/**
+	 * Creates a verification cache.
+	 *
+	 * @param maxSize           the maximum number of cached results, 0 to disable the cache
+	 * @param validExpiration   how long a positive result is kept
+	 * @param invalidExpiration how long a negative result is kept
+	 */
+	public VerificationCache(int maxSize, Duration validExpiration, Duration invalidExpiration) {
+		if (maxSize < 0)
+			throw new IllegalArgumentException("Invalid max size: " + maxSize);
+
+		this.invalids = new LongAdder();
+
+		if (maxSize == 0) {
+			this.cache = null;
+			return;
+		}
+
+		long validNanos = validExpiration.toNanos();
+		long invalidNanos = invalidExpiration.toNanos();
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfter(new Expiry<Key, Boolean>() {
+					@Override
+					public long expireAfterCreate(Key key, Boolean valid, long currentTime) {
+						return valid ? validNanos : invalidNanos;
+					}
+
+					@Override
+					public long expireAfterUpdate(Key key, Boolean valid, long currentTime, long currentDuration) {
+						return expireAfterCreate(key, valid, currentTime);
+					}
+
+					@Override
+					public long expireAfterRead(Key key, Boolean valid, long currentTime, long currentDuration) {
+						return currentDuration;
+					}
+				})
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * Creates a verification cache with the default size and expirations.
+	 */
+	public VerificationCache() {
+		this(DEFAULT_MAX_SIZE, DEFAULT_VALID_EXPIRATION, DEFAULT_INVALID_EXPIRATION);
+	}
+
+	/**
+	 * Creates a disabled verification cache that verifies every record.
+	 *
+	 * @return a new disabled VerificationCache instance
+	 */
+	public static VerificationCache disabled() {
+		return new VerificationCache(0, DEFAULT_VALID_EXPIRATION, DEFAULT_INVALID_EXPIRATION);
+	}
+
+	/**
+	 * Checks if the value is valid, same as {@link Value#isValid()}.
+	 *
+	 * @param value the value to check
+	 * @return {@code true} if the value is valid, {@code false} otherwise
+	 */
+	public boolean isValid(Value value) {
+		if (cache == null || !value.isMutable())
+			return count(value.isValid());
+
+		Key key = key(value);
+		Boolean valid = cache.getIfPresent(key);
+		return valid != null ? count(valid) : verify(key, value.isValid());
+	}
+
+	/**
+	 * Checks if the peer info is valid, same as {@link PeerInfo#isValid()}.
+	 *
+	 * @param peer the peer info to check
+	 * @return {@code true} if the peer info is valid, {@code false} otherwise
+	 */
+	public boolean isValid(PeerInfo peer) {
+		if (cache == null)
+			return count(peer.isValid());
+
+		Key key = key(peer);
+		Boolean valid = cache.getIfPresent(key);
+		return valid != null ? count(valid) : verify(key, peer.isValid());
+	}
+
+	/**
+	 * Returns the cached verification result of the value without verifying it.
+	 *
+	 * @param value the value to check
+	 * @return the cached result, or null if the value is not cached or not cacheable
+	 */
+	public Boolean getIfPresent(Value value) {
+		if (cache == null || !value.isMutable())
+			return null;
+
+		Boolean valid = cache.getIfPresent(key(value));
+		return valid != null ? count(valid) : null;
+	}
+
+	/**
+	 * Returns the cached verification result of the peer info without verifying it.
+	 *
+	 * @param peer the peer info to check
+	 * @return the cached result, or null if the peer info is not cached
+	 */
+	public Boolean getIfPresent(PeerInfo peer) {
+		if (cache == null)
+			return null;
+
+		Boolean valid = cache.getIfPresent(key(peer));
+		return valid != null ? count(valid) : null;
+	}
+
+	/**
+	 * Verifies the value and caches the result, without looking up the cache first.
+	 *
+	 * @param value the value to verify
+	 * @return {@code true} if the value is valid, {@code false} otherwise
+	 */
+	public boolean verify(Value value) {
+		if (cache == null || !value.isMutable())
+			return count(value.isValid());
+
+		return verify(key(value), value.isValid());
+	}
+
+	/**
+	 * Verifies the peer info and caches the result, without looking up the cache first.
+	 *
+	 * @param peer the peer info to verify
+	 * @return {@code true} if the peer info is valid, {@code false} otherwise
+	 */
+	public boolean verify(PeerInfo peer) {
+		if (cache == null)
+			return count(peer.isValid());
+
+		return verify(key(peer), peer.isValid());
+	}
+
+	private boolean verify(Key key, boolean valid) {
+		cache.put(key, valid);
+		return count(valid);
+	}
+
+	private boolean count(boolean valid) {
+		if (!valid)
+			invalids.increment();
+		return valid;
+	}
+
+	private static Key key(Value value) {
+		return new Key(value.getId(), 0, value.getSequenceNumber(), hash(value));
+	}
+
+	private static Key key(PeerInfo peer) {
+		return new Key(peer.getId(), peer.getFingerprint(), peer.getSequenceNumber(), hash(peer));
+	}
+
+	private static byte[] hash(Value value) {
+		MessageDigest md = sha256.get();
+		md.update(TYPE_VALUE);
+		update(md, value.getPublicKey());
+		update(md, value.getRecipient());
+		update(md, value.getNonce());
+		update(md, value.getSequenceNumber());
+		update(md, value.getData());
+		update(md, value.getSignature());
+		return md.digest();
+	}
+
+	private static byte[] hash(PeerInfo peer) {
+		MessageDigest md = sha256.get();
+		md.update(TYPE_PEER);
+		update(md, peer.getId());
+		update(md, peer.getNonce());
+		update(md, peer.getSequenceNumber());
+		update(md, peer.getNodeId());
+		update(md, peer.getNodeSignature());
+		update(md, peer.getFingerprint());
+		update(md, peer.getEndpoint() == null ? null : peer.getEndpoint().getBytes(StandardCharsets.UTF_8));
+		update(md, peer.getExtraData());
+		update(md, peer.getSignature());
+		return md.digest();
+	}
+
+	// The fields are length-prefixed, so different records never produce the same input
+	private static void update(MessageDigest md, Id id) {
+		update(md, id == null ? null : id.bytes());
+	}
+
+	private static void update(MessageDigest md, byte[] bytes) {
+		if (bytes == null) {
+			update(md, -1);
+		} else {
+			update(md, bytes.length);
+			md.update(bytes);
+		}
+	}
+
+	private static void update(MessageDigest md, int v) {
+		md.update((byte) (v >>> 24));
+		md.update((byte) (v >>> 16));
+		md.update((byte) (v >>> 8));
+		md.update((byte) v);
+	}
+
+	private static void update(MessageDigest md, long v) {
+		update(md, (int) (v >>> 32));
+		update(md, (int) v);
+	}
+
+	/**
+	 * Returns the number of verifications answered from the cache.
+	 *
+	 * @return the number of cache hits
+	 */
+	public long getHitCount() {
+		return cache == null ? 0 : cache.stats().hitCount();
+	}
+
+	/**
+	 * Returns the number of verifications that had to check the signatures.
+	 *
+	 * @return the number of cache misses
+	 */
+	public long getMissCount() {
+		return cache == null ? 0 : cache.stats().missCount();
+	}
+
+	/**
+	 * Returns the number of rejected records, cached or not.
+	 *
+	 * @return the number of invalid records
+	 */
+	public long getInvalidCount() {
+		return invalids.sum();
+	}
+
+	/**
+	 * Returns the approximate number of cached results.
+	 *
+	 * @return the number of cached results
+	 */
+	public long size() {
+		return cache == null ? 0 : cache.estimatedSize();
+	}
+
+	/**
+	 * Discards all the cached results.
+	 */
+	public void clear() {
+		if (cache != null)
+			cache.invalidateAll();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		String prefix = "boson.dht.verification.";
+
+		FunctionCounter.builder(prefix + "requests", this, VerificationCache::getHitCount)
+				.tags("result", "hit")
+				.register(registry);
+		FunctionCounter.builder(prefix + "requests", this, VerificationCache::getMissCount)
+				.tags("result", "miss")
+				.register(registry);
+		FunctionCounter.builder(prefix + "invalid", this, VerificationCache::getInvalidCount)
+				.description("Records failed the verification")
+				.register(registry);
+
+		if (cache != null) {
+			FunctionCounter.builder(prefix + "evictions", cache, c -> c.stats().evictionCount())
+					.register(registry);
+			Gauge.builder(prefix + "size", cache, Cache::estimatedSize)
+					.description("Cached verification results")
+					.register(registry);
+		}
+	}
+}
@@ -0,0 +1,512 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.storage;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.streams.ReadStream;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.PeerInfo;
+import io.bosonnetwork.Value;
+import io.bosonnetwork.vertx.VertxCaffeine;
+
+/**
+ * Read-through cache in front of another {@link DataStorage}.
+ * <p>
+ * Caches the lookups served to the network: {@link #getValue(Id)} and
+ * {@link #getPeers(Id, int, int)}, including the negative results. The concurrent lookups of the
+ * same key share one storage query. The cached entries are bounded by the approximate memory they
+ * use, and expire with the earliest record they hold, as reported by the expiring lookups of the
+ * storage, so the cached records never outlive the rows {@link #purge()} removes. The entries also
+ * expire after the value or peer expiration given to {@link #initialize(Vertx, long, long)}.
+ * <p>
+ * All the writes go through to the underlying storage, and invalidate the affected keys once
+ * completed; a lookup racing with a write is served but not cached.
+ * <p>
+ * The other reads are not cached. This class is thread-safe.
+ */
+public class CachedDataStorage implements DataStorage, MeterBinder {
+	// Approximate object overhead of a cached record, in bytes
+	private static final int ENTRY_WEIGHT = 128;
+	private static final int VALUE_WEIGHT = 160;
+	private static final int PEER_WEIGHT = 192;
+	// Distinct peer queries cached per peer id
+	private static final int MAX_QUERIES = 8;
+
+	private final DataStorage delegate;
+	private final long maxWeight;
+	private long valueExpiration;
+	private long peerInfoExpiration;
+
+	private Cache<Id, Entry<Value>> values;
+	private Cache<Id, Entry<List<PeerInfo>>> peers;
+
+	private final LongAdder valueHits = new LongAdder();
+	private final LongAdder valueMisses = new LongAdder();
+	private final LongAdder peerHits = new LongAdder();
+	private final LongAdder peerMisses = new LongAdder();
+
+	/**
+	 * The cached lookups of one key, by query.
+	 */
+	private static class Entry<V> {
+		private final Map<Long, Future<V>> results = new HashMap<>(4);
+		// The earliest expiration time of the cached records
+		private long expiresAt;
+
+		Entry(long expiration) {
+			expiresAt = System.currentTimeMillis() + expiration;
+		}
+
+		synchronized void expireAt(long time) {
+			expiresAt = Math.min(expiresAt, time);
+		}
+
+		synchronized long expiresIn() {
+			return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiresAt - System.currentTimeMillis()));
+		}
+
+		synchronized Future<V> get(long query) {
+			Future<V> future = results.get(query);
+			// never serve the failed lookups
+			return future == null || future.failed() ? null : future;
+		}
+
+		synchronized Future<V> putIfAbsent(long query, Future<V> future) {
+			Future<V> existing = get(query);
+			if (existing != null)
+				return existing;
+
+			if (results.size() >= MAX_QUERIES)
+				results.clear();
+
+			results.put(query, future);
+			return future;
+		}
+
+		synchronized void remove(long query, Future<V> future) {
+			results.remove(query, future);
+		}
+
+		synchronized int weight(ToIntFunction<V> weigher) {
+			int weight = ENTRY_WEIGHT;
+			for (Future<V> future : results.values()) {
+				if (future.succeeded() && future.result() != null)
+					weight += weigher.applyAsInt(future.result());
+			}
+			return weight;
+		}
+	}
+
+	/**
+	 * Creates a cache in front of the given storage.
+	 *
+	 * @param delegate  the underlying storage
+	 * @param maxWeight the approximate maximum memory of the cached records, in bytes
+	 */
+	public CachedDataStorage(DataStorage delegate, long maxWeight) {
+		Objects.requireNonNull(delegate, "delegate");
+		if (maxWeight <= 0)
+			throw new IllegalArgumentException("Invalid cache size: " + maxWeight);
+
+		this.delegate = delegate;
+		this.maxWeight = maxWeight;
+	}
+
+	/**
+	 * Returns the underlying storage.
+	 *
+	 * @return the underlying storage
+	 */
+	public DataStorage getDelegate() {
+		return delegate;
+	}
+
+	private static int weigh(Value value) {
+		return VALUE_WEIGHT + (value.getData() != null ? value.getData().length : 0);
+	}
+
+	private static int weigh(List<PeerInfo> peers) {
+		int weight = 0;
+		for (PeerInfo peer : peers) {
+			weight += PEER_WEIGHT + peer.getEndpoint().length();
+			if (peer.getExtraData() != null)
+				weight += peer.getExtraData().length;
+		}
+		return weight;
+	}
+
+	// Expires the entries with their earliest record, re-computed when a lookup completes
+	private static <V> Expiry<Id, Entry<V>> expiry() {
+		return new Expiry<>() {
+			@Override
+			public long expireAfterCreate(Id id, Entry<V> entry, long currentTime) {
+				return entry.expiresIn();
+			}
+
+			@Override
+			public long expireAfterUpdate(Id id, Entry<V> entry, long currentTime, long currentDuration) {
+				return entry.expiresIn();
+			}
+
+			@Override
+			public long expireAfterRead(Id id, Entry<V> entry, long currentTime, long currentDuration) {
+				return currentDuration;
+			}
+		};
+	}
+
+	@Override
+	public Future<Integer> initialize(Vertx vertx, long valueExpiration, long peerInfoExpiration) {
+		this.valueExpiration = valueExpiration;
+		this.peerInfoExpiration = peerInfoExpiration;
+
+		// half of the memory for each, the value and peer lookups are roughly balanced
+		values = VertxCaffeine.newBuilder(vertx)
+				.maximumWeight(maxWeight / 2)
+				.<Id, Entry<Value>>weigher((id, entry) -> entry.weight(CachedDataStorage::weigh))
+				.expireAfter(CachedDataStorage.<Value>expiry())
+				.recordStats()
+				.build();
+
+		peers = VertxCaffeine.newBuilder(vertx)
+				.maximumWeight(maxWeight - maxWeight / 2)
+				.<Id, Entry<List<PeerInfo>>>weigher((id, entry) -> entry.weight(CachedDataStorage::weigh))
+				.expireAfter(CachedDataStorage.<List<PeerInfo>>expiry())
+				.recordStats()
+				.build();
+
+		return delegate.initialize(vertx, valueExpiration, peerInfoExpiration);
+	}
+
+	@Override
+	public Future<Void> close() {
+		invalidateAll();
+		return delegate.close();
+	}
+
+	@Override
+	public int getSchemaVersion() {
+		return delegate.getSchemaVersion();
+	}
+
+	private static <V> Future<V> lookup(Cache<Id, Entry<V>> cache, Id id, long query, long expiration,
+										LongAdder hits, LongAdder misses, Supplier<Future<Expiring<V>>> loader) {
+		Entry<V> entry = cache.get(id, k -> new Entry<>(expiration));
+		Future<V> future = entry.get(query);
+		if (future != null) {
+			hits.increment();
+			return future;
+		}
+
+		misses.increment();
+		Promise<V> promise = Promise.promise();
+		Future<V> loading = promise.future();
+		future = entry.putIfAbsent(query, loading);
+		if (future != loading)
+			return future;
+
+		loader.get().onComplete(ar -> {
+			if (ar.succeeded()) {
+				entry.expireAt(ar.result().expiresAt());
+				promise.complete(ar.result().result());
+				// re-weigh and re-expire the entry with the result; no-op if invalidated by a write meanwhile
+				cache.asMap().replace(id, entry, entry);
+			} else {
+				promise.fail(ar.cause());
+				entry.remove(query, loading);
+			}
+		});
+		return loading;
+	}
+
+	private <T> Future<T> invalidateValue(Future<T> future, Id id) {
+		return future.andThen(ar -> {
+			if (values != null)
+				values.invalidate(id);
+		});
+	}
+
+	private <T> Future<T> invalidatePeers(Future<T> future, Id id) {
+		return future.andThen(ar -> {
+			if (peers != null)
+				peers.invalidate(id);
+		});
+	}
+
+	private <T> Future<T> invalidatePeers(Future<T> future, List<PeerInfo> peerInfos) {
+		return future.andThen(ar -> {
+			if (peers != null)
+				peerInfos.forEach(peerInfo -> peers.invalidate(peerInfo.getId()));
+		});
+	}
+
+	private void invalidateAll() {
+		if (values != null)
+			values.invalidateAll();
+		if (peers != null)
+			peers.invalidateAll();
+	}
+
+	// The cached records expire before the storage can purge them, nothing to invalidate
+	@Override
+	public Future<Void> purge() {
+		return delegate.purge();
+	}
+
+	@Override
+	public Future<Value> putValue(Value value) {
+		return invalidateValue(delegate.putValue(value), value.getId());
+	}
+
+	@Override
+	public Future<Value> putValue(Value value, boolean persistent) {
+		return invalidateValue(delegate.putValue(value, persistent), value.getId());
+	}
+
+	@Override
+	public Future<Value> getValue(Id id) {
+		return lookup(values, id, 0, valueExpiration, valueHits, valueMisses, () -> delegate.getExpiringValue(id));
+	}
+
+	@Override
+	public Future<Expiring<Value>> getExpiringValue(Id id) {
+		return delegate.getExpiringValue(id);
+	}
+
+	@Override
+	public Future<List<Value>> getValues() {
+		return delegate.getValues();
+	}
+
+	@Override
+	public Future<List<Value>> getValues(int offset, int limit) {
+		return delegate.getValues(offset, limit);
+	}
+
+	@Override
+	public Future<List<Value>> getValues(boolean persistent, long announcedBefore) {
+		return delegate.getValues(persistent, announcedBefore);
+	}
+
+	@Override
+	public Future<List<Value>> getValues(boolean persistent, long announcedBefore, int offset, int limit) {
+		return delegate.getValues(persistent, announcedBefore, offset, limit);
+	}
+
+	@Override
+	public Future<Long> countValues(boolean persistent, long announcedBefore) {
+		return delegate.countValues(persistent, announcedBefore);
+	}
+
+	@Override
+	public ReadStream<Value> streamValues() {
+		return delegate.streamValues();
+	}
+
+	@Override
+	public ReadStream<Value> streamValues(boolean persistent, long announcedBefore) {
+		return delegate.streamValues(persistent, announcedBefore);
+	}
+
+	// The announced time is not part of the cached values, no invalidation needed
+	@Override
+	public Future<Long> updateValueAnnouncedTime(Id id) {
+		return delegate.updateValueAnnouncedTime(id);
+	}
+
+	@Override
+	public Future<Long> updateValuesAnnouncedTime(List<Id> ids) {
+		return delegate.updateValuesAnnouncedTime(ids);
+	}
+
+	@Override
+	public Future<Boolean> removeValue(Id id) {
+		return invalidateValue(delegate.removeValue(id), id);
+	}
+
+	@Override
+	public Future<PeerInfo> putPeer(PeerInfo peerInfo) {
+		return invalidatePeers(delegate.putPeer(peerInfo), peerInfo.getId());
+	}
+
+	@Override
+	public Future<PeerInfo> putPeer(PeerInfo peerInfo, boolean persistent) {
+		return invalidatePeers(delegate.putPeer(peerInfo, persistent), peerInfo.getId());
+	}
+
+	@Override
+	public Future<List<PeerInfo>> putPeers(List<PeerInfo> peerInfos) {
+		return invalidatePeers(delegate.putPeers(peerInfos), peerInfos);
+	}
+
+	@Override
+	public Future<PeerInfo> getPeer(Id id, long fingerprint) {
+		return delegate.getPeer(id, fingerprint);
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers(Id id) {
+		return delegate.getPeers(id);
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers(Id id, int expectedSequenceNumber, int limit) {
+		long query = ((long) expectedSequenceNumber << 32) | (limit & 0xFFFFFFFFL);
+		return lookup(peers, id, query, peerInfoExpiration, peerHits, peerMisses,
+				() -> delegate.getExpiringPeers(id, expectedSequenceNumber, limit));
+	}
+
+	@Override
+	public Future<Expiring<List<PeerInfo>>> getExpiringPeers(Id id, int expectedSequenceNumber, int limit) {
+		return delegate.getExpiringPeers(id, expectedSequenceNumber, limit);
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers(Id id, Id nodeId) {
+		return delegate.getPeers(id, nodeId);
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers() {
+		return delegate.getPeers();
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers(int offset, int limit) {
+		return delegate.getPeers(offset, limit);
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers(boolean persistent, long announcedBefore) {
+		return delegate.getPeers(persistent, announcedBefore);
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers(boolean persistent, long announcedBefore, int offset, int limit) {
+		return delegate.getPeers(persistent, announcedBefore, offset, limit);
+	}
+
+	@Override
+	public Future<Long> countPeers(boolean persistent, long announcedBefore) {
+		return delegate.countPeers(persistent, announcedBefore);
+	}
+
+	@Override
+	public ReadStream<PeerInfo> streamPeers() {
+		return delegate.streamPeers();
+	}
+
+	@Override
+	public ReadStream<PeerInfo> streamPeers(boolean persistent, long announcedBefore) {
+		return delegate.streamPeers(persistent, announcedBefore);
+	}
+
+	// The announced time orders the peers of the limited lookups, so it invalidates too
+	@Override
+	public Future<Long> updatePeerAnnouncedTime(Id id, long fingerprint) {
+		return invalidatePeers(delegate.updatePeerAnnouncedTime(id, fingerprint), id);
+	}
+
+	@Override
+	public Future<Long> updatePeersAnnouncedTime(List<PeerInfo> peerInfos) {
+		return invalidatePeers(delegate.updatePeersAnnouncedTime(peerInfos), peerInfos);
+	}
+
+	@Override
+	public Future<Boolean> removePeer(Id id, long fingerprint) {
+		return invalidatePeers(delegate.removePeer(id, fingerprint), id);
+	}
+
+	@Override
+	public Future<Boolean> removePeers(Id id) {
+		return invalidatePeers(delegate.removePeers(id), id);
+	}
+
+	public long getValueHits() {
+		return valueHits.sum();
+	}
+
+	public long getValueMisses() {
+		return valueMisses.sum();
+	}
+
+	public long getPeerHits() {
+		return peerHits.sum();
+	}
+
+	public long getPeerMisses() {
+		return peerMisses.sum();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		String prefix = "boson.storage.cache.";
+
+		bindTo(registry, prefix, "value", values, valueHits, valueMisses);
+		bindTo(registry, prefix, "peer", peers, peerHits, peerMisses);
+	}
+
+	private static void bindTo(MeterRegistry registry, String prefix, String name, Cache<Id, ?> cache,
+							   LongAdder hits, LongAdder misses) {
+		Tags tags = Tags.of("cache", name);
+
+		FunctionCounter.builder(prefix + "requests", hits, LongAdder::doubleValue)
+				.tags(tags.and("result", "hit"))
+				.register(registry);
+		FunctionCounter.builder(prefix + "requests", misses, LongAdder::doubleValue)
+				.tags(tags.and("result", "miss"))
+				.register(registry);
+		FunctionCounter.builder(prefix + "evictions", cache, c -> c.stats().evictionCount())
+				.tags(tags)
+				.register(registry);
+		Gauge.builder(prefix + "size", cache, Cache::estimatedSize)
+				.description("Cached keys")
+				.tags(tags)
+				.register(registry);
+		Gauge.builder(prefix + "weight", cache,
+						c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L))
+				.description("Approximate memory of the cached records")
+				.baseUnit("bytes")
+				.tags(tags)
+				.register(registry);
+	}
+}
@@ -27,6 +27,7 @@ import java.util.Objects;
 
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.streams.ReadStream;
 
 import io.bosonnetwork.Id;
 import io.bosonnetwork.PeerInfo;
@@ -38,6 +39,17 @@ import io.bosonnetwork.Value;
  * and maintenance operations.
  */
 public interface DataStorage {
+	/**
+	 * A lookup result with the time its records may be purged from the storage.
+	 *
+	 * @param result    the lookup result
+	 * @param expiresAt the earliest expiration time of the records in the result, in milliseconds since the epoch,
+	 *                  or {@link Long#MAX_VALUE} if the result has no records
+	 * @param <T>       the result type
+	 */
+	record Expiring<T>(T result, long expiresAt) {
+	}
+
 	/**
 	 * Initializes the storage system by creating necessary tables and indexes.
 	 *
@@ -94,6 +106,15 @@ public interface DataStorage {
 	 */
 	Future<Value> getValue(Id id);
 
+	/**
+	 * Retrieves a value by its identifier, with the time the value expires: last announced plus the value
+	 * expiration. The persistent values are never purged, but report the same expiration time.
+	 *
+	 * @param id the identifier of the value
+	 * @return a {@link Future} containing the {@link Value} or null if not found, with its expiration time
+	 */
+	Future<Expiring<Value>> getExpiringValue(Id id);
+
 	/**
 	 * Retrieves all values stored in the storage.
 	 *
@@ -132,6 +153,37 @@ public interface DataStorage {
 	 */
 	Future<List<Value>> getValues(boolean persistent, long announcedBefore, int offset, int limit);
 
+	/**
+	 * Counts the values filtered by persistence and announcement time, the values that
+	 * {@link #getValues(boolean, long)} would return.
+	 *
+	 * @param persistent      true to count only persistent values, false for non-persistent
+	 * @param announcedBefore timestamp (in milliseconds) to filter values announced before
+	 * @return a {@link Future} containing the number of matching values
+	 */
+	Future<Long> countValues(boolean persistent, long announcedBefore);
+
+	/**
+	 * Streams all values, in the same order as {@link #getValues()}.
+	 * <p>
+	 * The values are read page by page with a keyset cursor, so the whole storage can be walked
+	 * in constant memory. The stream must be consumed on a Vert.x context.
+	 *
+	 * @return a {@link ReadStream} of all {@link Value}s
+	 */
+	ReadStream<Value> streamValues();
+
+	/**
+	 * Streams the values filtered by persistence and announcement time, in the same order as
+	 * {@link #getValues(boolean, long)}.
+	 *
+	 * @param persistent      true to stream only persistent values, false for non-persistent
+	 * @param announcedBefore timestamp (in milliseconds) to filter values announced before
+	 * @return a {@link ReadStream} of the matching {@link Value}s
+	 * @see #streamValues()
+	 */
+	ReadStream<Value> streamValues(boolean persistent, long announcedBefore);
+
 	/**
 	 * Updates the announcement timestamp for a value.
 	 *
@@ -140,6 +192,14 @@ public interface DataStorage {
 	 */
 	Future<Long> updateValueAnnouncedTime(Id id);
 
+	/**
+	 * Updates the announcement timestamp for a batch of values in a single transaction.
+	 *
+	 * @param ids the identifiers of the values
+	 * @return a {@link Future} containing the updated timestamp (in milliseconds), or 0 if the list is empty
+	 */
+	Future<Long> updateValuesAnnouncedTime(List<Id> ids);
+
 	/**
 	 * Removes a value from the storage by its identifier.
 	 *
@@ -203,6 +263,18 @@ public interface DataStorage {
 	 */
 	Future<List<PeerInfo>> getPeers(Id id, int expectedSequenceNumber, int limit);
 
+	/**
+	 * Retrieves peer information associated with a peer identifier, filtered by sequence number, with
+	 * the earliest expiration time of the returned peers: last announced plus the peer expiration.
+	 *
+	 * @param id                     the peer identifier
+	 * @param expectedSequenceNumber the minimum sequence number to include
+	 * @param limit                  the maximum number of results to return (positive)
+	 * @return a {@link Future} containing a list of matching {@link PeerInfo}s, with their expiration time
+	 * @throws IllegalArgumentException if limit is non-positive
+	 */
+	Future<Expiring<List<PeerInfo>>> getExpiringPeers(Id id, int expectedSequenceNumber, int limit);
+
 	/**
 	 * Retrieves peer information by peer and node identifiers.
 	 *
@@ -250,6 +322,37 @@ public interface DataStorage {
 	 */
 	Future<List<PeerInfo>> getPeers(boolean persistent, long announcedBefore, int offset, int limit);
 
+	/**
+	 * Counts the peers filtered by persistence and announcement time, the peers that
+	 * {@link #getPeers(boolean, long)} would return.
+	 *
+	 * @param persistent      true to count only persistent peers, false for non-persistent
+	 * @param announcedBefore timestamp (in milliseconds) to filter peers announced before
+	 * @return a {@link Future} containing the number of matching peers
+	 */
+	Future<Long> countPeers(boolean persistent, long announcedBefore);
+
+	/**
+	 * Streams all peers, in the same order as {@link #getPeers()}.
+	 * <p>
+	 * The peers are read page by page with a keyset cursor, so the whole storage can be walked
+	 * in constant memory. The stream must be consumed on a Vert.x context.
+	 *
+	 * @return a {@link ReadStream} of all {@link PeerInfo}s
+	 */
+	ReadStream<PeerInfo> streamPeers();
+
+	/**
+	 * Streams the peers filtered by persistence and announcement time, in the same order as
+	 * {@link #getPeers(boolean, long)}.
+	 *
+	 * @param persistent      true to stream only persistent peers, false for non-persistent
+	 * @param announcedBefore timestamp (in milliseconds) to filter peers announced before
+	 * @return a {@link ReadStream} of the matching {@link PeerInfo}s
+	 * @see #streamPeers()
+	 */
+	ReadStream<PeerInfo> streamPeers(boolean persistent, long announcedBefore);
+
 	/**
 	 * Updates the announcement timestamp for a peer.
 	 *
@@ -259,6 +362,14 @@ public interface DataStorage {
 	 */
 	Future<Long> updatePeerAnnouncedTime(Id id, long fingerprint);
 
+	/**
+	 * Updates the announcement timestamp for a batch of peers in a single transaction.
+	 *
+	 * @param peerInfos the peers, identified by their peer id and fingerprint
+	 * @return a {@link Future} containing the updated timestamp (in milliseconds), or 0 if the list is empty
+	 */
+	Future<Long> updatePeersAnnouncedTime(List<PeerInfo> peerInfos);
+
 	/**
 	 * Removes peer information by peer and node identifiers.
 	 *
@@ -285,8 +396,9 @@ public interface DataStorage {
 	 * @return true if the URI is supported, false otherwise
 	 */
 	static boolean supports(String uri) {
-		// now only support sqlite and postgres
-		return uri.startsWith(SQLiteStorage.STORAGE_URI_PREFIX) || uri.startsWith(PostgresStorage.STORAGE_URI_PREFIX);
+		// now only support sqlite, postgres and in-memory
+		return uri.startsWith(SQLiteStorage.STORAGE_URI_PREFIX) || uri.startsWith(PostgresStorage.STORAGE_URI_PREFIX) ||
+				uri.startsWith(InMemoryStorage.STORAGE_URI_PREFIX);
 	}
 
 	/**
@@ -305,6 +417,8 @@ public interface DataStorage {
 			return new SQLiteStorage(uri, poolSize);
 		else if (uri.startsWith(PostgresStorage.STORAGE_URI_PREFIX))
 			return new PostgresStorage(uri, poolSize, schema);
+		else if (uri.startsWith(InMemoryStorage.STORAGE_URI_PREFIX))
+			return new InMemoryStorage(uri);
 		else
 			throw new IllegalArgumentException("Unsupported storage: " + uri);
 	}
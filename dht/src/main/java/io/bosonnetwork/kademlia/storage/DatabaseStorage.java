@@ -23,14 +23,18 @@
 package io.bosonnetwork.kademlia.storage;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.SqlConnection;
 import io.vertx.sqlclient.templates.SqlTemplate;
 import org.slf4j.Logger;
 
@@ -46,6 +50,17 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 
 	protected int schemaVersion;
 
+	private int writeDelay;
+	private int writeBatchSize;
+	private boolean durableWrites;
+	private WriteBehind writeBehind;
+	private Vertx vertx;
+
+	// The keyset cursor of the streams: the sort key of the last row of the previous page
+	private record Keyset(long updated, byte[] id, long fingerprint) {
+		static final Keyset FIRST = new Keyset(Long.MAX_VALUE, Id.MIN_ID.bytes(), Long.MIN_VALUE);
+	}
+
 	protected abstract Logger getLogger();
 
 	protected abstract void init(Vertx vertx);
@@ -58,9 +73,39 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 
 	protected abstract SqlDialect getDialect();
 
+	/**
+	 * Enables the write-behind mode. Must be called before {@link #initialize(Vertx, long, long)}.
+	 *
+	 * @param delay     the maximum time in milliseconds a write stays buffered, 0 to write through
+	 * @param batchSize the maximum number of writes per batch, 0 for the default
+	 * @param durable   {@code true} to acknowledge the writes after their batch is committed
+	 * @see WriteBehind
+	 */
+	public void setWriteBehind(int delay, int batchSize, boolean durable) {
+		if (delay < 0)
+			throw new IllegalArgumentException("Invalid write delay: " + delay);
+
+		this.writeDelay = delay;
+		this.writeBatchSize = batchSize;
+		this.durableWrites = durable;
+	}
+
+	/**
+	 * Returns the write-behind buffer of this storage.
+	 *
+	 * @return the write-behind buffer, or null if the writes go through directly
+	 */
+	public WriteBehind getWriteBehind() {
+		return writeBehind;
+	}
+
 	@Override
 	public Future<Integer> initialize(Vertx vertx, long valueExpiration, long peerInfoExpiration) {
 		init(vertx);
+		this.vertx = vertx;
+
+		if (writeDelay > 0)
+			writeBehind = new WriteBehind(vertx, this, writeDelay, writeBatchSize, durableWrites);
 
 		this.valueExpiration = valueExpiration;
 		this.peerInfoExpiration = peerInfoExpiration;
@@ -90,7 +135,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 		long now = System.currentTimeMillis();
 
 		getLogger().info("Purging expired values and peers...");
-		return withTransaction(c ->
+		return syncAll().compose(v -> withTransaction(c ->
 				SqlTemplate.forUpdate(c, getDialect().deleteNonPersistentValuesAnnouncedBefore())
 						.execute(Map.of("updatedBefore", now - valueExpiration))
 						.compose(r ->
@@ -98,7 +143,7 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 										.execute(Map.of("updatedBefore", now - peerInfoExpiration))
 										.map((Void) null)
 						)
-		).recover(cause ->
+		)).recover(cause ->
 				Future.failedFuture(new DataStorageException("purge database failed", cause))
 		).mapEmpty();
 	}
@@ -111,6 +156,9 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	@Override
 	public Future<Value> putValue(Value value, boolean persistent) {
 		getLogger().debug("Putting value with id: {}, persistent: {}", value.getId(), persistent);
+		if (writeBehind != null)
+			return writeBehind.putValue(value.getId(), valueToMap(value, persistent)).map(v -> value);
+
 		return withTransaction(c ->
 					SqlTemplate.forUpdate(c, getDialect().upsertValue())
 							.execute(valueToMap(value, persistent))
@@ -123,51 +171,65 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	@Override
 	public Future<Value> getValue(Id id) {
 		getLogger().debug("Getting value with id: {}", id);
-		return withConnection(c ->
+		return syncValue(id).compose(v -> withConnection(c ->
 				SqlTemplate.forQuery(c, getDialect().selectValue())
 						.execute(Map.of("id", id.bytes()))
 						.map(rows -> findUnique(rows, DatabaseStorage::rowToValue))
-		).recover(cause ->
+		)).recover(cause ->
 				Future.failedFuture(new DataStorageException("getValue failed", cause))
 		);
 	}
 
+	@Override
+	public Future<Expiring<Value>> getExpiringValue(Id id) {
+		getLogger().debug("Getting expiring value with id: {}", id);
+		return syncValue(id).compose(v -> withConnection(c ->
+				SqlTemplate.forQuery(c, getDialect().selectValue())
+						.execute(Map.of("id", id.bytes()))
+						.map(rows -> findUniqueOrDefault(rows,
+								row -> new Expiring<>(rowToValue(row), row.getLong("updated") + valueExpiration),
+								new Expiring<>(null, Long.MAX_VALUE)))
+		)).recover(cause ->
+				Future.failedFuture(new DataStorageException("getExpiringValue failed", cause))
+		);
+	}
+
 	@Override
 	public Future<List<Value>> getValues() {
-		return withConnection(c ->
+		return syncAll().compose(v -> withConnection(c ->
 				c.query(getDialect().selectAllValues())
 						.execute()
 						.map(rows -> findMany(rows, DatabaseStorage::rowToValue))
-		).recover(cause ->
+		)).recover(cause ->
 				Future.failedFuture(new DataStorageException("getValues/all failed", cause))
 		);
 	}
 
 	@Override
 	public Future<List<Value>> getValues(int offset, int limit) {
-		return withConnection(c ->
+		return syncAll().compose(v -> withConnection(c ->
 				SqlTemplate.forQuery(c, getDialect().selectAllValuesPaginated())
 						.execute(Map.of("limit", limit, "offset", offset))
 						.map(rows -> findMany(rows, DatabaseStorage::rowToValue))
-		).recover(cause ->
+		)).recover(cause ->
 				Future.failedFuture(new DataStorageException("getValues/all/paginated failed", cause))
 		);
 	}
 
 	@Override
 	public Future<List<Value>> getValues(boolean persistent, long announcedBefore) {
-		return withConnection(c ->
+		return syncAll().compose(v -> withConnection(c ->
 				SqlTemplate.forQuery(c, getDialect().selectValuesByPersistentAndAnnouncedBefore())
 						.execute(Map.of("persistent", persistent, "updatedBefore", announcedBefore))
 						.map(rows -> findMany(rows, DatabaseStorage::rowToValue))
-		).recover(cause ->
+		)).recover(cause ->
 				Future.failedFuture(new DataStorageException("getValues/announcedBefore failed", cause))
 		);
 	}
 
 	@Override
 	public Future<List<Value>> getValues(boolean persistent, long announcedBefore, int offset, int limit) {
-		return withConnection(c ->
+		return syncAll().compose(v -> withConnection(c ->
 				SqlTemplate.forQuery(c, getDialect().selectValuesByPersistentAndAnnouncedBeforePaginated())
 						.execute(Map.of(
 								"persistent", persistent,
@@ -175,15 +237,42 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 								"limit", limit,
 								"offset", offset))
 						.map(rows -> findMany(rows, DatabaseStorage::rowToValue))
-		).recover(cause ->
+		)).recover(cause ->
 				Future.failedFuture(new DataStorageException("getValues/announcedBefore/paginated failed", cause))
 		);
 	}
 
+	@Override
+	public Future<Long> countValues(boolean persistent, long announcedBefore) {
+		return syncAll().compose(v -> withConnection(c ->
+				SqlTemplate.forQuery(c, getDialect().countValuesByPersistentAndAnnouncedBefore())
+						.execute(Map.of("persistent", persistent, "updatedBefore", announcedBefore))
+						.map(rows -> rows.iterator().next().getLong(0))
+		)).recover(cause ->
+				Future.failedFuture(new DataStorageException("countValues/announcedBefore failed", cause))
+		);
+	}
+
+	@Override
+	public ReadStream<Value> streamValues() {
+		return stream(getDialect().selectAllValuesAfterKeyset(), Map.of(), DatabaseStorage::rowToValue,
+				DatabaseStorage::rowToValueKeyset, "streamValues/all");
+	}
+
+	@Override
+	public ReadStream<Value> streamValues(boolean persistent, long announcedBefore) {
+		return stream(getDialect().selectValuesByPersistentAndAnnouncedBeforeAfterKeyset(),
+				Map.of("persistent", persistent, "updatedBefore", announcedBefore),
+				DatabaseStorage::rowToValue, DatabaseStorage::rowToValueKeyset, "streamValues/announcedBefore");
+	}
+
 	@Override
 	public Future<Long> updateValueAnnouncedTime(Id id) {
 		getLogger().debug("Updating value announced time with id: {}", id);
 		long now = System.currentTimeMillis();
+		if (writeBehind != null)
+			return writeBehind.updateValueAnnounced(id, now).map(v -> now);
+
 		return withTransaction(c ->
 				SqlTemplate.forUpdate(c, getDialect().updateValueAnnounced())
 						.execute(Map.of("id", id.bytes(), "updated", now))
@@ -193,14 +282,37 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 		);
 	}
 
+	@Override
+	public Future<Long> updateValuesAnnouncedTime(List<Id> ids) {
+		if (ids.isEmpty())
+			return Future.succeededFuture(0L);
+
+		getLogger().debug("Updating announced time of {} values", ids.size());
+		long now = System.currentTimeMillis();
+		if (writeBehind != null)
+			return Future.all(ids.stream().map(id -> writeBehind.updateValueAnnounced(id, now)).toList()).map(v -> now);
+
+		List<Map<String, Object>> params = ids.stream()
+				.map(id -> Map.<String, Object>of("id", id.bytes(), "updated", now))
+				.toList();
+
+		return withTransaction(c ->
+				SqlTemplate.forUpdate(c, getDialect().updateValueAnnounced())
+						.executeBatch(params)
+						.map(r -> now)
+		).recover(cause ->
+				Future.failedFuture(new DataStorageException("updateValuesAnnouncedTime failed", cause))
+		);
+	}
+
 	@Override
 	public Future<Boolean> removeValue(Id id) {
 		getLogger().debug("Removing value with id: {}", id);
-		return withTransaction(c ->
+		return syncValue(id).compose(v -> withTransaction(c ->
 				SqlTemplate.forUpdate(c, getDialect().deleteValue())
 						.execute(Map.of("id", id.bytes()))
 						.map(this::hasAffectedRows)
-		).recover(cause ->
+		)).recover(cause ->
 				Future.failedFuture(new DataStorageException("removeValue failed", cause))
 		);
 	}
@@ -213,6 +325,10 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	@Override
 	public Future<PeerInfo> putPeer(PeerInfo peerInfo, boolean persistent) {
 		getLogger().debug("Putting peer with id: {} @ {}, persistent: {}", peerInfo.getId(), peerInfo.getNodeId(), persistent);
+		if (writeBehind != null)
+			return writeBehind.putPeer(peerInfo.getId(), peerInfo.getFingerprint(), peerToMap(peerInfo, persistent))
+					.map(v -> peerInfo);
+
 		return withTransaction(c ->
 					SqlTemplate.forUpdate(c, getDialect().upsertPeer())
 							.execute(peerToMap(peerInfo, persistent))
@@ -227,6 +343,11 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 		if (peerInfos.isEmpty())
 			return Future.succeededFuture(peerInfos);
 
+		if (writeBehind != null)
+			return Future.all(peerInfos.stream().map(p ->
+					writeBehind.putPeer(p.getId(), p.getFingerprint(), peerToMap(p, false))).toList()
+			).map(v -> peerInfos);
+
 		List<Map<String, Object>> params = peerInfos.stream().map(p -> peerToMap(p, false)).toList();
 
 		return withTransaction(c ->
@@ -241,11 +362,11 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	@Override
 	public Future<List<PeerInfo>> getPeers(Id id, Id nodeId) {
 		getLogger().debug("Getting peer with id: {} @ {}", id, nodeId);
-		return withConnection(c ->
+		return syncPeers(id).compose(v -> withConnection(c ->
 				SqlTemplate.forQuery(c, getDialect().selectPeersByIdAndNodeId())
 						.execute(Map.of("id", id.bytes(), "nodeId", nodeId.bytes()))
 						.map(rows -> findMany(rows, DatabaseStorage::rowToPeer))
-		).recover(cause ->
+		)).recover(cause ->
 				Future.failedFuture(new DataStorageException("getPeers/id&nodeId failed", cause))
 		);
 	}
@@ -253,11 +374,11 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	@Override
 	public Future<List<PeerInfo>> getPeers(Id id) {
 		getLogger().debug("Getting peers with id: {}", id);
-		return withConnection(c ->
+		return syncPeers(id).compose(v -> withConnection(c ->
 				SqlTemplate.forQuery(c, getDialect().selectPeersById())
 						.execute(Map.of("id", id.bytes()))
 						.map(rows -> findMany(rows, DatabaseStorage::rowToPeer))
-		).recover(cause ->
+		)).recover(cause ->
 				Future.failedFuture(new DataStorageException("getPeers/id failed", cause))
 		);
 	}
@@ -265,53 +386,75 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	@Override
 	public Future<List<PeerInfo>> getPeers(Id id, int expectedSequenceNumber, int limit) {
 		getLogger().debug("Getting peers with id: {}, expectedSequenceNumber: {}, limit{}", id, expectedSequenceNumber, limit);
-		return withConnection(c ->
+		return syncPeers(id).compose(v -> withConnection(c ->
 				SqlTemplate.forQuery(c, getDialect().selectPeersByIdAndSequenceNumberWithLimit())
 						.execute(Map.of("id", id.bytes(),
 								"expectedSequenceNumber", expectedSequenceNumber,
 								"limit", limit))
 						.map(rows -> findMany(rows, DatabaseStorage::rowToPeer))
-		).recover(cause ->
+		)).recover(cause ->
 				Future.failedFuture(new DataStorageException("getPeers/id&expectedSequenceNumber failed", cause))
 		);
 	}
 
+	@Override
+	public Future<Expiring<List<PeerInfo>>> getExpiringPeers(Id id, int expectedSequenceNumber, int limit) {
+		getLogger().debug("Getting expiring peers with id: {}, expectedSequenceNumber: {}, limit{}", id, expectedSequenceNumber, limit);
+		return syncPeers(id).compose(v -> withConnection(c ->
+				SqlTemplate.forQuery(c, getDialect().selectPeersByIdAndSequenceNumberWithLimit())
+						.execute(Map.of("id", id.bytes(),
+								"expectedSequenceNumber", expectedSequenceNumber,
+								"limit", limit))
+						.map(rows -> {
+							List<PeerInfo> peers = new ArrayList<>(rows.size());
+							long expiresAt = Long.MAX_VALUE;
+							for (Row row : rows) {
+								peers.add(rowToPeer(row));
+								expiresAt = Math.min(expiresAt, row.getLong("updated") + peerInfoExpiration);
+							}
+							return new Expiring<>(peers, expiresAt);
+						})
+		)).recover(cause ->
+				Future.failedFuture(new DataStorageException("getExpiringPeers failed", cause))
+		);
+	}
+
 	@Override
 	public Future<List<PeerInfo>> getPeers() {
-		return withConnection(c ->
+		return syncAll().compose(v -> withConnection(c ->
 				c.query(getDialect().selectAllPeers())
 						.execute()
 						.map(rows -> findMany(rows, DatabaseStorage::rowToPeer))
-		).recover(cause ->
+		)).recover(cause ->
 				Future.failedFuture(new DataStorageException("getPeers/all failed", cause))
 		);
 	}
 
 	@Override
 	public Future<List<PeerInfo>> getPeers(int offset, int limit) {
-		return withConnection(c ->
+		return syncAll().compose(v -> withConnection(c ->
 				SqlTemplate.forQuery(c, getDialect().selectAllPeersPaginated())
 						.execute(Map.of("limit", limit, "offset", offset))
 						.map(rows -> findMany(rows, DatabaseStorage::rowToPeer))
-		).recover(cause ->
+		)).recover(cause ->
 				Future.failedFuture(new DataStorageException("getPeers/all/paginated failed", cause))
 		);
 	}
 
 	@Override
 	public Future<List<PeerInfo>> getPeers(boolean persistent, long announcedBefore) {
-		return withConnection(c ->
+		return syncAll().compose(v -> withConnection(c ->
 				SqlTemplate.forQuery(c, getDialect().selectPeersByPersistentAndAnnouncedBefore())
 						.execute(Map.of("persistent", persistent, "updatedBefore", announcedBefore))
 						.map(rows -> findMany(rows, DatabaseStorage::rowToPeer))
-		).recover(cause ->
+		)).recover(cause ->
 				Future.failedFuture(new DataStorageException("getPeers/announcedBefore failed", cause))
 		);
 	}
 
 	@Override
 	public Future<List<PeerInfo>> getPeers(boolean persistent, long announcedBefore, int offset, int limit) {
-		return withConnection(c ->
+		return syncAll().compose(v -> withConnection(c ->
 				SqlTemplate.forQuery(c, getDialect().selectPeersByPersistentAndAnnouncedBeforePaginated())
 						.execute(Map.of(
 								"persistent", persistent,
@@ -319,15 +462,78 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 								"limit", limit,
 								"offset", offset))
 						.map(rows -> findMany(rows, DatabaseStorage::rowToPeer))
-		).recover(cause ->
+		)).recover(cause ->
 				Future.failedFuture(new DataStorageException("getPeers/announcedBefore/paginated failed", cause))
 		);
 	}
 
+	@Override
+	public Future<Long> countPeers(boolean persistent, long announcedBefore) {
+		return syncAll().compose(v -> withConnection(c ->
+				SqlTemplate.forQuery(c, getDialect().countPeersByPersistentAndAnnouncedBefore())
+						.execute(Map.of("persistent", persistent, "updatedBefore", announcedBefore))
+						.map(rows -> rows.iterator().next().getLong(0))
+		)).recover(cause ->
+				Future.failedFuture(new DataStorageException("countPeers/announcedBefore failed", cause))
+		);
+	}
+
+	@Override
+	public ReadStream<PeerInfo> streamPeers() {
+		return stream(getDialect().selectAllPeersAfterKeyset(), Map.of(), DatabaseStorage::rowToPeer,
+				DatabaseStorage::rowToPeerKeyset, "streamPeers/all");
+	}
+
+	@Override
+	public ReadStream<PeerInfo> streamPeers(boolean persistent, long announcedBefore) {
+		return stream(getDialect().selectPeersByPersistentAndAnnouncedBeforeAfterKeyset(),
+				Map.of("persistent", persistent, "updatedBefore", announcedBefore),
+				DatabaseStorage::rowToPeer, DatabaseStorage::rowToPeerKeyset, "streamPeers/announcedBefore");
+	}
+
+	private static Keyset rowToValueKeyset(Row row) {
+		return new Keyset(row.getLong("updated"), getBytes(row, "id"), 0);
+	}
+
+	private static Keyset rowToPeerKeyset(Row row) {
+		return new Keyset(row.getLong("updated"), getBytes(row, "id"), row.getLong("fingerprint"));
+	}
+
+	private <T> ReadStream<T> stream(String sql, Map<String, Object> filter, Function<Row, T> mapper,
+									 Function<Row, Keyset> keyset, String name) {
+		return new KeysetReadStream<T, Keyset>(vertx.getOrCreateContext(), (after, limit) -> {
+			Keyset cursor = after != null ? after : Keyset.FIRST;
+			Map<String, Object> params = new HashMap<>(filter);
+			params.put("updated", cursor.updated());
+			params.put("id", cursor.id());
+			params.put("fingerprint", cursor.fingerprint());
+			params.put("limit", limit);
+
+			return syncAll().compose(v -> withConnection(c ->
+					SqlTemplate.forQuery(c, sql)
+							.execute(params)
+							.map(rows -> {
+								List<T> items = new ArrayList<>(rows.size());
+								Keyset last = null;
+								for (Row row : rows) {
+									items.add(mapper.apply(row));
+									last = keyset.apply(row);
+								}
+								return new KeysetReadStream.Page<>(items, last);
+							})
+			)).recover(cause ->
+					Future.failedFuture(new DataStorageException(name + " failed", cause))
+			);
+		});
+	}
+
 	@Override
 	public Future<Long> updatePeerAnnouncedTime(Id id, long fingerprint) {
 		getLogger().debug("Updating peer announced time with id: {}:{}", id, fingerprint);
 		long now = System.currentTimeMillis();
+		if (writeBehind != null)
+			return writeBehind.updatePeerAnnounced(id, fingerprint, now).map(v -> now);
+
 		return withTransaction(c ->
 				SqlTemplate.forUpdate(c, getDialect().updatePeerAnnounced())
 						.execute(Map.of("id", id.bytes(), "fingerprint", fingerprint, "updated", now))
@@ -337,13 +543,38 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 		);
 	}
 
+	@Override
+	public Future<Long> updatePeersAnnouncedTime(List<PeerInfo> peerInfos) {
+		if (peerInfos.isEmpty())
+			return Future.succeededFuture(0L);
+
+		getLogger().debug("Updating announced time of {} peers", peerInfos.size());
+		long now = System.currentTimeMillis();
+		if (writeBehind != null)
+			return Future.all(peerInfos.stream().map(p ->
+					writeBehind.updatePeerAnnounced(p.getId(), p.getFingerprint(), now)).toList()
+			).map(v -> now);
+
+		List<Map<String, Object>> params = peerInfos.stream()
+				.map(p -> Map.<String, Object>of("id", p.getId().bytes(), "fingerprint", p.getFingerprint(), "updated", now))
+				.toList();
+
+		return withTransaction(c ->
+				SqlTemplate.forUpdate(c, getDialect().updatePeerAnnounced())
+						.executeBatch(params)
+						.map(r -> now)
+		).recover(cause ->
+				Future.failedFuture(new DataStorageException("updatePeersAnnouncedTime failed", cause))
+		);
+	}
+
 	@Override
 	public Future<PeerInfo> getPeer(Id id, long fingerprint) {
-		return withConnection(c ->
+		return syncPeers(id).compose(v -> withConnection(c ->
 				SqlTemplate.forQuery(c, getDialect().selectPeer())
 						.execute(Map.of("id", id.bytes(), "fingerprint", fingerprint))
 						.map(rows -> findUnique(rows, DatabaseStorage::rowToPeer))
-		).recover(cause ->
+		)).recover(cause ->
 				Future.failedFuture(new DataStorageException("getPeer failed", cause))
 		);
 	}
@@ -351,11 +582,11 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	@Override
 	public Future<Boolean> removePeer(Id id, long fingerprint) {
 		getLogger().debug("Removing peer with id: {}:{}", id, fingerprint);
-		return withTransaction(c ->
+		return syncPeers(id).compose(v -> withTransaction(c ->
 				SqlTemplate.forUpdate(c, getDialect().deletePeer())
 						.execute(Map.of("id", id.bytes(), "fingerprint", fingerprint))
 						.map(this::hasAffectedRows)
-		).recover(cause ->
+		)).recover(cause ->
 				Future.failedFuture(new DataStorageException("removePeer failed", cause))
 		);
 	}
@@ -363,11 +594,11 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 	@Override
 	public Future<Boolean> removePeers(Id id) {
 		getLogger().debug("Removing peers with id: {}", id);
-		return withTransaction(c ->
+		return syncPeers(id).compose(v -> withTransaction(c ->
 				SqlTemplate.forUpdate(c, getDialect().deletePeersById())
 						.execute(Map.of("id", id.bytes()))
 						.map(this::hasAffectedRows)
-		).recover(cause ->
+		)).recover(cause ->
 				Future.failedFuture(new DataStorageException("removePeers/id failed", cause))
 		);
 	}
@@ -450,8 +681,48 @@ public abstract class DatabaseStorage implements DataStorage, VertxDatabase {
 		return buf == null ? null : buf.getBytes();
 	}
 
+	/**
+	 * Writes a batch of buffered records in one transaction. The announced time updates go
+	 * first, so a buffered upsert with a newer timestamp always wins.
+	 */
+	Future<Void> writeBatch(List<Map<String, Object>> valueAnnounces, List<Map<String, Object>> peerAnnounces,
+							List<Map<String, Object>> values, List<Map<String, Object>> peers) {
+		getLogger().debug("Writing batch: {} values, {} peers, {} value announces, {} peer announces",
+				values.size(), peers.size(), valueAnnounces.size(), peerAnnounces.size());
+		return withTransaction(c ->
+				executeBatch(c, getDialect().updateValueAnnounced(), valueAnnounces)
+						.compose(v -> executeBatch(c, getDialect().updatePeerAnnounced(), peerAnnounces))
+						.compose(v -> executeBatch(c, getDialect().upsertValue(), values))
+						.compose(v -> executeBatch(c, getDialect().upsertPeer(), peers))
+		).recover(cause ->
+				Future.failedFuture(new DataStorageException("writeBatch failed", cause))
+		);
+	}
+
+	private static Future<Void> executeBatch(SqlConnection c, String sql, List<Map<String, Object>> params) {
+		if (params.isEmpty())
+			return Future.succeededFuture();
+
+		return SqlTemplate.forUpdate(c, sql).executeBatch(params).mapEmpty();
+	}
+
+	private Future<Void> syncValue(Id id) {
+		return writeBehind == null ? Future.succeededFuture() : writeBehind.syncValue(id).otherwiseEmpty();
+	}
+
+	private Future<Void> syncPeers(Id id) {
+		return writeBehind == null ? Future.succeededFuture() : writeBehind.syncPeers(id).otherwiseEmpty();
+	}
+
+	private Future<Void> syncAll() {
+		return writeBehind == null ? Future.succeededFuture() : writeBehind.syncAll().otherwiseEmpty();
+	}
+
 	@Override
 	public Future<Void> close() {
-		return getClient().close();
+		if (writeBehind == null)
+			return getClient().close();
+
+		return writeBehind.close().otherwiseEmpty().compose(v -> getClient().close());
 	}
 }
\ No newline at end of file
@@ -0,0 +1,907 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.streams.ReadStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.PeerInfo;
+import io.bosonnetwork.Value;
+import io.bosonnetwork.json.Json;
+
+/**
+ * Pure in-memory {@link DataStorage}, for the lightweight and ephemeral nodes.
+ * <p>
+ * The values are kept in a concurrent map keyed by id, the peers in concurrent maps keyed by id
+ * and fingerprint. Each kind of record has two time-ordered indexes, persistent and non-persistent,
+ * in the same order as the SQL storages ({@code updated DESC, id}), which serve the announced-before
+ * queries and {@link #purge()} without scanning all the records. A record and its index entries are
+ * only changed under the lock of the record key, with the same upsert rules as the SQL storages.
+ * <p>
+ * The URI is {@code memory:} for a purely volatile storage, or {@code memory:<path>} to snapshot the
+ * records to the given file in CBOR format, periodically and on close, and to reload them on
+ * {@link #initialize(Vertx, long, long)}.
+ */
+public class InMemoryStorage implements DataStorage {
+	protected static final String STORAGE_URI_PREFIX = "memory:";
+
+	// Keep in line with the schema version of the SQL storages
+	private static final int SCHEMA_VERSION = 2;
+	private static final int SNAPSHOT_VERSION = 1;
+	private static final long DEFAULT_SNAPSHOT_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+
+	private static final Comparator<ValueEntry> VALUE_ORDER = (e1, e2) -> {
+		int c = Long.compare(e2.updated(), e1.updated());
+		return c != 0 ? c : e1.id().compareTo(e2.id());
+	};
+
+	private static final Comparator<PeerEntry> PEER_ORDER = (e1, e2) -> {
+		int c = Long.compare(e2.updated(), e1.updated());
+		if (c != 0)
+			return c;
+		c = e1.id().compareTo(e2.id());
+		return c != 0 ? c : Long.compare(e1.fingerprint(), e2.fingerprint());
+	};
+
+	// The order of the sequence number lookups: the latest sequence numbers first
+	private static final Comparator<PeerEntry> SEQUENCE_ORDER = Comparator.<PeerEntry>comparingInt(
+			e -> e.peer().getSequenceNumber()).reversed().thenComparing(PEER_ORDER);
+
+	private final Path snapshotFile;
+	private final long snapshotInterval;
+
+	private final ConcurrentHashMap<Id, ValueEntry> values;
+	private final NavigableSet<ValueEntry> valueIndex;
+	private final NavigableSet<ValueEntry> persistentValueIndex;
+
+	private final ConcurrentHashMap<Id, Map<Long, PeerEntry>> peers;
+	private final NavigableSet<PeerEntry> peerIndex;
+	private final NavigableSet<PeerEntry> persistentPeerIndex;
+
+	private long valueExpiration;
+	private long peerInfoExpiration;
+
+	private Vertx vertx;
+	private long snapshotTimer;
+	private final AtomicLong modifications;
+	private volatile long snapshotModifications;
+	private final AtomicBoolean snapshotting;
+
+	private static final Logger log = LoggerFactory.getLogger(InMemoryStorage.class);
+
+	private record ValueEntry(Id id, Value value, boolean persistent, long created, long updated) {
+	}
+
+	private record PeerEntry(Id id, long fingerprint, PeerInfo peer, boolean persistent, long created, long updated) {
+	}
+
+	protected InMemoryStorage(Path snapshotFile, long snapshotInterval) {
+		if (snapshotInterval <= 0)
+			throw new IllegalArgumentException("Invalid snapshot interval: " + snapshotInterval);
+
+		this.snapshotFile = snapshotFile;
+		this.snapshotInterval = snapshotInterval;
+
+		this.values = new ConcurrentHashMap<>();
+		this.valueIndex = new ConcurrentSkipListSet<>(VALUE_ORDER);
+		this.persistentValueIndex = new ConcurrentSkipListSet<>(VALUE_ORDER);
+
+		this.peers = new ConcurrentHashMap<>();
+		this.peerIndex = new ConcurrentSkipListSet<>(PEER_ORDER);
+		this.persistentPeerIndex = new ConcurrentSkipListSet<>(PEER_ORDER);
+
+		this.modifications = new AtomicLong();
+		this.snapshotting = new AtomicBoolean();
+	}
+
+	protected InMemoryStorage(String uri) {
+		this(snapshotFileOf(uri), DEFAULT_SNAPSHOT_INTERVAL);
+	}
+
+	private static Path snapshotFileOf(String uri) {
+		if (!uri.startsWith(STORAGE_URI_PREFIX))
+			throw new IllegalArgumentException("Unsupported storage: " + uri);
+
+		String path = uri.substring(STORAGE_URI_PREFIX.length());
+		return path.isEmpty() ? null : Path.of(path);
+	}
+
+	@Override
+	public Future<Integer> initialize(Vertx vertx, long valueExpiration, long peerInfoExpiration) {
+		this.vertx = vertx;
+		this.valueExpiration = valueExpiration;
+		this.peerInfoExpiration = peerInfoExpiration;
+
+		if (snapshotFile == null) {
+			log.info("In-memory storage is ready, no snapshot");
+			return Future.succeededFuture(SCHEMA_VERSION);
+		}
+
+		return vertx.executeBlocking(() -> {
+			if (Files.exists(snapshotFile))
+				load(snapshotFile);
+			return null;
+		}).andThen(ar -> {
+			if (ar.succeeded()) {
+				snapshotModifications = modifications.get();
+				snapshotTimer = vertx.setPeriodic(snapshotInterval, snapshotInterval, unused -> snapshot());
+				log.info("In-memory storage is ready, loaded {} values and {} peers from {}",
+						values.size(), peerIndex.size() + persistentPeerIndex.size(), snapshotFile);
+			} else {
+				log.error("Failed to load the snapshot {}", snapshotFile, ar.cause());
+			}
+		}).map(v -> SCHEMA_VERSION).recover(cause ->
+				Future.failedFuture(new DataStorageException("Load snapshot failed", cause))
+		);
+	}
+
+	@Override
+	public Future<Void> close() {
+		if (snapshotTimer != 0) {
+			vertx.cancelTimer(snapshotTimer);
+			snapshotTimer = 0;
+		}
+
+		return snapshotFile == null || vertx == null ? Future.succeededFuture() : snapshot();
+	}
+
+	@Override
+	public int getSchemaVersion() {
+		return SCHEMA_VERSION;
+	}
+
+	private void modified() {
+		modifications.incrementAndGet();
+	}
+
+	/**
+	 * Writes all the records to the snapshot file, if changed since the last snapshot. Does nothing
+	 * if a snapshot is already running or the storage has no snapshot file.
+	 *
+	 * @return a {@link Future} that completes when the snapshot is written
+	 */
+	public Future<Void> snapshot() {
+		if (snapshotFile == null || modifications.get() == snapshotModifications ||
+				!snapshotting.compareAndSet(false, true))
+			return Future.succeededFuture();
+
+		return vertx.<Void>executeBlocking(() -> {
+			long mark = modifications.get();
+			save(snapshotFile);
+			snapshotModifications = mark;
+			return null;
+		}).andThen(ar -> {
+			snapshotting.set(false);
+			if (ar.failed())
+				log.error("Failed to write the snapshot {}", snapshotFile, ar.cause());
+		}).recover(cause ->
+				Future.failedFuture(new DataStorageException("Write snapshot failed", cause))
+		);
+	}
+
+	private void save(Path file) throws IOException {
+		Path dir = file.toAbsolutePath().getParent();
+		Files.createDirectories(dir);
+
+		long now = System.currentTimeMillis();
+		Path tempFile = Files.createTempFile(dir, file.getFileName().toString(), "-" + now);
+		try (OutputStream out = Files.newOutputStream(tempFile)) {
+			CBORGenerator gen = Json.cborFactory().createGenerator(out);
+			gen.writeStartObject();
+			gen.writeNumberField("version", SNAPSHOT_VERSION);
+			gen.writeNumberField("timestamp", now);
+
+			gen.writeFieldName("values");
+			gen.writeStartArray();
+			for (ValueEntry entry : values.values()) {
+				Value value = entry.value();
+				gen.writeStartArray();
+				writeBinary(gen, value.getPublicKey() != null ? value.getPublicKey().bytes() : null);
+				writeBinary(gen, value.getPrivateKey());
+				writeBinary(gen, value.getRecipient() != null ? value.getRecipient().bytes() : null);
+				writeBinary(gen, value.getNonce());
+				gen.writeNumber(value.getSequenceNumber());
+				writeBinary(gen, value.getSignature());
+				writeBinary(gen, value.getData());
+				gen.writeBoolean(entry.persistent());
+				gen.writeNumber(entry.created());
+				gen.writeNumber(entry.updated());
+				gen.writeEndArray();
+			}
+			gen.writeEndArray();
+
+			gen.writeFieldName("peers");
+			gen.writeStartArray();
+			for (Map<Long, PeerEntry> map : peers.values()) {
+				for (PeerEntry entry : map.values()) {
+					PeerInfo peer = entry.peer();
+					gen.writeStartArray();
+					writeBinary(gen, peer.getId().bytes());
+					gen.writeNumber(peer.getFingerprint());
+					writeBinary(gen, peer.getPrivateKey());
+					writeBinary(gen, peer.getNonce());
+					gen.writeNumber(peer.getSequenceNumber());
+					writeBinary(gen, peer.isAuthenticated() ? peer.getNodeId().bytes() : null);
+					writeBinary(gen, peer.isAuthenticated() ? peer.getNodeSignature() : null);
+					writeBinary(gen, peer.getSignature());
+					gen.writeString(peer.getEndpoint());
+					writeBinary(gen, peer.hasExtra() ? peer.getExtraData() : null);
+					gen.writeBoolean(entry.persistent());
+					gen.writeNumber(entry.created());
+					gen.writeNumber(entry.updated());
+					gen.writeEndArray();
+				}
+			}
+			gen.writeEndArray();
+
+			gen.writeEndObject();
+			gen.close();
+			out.close();
+			Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			// Force delete the tempFile if error occurred
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	private void load(Path file) throws IOException {
+		long now = System.currentTimeMillis();
+		int expired = 0;
+
+		try (InputStream in = Files.newInputStream(file);
+			 JsonParser parser = Json.cborFactory().createParser(in)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT)
+				throw new IOException("Invalid snapshot");
+
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.currentName();
+				JsonToken token = parser.nextToken();
+				switch (field) {
+					case "version" -> {
+						if (parser.getIntValue() != SNAPSHOT_VERSION)
+							throw new IOException("Unsupported snapshot version: " + parser.getIntValue());
+					}
+					case "values" -> {
+						if (token != JsonToken.START_ARRAY)
+							throw new IOException("Invalid snapshot values");
+
+						while (parser.nextToken() == JsonToken.START_ARRAY) {
+							Id publicKey = nextId(parser);
+							byte[] privateKey = nextBinary(parser);
+							Id recipient = nextId(parser);
+							byte[] nonce = nextBinary(parser);
+							int sequenceNumber = nextInt(parser);
+							byte[] signature = nextBinary(parser);
+							byte[] data = nextBinary(parser);
+							boolean persistent = parser.nextToken() == JsonToken.VALUE_TRUE;
+							long created = nextLong(parser);
+							long updated = nextLong(parser);
+							if (parser.nextToken() != JsonToken.END_ARRAY)
+								throw new IOException("Invalid snapshot value");
+
+							if (!persistent && updated < now - valueExpiration) {
+								expired++;
+								continue;
+							}
+
+							Value value = Value.of(publicKey, privateKey, recipient, nonce, sequenceNumber, signature, data);
+							ValueEntry entry = new ValueEntry(value.getId(), value, persistent, created, updated);
+							values.put(entry.id(), entry);
+							valueIndex(persistent).add(entry);
+						}
+					}
+					case "peers" -> {
+						if (token != JsonToken.START_ARRAY)
+							throw new IOException("Invalid snapshot peers");
+
+						while (parser.nextToken() == JsonToken.START_ARRAY) {
+							Id id = nextId(parser);
+							long fingerprint = nextLong(parser);
+							byte[] privateKey = nextBinary(parser);
+							byte[] nonce = nextBinary(parser);
+							int sequenceNumber = nextInt(parser);
+							Id nodeId = nextId(parser);
+							byte[] nodeSignature = nextBinary(parser);
+							byte[] signature = nextBinary(parser);
+							String endpoint = parser.nextTextValue();
+							byte[] extra = nextBinary(parser);
+							boolean persistent = parser.nextToken() == JsonToken.VALUE_TRUE;
+							long created = nextLong(parser);
+							long updated = nextLong(parser);
+							if (parser.nextToken() != JsonToken.END_ARRAY)
+								throw new IOException("Invalid snapshot peer");
+
+							if (!persistent && updated < now - peerInfoExpiration) {
+								expired++;
+								continue;
+							}
+
+							PeerInfo peer = PeerInfo.of(id, privateKey, nonce, sequenceNumber, nodeId, nodeSignature,
+									signature, fingerprint, endpoint, extra);
+							PeerEntry entry = new PeerEntry(id, fingerprint, peer, persistent, created, updated);
+							peers.computeIfAbsent(id, k -> new ConcurrentHashMap<>()).put(fingerprint, entry);
+							peerIndex(persistent).add(entry);
+						}
+					}
+					default -> parser.skipChildren();
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid snapshot record", e);
+		}
+
+		log.debug("Skipped {} expired records from the snapshot", expired);
+	}
+
+	private static void writeBinary(CBORGenerator gen, byte[] bytes) throws IOException {
+		if (bytes == null)
+			gen.writeNull();
+		else
+			gen.writeBinary(bytes);
+	}
+
+	private static byte[] nextBinary(JsonParser parser) throws IOException {
+		return parser.nextToken() == JsonToken.VALUE_NULL ? null : parser.getBinaryValue();
+	}
+
+	private static Id nextId(JsonParser parser) throws IOException {
+		byte[] bytes = nextBinary(parser);
+		return bytes == null ? null : Id.of(bytes);
+	}
+
+	private static int nextInt(JsonParser parser) throws IOException {
+		parser.nextToken();
+		return parser.getIntValue();
+	}
+
+	private static long nextLong(JsonParser parser) throws IOException {
+		parser.nextToken();
+		return parser.getLongValue();
+	}
+
+	private NavigableSet<ValueEntry> valueIndex(boolean persistent) {
+		return persistent ? persistentValueIndex : valueIndex;
+	}
+
+	private NavigableSet<PeerEntry> peerIndex(boolean persistent) {
+		return persistent ? persistentPeerIndex : peerIndex;
+	}
+
+	// Probe of the index: the first entry announced at or before the given time
+	private static ValueEntry valueProbe(long announcedBefore) {
+		return new ValueEntry(Id.MIN_ID, null, false, 0, announcedBefore);
+	}
+
+	private static PeerEntry peerProbe(long announcedBefore) {
+		return new PeerEntry(Id.MIN_ID, Long.MIN_VALUE, null, false, 0, announcedBefore);
+	}
+
+	@Override
+	public Future<Void> purge() {
+		long now = System.currentTimeMillis();
+
+		log.info("Purging expired values and peers...");
+		int purged = 0;
+
+		// copy first, the removal below changes the index
+		List<ValueEntry> expiredValues = new ArrayList<>(valueIndex.tailSet(valueProbe(now - valueExpiration - 1)));
+		for (ValueEntry expired : expiredValues) {
+			boolean[] removed = {false};
+			values.computeIfPresent(expired.id(), (id, entry) -> {
+				if (entry != expired)
+					return entry;
+
+				valueIndex.remove(entry);
+				removed[0] = true;
+				return null;
+			});
+			if (removed[0])
+				purged++;
+		}
+
+		List<PeerEntry> expiredPeers = new ArrayList<>(peerIndex.tailSet(peerProbe(now - peerInfoExpiration - 1)));
+		for (PeerEntry expired : expiredPeers) {
+			boolean[] removed = {false};
+			peers.computeIfPresent(expired.id(), (id, map) -> {
+				if (map.remove(expired.fingerprint(), expired)) {
+					peerIndex.remove(expired);
+					removed[0] = true;
+				}
+				return map.isEmpty() ? null : map;
+			});
+			if (removed[0])
+				purged++;
+		}
+
+		if (purged > 0)
+			modified();
+
+		log.debug("Purged {} expired values and peers", purged);
+		return Future.succeededFuture();
+	}
+
+	@Override
+	public Future<Value> putValue(Value value) {
+		return putValue(value, false);
+	}
+
+	@Override
+	public Future<Value> putValue(Value value, boolean persistent) {
+		log.debug("Putting value with id: {}, persistent: {}", value.getId(), persistent);
+		long now = System.currentTimeMillis();
+		values.compute(value.getId(), (id, existing) -> {
+			if (existing != null && existing.value().getSequenceNumber() >= value.getSequenceNumber())
+				return existing;
+
+			Value v = value;
+			long created = now;
+			if (existing != null) {
+				// keep the private key if the new value comes without it
+				if (value.getPrivateKey() == null && existing.value().getPrivateKey() != null) {
+					v = Value.of(value.getPublicKey(), existing.value().getPrivateKey(), value.getRecipient(),
+							value.getNonce(), value.getSequenceNumber(), value.getSignature(), value.getData());
+				}
+
+				created = existing.created();
+				valueIndex(existing.persistent()).remove(existing);
+			}
+
+			ValueEntry entry = new ValueEntry(id, v, persistent, created, now);
+			valueIndex(persistent).add(entry);
+			return entry;
+		});
+
+		modified();
+		return Future.succeededFuture(value);
+	}
+
+	@Override
+	public Future<Value> getValue(Id id) {
+		log.debug("Getting value with id: {}", id);
+		ValueEntry entry = values.get(id);
+		return Future.succeededFuture(entry != null ? entry.value() : null);
+	}
+
+	@Override
+	public Future<Expiring<Value>> getExpiringValue(Id id) {
+		log.debug("Getting expiring value with id: {}", id);
+		ValueEntry entry = values.get(id);
+		return Future.succeededFuture(entry != null ?
+				new Expiring<>(entry.value(), entry.updated() + valueExpiration) :
+				new Expiring<>(null, Long.MAX_VALUE));
+	}
+
+	@Override
+	public Future<List<Value>> getValues() {
+		return getValues(0, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public Future<List<Value>> getValues(int offset, int limit) {
+		Iterator<ValueEntry> it = new MergeIterator<>(valueIndex.iterator(), persistentValueIndex.iterator(), VALUE_ORDER);
+		return Future.succeededFuture(page(it, offset, limit, ValueEntry::value));
+	}
+
+	@Override
+	public Future<List<Value>> getValues(boolean persistent, long announcedBefore) {
+		return getValues(persistent, announcedBefore, 0, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public Future<List<Value>> getValues(boolean persistent, long announcedBefore, int offset, int limit) {
+		Iterator<ValueEntry> it = valueIndex(persistent).tailSet(valueProbe(announcedBefore)).iterator();
+		return Future.succeededFuture(page(it, offset, limit, ValueEntry::value));
+	}
+
+	@Override
+	public Future<Long> countValues(boolean persistent, long announcedBefore) {
+		return Future.succeededFuture((long) valueIndex(persistent).tailSet(valueProbe(announcedBefore)).size());
+	}
+
+	@Override
+	public ReadStream<Value> streamValues() {
+		return this.<ValueEntry, Value>stream(after -> after == null ?
+				new MergeIterator<>(valueIndex.iterator(), persistentValueIndex.iterator(), VALUE_ORDER) :
+				new MergeIterator<>(valueIndex.tailSet(after, false).iterator(),
+						persistentValueIndex.tailSet(after, false).iterator(), VALUE_ORDER),
+				ValueEntry::value);
+	}
+
+	@Override
+	public ReadStream<Value> streamValues(boolean persistent, long announcedBefore) {
+		NavigableSet<ValueEntry> index = valueIndex(persistent);
+		return this.<ValueEntry, Value>stream(after -> after == null ?
+				index.tailSet(valueProbe(announcedBefore)).iterator() :
+				index.tailSet(after, false).iterator(),
+				ValueEntry::value);
+	}
+
+	@Override
+	public Future<Long> updateValueAnnouncedTime(Id id) {
+		log.debug("Updating value announced time with id: {}", id);
+		long now = System.currentTimeMillis();
+		return Future.succeededFuture(updateValueAnnounced(id, now) ? now : 0L);
+	}
+
+	@Override
+	public Future<Long> updateValuesAnnouncedTime(List<Id> ids) {
+		if (ids.isEmpty())
+			return Future.succeededFuture(0L);
+
+		log.debug("Updating announced time of {} values", ids.size());
+		long now = System.currentTimeMillis();
+		ids.forEach(id -> updateValueAnnounced(id, now));
+		return Future.succeededFuture(now);
+	}
+
+	private boolean updateValueAnnounced(Id id, long now) {
+		ValueEntry updated = values.computeIfPresent(id, (k, existing) -> {
+			NavigableSet<ValueEntry> index = valueIndex(existing.persistent());
+			index.remove(existing);
+			ValueEntry entry = new ValueEntry(k, existing.value(), existing.persistent(), existing.created(), now);
+			index.add(entry);
+			return entry;
+		});
+
+		if (updated == null)
+			return false;
+
+		modified();
+		return true;
+	}
+
+	@Override
+	public Future<Boolean> removeValue(Id id) {
+		log.debug("Removing value with id: {}", id);
+		boolean[] removed = {false};
+		values.computeIfPresent(id, (k, existing) -> {
+			valueIndex(existing.persistent()).remove(existing);
+			removed[0] = true;
+			return null;
+		});
+
+		if (removed[0])
+			modified();
+		return Future.succeededFuture(removed[0]);
+	}
+
+	@Override
+	public Future<PeerInfo> putPeer(PeerInfo peerInfo) {
+		return putPeer(peerInfo, false);
+	}
+
+	@Override
+	public Future<PeerInfo> putPeer(PeerInfo peerInfo, boolean persistent) {
+		log.debug("Putting peer with id: {} @ {}, persistent: {}", peerInfo.getId(), peerInfo.getNodeId(), persistent);
+		upsertPeer(peerInfo, persistent, System.currentTimeMillis());
+		modified();
+		return Future.succeededFuture(peerInfo);
+	}
+
+	@Override
+	public Future<List<PeerInfo>> putPeers(List<PeerInfo> peerInfos) {
+		if (peerInfos.isEmpty())
+			return Future.succeededFuture(peerInfos);
+
+		long now = System.currentTimeMillis();
+		peerInfos.forEach(peerInfo -> upsertPeer(peerInfo, false, now));
+		modified();
+		return Future.succeededFuture(peerInfos);
+	}
+
+	private void upsertPeer(PeerInfo peerInfo, boolean persistent, long now) {
+		peers.compute(peerInfo.getId(), (id, map) -> {
+			if (map == null)
+				map = new ConcurrentHashMap<>();
+
+			long fingerprint = peerInfo.getFingerprint();
+			PeerEntry existing = map.get(fingerprint);
+			if (existing != null && existing.peer().getSequenceNumber() >= peerInfo.getSequenceNumber())
+				return map;
+
+			PeerInfo p = peerInfo;
+			long created = now;
+			if (existing != null) {
+				// keep the private key if the new peer comes without it
+				if (peerInfo.getPrivateKey() == null && existing.peer().getPrivateKey() != null) {
+					p = PeerInfo.of(id, existing.peer().getPrivateKey(), peerInfo.getNonce(),
+							peerInfo.getSequenceNumber(), peerInfo.getNodeId(), peerInfo.getNodeSignature(),
+							peerInfo.getSignature(), fingerprint, peerInfo.getEndpoint(), peerInfo.getExtraData());
+				}
+
+				created = existing.created();
+				peerIndex(existing.persistent()).remove(existing);
+			}
+
+			PeerEntry entry = new PeerEntry(id, fingerprint, p, persistent, created, now);
+			map.put(fingerprint, entry);
+			peerIndex(persistent).add(entry);
+			return map;
+		});
+	}
+
+	@Override
+	public Future<PeerInfo> getPeer(Id id, long fingerprint) {
+		Map<Long, PeerEntry> map = peers.get(id);
+		PeerEntry entry = map != null ? map.get(fingerprint) : null;
+		return Future.succeededFuture(entry != null ? entry.peer() : null);
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers(Id id) {
+		log.debug("Getting peers with id: {}", id);
+		return Future.succeededFuture(peersOf(id, e -> true, PEER_ORDER, Integer.MAX_VALUE));
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers(Id id, int expectedSequenceNumber, int limit) {
+		log.debug("Getting peers with id: {}, expectedSequenceNumber: {}, limit{}", id, expectedSequenceNumber, limit);
+		return Future.succeededFuture(peersOf(id, e -> e.peer().getSequenceNumber() >= expectedSequenceNumber,
+				SEQUENCE_ORDER, limit));
+	}
+
+	@Override
+	public Future<Expiring<List<PeerInfo>>> getExpiringPeers(Id id, int expectedSequenceNumber, int limit) {
+		log.debug("Getting expiring peers with id: {}, expectedSequenceNumber: {}, limit{}", id, expectedSequenceNumber, limit);
+		List<PeerEntry> entries = entriesOf(id, e -> e.peer().getSequenceNumber() >= expectedSequenceNumber,
+				SEQUENCE_ORDER, limit);
+		long expiresAt = Long.MAX_VALUE;
+		for (PeerEntry entry : entries)
+			expiresAt = Math.min(expiresAt, entry.updated() + peerInfoExpiration);
+
+		return Future.succeededFuture(new Expiring<>(entries.stream().map(PeerEntry::peer).toList(), expiresAt));
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers(Id id, Id nodeId) {
+		log.debug("Getting peer with id: {} @ {}", id, nodeId);
+		return Future.succeededFuture(peersOf(id, e -> nodeId.equals(e.peer().getNodeId()), PEER_ORDER,
+				Integer.MAX_VALUE));
+	}
+
+	private List<PeerInfo> peersOf(Id id, Predicate<PeerEntry> filter, Comparator<PeerEntry> order, int limit) {
+		return entriesOf(id, filter, order, limit).stream().map(PeerEntry::peer).toList();
+	}
+
+	private List<PeerEntry> entriesOf(Id id, Predicate<PeerEntry> filter, Comparator<PeerEntry> order, int limit) {
+		Map<Long, PeerEntry> map = peers.get(id);
+		if (map == null)
+			return List.of();
+
+		return map.values().stream()
+				.filter(filter)
+				.sorted(order)
+				.limit(Math.max(0, limit))
+				.toList();
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers() {
+		return getPeers(0, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers(int offset, int limit) {
+		Iterator<PeerEntry> it = new MergeIterator<>(peerIndex.iterator(), persistentPeerIndex.iterator(), PEER_ORDER);
+		return Future.succeededFuture(page(it, offset, limit, PeerEntry::peer));
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers(boolean persistent, long announcedBefore) {
+		return getPeers(persistent, announcedBefore, 0, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public Future<List<PeerInfo>> getPeers(boolean persistent, long announcedBefore, int offset, int limit) {
+		Iterator<PeerEntry> it = peerIndex(persistent).tailSet(peerProbe(announcedBefore)).iterator();
+		return Future.succeededFuture(page(it, offset, limit, PeerEntry::peer));
+	}
+
+	@Override
+	public Future<Long> countPeers(boolean persistent, long announcedBefore) {
+		return Future.succeededFuture((long) peerIndex(persistent).tailSet(peerProbe(announcedBefore)).size());
+	}
+
+	@Override
+	public ReadStream<PeerInfo> streamPeers() {
+		return this.<PeerEntry, PeerInfo>stream(after -> after == null ?
+				new MergeIterator<>(peerIndex.iterator(), persistentPeerIndex.iterator(), PEER_ORDER) :
+				new MergeIterator<>(peerIndex.tailSet(after, false).iterator(),
+						persistentPeerIndex.tailSet(after, false).iterator(), PEER_ORDER),
+				PeerEntry::peer);
+	}
+
+	@Override
+	public ReadStream<PeerInfo> streamPeers(boolean persistent, long announcedBefore) {
+		NavigableSet<PeerEntry> index = peerIndex(persistent);
+		return this.<PeerEntry, PeerInfo>stream(after -> after == null ?
+				index.tailSet(peerProbe(announcedBefore)).iterator() :
+				index.tailSet(after, false).iterator(),
+				PeerEntry::peer);
+	}
+
+	// The index entries are the keyset cursors: each page continues after the last entry
+	private <E, T> ReadStream<T> stream(Function<E, Iterator<E>> from, Function<E, T> mapper) {
+		return new KeysetReadStream<T, E>(vertx.getOrCreateContext(), (after, limit) -> {
+			Iterator<E> it = from.apply(after);
+			List<T> items = new ArrayList<>(limit);
+			E last = null;
+			while (items.size() < limit && it.hasNext()) {
+				last = it.next();
+				items.add(mapper.apply(last));
+			}
+			return Future.succeededFuture(new KeysetReadStream.Page<>(items, last));
+		});
+	}
+
+	@Override
+	public Future<Long> updatePeerAnnouncedTime(Id id, long fingerprint) {
+		log.debug("Updating peer announced time with id: {}:{}", id, fingerprint);
+		long now = System.currentTimeMillis();
+		return Future.succeededFuture(updatePeerAnnounced(id, fingerprint, now) ? now : 0L);
+	}
+
+	@Override
+	public Future<Long> updatePeersAnnouncedTime(List<PeerInfo> peerInfos) {
+		if (peerInfos.isEmpty())
+			return Future.succeededFuture(0L);
+
+		log.debug("Updating announced time of {} peers", peerInfos.size());
+		long now = System.currentTimeMillis();
+		peerInfos.forEach(p -> updatePeerAnnounced(p.getId(), p.getFingerprint(), now));
+		return Future.succeededFuture(now);
+	}
+
+	private boolean updatePeerAnnounced(Id id, long fingerprint, long now) {
+		boolean[] updated = {false};
+		peers.computeIfPresent(id, (k, map) -> {
+			PeerEntry existing = map.get(fingerprint);
+			if (existing != null) {
+				NavigableSet<PeerEntry> index = peerIndex(existing.persistent());
+				index.remove(existing);
+				PeerEntry entry = new PeerEntry(k, fingerprint, existing.peer(), existing.persistent(),
+						existing.created(), now);
+				map.put(fingerprint, entry);
+				index.add(entry);
+				updated[0] = true;
+			}
+			return map;
+		});
+
+		if (updated[0])
+			modified();
+		return updated[0];
+	}
+
+	@Override
+	public Future<Boolean> removePeer(Id id, long fingerprint) {
+		log.debug("Removing peer with id: {}:{}", id, fingerprint);
+		boolean[] removed = {false};
+		peers.computeIfPresent(id, (k, map) -> {
+			PeerEntry existing = map.remove(fingerprint);
+			if (existing != null) {
+				peerIndex(existing.persistent()).remove(existing);
+				removed[0] = true;
+			}
+			return map.isEmpty() ? null : map;
+		});
+
+		if (removed[0])
+			modified();
+		return Future.succeededFuture(removed[0]);
+	}
+
+	@Override
+	public Future<Boolean> removePeers(Id id) {
+		log.debug("Removing peers with id: {}", id);
+		boolean[] removed = {false};
+		peers.computeIfPresent(id, (k, map) -> {
+			map.values().forEach(existing -> peerIndex(existing.persistent()).remove(existing));
+			removed[0] = !map.isEmpty();
+			return null;
+		});
+
+		if (removed[0])
+			modified();
+		return Future.succeededFuture(removed[0]);
+	}
+
+	private static <E, T> List<T> page(Iterator<E> it, int offset, int limit, Function<E, T> mapper) {
+		List<T> result = new ArrayList<>(Math.min(Math.max(limit, 0), 256));
+		for (int skipped = 0; skipped < offset && it.hasNext(); skipped++)
+			it.next();
+
+		while (result.size() < limit && it.hasNext())
+			result.add(mapper.apply(it.next()));
+
+		return result;
+	}
+
+	/**
+	 * Merges two sorted iterators into one sorted iterator.
+	 */
+	private static class MergeIterator<E> implements Iterator<E> {
+		private final Iterator<E> it1;
+		private final Iterator<E> it2;
+		private final Comparator<E> order;
+		private E next1;
+		private E next2;
+
+		MergeIterator(Iterator<E> it1, Iterator<E> it2, Comparator<E> order) {
+			this.it1 = it1;
+			this.it2 = it2;
+			this.order = order;
+			this.next1 = it1.hasNext() ? it1.next() : null;
+			this.next2 = it2.hasNext() ? it2.next() : null;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next1 != null || next2 != null;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+
+			E next;
+			if (next2 == null || (next1 != null && order.compare(next1, next2) <= 0)) {
+				next = next1;
+				next1 = it1.hasNext() ? it1.next() : null;
+			} else {
+				next = next2;
+				next2 = it2.hasNext() ? it2.next() : null;
+			}
+			return next;
+		}
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.storage;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.streams.ReadStream;
+
+/**
+ * A {@link ReadStream} of the records read page by page with a keyset cursor.
+ * <p>
+ * Each page continues after the key of the last record of the previous page instead of an offset,
+ * so walking the whole result costs one index range scan per page, and only one page is held in
+ * memory. The next page is only read when the current one is consumed and there is demand.
+ * <p>
+ * The handlers are called on the context the stream is created on.
+ *
+ * @param <T> the record type
+ * @param <K> the keyset cursor type
+ */
+final class KeysetReadStream<T, K> implements ReadStream<T> {
+	static final int DEFAULT_PAGE_SIZE = 256;
+
+	private final Context context;
+	private final PageLoader<T, K> loader;
+	private final int pageSize;
+
+	private final ArrayDeque<T> buffer;
+	private K cursor;
+	private long demand;
+	private boolean loading;
+	private boolean exhausted;
+	private boolean ended;
+	private boolean emitting;
+
+	private Handler<T> handler;
+	private Handler<Void> endHandler;
+	private Handler<Throwable> exceptionHandler;
+
+	/**
+	 * Loads the page after the given cursor.
+	 *
+	 * @param <T> the record type
+	 * @param <K> the keyset cursor type
+	 */
+	@FunctionalInterface
+	interface PageLoader<T, K> {
+		/**
+		 * Loads a page of records.
+		 *
+		 * @param after the key of the last record of the previous page, null for the first page
+		 * @param limit the maximum number of records
+		 * @return a {@link Future} containing the page
+		 */
+		Future<Page<T, K>> load(K after, int limit);
+	}
+
+	/**
+	 * A page of records and the key of its last record.
+	 */
+	record Page<T, K>(List<T> items, K last) {
+	}
+
+	KeysetReadStream(Context context, int pageSize, PageLoader<T, K> loader) {
+		if (pageSize <= 0)
+			throw new IllegalArgumentException("Invalid page size: " + pageSize);
+
+		this.context = context;
+		this.loader = loader;
+		this.pageSize = pageSize;
+		this.buffer = new ArrayDeque<>(pageSize);
+		this.demand = Long.MAX_VALUE;
+	}
+
+	KeysetReadStream(Context context, PageLoader<T, K> loader) {
+		this(context, DEFAULT_PAGE_SIZE, loader);
+	}
+
+	private void runOnContext(Runnable action) {
+		if (Vertx.currentContext() == context)
+			action.run();
+		else
+			context.runOnContext(v -> action.run());
+	}
+
+	@Override
+	public KeysetReadStream<T, K> exceptionHandler(Handler<Throwable> handler) {
+		runOnContext(() -> exceptionHandler = handler);
+		return this;
+	}
+
+	@Override
+	public KeysetReadStream<T, K> handler(Handler<T> handler) {
+		runOnContext(() -> {
+			this.handler = handler;
+			if (handler != null)
+				emit();
+		});
+		return this;
+	}
+
+	@Override
+	public KeysetReadStream<T, K> pause() {
+		runOnContext(() -> demand = 0);
+		return this;
+	}
+
+	@Override
+	public KeysetReadStream<T, K> resume() {
+		return fetch(Long.MAX_VALUE);
+	}
+
+	@Override
+	public KeysetReadStream<T, K> fetch(long amount) {
+		if (amount < 0)
+			throw new IllegalArgumentException("Invalid amount: " + amount);
+
+		runOnContext(() -> {
+			demand += amount;
+			if (demand < 0)
+				demand = Long.MAX_VALUE;
+			emit();
+		});
+		return this;
+	}
+
+	@Override
+	public KeysetReadStream<T, K> endHandler(Handler<Void> endHandler) {
+		runOnContext(() -> this.endHandler = endHandler);
+		return this;
+	}
+
+	private void emit() {
+		// the handler may call fetch or pause re-entrantly
+		if (emitting || ended)
+			return;
+
+		emitting = true;
+		try {
+			while (handler != null && demand > 0 && !buffer.isEmpty()) {
+				if (demand != Long.MAX_VALUE)
+					demand--;
+				handler.handle(buffer.poll());
+			}
+		} finally {
+			emitting = false;
+		}
+
+		if (handler == null || demand == 0 || !buffer.isEmpty())
+			return;
+
+		if (exhausted)
+			end();
+		else if (!loading)
+			load();
+	}
+
+	private void load() {
+		loading = true;
+		loader.load(cursor, pageSize).onComplete(ar -> runOnContext(() -> {
+			loading = false;
+			if (ended)
+				return;
+
+			if (ar.failed()) {
+				ended = true;
+				buffer.clear();
+				if (exceptionHandler != null)
+					exceptionHandler.handle(ar.cause());
+				return;
+			}
+
+			Page<T, K> page = ar.result();
+			buffer.addAll(page.items());
+			if (page.last() != null)
+				cursor = page.last();
+			exhausted = page.items().size() < pageSize;
+			emit();
+		}));
+	}
+
+	private void end() {
+		ended = true;
+		if (endHandler != null)
+			endHandler.handle(null);
+	}
+}
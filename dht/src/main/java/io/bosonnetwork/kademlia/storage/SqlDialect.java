@@ -49,6 +49,10 @@ public interface SqlDialect {
 
 	}
 
+	default String countValuesByPersistentAndAnnouncedBefore() {
+		return "SELECT COUNT(*) FROM valores WHERE persistent = #{persistent} AND updated <= #{updatedBefore}";
+	}
+
 	default String selectAllValues() {
 		return "SELECT * FROM valores ORDER BY updated DESC, id";
 	}
@@ -57,6 +61,25 @@ public interface SqlDialect {
 		return "SELECT * FROM valores ORDER BY updated DESC, id LIMIT #{limit} OFFSET #{offset}";
 	}
 
+	default String selectValuesByPersistentAndAnnouncedBeforeAfterKeyset() {
+		return """
+				SELECT * FROM valores
+					WHERE persistent = #{persistent} AND updated <= #{updatedBefore}
+						AND updated <= #{updated} AND (updated < #{updated} OR id > #{id})
+					ORDER BY updated DESC, id
+					LIMIT #{limit}
+				""";
+	}
+
+	default String selectAllValuesAfterKeyset() {
+		return """
+				SELECT * FROM valores
+					WHERE updated <= #{updated} AND (updated < #{updated} OR id > #{id})
+					ORDER BY updated DESC, id
+					LIMIT #{limit}
+				""";
+	}
+
 	default String updateValueAnnounced() {
 		return "UPDATE valores SET updated = #{updated} WHERE id = #{id}";
 	}
@@ -140,12 +163,37 @@ public interface SqlDialect {
 				""";
 	}
 
+	default String countPeersByPersistentAndAnnouncedBefore() {
+		return "SELECT COUNT(*) FROM peers WHERE persistent = #{persistent} AND updated <= #{updatedBefore}";
+	}
+
 	default String selectAllPeers() {
 		return "SELECT * FROM peers ORDER BY updated DESC, id, fingerprint";
 	}
 
 	default String selectAllPeersPaginated() {
-		return "SELECT * FROM peers ORDER BY updated DESC, id, node_id LIMIT #{limit} OFFSET #{offset}";
+		return "SELECT * FROM peers ORDER BY updated DESC, id, fingerprint LIMIT #{limit} OFFSET #{offset}";
+	}
+
+	default String selectPeersByPersistentAndAnnouncedBeforeAfterKeyset() {
+		return """
+				SELECT * FROM peers
+					WHERE persistent = #{persistent} AND updated <= #{updatedBefore}
+						AND updated <= #{updated}
+						AND (updated < #{updated} OR id > #{id} OR (id = #{id} AND fingerprint > #{fingerprint}))
+					ORDER BY updated DESC, id, fingerprint
+					LIMIT #{limit}
+				""";
+	}
+
+	default String selectAllPeersAfterKeyset() {
+		return """
+				SELECT * FROM peers
+					WHERE updated <= #{updated}
+						AND (updated < #{updated} OR id > #{id} OR (id = #{id} AND fingerprint > #{fingerprint}))
+					ORDER BY updated DESC, id, fingerprint
+					LIMIT #{limit}
+				""";
 	}
 
 	default String updatePeerAnnounced() {
@@ -0,0 +1,504 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.bosonnetwork.Id;
+
+/**
+ * Write-behind buffer of the {@link DatabaseStorage}.
+ * <p>
+ * The value and peer upserts and the announced time updates are buffered in memory, coalesced per
+ * key with the same rules the SQL upsert applies, and flushed to the database as multi-row batches
+ * in one transaction, when the buffer reaches the batch size or the write delay elapses. Only one
+ * flush runs at a time; the writes arriving meanwhile go to the next batch. When the buffer grows
+ * beyond a few batches, the writers wait for the running flush (backpressure).
+ * <p>
+ * The writes are acknowledged when buffered, or when their batch is committed in the durable mode.
+ * The storage flushes the pending writes before reading the affected keys, so the reads always see
+ * the acknowledged writes.
+ * <p>
+ * A failed batch is merged back into the pending writes and retried with them, its commit follows
+ * the retry. After {@link #MAX_FLUSH_RETRIES} failed retries the batch is dropped and counted, so a
+ * batch that can never commit does not block the writers forever.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class WriteBehind implements MeterBinder {
+	public static final int DEFAULT_BATCH_SIZE = 1024;
+	public static final int MAX_FLUSH_RETRIES = 3;
+	private static final int MAX_PENDING_BATCHES = 4;
+
+	private final Vertx vertx;
+	private final DatabaseStorage storage;
+	private final long delay;
+	private final int batchSize;
+	private final int maxPending;
+	private final boolean durable;
+
+	private Batch pending;
+	private Batch flushing;
+	private boolean flushRequested;
+	private long timer;
+	private boolean closed;
+
+	private final AtomicLong writes = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final AtomicLong flushes = new AtomicLong();
+	private final AtomicLong flushedRecords = new AtomicLong();
+	private final AtomicLong failedFlushes = new AtomicLong();
+	private final AtomicLong droppedRecords = new AtomicLong();
+	private final AtomicLong backpressureWaits = new AtomicLong();
+	private final AtomicLong flushTime = new AtomicLong();
+
+	private static final Logger log = LoggerFactory.getLogger(WriteBehind.class);
+
+	private static final class Batch {
+		final Map<Id, Map<String, Object>> values = new HashMap<>();
+		final Map<Id, Map<Long, Map<String, Object>>> peers = new HashMap<>();
+		final Map<Id, Long> valueAnnounces = new HashMap<>();
+		final Map<Id, Map<Long, Long>> peerAnnounces = new HashMap<>();
+		final Promise<Void> committed = Promise.promise();
+		int size;
+		// the number of failed flushes of the requeued writes in this batch
+		int retries;
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		boolean containsValue(Id id) {
+			return values.containsKey(id) || valueAnnounces.containsKey(id);
+		}
+
+		boolean containsPeer(Id id) {
+			return peers.containsKey(id) || peerAnnounces.containsKey(id);
+		}
+
+		// counts the rows and the announced time updates not merged into a row
+		void recount() {
+			int n = values.size();
+			for (Id id : valueAnnounces.keySet()) {
+				if (!values.containsKey(id))
+					n++;
+			}
+
+			for (Map<Long, Map<String, Object>> rows : peers.values())
+				n += rows.size();
+
+			for (Map.Entry<Id, Map<Long, Long>> e : peerAnnounces.entrySet()) {
+				Map<Long, Map<String, Object>> rows = peers.get(e.getKey());
+				for (Long fingerprint : e.getValue().keySet()) {
+					if (rows == null || !rows.containsKey(fingerprint))
+						n++;
+				}
+			}
+
+			size = n;
+		}
+	}
+
+	WriteBehind(Vertx vertx, DatabaseStorage storage, long delay, int batchSize, boolean durable) {
+		if (delay <= 0)
+			throw new IllegalArgumentException("Invalid write delay: " + delay);
+
+		this.vertx = vertx;
+		this.storage = storage;
+		this.delay = delay;
+		this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+		this.maxPending = this.batchSize * MAX_PENDING_BATCHES;
+		this.durable = durable;
+		this.pending = new Batch();
+		this.timer = -1;
+	}
+
+	public boolean isDurable() {
+		return durable;
+	}
+
+	Future<Void> putValue(Id id, Map<String, Object> row) {
+		return write(batch -> {
+			Map<String, Object> existing = batch.values.get(id);
+			if (existing == null) {
+				batch.values.put(id, row);
+				return true;
+			}
+
+			mergeRow(existing, row, batch.values, id);
+			return false;
+		});
+	}
+
+	Future<Void> putPeer(Id id, long fingerprint, Map<String, Object> row) {
+		return write(batch -> {
+			Map<Long, Map<String, Object>> peers = batch.peers.computeIfAbsent(id, k -> new HashMap<>());
+			Map<String, Object> existing = peers.get(fingerprint);
+			if (existing == null) {
+				peers.put(fingerprint, row);
+				return true;
+			}
+
+			mergeRow(existing, row, peers, fingerprint);
+			return false;
+		});
+	}
+
+	Future<Void> updateValueAnnounced(Id id, long updated) {
+		return write(batch -> {
+			Map<String, Object> row = batch.values.get(id);
+			if (row != null)
+				row.put("updated", updated);
+
+			// the announced time of a buffered row is merged into it
+			return batch.valueAnnounces.put(id, updated) == null && row == null;
+		});
+	}
+
+	Future<Void> updatePeerAnnounced(Id id, long fingerprint, long updated) {
+		return write(batch -> {
+			Map<Long, Map<String, Object>> peers = batch.peers.get(id);
+			Map<String, Object> row = peers != null ? peers.get(fingerprint) : null;
+			if (row != null)
+				row.put("updated", updated);
+
+			return batch.peerAnnounces.computeIfAbsent(id, k -> new HashMap<>()).put(fingerprint, updated) == null &&
+					row == null;
+		});
+	}
+
+	// Mirrors the upsert: only a higher sequence number replaces the row, keeping the
+	// creation time and the existing private key if the new row has none.
+	private static <K> void mergeRow(Map<String, Object> existing, Map<String, Object> row,
+									 Map<K, Map<String, Object>> rows, K key) {
+		int existingSeq = (Integer) existing.get("sequenceNumber");
+		int seq = (Integer) row.get("sequenceNumber");
+		if (seq <= existingSeq)
+			return;
+
+		row.put("created", existing.get("created"));
+		if (row.get("privateKey") == null)
+			row.put("privateKey", existing.get("privateKey"));
+
+		rows.put(key, row);
+	}
+
+	@FunctionalInterface
+	private interface Mutation {
+		// returns true if a new key was added to the batch
+		boolean apply(Batch batch);
+	}
+
+	private Future<Void> write(Mutation mutation) {
+		Batch batch;
+		Future<Void> wait = null;
+
+		synchronized (this) {
+			if (closed)
+				return Future.failedFuture(new DataStorageException("Storage is closed"));
+
+			if (pending.size >= maxPending) {
+				backpressureWaits.incrementAndGet();
+				wait = requestFlush();
+				batch = null;
+			} else {
+				batch = pending;
+				writes.incrementAndGet();
+				if (mutation.apply(batch))
+					batch.size++;
+				else
+					coalesced.incrementAndGet();
+
+				if (batch.size >= batchSize)
+					requestFlush();
+				else
+					scheduleFlush();
+			}
+		}
+
+		if (wait != null)
+			return wait.transform(ar -> write(mutation));
+
+		return durable ? batch.committed.future() : Future.succeededFuture();
+	}
+
+	/**
+	 * Flushes the pending writes.
+	 *
+	 * @return a Future that completes when the pending writes are committed
+	 */
+	public Future<Void> flush() {
+		synchronized (this) {
+			return requestFlush();
+		}
+	}
+
+	Future<Void> syncValue(Id id) {
+		synchronized (this) {
+			if (pending.containsValue(id))
+				return requestFlush();
+			if (flushing != null && flushing.containsValue(id))
+				return flushing.committed.future();
+		}
+
+		return Future.succeededFuture();
+	}
+
+	Future<Void> syncPeers(Id id) {
+		synchronized (this) {
+			if (pending.containsPeer(id))
+				return requestFlush();
+			if (flushing != null && flushing.containsPeer(id))
+				return flushing.committed.future();
+		}
+
+		return Future.succeededFuture();
+	}
+
+	Future<Void> syncAll() {
+		synchronized (this) {
+			if (!pending.isEmpty())
+				return requestFlush();
+			if (flushing != null)
+				return flushing.committed.future();
+		}
+
+		return Future.succeededFuture();
+	}
+
+	Future<Void> close() {
+		synchronized (this) {
+			closed = true;
+			return requestFlush();
+		}
+	}
+
+	// must be called with the lock held
+	private Future<Void> requestFlush() {
+		if (pending.isEmpty())
+			return flushing != null ? flushing.committed.future() : Future.succeededFuture();
+
+		Future<Void> future = pending.committed.future();
+		if (flushing == null)
+			startFlush();
+		else
+			flushRequested = true;
+
+		return future;
+	}
+
+	// must be called with the lock held
+	private void scheduleFlush() {
+		if (timer != -1 || flushing != null)
+			return;
+
+		timer = vertx.setTimer(delay, id -> {
+			synchronized (this) {
+				timer = -1;
+				if (!pending.isEmpty())
+					requestFlush();
+			}
+		});
+	}
+
+	// must be called with the lock held
+	private void startFlush() {
+		if (timer != -1) {
+			vertx.cancelTimer(timer);
+			timer = -1;
+		}
+
+		Batch batch = pending;
+		pending = new Batch();
+		flushing = batch;
+		flushRequested = false;
+
+		List<Map<String, Object>> valueAnnounces = new ArrayList<>(batch.valueAnnounces.size());
+		batch.valueAnnounces.forEach((id, updated) ->
+				valueAnnounces.add(Map.of("id", id.bytes(), "updated", updated)));
+
+		List<Map<String, Object>> peerAnnounces = new ArrayList<>(batch.peerAnnounces.size());
+		batch.peerAnnounces.forEach((id, fingerprints) -> fingerprints.forEach((fingerprint, updated) ->
+				peerAnnounces.add(Map.of("id", id.bytes(), "fingerprint", fingerprint, "updated", updated))));
+
+		List<Map<String, Object>> values = new ArrayList<>(batch.values.values());
+
+		List<Map<String, Object>> peers = new ArrayList<>(batch.size);
+		batch.peers.values().forEach(fingerprints -> peers.addAll(fingerprints.values()));
+
+		long start = System.nanoTime();
+		storage.writeBatch(valueAnnounces, peerAnnounces, values, peers).onComplete(ar -> {
+			boolean requeued = false;
+			synchronized (this) {
+				flushes.incrementAndGet();
+				flushTime.addAndGet(System.nanoTime() - start);
+				flushing = null;
+
+				if (ar.succeeded()) {
+					flushedRecords.addAndGet(batch.size);
+				} else {
+					failedFlushes.incrementAndGet();
+					if (!closed && batch.retries < MAX_FLUSH_RETRIES) {
+						log.error("Failed to flush {} buffered writes, will retry", batch.size, ar.cause());
+						requeue(batch);
+						// the commit of the failed batch follows the retry
+						pending.committed.future().onComplete(batch.committed);
+						requeued = true;
+					} else {
+						droppedRecords.addAndGet(batch.size);
+						log.error("Failed to flush {} buffered writes, dropped after {} retries",
+								batch.size, batch.retries, ar.cause());
+					}
+				}
+
+				if (!pending.isEmpty()) {
+					if (flushRequested || closed || pending.size >= batchSize)
+						startFlush();
+					else
+						scheduleFlush();
+				}
+			}
+
+			if (ar.succeeded())
+				batch.committed.complete();
+			else if (!requeued)
+				batch.committed.fail(ar.cause());
+		});
+	}
+
+	// must be called with the lock held, merges the failed writes as if they were written
+	// before the pending ones
+	private void requeue(Batch batch) {
+		pending.retries = Math.max(pending.retries, batch.retries + 1);
+
+		batch.values.forEach((id, row) ->
+				requeueRow(pending.values, id, row, pending.valueAnnounces.get(id)));
+		batch.peers.forEach((id, fingerprints) -> {
+			Map<Long, Map<String, Object>> rows = pending.peers.computeIfAbsent(id, k -> new HashMap<>());
+			Map<Long, Long> announces = pending.peerAnnounces.get(id);
+			fingerprints.forEach((fingerprint, row) ->
+					requeueRow(rows, fingerprint, row, announces != null ? announces.get(fingerprint) : null));
+		});
+
+		// the pending announced times are newer
+		batch.valueAnnounces.forEach(pending.valueAnnounces::putIfAbsent);
+		batch.peerAnnounces.forEach((id, fingerprints) -> fingerprints.forEach((fingerprint, updated) ->
+				pending.peerAnnounces.computeIfAbsent(id, k -> new HashMap<>()).putIfAbsent(fingerprint, updated)));
+
+		pending.recount();
+	}
+
+	// Merges a failed row into the pending rows by the upsert rules, as if it was written before the
+	// pending row of the same key. The failed row keeps the latest announced time if it wins.
+	private static <K> void requeueRow(Map<K, Map<String, Object>> rows, K key, Map<String, Object> failed,
+									   Long announced) {
+		Map<String, Object> newer = rows.put(key, failed);
+		if (newer != null)
+			mergeRow(failed, newer, rows, key);
+
+		if (rows.get(key) == failed) {
+			long updated = (Long) failed.get("updated");
+			if (newer != null)
+				updated = Math.max(updated, (Long) newer.get("updated"));
+			if (announced != null)
+				updated = Math.max(updated, announced);
+
+			failed.put("updated", updated);
+		}
+	}
+
+	public synchronized int getPendingWrites() {
+		return pending.size;
+	}
+
+	public long getWrites() {
+		return writes.get();
+	}
+
+	public long getCoalescedWrites() {
+		return coalesced.get();
+	}
+
+	public long getFlushes() {
+		return flushes.get();
+	}
+
+	public long getFlushedRecords() {
+		return flushedRecords.get();
+	}
+
+	public long getFailedFlushes() {
+		return failedFlushes.get();
+	}
+
+	public long getBackpressureWaits() {
+		return backpressureWaits.get();
+	}
+
+	public long getDroppedRecords() {
+		return droppedRecords.get();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		String prefix = "boson.storage.writebehind.";
+
+		Gauge.builder(prefix + "pending", this, WriteBehind::getPendingWrites)
+				.description("Buffered writes not yet flushed")
+				.register(registry);
+		FunctionCounter.builder(prefix + "writes", writes, AtomicLong::doubleValue)
+				.register(registry);
+		FunctionCounter.builder(prefix + "coalesced", coalesced, AtomicLong::doubleValue)
+				.description("Writes merged into an already buffered record")
+				.register(registry);
+		FunctionCounter.builder(prefix + "flushed", flushedRecords, AtomicLong::doubleValue)
+				.register(registry);
+		FunctionCounter.builder(prefix + "flush.failures", failedFlushes, AtomicLong::doubleValue)
+				.register(registry);
+		FunctionCounter.builder(prefix + "dropped", droppedRecords, AtomicLong::doubleValue)
+				.description("Buffered writes dropped after the flush retries were exhausted")
+				.register(registry);
+		FunctionCounter.builder(prefix + "backpressure", backpressureWaits, AtomicLong::doubleValue)
+				.description("Writes that waited for a flush because the buffer was full")
+				.register(registry);
+		FunctionTimer.builder(prefix + "flush", this,
+						w -> w.flushes.get(), w -> w.flushTime.get(), TimeUnit.NANOSECONDS)
+				.register(registry);
+	}
+}
@@ -44,6 +44,8 @@ public class CandidateNode extends NodeInfo {
 	private int pinged;
 	/** Whether the node is considered reachable. */
 	private boolean reachable;
+	/** Moving average RTT known from the routing table, -1 if unknown. */
+	private final int rtt;
 	/** Token for ANNOUNCE_PEER or STORE_VALUE RPCs */
 	private int token;
 
@@ -65,6 +67,7 @@ public class CandidateNode extends NodeInfo {
 		this.lastReply = 0;
 		this.token = 0;
 		this.reachable = ni instanceof KBucketEntry entry && entry.isReachable();
+		this.rtt = ni instanceof KBucketEntry entry ? entry.getRTT(-1) : -1;
 	}
 
 	/**
@@ -159,6 +162,15 @@ public class CandidateNode extends NodeInfo {
 		return reachable;
 	}
 
+	/**
+	 * Returns the moving average RTT of the node known from the routing table.
+	 *
+	 * @return the RTT in milliseconds, or -1 if unknown
+	 */
+	public int getRTT() {
+		return rtt;
+	}
+
 	/**
 	 * Checks if the node is unreachable, based on ping attempts and timeout.
 	 *
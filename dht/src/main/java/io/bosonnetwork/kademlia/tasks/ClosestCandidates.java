@@ -25,9 +25,9 @@ package io.bosonnetwork.kademlia.tasks;
 
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
-import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -42,18 +42,36 @@ import io.bosonnetwork.NodeInfo;
  * {@link LookupTask}, prioritizing nodes with closer distance then fewer ping attempts.
  * Processed nodes remain deduplicated to prevent re-addition. Designed for single-threaded
  * use in a Vert.x event loop; not thread-safe.
+ * <p>
+ * Besides the full distance ordered map, the nodes that are not in flight are indexed in a second
+ * map with the same order, so both the next candidate (its first entry) and the eviction victim
+ * (its last entry) are found in O(log n). The node IDs are unique, so their distances are unique
+ * too and the ping count never has to break a tie. A node sent by the caller is moved out of the
+ * index lazily, by the next {@link #next()} or {@link #add(Collection)} that meets it; a node
+ * cleared for retry must be put back through {@link #requeue(CandidateNode)}.
+ * <p>
+ * The distances are unique, but the closest few candidates within the same log distance (the same
+ * {@link Id#approxDistance(Id)}) are about equally useful to the lookup; among them the one with
+ * the lowest known RTT is queried first.
  */
 public class ClosestCandidates {
+	/** The number of the closest eligible candidates to pick the fastest one from. */
+	static final int RTT_WINDOW = 3;
+
 	/** The target ID for distance comparisons. */
 	private final Id target;
 	/** The maximum number of nodes in the queue. */
 	private final int capacity;
 	/** Map of nodes ordered by XOR distance to the target ID. */
-	private final SortedMap<Id, CandidateNode> closest;
+	private final NavigableMap<Id, CandidateNode> closest;
+	/** The nodes not in flight, in the same order; may still hold nodes sent since the last visit. */
+	private final NavigableMap<Id, CandidateNode> eligible;
 	/** Set of node IDs and addresses (IP or SocketAddress) for deduplication. */
 	private final Set<Object> dedup;
 	/** Whether to use developer mode (deduplicate by IP:port). */
 	private final boolean developerMode;
+	/** The fallback ID of the empty queue, the farthest ID from the target; created on demand. */
+	private Id farthest;
 
 	/**
 	 * Constructs a new ClosestCandidates queue for the given target ID and capacity.
@@ -68,6 +86,7 @@ public class ClosestCandidates {
 		this.developerMode = developerMode;
 
 		closest = new TreeMap<>(target::threeWayCompare);
+		eligible = new TreeMap<>(target::threeWayCompare);
 		dedup = new HashSet<>(capacity * 2);
 	}
 
@@ -118,19 +137,6 @@ public class ClosestCandidates {
 		return closest.get(id);
 	}
 
-	/**
-	 * Compares two candidate nodes for prioritization, favoring closer distance then fewer pings.
-	 *
-	 * @param cn1 the first candidate node
-	 * @param cn2 the second candidate node
-	 * @return negative if cn1 is preferred, positive if cn2, zero if equal
-	 */
-	private int candidateOrder(CandidateNode cn1, CandidateNode cn2) {
-		// Kademlia typically prioritizes distance, with ping counts as a tiebreaker.
-		int diff = target.threeWayCompare(cn1.getId(), cn2.getId());
-		return diff != 0 ? diff : Integer.compare(cn1.getPinged(), cn2.getPinged());
-	}
-
 	/**
 	 * Adds nodes to the queue, deduplicating by ID and address, and prunes excess nodes to retain closer ones.
 	 *
@@ -151,21 +157,19 @@ public class ClosestCandidates {
 
 			CandidateNode cn = new CandidateNode(node);
 			closest.put(cn.getId(), cn);
+			eligible.put(cn.getId(), cn);
 		}
 
-		if (reachedCapacity()) {
-			List<CandidateNode> toRemove = closest.values().stream()
-					.filter(cn -> !cn.isInFlight())
-					.sorted(this::candidateOrder)
-					.skip(capacity)
-					.toList();
-
-			for (CandidateNode cn : toRemove) {
-				closest.remove(cn.getId());
-				dedup.remove(cn.getId());
-				Object addr = developerMode ? cn.getAddress() : cn.getAddress().getAddress();
-				dedup.remove(addr);
-			}
+		// Keep at most capacity nodes that are not in flight, evicting the farthest ones
+		while (eligible.size() > capacity) {
+			CandidateNode cn = eligible.pollLastEntry().getValue();
+			if (cn.isInFlight())
+				continue;
+
+			closest.remove(cn.getId());
+			dedup.remove(cn.getId());
+			Object addr = developerMode ? cn.getAddress() : cn.getAddress().getAddress();
+			dedup.remove(addr);
 		}
 	}
 
@@ -179,7 +183,8 @@ public class ClosestCandidates {
 			return;
 
 		// Retain dedup to prevent re-addition
-		closest.entrySet().removeIf(e -> filter.test(e.getValue()));
+		closest.values().removeIf(filter);
+		eligible.values().removeIf(cn -> !closest.containsKey(cn.getId()));
 	}
 
 	/**
@@ -193,19 +198,54 @@ public class ClosestCandidates {
 			return null;
 
 		// Retain dedup to prevent re-addition
+		eligible.remove(id);
 		return closest.remove(id);
 	}
 
 	/**
-	 * Retrieves the next candidate node to query, prioritizing eligible nodes by distance and ping count.
+	 * Puts a candidate node cleared for retry back to the eligible nodes.
+	 *
+	 * @param cn the candidate node, its sent state already cleared
+	 */
+	public void requeue(CandidateNode cn) {
+		if (closest.get(cn.getId()) == cn)
+			eligible.put(cn.getId(), cn);
+	}
+
+	/**
+	 * Retrieves the next candidate node to query, prioritizing eligible nodes by distance, then
+	 * the fastest known node among the closest ones in the same log distance.
 	 *
 	 * @return the next candidate node, or null if none eligible
 	 */
 	public CandidateNode next() {
-		return closest.values().stream()
-				.filter(CandidateNode::isEligible)
-				.min(this::candidateOrder)
-				.orElse(null);
+		Map.Entry<Id, CandidateNode> first;
+		while ((first = eligible.firstEntry()) != null) {
+			CandidateNode cn = first.getValue();
+			if (cn.isEligible())
+				return fastest(cn);
+
+			// sent since the last visit, or out of retries
+			eligible.pollFirstEntry();
+		}
+
+		return null;
+	}
+
+	// Picks the fastest known node of the closest eligible nodes in the same log distance as the first one
+	private CandidateNode fastest(CandidateNode first) {
+		int distance = target.approxDistance(first.getId());
+		CandidateNode fastest = first;
+		int visited = 1;
+		for (CandidateNode cn : eligible.tailMap(first.getId(), false).values()) {
+			if (visited++ >= RTT_WINDOW || target.approxDistance(cn.getId()) != distance)
+				break;
+
+			if (cn.isEligible() && cn.getRTT() >= 0 && (fastest.getRTT() < 0 || cn.getRTT() < fastest.getRTT()))
+				fastest = cn;
+		}
+
+		return fastest;
 	}
 
 	/**
@@ -226,6 +266,13 @@ public class ClosestCandidates {
 		return closest.values().stream();
 	}
 
+	private Id farthest() {
+		if (farthest == null)
+			farthest = target.distance(Id.MAX_ID);
+
+		return farthest;
+	}
+
 	/**
 	 * Returns the ID of the farthest node, or a fallback maximum distance if empty.
 	 *
@@ -233,7 +280,7 @@ public class ClosestCandidates {
 	 */
 	public Id tail() {
 		if (closest.isEmpty())
-			return target.distance(Id.MAX_ID);
+			return farthest();
 
 		return closest.lastKey();
 	}
@@ -245,7 +292,7 @@ public class ClosestCandidates {
 	 */
 	public Id head() {
 		if (closest.isEmpty())
-			return target.distance(Id.MAX_ID);
+			return farthest();
 
 		return closest.firstKey();
 	}
@@ -51,6 +51,8 @@ public class ClosestSet {
 	private int insertAttemptsSinceTailModification = 0;
 	/** Number of insertion attempts since the closest node was modified. */
 	private int insertAttemptsSinceHeadModification = 0;
+	/** The fallback ID of the empty set, the farthest ID from the target; created on demand. */
+	private Id farthest;
 
 	private static final Logger log = LoggerFactory.getLogger(ClosestSet.class);
 
@@ -185,6 +187,13 @@ public class ClosestSet {
 		return closest.values().stream();
 	}
 
+	private Id farthest() {
+		if (farthest == null)
+			farthest = target.distance(Id.MAX_ID);
+
+		return farthest;
+	}
+
 	/**
 	 * Returns the ID of the farthest node, or a fallback maximum distance if empty.
 	 *
@@ -193,7 +202,7 @@ public class ClosestSet {
 	public Id tail() {
 		if (closest.isEmpty()) {
 			log.debug("ClosestSet tail: returning fallback maximum distance for empty set");
-			return target.distance(Id.MAX_ID);
+			return farthest();
 		}
 
 		return closest.lastKey();
@@ -207,7 +216,7 @@ public class ClosestSet {
 	public Id head() {
 		if (closest.isEmpty()) {
 			log.debug("ClosestSet head: returning fallback maximum distance for empty set");
-			return target.distance(Id.MAX_ID);
+			return farthest();
 		}
 
 		return closest.firstKey();
@@ -27,6 +27,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 import io.bosonnetwork.Id;
 import io.bosonnetwork.PeerInfo;
@@ -53,6 +54,10 @@ public class EligiblePeers {
 	 * The maximum number of peers to retain.
 	 */
 	private final int expectedCount;
+	/**
+	 * The validity check of the peers.
+	 */
+	private final Predicate<PeerInfo> validator;
 
 	/**
 	 * Stores deduplicated eligible peers keyed by peerId:fingerprint.
@@ -66,14 +71,28 @@ public class EligiblePeers {
 	 * @param target the lookup target used for XOR distance ordering
 	 * @param expectedSequenceNumber the minimum acceptable sequence number for peers
 	 * @param expectedCount the maximum number of peers to retain
+	 * @param validator the validity check of the peers, e.g. a cached signature verification
 	 */
-	public EligiblePeers(Id target, int expectedSequenceNumber, int expectedCount) {
+	public EligiblePeers(Id target, int expectedSequenceNumber, int expectedCount, Predicate<PeerInfo> validator) {
 		this.target = target;
 		this.expectedSequenceNumber = expectedSequenceNumber;
 		this.expectedCount = expectedCount;
+		this.validator = validator;
 		this.eligible = new HashMap<>();
 	}
 
+	/**
+	 * Constructs an EligiblePeers instance with the given target, minimum sequence number,
+	 * and maximum expected count.
+	 *
+	 * @param target the lookup target used for XOR distance ordering
+	 * @param expectedSequenceNumber the minimum acceptable sequence number for peers
+	 * @param expectedCount the maximum number of peers to retain
+	 */
+	public EligiblePeers(Id target, int expectedSequenceNumber, int expectedCount) {
+		this(target, expectedSequenceNumber, expectedCount, PeerInfo::isValid);
+	}
+
 	/**
 	 * Returns the current number of eligible peers.
 	 *
@@ -109,7 +128,7 @@ public class EligiblePeers {
 	 * <p>
 	 * All peers in the collection are validated first. If any peer is invalid
 	 * (target ID mismatch, sequence number below the expected minimum when enabled,
-	 * or {@link PeerInfo#isValid()} returns false), the method returns {@code false}
+	 * or the validator, {@link PeerInfo#isValid()} by default, returns false), the method returns {@code false}
 	 * and no peers are added.
 	 * <p>
 	 * Only if all peers pass validation will they be merged into the eligible set.
@@ -133,7 +152,7 @@ public class EligiblePeers {
 		for (PeerInfo p : peers) {
 			if (!p.getId().equals(target) ||
 					(expectedSequenceNumber >= 0 && p.getSequenceNumber() < expectedSequenceNumber) ||
-					!p.isValid())
+					!validator.test(p))
 				return false;
 		}
 
@@ -22,6 +22,8 @@
 
 package io.bosonnetwork.kademlia.tasks;
 
+import java.util.function.Predicate;
+
 import io.bosonnetwork.Id;
 import io.bosonnetwork.Value;
 
@@ -41,6 +43,11 @@ public class EligibleValue {
 	 */
 	private final int expectedSequenceNumber;
 
+	/**
+	 * The validity check of the values.
+	 */
+	private final Predicate<Value> validator;
+
 	/**
 	 * The currently selected eligible value, or null if none has been accepted yet.
 	 */
@@ -51,13 +58,25 @@ public class EligibleValue {
 	 *
 	 * @param target the lookup target ID this value must match
 	 * @param expectedSequenceNumber the minimum acceptable sequence number; negative disables the check
+	 * @param validator the validity check of the values, e.g. a cached signature verification
 	 */
-	public EligibleValue(Id target, int expectedSequenceNumber) {
+	public EligibleValue(Id target, int expectedSequenceNumber, Predicate<Value> validator) {
 		this.target = target;
 		this.expectedSequenceNumber = expectedSequenceNumber;
+		this.validator = validator;
 		this.value = null;
 	}
 
+	/**
+	 * Constructs an EligibleValue tracker for the given target ID and expected sequence number.
+	 *
+	 * @param target the lookup target ID this value must match
+	 * @param expectedSequenceNumber the minimum acceptable sequence number; negative disables the check
+	 */
+	public EligibleValue(Id target, int expectedSequenceNumber) {
+		this(target, expectedSequenceNumber, Value::isValid);
+	}
+
 	/**
 	 * Indicates whether an eligible value has been accepted.
 	 *
@@ -74,7 +93,7 @@ public class EligibleValue {
 	 * <ul>
 	 *   <li>The value's ID must match the target ID.</li>
 	 *   <li>If expectedSequenceNumber is non-negative, the value's sequence number must be at least that number.</li>
-	 *   <li>The value must be valid (as per {@link Value#isValid()}).</li>
+	 *   <li>The value must be valid (as per the validator, {@link Value#isValid()} by default).</li>
 	 * </ul>
 	 * <p>
 	 * Update semantics:
@@ -90,7 +109,7 @@ public class EligibleValue {
 	public boolean update(Value v) {
 		if (!v.getId().equals(target) ||
 				(expectedSequenceNumber >=0 && v.getSequenceNumber() < expectedSequenceNumber) ||
-				!v.isValid())
+				!validator.test(v))
 			return false;
 
 		if (this.value == null)
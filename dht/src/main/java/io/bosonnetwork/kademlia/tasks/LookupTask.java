@@ -32,11 +32,13 @@ import org.slf4j.Logger;
 
 import io.bosonnetwork.Id;
 import io.bosonnetwork.NodeInfo;
+import io.bosonnetwork.kademlia.impl.DHT;
 import io.bosonnetwork.kademlia.impl.KadContext;
 import io.bosonnetwork.kademlia.protocol.FindNodeResponse;
 import io.bosonnetwork.kademlia.protocol.Message;
 import io.bosonnetwork.kademlia.routing.KBucket;
 import io.bosonnetwork.kademlia.rpc.RpcCall;
+import io.bosonnetwork.kademlia.rpc.RpcServer;
 import io.bosonnetwork.utils.AddressUtils;
 
 /**
@@ -44,6 +46,13 @@ import io.bosonnetwork.utils.AddressUtils;
  * This class manages an iterative lookup process to find nodes or values close to a target ID,
  * using a set of closest nodes and a queue of candidates to query. It extends {@link Task}
  * to leverage its RPC management and lifecycle handling in a single-threaded Vert.x event loop.
+ * <p>
+ * The number of requests in flight is sized from the RTT distribution and the loss rate observed
+ * by the RPC server: the wider the spread between the median and the 90th percentile RTT, and the
+ * higher the loss rate, the more requests are kept in flight. A call that has exceeded its expected
+ * RTT (about the 90th percentile) no longer counts against that limit, so a straggler gets a hedged
+ * request to the next candidate instead of holding the lookup back; the task's hard concurrency
+ * limit still caps the requests in flight.
  *
  * @param <R> the result type of the lookup (e.g., node list, value, peers)
  * @param <S> the specific task type, enabling method chaining
@@ -51,6 +60,10 @@ import io.bosonnetwork.utils.AddressUtils;
 public abstract class LookupTask<R, S extends LookupTask<R, S>> extends Task<S> {
 	/** The maximum number of iterations before giving up. */
 	protected static final int MAX_ITERATIONS = 3 * KBucket.MAX_ENTRIES;
+	/** The lookup parallelism on a healthy network, the Kademlia alpha. */
+	protected static final int BASE_PARALLELISM = 3;
+	/** The RTT samples needed before the parallelism is derived from them. */
+	private static final int MIN_RTT_SAMPLES = 16;
 
 	/** The target ID for the lookup. */
 	private final Id target;
@@ -61,6 +74,8 @@ public abstract class LookupTask<R, S extends LookupTask<R, S>> extends Task<S>
 
 	/** Current iteration count. */
 	private int iterationCount = 0;
+	/** The number of requests in flight, not counting the stalled ones; computed on first use. */
+	private int parallelism;
 
 	/** The result of the lookup, set by subclasses. */
 	protected R result;
@@ -218,6 +233,46 @@ public abstract class LookupTask<R, S extends LookupTask<R, S>> extends Task<S>
 		return result;
 	}
 
+	/**
+	 * Returns the number of requests kept in flight by this lookup, not counting the stalled ones.
+	 *
+	 * @return the lookup parallelism
+	 */
+	protected int getParallelism() {
+		if (parallelism == 0)
+			parallelism = estimateParallelism();
+
+		return parallelism;
+	}
+
+	private int estimateParallelism() {
+		int max = getPriority().maxConcurrentRequests();
+		DHT dht = getContext().getDHT();
+		RpcServer server = dht != null ? dht.getRpcServer() : null;
+		// not enough samples yet, e.g. during the bootstrap
+		if (server == null || server.getRttSampleCount() < MIN_RTT_SAMPLES)
+			return max;
+
+		int median = server.getRttQuantile(0.5f);
+		int p90 = server.getRttQuantile(0.9f);
+		double spread = median > 0 ? Math.min(Math.max((double) p90 / median, 1.0), 2.0) : 2.0;
+		double loss = Math.min(server.getLossRate(), 0.5);
+
+		int estimated = (int) Math.ceil(BASE_PARALLELISM * spread / (1.0 - loss));
+		return Math.min(Math.max(estimated, BASE_PARALLELISM), max);
+	}
+
+	/**
+	 * Checks if the lookup can issue additional RPC requests: the stalled calls are not counted
+	 * against the lookup parallelism, the task's concurrency limits still apply to all of them.
+	 *
+	 * @return true if requests can be sent, false otherwise
+	 */
+	@Override
+	protected boolean canDoRequest() {
+		return getInFlightCalls() - getStalledCalls() < getParallelism() && super.canDoRequest();
+	}
+
 	/**
 	 * Performs one iteration of the lookup, sending RPCs to the closest candidates.
 	 */
@@ -252,7 +307,7 @@ public abstract class LookupTask<R, S extends LookupTask<R, S>> extends Task<S>
 			return true;
 		}
 		if (!super.isDone()) {
-			log.trace("{}#{} lookup not done: pending RPCs remain", getName(), getId());
+			log.trace("{}#{} lookup not done: pending RPCs or steps remain", getName(), getId());
 			return false;
 		}
 		if (getCandidateSize() == 0) {
@@ -303,6 +358,7 @@ public abstract class LookupTask<R, S extends LookupTask<R, S>> extends Task<S>
 				getLogger().debug("{}#{} candidate {} timeout, mark it as unsent to retry in next iteration",
 						getName(), getId(), cn.getId());
 				cn.clearSent();
+				candidates.requeue(cn);
 			}
 		} else {
 			candidates.remove(target.getId()); // fail-safe
@@ -65,6 +65,7 @@ public class PeerAnnounceTask extends Task<PeerAnnounceTask> {
 		this.peer = peer;
 		this.expectedSequenceNumber = expectedSequenceNumber;
 		this.todo = new ArrayDeque<>();
+		setPriority(Priority.ANNOUNCE);
 	}
 
 	/**
@@ -39,6 +39,7 @@ import io.bosonnetwork.kademlia.routing.KBucket;
 import io.bosonnetwork.kademlia.routing.KBucketEntry;
 import io.bosonnetwork.kademlia.routing.KClosestNodes;
 import io.bosonnetwork.kademlia.rpc.RpcCall;
+import io.bosonnetwork.kademlia.security.SignatureVerifier;
 
 /**
  * A task for performing a Kademlia peer lookup to find peers associated with a target ID,
@@ -68,7 +69,8 @@ public class PeerLookupTask extends LookupTask<EligiblePeers, PeerLookupTask> {
 		super(context, target, doneOnEligibleResult);
 		this.expectedSequenceNumber = expectedSequenceNumber;
 		this.expectedCount = expectedCount;
-		setResult(new EligiblePeers(getTarget(), expectedSequenceNumber, expectedCount));
+		setResult(new EligiblePeers(getTarget(), expectedSequenceNumber, expectedCount,
+				context.getVerificationCache()::isValid));
 	}
 
 	/**
@@ -127,22 +129,22 @@ public class PeerLookupTask extends LookupTask<EligiblePeers, PeerLookupTask> {
 		FindPeerResponse body = response.getBody();
 		if (body.hasPeers()) {
 			List<PeerInfo> peers = body.getPeers();
-			if (!result.add(peers)) {
-				log.warn("{}#{} Dropping response from {} due to ineligible peer(id | sequenceNumber | signature mismatch)",
-						getName(), getId(), call.getTargetId());
+			SignatureVerifier verifier = getContext().getSignatureVerifier();
+			if (verifier == null) {
+				addPeers(call, peers);
 				return;
 			}
 
-			if (result.reachedCapacity()) {
-				if (doneOnEligibleResult) {
-					log.debug("{}#{} peer list is eligible, done on result", getName(), getId());
-					lookupDone = true;
-				} else {
-					log.trace("{}#{} peer list is eligible, continuing iteration for precise result", getName(), getId());
+			// verify the signatures off the event loop, the eligible peers then hit the verification cache
+			await(verifier.verify(peers), ar -> {
+				if (ar.failed()) {
+					log.debug("{}#{} dropping response from {}: {}", getName(), getId(), call.getTargetId(),
+							ar.cause().getMessage());
+					return;
 				}
 
-				result.prune();
-			}
+				addPeers(call, peers);
+			});
 		} else {
 			List<NodeInfo> nodes = body.getNodes(getContext().getNetwork());
 			if (nodes.isEmpty()) {
@@ -164,6 +166,25 @@ public class PeerLookupTask extends LookupTask<EligiblePeers, PeerLookupTask> {
 		}
 	}
 
+	private void addPeers(RpcCall call, List<PeerInfo> peers) {
+		if (!result.add(peers)) {
+			log.warn("{}#{} Dropping response from {} due to ineligible peer(id | sequenceNumber | signature mismatch)",
+					getName(), getId(), call.getTargetId());
+			return;
+		}
+
+		if (result.reachedCapacity()) {
+			if (doneOnEligibleResult) {
+				log.debug("{}#{} peer list is eligible, done on result", getName(), getId());
+				lookupDone = true;
+			} else {
+				log.trace("{}#{} peer list is eligible, continuing iteration for precise result", getName(), getId());
+			}
+
+			result.prune();
+		}
+	}
+
 	/**
 	 * Returns the logger for this task.
 	 *
@@ -66,6 +66,7 @@ public class PingRefreshTask extends Task<PingRefreshTask> {
 		super(context);
 		// Initialize with capacity for typical Kademlia bucket size(main entries and replacement entries)
 		this.todo = new ArrayDeque<>(KBucket.MAX_ENTRIES * 2);
+		setPriority(Priority.MAINTENANCE);
 	}
 
 	/**
@@ -32,6 +32,9 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import org.slf4j.Logger;
 
 import io.bosonnetwork.NodeInfo;
@@ -60,18 +63,25 @@ public abstract class Task<S extends Task<S>> implements Comparable<Task<S>> {
 
 	private final long taskId;
 	private String name;
-	private boolean lowPriority;
+	private Priority priority;
+	private long deadline;
 	private State state;
 
 	private Task<?> nested;
 
 	private final Map<Long, RpcCall> inFlight;
+	// The in-flight calls past their expected RTT
+	private int stalledCalls;
+	private int pendingSteps;
 	private TaskListener<S> listener;
 	// Shortcut to the task manager for efficiency and to ensure the task manager is
 	// notified first when the task ends
 	private Consumer<Task<S>> endHandler;
+	// The task manager that accounts the in-flight requests against the global budget
+	private TaskManager manager;
 
 	private final long createTime;
+	private long queuedTime;
 	private long startTime;
 	private long endTime;
 
@@ -82,6 +92,62 @@ public abstract class Task<S extends Task<S>> implements Comparable<Task<S>> {
 		INITIAL, QUEUED, RUNNING, CANCELED, COMPLETED
 	}
 
+	/**
+	 * Enumerates the scheduling classes of the tasks, from the highest priority to the lowest.
+	 * Each class has its own budget of running tasks, concurrent RPC requests per task, and share
+	 * of the outstanding RPC requests of all the tasks, so the user-facing lookups never wait
+	 * behind the bulk re-announcements or the routing table maintenance.
+	 */
+	public enum Priority {
+		/** User-facing lookups, may use all the task slots and the whole request budget. */
+		INTERACTIVE(TaskManager.MAX_ACTIVE_TASKS, TaskManager.MAX_CONCURRENT_TASK_REQUESTS,
+				TaskManager.MAX_OUTSTANDING_REQUESTS),
+		/** Value and peer announcements, including their closest node lookups. */
+		ANNOUNCE(TaskManager.MAX_ACTIVE_TASKS / 2, TaskManager.MAX_CONCURRENT_TASK_REQUESTS / 2,
+				TaskManager.MAX_OUTSTANDING_REQUESTS * 3 / 4),
+		/** Routing table refreshes and random lookups. */
+		MAINTENANCE(TaskManager.MAX_ACTIVE_TASKS / 4, TaskManager.MAX_CONCURRENT_TASK_REQUESTS_LOW_PRIORITY,
+				TaskManager.MAX_OUTSTANDING_REQUESTS / 4);
+
+		private final int maxRunningTasks;
+		private final int maxConcurrentRequests;
+		private final int requestBudget;
+
+		Priority(int maxRunningTasks, int maxConcurrentRequests, int requestBudget) {
+			this.maxRunningTasks = maxRunningTasks;
+			this.maxConcurrentRequests = maxConcurrentRequests;
+			this.requestBudget = requestBudget;
+		}
+
+		/**
+		 * Returns the maximum number of running tasks of this class.
+		 *
+		 * @return the maximum number of running tasks
+		 */
+		public int maxRunningTasks() {
+			return maxRunningTasks;
+		}
+
+		/**
+		 * Returns the maximum number of concurrent RPC requests of a task of this class.
+		 *
+		 * @return the maximum number of concurrent requests per task
+		 */
+		public int maxConcurrentRequests() {
+			return maxConcurrentRequests;
+		}
+
+		/**
+		 * Returns the number of the outstanding RPC requests of all the tasks, below which a task
+		 * of this class may send a new request.
+		 *
+		 * @return the outstanding request budget
+		 */
+		public int requestBudget() {
+			return requestBudget;
+		}
+	}
+
 	/**
 	 * Constructs a new task with the given Kademlia context.
 	 *
@@ -95,6 +161,7 @@ public abstract class Task<S extends Task<S>> implements Comparable<Task<S>> {
 		this.name = NONAME;
 		this.taskId = Integer.toUnsignedLong(nextTaskId.getAndIncrement());
 		this.state = State.INITIAL;
+		this.priority = Priority.INTERACTIVE;
 		// Initialize with small capacity for inFlight map to optimize memory
 		this.inFlight = new HashMap<>(8);
 
@@ -133,15 +200,70 @@ public abstract class Task<S extends Task<S>> implements Comparable<Task<S>> {
 
 	/**
 	 * Marks the task as low priority, limiting the number of concurrent RPC requests.
+	 * Same as {@code setPriority(Priority.MAINTENANCE)}.
 	 *
 	 * @return this task for method chaining
 	 */
-	@SuppressWarnings("unchecked")
 	public S lowPriority() {
-		this.lowPriority = true;
+		return setPriority(Priority.MAINTENANCE);
+	}
+
+	/**
+	 * Sets the scheduling class of the task. Must be set before the task is added to the
+	 * task manager.
+	 *
+	 * @param priority the scheduling class
+	 * @return this task for method chaining
+	 */
+	@SuppressWarnings("unchecked")
+	public S setPriority(Priority priority) {
+		assert (priority != null) : "Invalid priority";
+		assert (state == State.INITIAL) : "Task already queued";
+
+		this.priority = priority;
 		return (S) this;
 	}
 
+	/**
+	 * Returns the scheduling class of the task.
+	 *
+	 * @return the scheduling class
+	 */
+	public Priority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Sets the deadline of the task. A queued task past its deadline is dropped without being
+	 * started, a running task past its deadline is shortcut by {@link #deadlineExceeded()}.
+	 *
+	 * @param deadline the deadline in milliseconds since the epoch, or 0 for no deadline
+	 * @return this task for method chaining
+	 */
+	@SuppressWarnings("unchecked")
+	public S setDeadline(long deadline) {
+		this.deadline = deadline;
+		return (S) this;
+	}
+
+	/**
+	 * Returns the deadline of the task.
+	 *
+	 * @return the deadline in milliseconds since the epoch, or 0 if no deadline
+	 */
+	public long getDeadline() {
+		return deadline;
+	}
+
+	/**
+	 * Checks if the task has a deadline and the deadline has passed.
+	 *
+	 * @return true if the deadline has passed, false otherwise
+	 */
+	public boolean isExpired() {
+		return deadline > 0 && System.currentTimeMillis() >= deadline;
+	}
+
 	/**
 	 * Returns the name of the task.
 	 *
@@ -236,6 +358,25 @@ public abstract class Task<S extends Task<S>> implements Comparable<Task<S>> {
 		return inFlight.size();
 	}
 
+	/**
+	 * Returns the number of in-flight RPC calls that have exceeded their expected RTT and
+	 * are still waiting for the response.
+	 *
+	 * @return the number of stalled calls
+	 */
+	public int getStalledCalls() {
+		return stalledCalls;
+	}
+
+	/**
+	 * Returns the number of asynchronous steps currently pending for this task.
+	 *
+	 * @return the number of pending steps
+	 */
+	public int getPendingSteps() {
+		return pendingSteps;
+	}
+
 	/**
 	 * Sets the end handler to be called when the task reaches a terminal state.
 	 * Used by the TaskManager to track task completion.
@@ -250,6 +391,30 @@ public abstract class Task<S extends Task<S>> implements Comparable<Task<S>> {
 			endHandler.accept(this);
 	}
 
+	/**
+	 * Sets the task manager that accounts the in-flight requests of this task against the
+	 * global request budget.
+	 *
+	 * @param manager the task manager, or null to detach
+	 */
+	void manager(TaskManager manager) {
+		this.manager = manager;
+	}
+
+	/**
+	 * Resumes a running task that was held back by the global request budget.
+	 */
+	void resume() {
+		if (!isRunning())
+			return;
+
+		try {
+			tryIterate();
+		} catch (Exception e) {
+			getLogger().error("{}#{} resume failed", name, taskId, e);
+		}
+	}
+
 	/**
 	 * Adds a listener to receive task lifecycle events (e.g., started, completed, canceled).
 	 *
@@ -316,6 +481,12 @@ public abstract class Task<S extends Task<S>> implements Comparable<Task<S>> {
 		getLogger().debug("{}#{} iterate...", name, taskId);
 		getLogger().trace(getStatus());
 
+		if (isExpired()) {
+			getLogger().debug("{}#{} deadline exceeded", name, taskId);
+			deadlineExceeded();
+			return;
+		}
+
 		if (isDone()) {
 			complete();
 			return;
@@ -417,6 +588,33 @@ public abstract class Task<S extends Task<S>> implements Comparable<Task<S>> {
 		return state == State.COMPLETED || state == State.CANCELED;
 	}
 
+	/**
+	 * Returns the creation time of the task.
+	 *
+	 * @return the creation time in milliseconds
+	 */
+	public long getCreateTime() {
+		return createTime;
+	}
+
+	/**
+	 * Returns the time the task was queued to the task manager.
+	 *
+	 * @return the queued time in milliseconds, or 0 if never queued
+	 */
+	public long getQueuedTime() {
+		return queuedTime;
+	}
+
+	/**
+	 * Records the time the task was queued to the task manager.
+	 *
+	 * @param queuedTime the queued time in milliseconds
+	 */
+	void queuedTime(long queuedTime) {
+		this.queuedTime = queuedTime;
+	}
+
 	/**
 	 * Returns the start time of the task.
 	 *
@@ -457,13 +655,25 @@ public abstract class Task<S extends Task<S>> implements Comparable<Task<S>> {
 	}
 
 	/**
-	 * Checks if the task can issue additional RPC requests based on concurrency limits.
+	 * Checks if the task can issue additional RPC requests based on the concurrency limit of its
+	 * class and the global request budget of the task manager.
 	 *
 	 * @return true if requests can be sent, false otherwise
 	 */
 	protected boolean canDoRequest() {
-		return isRunning() && (inFlight.size() < (lowPriority ? TaskManager.MAX_CONCURRENT_TASK_REQUESTS_LOW_PRIORITY
-				: TaskManager.MAX_CONCURRENT_TASK_REQUESTS));
+		return isRunning() && inFlight.size() < priority.maxConcurrentRequests() &&
+				(manager == null || manager.canSendRequest(this));
+	}
+
+	// Removes the finished call from the in-flight calls and releases its request budget
+	private void callEnded(RpcCall call, RpcCall.State previous) {
+		if (inFlight.remove(call.getTxid()) == null)
+			return;
+
+		if (previous == RpcCall.State.STALLED)
+			stalledCalls--;
+		if (manager != null)
+			manager.requestEnded(this);
 	}
 
 	// Internal listener for RPC call state changes, updating the task's state and triggering iteration.
@@ -481,16 +691,20 @@ public abstract class Task<S extends Task<S>> implements Comparable<Task<S>> {
 			case SENT:
 				callSent(call);
 				break;
+			case STALLED:
+				if (previous != RpcCall.State.STALLED && inFlight.containsKey(call.getTxid()))
+					stalledCalls++;
+				break;
 			case RESPONDED:
-				inFlight.remove(call.getTxid());
+				callEnded(call, previous);
 				callResponded(call);
 				break;
 			case ERROR:
-				inFlight.remove(call.getTxid());
+				callEnded(call, previous);
 				callError(call);
 				break;
 			case TIMEOUT:
-				inFlight.remove(call.getTxid());
+				callEnded(call, previous);
 				callTimeout(call);
 				break;
 		}
@@ -529,12 +743,44 @@ public abstract class Task<S extends Task<S>> implements Comparable<Task<S>> {
 			beforeSend.accept(call);
 
 		inFlight.put(call.getTxid(), call);
+		if (manager != null)
+			manager.requestSent(this);
 
 		getLogger().trace("{}#{} sending call to {}...", name, taskId, node);
 		sendCall(call);
 		return true;
 	}
 
+	/**
+	 * Continues the processing of a response after an asynchronous step, e.g. the signature
+	 * verification offloaded from the event loop. The task is not done while any step is pending.
+	 * <p>
+	 * The handler is called on the task context, unless the task has ended in the meantime; then
+	 * the task iterates again. A step that is already complete is handled immediately.
+	 *
+	 * @param step    the asynchronous step, must complete on the task context
+	 * @param handler the handler of the step result
+	 * @param <T>     the result type of the step
+	 */
+	protected <T> void await(Future<T> step, Handler<AsyncResult<T>> handler) {
+		if (step.isComplete()) {
+			handler.handle(step);
+			return;
+		}
+
+		pendingSteps++;
+		step.onComplete(ar -> {
+			pendingSteps--;
+			if (isEnd()) {
+				getLogger().debug("{}#{} step result ignored due to the task is terminated", name, taskId);
+				return;
+			}
+
+			handler.handle(ar);
+			tryIterate();
+		});
+	}
+
 	/**
 	 * Enqueue the send call action to the event loop of current vertx context.
 	 *
@@ -552,6 +798,14 @@ public abstract class Task<S extends Task<S>> implements Comparable<Task<S>> {
 	protected void prepare() {
 	}
 
+	/**
+	 * Called when the deadline of the running task has passed. By default, the task completes with
+	 * the result collected so far; subclasses may override to cancel or to wind down instead.
+	 */
+	protected void deadlineExceeded() {
+		complete();
+	}
+
 	/**
 	 * Called when an RPC call is sent. Subclasses may override to handle this event.
 	 *
@@ -600,7 +854,7 @@ public abstract class Task<S extends Task<S>> implements Comparable<Task<S>> {
 	 * @return true if the task is done, false otherwise
 	 */
 	protected boolean isDone() {
-		return inFlight.isEmpty();
+		return inFlight.isEmpty() && pendingSteps == 0;
 	}
 
 	/**
@@ -663,6 +917,7 @@ public abstract class Task<S extends Task<S>> implements Comparable<Task<S>> {
 
 		repr.append(", network: ").append(context.getNetwork());
 
+		repr.append(", priority: ").append(priority);
 		repr.append(", state: ").append(state);
 		if (startTime != 0) {
 			if (endTime == 0)
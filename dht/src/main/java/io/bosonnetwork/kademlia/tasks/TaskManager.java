@@ -23,21 +23,36 @@
 
 package io.bosonnetwork.kademlia.tasks;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.bosonnetwork.kademlia.impl.KadContext;
+import io.bosonnetwork.kademlia.metrics.DHTMetrics;
+import io.bosonnetwork.kademlia.rpc.RpcServer;
 
 /**
  * A class for managing Kademlia tasks, handling queuing, execution, removal, and cancellation.
  * Enforces limits on active tasks and concurrent RPC requests to prevent overload in a single-threaded
  * Vert.x event loop. Integrated with {@link KadContext} for task scheduling. Designed for single-threaded
  * use; not thread-safe.
+ * <p>
+ * The tasks are queued by their {@link Task.Priority} class and always dequeued from the highest
+ * priority class that is under its running task budget. The outstanding RPC requests of all the
+ * running tasks share one budget, derived from the RPC server's active call limit; the lower
+ * classes can only use a part of it, so there is always room left for the interactive lookups.
+ * A task held back by the request budget is resumed as soon as the budget is released.
+ * <p>
+ * A queued task past its deadline is dropped without being started.
  */
 public class TaskManager {
 	/** Maximum number of active tasks. */
@@ -46,24 +61,53 @@ public class TaskManager {
 	static final int MAX_CONCURRENT_TASK_REQUESTS = 16;
 	/** Maximum concurrent RPC requests for low-priority tasks. */
 	static final int MAX_CONCURRENT_TASK_REQUESTS_LOW_PRIORITY = 4;
+	/**
+	 * Maximum outstanding RPC requests of all the tasks, leaves the rest of the RPC server's
+	 * active calls to the routing table pings and the sibling DHT.
+	 */
+	static final int MAX_OUTSTANDING_REQUESTS = RpcServer.MAX_ACTIVE_CALLS / 4;
+
+	private static final Task.Priority[] PRIORITIES = Task.Priority.values();
 
 	private final KadContext context;
-	private final Deque<Task<?>> queuedTasks;
+	private final DHTMetrics metrics;
+	private final Deque<Task<?>>[] queuedTasks;
 	private final Set<Task<?>> runningTasks;
+	private final int[] runningByPriority;
+	private final Set<Task<?>> starvedTasks;
+	private int outstandingRequests;
+	private boolean resumeScheduled;
 	private boolean canceling;
 
 	private static final Logger log = LoggerFactory.getLogger(TaskManager.class);
 
 	/**
-	 * Constructs a new TaskManager with the given context and default limits.
+	 * Constructs a new TaskManager with the given context, default limits and metrics collector.
 	 *
 	 * @param context the Kademlia context
+	 * @param metrics the metrics collector, null to disable metrics
 	 */
-	public TaskManager(KadContext context) {
+	@SuppressWarnings("unchecked")
+	public TaskManager(KadContext context, DHTMetrics metrics) {
 		this.context = context;
+		this.metrics = metrics;
+
+		queuedTasks = new Deque[PRIORITIES.length];
+		for (int i = 0; i < PRIORITIES.length; i++)
+			queuedTasks[i] = new ArrayDeque<>();
 
-		queuedTasks = new LinkedList<>();
 		runningTasks = new HashSet<>();
+		runningByPriority = new int[PRIORITIES.length];
+		starvedTasks = new LinkedHashSet<>();
+	}
+
+	/**
+	 * Constructs a new TaskManager with the given context and default limits.
+	 *
+	 * @param context the Kademlia context
+	 */
+	public TaskManager(KadContext context) {
+		this(context, null);
 	}
 
 	/**
@@ -73,7 +117,7 @@ public class TaskManager {
 	 * </p>
 	 *
 	 * @param task  the task to add
-	 * @param prior true to add to the front of the queue (priority), false to the end
+	 * @param prior true to add to the front of the queue of its priority class, false to the end
 	 * @throws IllegalStateException if the manager is currently canceling tasks
 	 */
 	public void add(Task<?> task, boolean prior) {
@@ -88,24 +132,30 @@ public class TaskManager {
 			remove(t);
 			dequeue();
 		});
+		task.manager(this);
 
 		if (task.getState() == Task.State.RUNNING) {
 			log.trace("Add running task directly: {}", task);
 			runningTasks.add(task);
+			runningByPriority[task.getPriority().ordinal()]++;
+			outstandingRequests += task.getInFlightCalls();
 			return;
 		}
 
 		if (!task.setState(Task.State.INITIAL, Task.State.QUEUED)) {
 			log.error("!!!INTERNAL ERROR: task is not in INITIAL state: {}", task);
 			task.endHandler(null);
+			task.manager(null);
 			return;
 		}
 
 		log.trace("Add task to queue: {}", task);
+		task.queuedTime(System.currentTimeMillis());
+		Deque<Task<?>> queue = queuedTasks[task.getPriority().ordinal()];
 		if (prior)
-			queuedTasks.addFirst(task);
+			queue.addFirst(task);
 		else
-			queuedTasks.addLast(task);
+			queue.addLast(task);
 
 		context.runOnContext(v -> dequeue());
 	}
@@ -134,12 +184,21 @@ public class TaskManager {
 	 */
 	public boolean remove(Task<?> task) {
 		log.trace("Remove task: {}", task);
-		if (queuedTasks.remove(task)) {
+		int priority = task.getPriority().ordinal();
+		if (queuedTasks[priority].remove(task)) {
 			log.debug("Removed queued task: {}", task);
 			return true;
 		}
 		if (runningTasks.remove(task)) {
 			log.debug("Removed running task: {}", task);
+			runningByPriority[priority]--;
+			starvedTasks.remove(task);
+			release(task.getInFlightCalls());
+
+			if (metrics != null && task.getStartTime() != 0) {
+				long endTime = task.getEndTime() != 0 ? task.getEndTime() : System.currentTimeMillis();
+				metrics.taskEnded(task.getPriority(), endTime - task.getStartTime());
+			}
 			return true;
 		}
 		return false;
@@ -149,9 +208,9 @@ public class TaskManager {
 	 * Dequeues and starts tasks when the manager is ready.
 	 */
 	protected void dequeue() {
-		log.trace("Dequeue: running={}, queued={}", runningTasks.size(), queuedTasks.size());
+		log.trace("Dequeue: running={}, queued={}", runningTasks.size(), getQueuedTasks());
 		while (isReady()) {
-			Task<?> task = queuedTasks.pollFirst();
+			Task<?> task = poll();
 			if (task == null) {
 				log.debug("Queue drained");
 				break;
@@ -160,12 +219,99 @@ public class TaskManager {
 			if (task.isEnd())
 				continue;
 
+			if (task.isExpired()) {
+				log.debug("Drop expired task: {}", task);
+				task.endHandler(null);
+				task.manager(null);
+				task.cancel();
+				if (metrics != null)
+					metrics.taskDropped(task.getPriority());
+				continue;
+			}
+
 			log.debug("Start task: {}", task);
 			runningTasks.add(task);
+			runningByPriority[task.getPriority().ordinal()]++;
+			if (metrics != null)
+				metrics.taskStarted(task.getPriority(), System.currentTimeMillis() - task.getQueuedTime());
+
 			context.runOnContext(task::start);
 		}
 	}
 
+	// Polls the next task from the highest priority class that is under its running task budget
+	private Task<?> poll() {
+		for (Task.Priority priority : PRIORITIES) {
+			int i = priority.ordinal();
+			if (runningByPriority[i] < priority.maxRunningTasks() && !queuedTasks[i].isEmpty())
+				return queuedTasks[i].pollFirst();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Checks if the task can send a new RPC request within the outstanding request budget of its
+	 * priority class. If not, the task is resumed when the budget is released.
+	 *
+	 * @param task the running task
+	 * @return true if the request can be sent, false otherwise
+	 */
+	boolean canSendRequest(Task<?> task) {
+		if (outstandingRequests < task.getPriority().requestBudget())
+			return true;
+
+		log.trace("Task held back by the request budget: {}", task);
+		starvedTasks.add(task);
+		return false;
+	}
+
+	/**
+	 * Accounts a new RPC request of the task against the outstanding request budget.
+	 *
+	 * @param task the running task
+	 */
+	void requestSent(Task<?> task) {
+		outstandingRequests++;
+	}
+
+	/**
+	 * Releases the budget of a finished RPC request of the task.
+	 *
+	 * @param task the running task
+	 */
+	void requestEnded(Task<?> task) {
+		release(1);
+	}
+
+	private void release(int requests) {
+		if (requests == 0)
+			return;
+
+		outstandingRequests -= requests;
+		if (!starvedTasks.isEmpty() && !resumeScheduled) {
+			resumeScheduled = true;
+			context.runOnContext(v -> resume());
+		}
+	}
+
+	// Resumes the tasks held back by the request budget, the higher priority classes first
+	private void resume() {
+		resumeScheduled = false;
+		if (starvedTasks.isEmpty())
+			return;
+
+		List<Task<?>> tasks = new ArrayList<>(starvedTasks);
+		starvedTasks.clear();
+		tasks.sort(Comparator.comparing(Task::getPriority));
+		for (Task<?> task : tasks) {
+			if (outstandingRequests < task.getPriority().requestBudget())
+				task.resume();
+			else
+				starvedTasks.add(task);
+		}
+	}
+
 	/**
 	 * Returns the number of running tasks.
 	 *
@@ -175,13 +321,45 @@ public class TaskManager {
 		return runningTasks.size();
 	}
 
+	/**
+	 * Returns the number of running tasks of the given priority class.
+	 *
+	 * @param priority the priority class
+	 * @return the number of running tasks of the class
+	 */
+	public int getRunningTasks(Task.Priority priority) {
+		return runningByPriority[priority.ordinal()];
+	}
+
 	/**
 	 * Returns the number of queued tasks.
 	 *
 	 * @return the number of queued tasks
 	 */
 	public int getQueuedTasks() {
-		return queuedTasks.size();
+		int total = 0;
+		for (Deque<Task<?>> queue : queuedTasks)
+			total += queue.size();
+		return total;
+	}
+
+	/**
+	 * Returns the number of queued tasks of the given priority class.
+	 *
+	 * @param priority the priority class
+	 * @return the number of queued tasks of the class
+	 */
+	public int getQueuedTasks(Task.Priority priority) {
+		return queuedTasks[priority.ordinal()].size();
+	}
+
+	/**
+	 * Returns the number of outstanding RPC requests of all the running tasks.
+	 *
+	 * @return the number of outstanding requests
+	 */
+	public int getOutstandingRequests() {
+		return outstandingRequests;
 	}
 
 	/**
@@ -202,17 +380,24 @@ public class TaskManager {
 	public void cancelAll() {
 		canceling = true;
 
-		log.info("Canceling all tasks: running={}, queued={}", runningTasks.size(), queuedTasks.size());
-		for (Task<?> task : queuedTasks) {
-			task.endHandler(null);
-			task.cancel();
+		log.info("Canceling all tasks: running={}, queued={}", runningTasks.size(), getQueuedTasks());
+		for (Deque<Task<?>> queue : queuedTasks) {
+			for (Task<?> task : queue) {
+				task.endHandler(null);
+				task.manager(null);
+				task.cancel();
+			}
+			queue.clear();
 		}
-		queuedTasks.clear();
 		for (Task<?> task : runningTasks) {
 			task.endHandler(null);
+			task.manager(null);
 			task.cancel();
 		}
 		runningTasks.clear();
+		starvedTasks.clear();
+		Arrays.fill(runningByPriority, 0);
+		outstandingRequests = 0;
 
 		canceling = false;
 	}
@@ -226,14 +411,18 @@ public class TaskManager {
 	public String toString() {
 		StringBuilder repr = new StringBuilder();
 
+		repr.append("# Outstanding requests: ").append(outstandingRequests).append('\n');
+
 		repr.append("# Running: \n");
 		for (Task<?> t : runningTasks)
 			repr.append(" - ").append(t).append('\n');
 
 		repr.append("# Queued: \n");
-		for (Task<?> t : queuedTasks)
-			repr.append(" - ").append(t.toString()).append('\n');
+		for (Deque<Task<?>> queue : queuedTasks) {
+			for (Task<?> t : queue)
+				repr.append(" - ").append(t.toString()).append('\n');
+		}
 
 		return repr.toString();
 	}
-}
\ No newline at end of file
+}
@@ -64,6 +64,7 @@ public class ValueAnnounceTask extends Task<ValueAnnounceTask> {
 		this.value = value;
 		this.expectedSequenceNumber = expectedSequenceNumber;
 		this.todo = new ArrayDeque<>();
+		setPriority(Priority.ANNOUNCE);
 	}
 
 	/**
@@ -39,6 +39,7 @@ import io.bosonnetwork.kademlia.routing.KBucket;
 import io.bosonnetwork.kademlia.routing.KBucketEntry;
 import io.bosonnetwork.kademlia.routing.KClosestNodes;
 import io.bosonnetwork.kademlia.rpc.RpcCall;
+import io.bosonnetwork.kademlia.security.SignatureVerifier;
 
 /**
  * A task for performing a Kademlia value lookup to find a value associated with a target ID,
@@ -64,7 +65,7 @@ public class ValueLookupTask extends LookupTask<EligibleValue, ValueLookupTask>
 	public ValueLookupTask(KadContext context, Id target, int expectedSequenceNumber, boolean doneOnEligibleResult) {
 		super(context, target, doneOnEligibleResult);
 		this.expectedSequenceNumber = expectedSequenceNumber;
-		setResult(new EligibleValue(target, expectedSequenceNumber));
+		setResult(new EligibleValue(target, expectedSequenceNumber, context.getVerificationCache()::isValid));
 	}
 
 	/**
@@ -124,20 +125,22 @@ public class ValueLookupTask extends LookupTask<EligibleValue, ValueLookupTask>
 		FindValueResponse body = response.getBody();
 		if (body.hasValue()) {
 			Value value = body.getValue();
-			if (!result.update(value)) {
-				log.warn("{}#{} dropping response from {} due to ineligible value(id | sequenceNumber | signature mismatch)",
-						getName(), getId(), call.getTargetId());
+			SignatureVerifier verifier = getContext().getSignatureVerifier();
+			if (verifier == null) {
+				updateValue(call, value);
 				return;
 			}
 
-			if (!result.isEmpty()) {
-				if (doneOnEligibleResult) {
-					log.debug("{}#{} value is eligible, done on result", getName(), getId());
-					lookupDone = true;
-				} else {
-					log.trace("{}#{} value is eligible, continuing iteration for precise result", getName(), getId());
+			// verify the signature off the event loop, the eligible value then hits the verification cache
+			await(verifier.verify(value), ar -> {
+				if (ar.failed()) {
+					log.debug("{}#{} dropping response from {}: {}", getName(), getId(), call.getTargetId(),
+							ar.cause().getMessage());
+					return;
 				}
-			}
+
+				updateValue(call, value);
+			});
 		} else {
 			List<NodeInfo> nodes = response.<FindValueResponse>getBody().getNodes(getContext().getNetwork());
 			if (nodes.isEmpty()) {
@@ -159,6 +162,23 @@ public class ValueLookupTask extends LookupTask<EligibleValue, ValueLookupTask>
 		}
 	}
 
+	private void updateValue(RpcCall call, Value value) {
+		if (!result.update(value)) {
+			log.warn("{}#{} dropping response from {} due to ineligible value(id | sequenceNumber | signature mismatch)",
+					getName(), getId(), call.getTargetId());
+			return;
+		}
+
+		if (!result.isEmpty()) {
+			if (doneOnEligibleResult) {
+				log.debug("{}#{} value is eligible, done on result", getName(), getId());
+				lookupDone = true;
+			} else {
+				log.trace("{}#{} value is eligible, continuing iteration for precise result", getName(), getId());
+			}
+		}
+	}
+
 	/**
 	 * Returns the logger for this task.
 	 *
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.net.InetAddress;
+import java.nio.ByteOrder;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import io.vertx.core.net.SocketAddress;
+
+/**
+ * Maps the IP addresses to primitive {@code long} keys, for the per address bookkeeping on the
+ * packet path.
+ * <p>
+ * An IPv4 address maps to its 32-bit value, an IPv6 address to its /64 prefix, so all the
+ * addresses of an IPv6 subnet share the same key. The IPv4-mapped IPv6 addresses map to the IPv4
+ * key. The keys of the IPv6 prefixes in {@code ::/32} overlap the IPv4 keys, none of them is a
+ * global unicast prefix.
+ * <p>
+ * The host keys of {@link #ofHost(byte[])} tell the hosts of an IPv6 subnet apart, for the
+ * bookkeeping that must not be shared across a subnet.
+ * <p>
+ * The address literals are parsed in place, without {@link InetAddress} and without allocation,
+ * so the key of a packet sender is computed straight from the host string of its socket address.
+ */
+public final class AddressKeys {
+	/** The key of an invalid address literal; also the key of the {@code ffff:ffff:ffff:ffff::/64} multicast prefix. */
+	public static final long INVALID = -1L;
+
+	private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+	private static final long IPV4_MAPPED_PREFIX = 0x0000_ffffL;
+
+	private static final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[16]);
+
+	// Random per process, so the IPv6 host key collisions can not be chosen by the remote peers
+	private static final long HOST_KEY_K0;
+	private static final long HOST_KEY_K1;
+	private static final ThreadLocal<SipHash> hostHash;
+
+	static {
+		SecureRandom random = new SecureRandom();
+		HOST_KEY_K0 = random.nextLong();
+		HOST_KEY_K1 = random.nextLong();
+		hostHash = ThreadLocal.withInitial(() -> new SipHash(HOST_KEY_K0, HOST_KEY_K1));
+	}
+
+	private AddressKeys() {
+	}
+
+	/**
+	 * Returns the key of the raw address.
+	 *
+	 * @param address the raw IPv4 (4 bytes) or IPv6 (16 bytes) address
+	 * @return the address key, or {@link #INVALID} if the length is invalid
+	 */
+	public static long of(byte[] address) {
+		if (address.length == 4)
+			return ipv4(address, 0);
+
+		if (address.length != 16)
+			return INVALID;
+
+		return isIPv4Mapped(address) ? ipv4(address, 12) : (long) LONG.get(address, 0);
+	}
+
+	/**
+	 * Returns the key of the address.
+	 *
+	 * @param address the IP address
+	 * @return the address key
+	 */
+	public static long of(InetAddress address) {
+		return of(address.getAddress());
+	}
+
+	/**
+	 * Returns the key of the single host address. An IPv4 address maps to the same key as
+	 * {@link #of(byte[])}, an IPv6 address to a keyed hash of all its 128 bits, which is negative
+	 * and never {@link #INVALID}, so it does not overlap the IPv4 keys.
+	 *
+	 * @param address the raw IPv4 (4 bytes) or IPv6 (16 bytes) address
+	 * @return the host key, or {@link #INVALID} if the length is invalid
+	 */
+	public static long ofHost(byte[] address) {
+		if (address.length != 16 || isIPv4Mapped(address))
+			return of(address);
+
+		long hash = hostHash.get().hash(address, 0, address.length) | Long.MIN_VALUE;
+		return hash == INVALID ? INVALID - 1 : hash;
+	}
+
+	/**
+	 * Returns the key of the single host address, see {@link #ofHost(byte[])}.
+	 *
+	 * @param address the IP address
+	 * @return the host key
+	 */
+	public static long ofHost(InetAddress address) {
+		return ofHost(address.getAddress());
+	}
+
+	/**
+	 * Returns the key of the host address of a socket address.
+	 *
+	 * @param address the Vert.x socket address
+	 * @return the address key, or {@link #INVALID} if it is not an IP socket address
+	 */
+	public static long of(SocketAddress address) {
+		return of(host(address));
+	}
+
+	// the IP literal of a socket address, null if it is not an IP socket address
+	private static String host(SocketAddress address) {
+		String host = address.hostAddress();
+		return host != null ? host : address.host();
+	}
+
+	/**
+	 * Returns the key of an IP address literal.
+	 *
+	 * @param literal the IPv4 or IPv6 address literal, the IPv6 one optionally in brackets or with
+	 *                a scope suffix
+	 * @return the address key, or {@link #INVALID} if it is not a valid address literal
+	 */
+	public static long of(String literal) {
+		if (literal == null || literal.isEmpty())
+			return INVALID;
+
+		if (literal.indexOf(':') < 0)
+			return parseIPv4(literal, 0, literal.length());
+
+		byte[] buf = scratch.get();
+		return parseIPv6(literal, buf) < 0 ? INVALID : of(buf);
+	}
+
+	/**
+	 * Parses the host address of a socket address into the raw address bytes.
+	 *
+	 * @param address the Vert.x socket address
+	 * @param dest    the destination buffer, at least 16 bytes
+	 * @return the length of the address, 4 or 16, or -1 if it is not an IP socket address
+	 */
+	public static int toBytes(SocketAddress address, byte[] dest) {
+		return toBytes(host(address), dest);
+	}
+
+	/**
+	 * Parses an IP address literal into the raw address bytes. Like {@link InetAddress#getByName(String)},
+	 * an IPv4-mapped IPv6 address is converted to the IPv4 address.
+	 *
+	 * @param literal the IPv4 or IPv6 address literal
+	 * @param dest    the destination buffer, at least 16 bytes
+	 * @return the length of the address, 4 or 16, or -1 if it is not a valid address literal
+	 */
+	public static int toBytes(String literal, byte[] dest) {
+		if (literal == null || literal.isEmpty())
+			return -1;
+
+		if (literal.indexOf(':') >= 0) {
+			if (parseIPv6(literal, dest) < 0)
+				return -1;
+
+			if (!isIPv4Mapped(dest))
+				return 16;
+
+			System.arraycopy(dest, 12, dest, 0, 4);
+			return 4;
+		}
+
+		long v4 = parseIPv4(literal, 0, literal.length());
+		if (v4 < 0)
+			return -1;
+
+		writeIPv4(dest, 0, v4);
+		return 4;
+	}
+
+	private static boolean isIPv4Mapped(byte[] address) {
+		return (long) LONG.get(address, 0) == 0 && ((long) LONG.get(address, 8) >>> 32) == IPV4_MAPPED_PREFIX;
+	}
+
+	private static long ipv4(byte[] address, int offset) {
+		return (address[offset] & 0xffL) << 24 | (address[offset + 1] & 0xffL) << 16 |
+				(address[offset + 2] & 0xffL) << 8 | (address[offset + 3] & 0xffL);
+	}
+
+	private static void writeIPv4(byte[] dest, int offset, long v4) {
+		dest[offset] = (byte) (v4 >>> 24);
+		dest[offset + 1] = (byte) (v4 >>> 16);
+		dest[offset + 2] = (byte) (v4 >>> 8);
+		dest[offset + 3] = (byte) v4;
+	}
+
+	// dotted decimal, exactly 4 parts of 1 to 3 digits each; -1 if invalid
+	private static long parseIPv4(String s, int start, int end) {
+		long result = 0;
+		int parts = 0;
+		int i = start;
+		while (i < end) {
+			int partStart = i;
+			int value = 0;
+			while (i < end) {
+				char c = s.charAt(i);
+				if (c < '0' || c > '9')
+					break;
+
+				value = value * 10 + (c - '0');
+				if (++i - partStart > 3)
+					return INVALID;
+			}
+
+			if (i == partStart || value > 255)
+				return INVALID;
+
+			result = (result << 8) | value;
+			if (++parts == 4)
+				return i == end ? result : INVALID;
+
+			if (i == end || s.charAt(i) != '.')
+				return INVALID;
+
+			i++;
+		}
+
+		return INVALID;
+	}
+
+	// RFC 4291 text form, with "::" and an optional dotted IPv4 tail; -1 if invalid
+	private static int parseIPv6(String s, byte[] dest) {
+		int start = 0;
+		int end = s.length();
+		if (s.charAt(0) == '[') {
+			if (s.charAt(end - 1) != ']')
+				return -1;
+
+			start++;
+			end--;
+		}
+
+		int scope = s.indexOf('%', start);
+		if (scope >= 0 && scope < end)
+			end = scope;
+
+		int i = start;
+		int p = 0;
+		int gap = -1;
+		if (i < end && s.charAt(i) == ':') {
+			if (i + 1 >= end || s.charAt(i + 1) != ':')
+				return -1;
+
+			gap = 0;
+			i += 2;
+		}
+
+		while (i < end) {
+			int groupStart = i;
+			int value = 0;
+			while (i < end) {
+				int digit = Character.digit(s.charAt(i), 16);
+				if (digit < 0)
+					break;
+
+				value = (value << 4) | digit;
+				i++;
+			}
+
+			if (i < end && s.charAt(i) == '.') {
+				// IPv4 tail, always the last 4 bytes
+				if (p > 12)
+					return -1;
+
+				long v4 = parseIPv4(s, groupStart, end);
+				if (v4 < 0)
+					return -1;
+
+				writeIPv4(dest, p, v4);
+				p += 4;
+				break;
+			}
+
+			if (i == groupStart || i - groupStart > 4 || p > 14)
+				return -1;
+
+			dest[p++] = (byte) (value >>> 8);
+			dest[p++] = (byte) value;
+			if (i == end)
+				break;
+
+			if (s.charAt(i++) != ':' || i == end)
+				return -1;
+
+			if (s.charAt(i) == ':') {
+				if (gap >= 0)
+					return -1;
+
+				gap = p;
+				i++;
+			}
+		}
+
+		if (gap >= 0) {
+			// "::" stands for at least one group of zeros
+			if (p > 14)
+				return -1;
+
+			int tail = p - gap;
+			System.arraycopy(dest, gap, dest, 16 - tail, tail);
+			Arrays.fill(dest, gap, 16 - tail, (byte) 0);
+		} else if (p != 16) {
+			return -1;
+		}
+
+		return 16;
+	}
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link Timer} backed by a hashed timing wheel, for the large number of short one-shot timers
+ * that are almost always cancelled before they fire, such as the RPC call timeouts.
+ * <p>
+ * The one-shot timers are kept in the wheel slots as intrusive linked nodes: scheduling and
+ * cancelling are O(1) and never touch the Vert.x scheduler. The wheel is driven by one Vert.x
+ * periodic timer, which runs only while there are timers pending. A timer fires on the first tick
+ * at or after its deadline, so it never fires early and fires at most one tick duration (plus the
+ * event loop latency) late.
+ * <p>
+ * The periodic timers are not a good fit for the wheel; they are delegated to Vert.x directly.
+ * The one-shot timer ids are negative, so they never collide with the Vert.x timer ids.
+ * <p>
+ * This class is not thread-safe: all the methods must be called on the given Vert.x context, and
+ * the handlers are invoked on that context.
+ */
+public class HashedWheelTimer implements Timer {
+	public static final long DEFAULT_TICK_DURATION = 10; // milliseconds
+	public static final int DEFAULT_WHEEL_SIZE = 1024;
+
+	private final Context context;
+	private final long tickNanos;
+	private final Slot[] wheel;
+	private final int mask;
+	private final long startTime;
+
+	private final Map<Long, Timeout> timeouts;
+	private final List<Timeout> expired;
+	private long nextId;
+	private long lastTick;
+	private long tickTimer;
+
+	private static final Logger log = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+	private static final class Timeout {
+		final long id;
+		final long deadlineTick;
+		final Consumer<Long> handler;
+		Slot slot;
+		Timeout prev;
+		Timeout next;
+
+		Timeout(long id, long deadlineTick, Consumer<Long> handler) {
+			this.id = id;
+			this.deadlineTick = deadlineTick;
+			this.handler = handler;
+		}
+	}
+
+	private static final class Slot {
+		Timeout head;
+
+		void add(Timeout timeout) {
+			timeout.slot = this;
+			timeout.next = head;
+			if (head != null)
+				head.prev = timeout;
+			head = timeout;
+		}
+
+		void remove(Timeout timeout) {
+			if (timeout.prev != null)
+				timeout.prev.next = timeout.next;
+			else
+				head = timeout.next;
+
+			if (timeout.next != null)
+				timeout.next.prev = timeout.prev;
+
+			timeout.slot = null;
+			timeout.prev = null;
+			timeout.next = null;
+		}
+	}
+
+	/**
+	 * Creates a hashed wheel timer.
+	 *
+	 * @param context      the Vert.x context that owns this timer
+	 * @param tickDuration the tick duration in milliseconds, the resolution of the one-shot timers
+	 * @param wheelSize    the number of the wheel slots, rounded up to a power of 2
+	 */
+	public HashedWheelTimer(Context context, long tickDuration, int wheelSize) {
+		if (tickDuration <= 0)
+			throw new IllegalArgumentException("Invalid tick duration: " + tickDuration);
+		if (wheelSize <= 0 || wheelSize > 1 << 20)
+			throw new IllegalArgumentException("Invalid wheel size: " + wheelSize);
+
+		this.context = context;
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+
+		int size = Integer.highestOneBit(wheelSize);
+		if (size < wheelSize)
+			size <<= 1;
+
+		this.wheel = new Slot[size];
+		for (int i = 0; i < size; i++)
+			wheel[i] = new Slot();
+		this.mask = size - 1;
+		this.startTime = System.nanoTime();
+
+		this.timeouts = new HashMap<>();
+		this.expired = new ArrayList<>();
+		this.nextId = Long.MIN_VALUE;
+		this.tickTimer = -1;
+	}
+
+	public HashedWheelTimer(Context context) {
+		this(context, DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE);
+	}
+
+	/**
+	 * Returns the number of the pending one-shot timers.
+	 *
+	 * @return the number of the pending timers
+	 */
+	public int getPendingCount() {
+		return timeouts.size();
+	}
+
+	@Override
+	public long setPeriodic(long initialDelay, long delay, Consumer<Long> handler) {
+		return context.owner().setPeriodic(initialDelay, delay, handler::accept);
+	}
+
+	@Override
+	public long setPeriodic(long delay, Consumer<Long> handler) {
+		return context.owner().setPeriodic(delay, handler::accept);
+	}
+
+	@Override
+	public long setTimer(long delay, Consumer<Long> handler) {
+		if (delay < 1)
+			throw new IllegalArgumentException("Invalid delay: " + delay);
+
+		if (tickTimer == -1) {
+			// Idle: nothing is pending, so the ticks elapsed since the last run can be skipped
+			lastTick = currentTick();
+			tickTimer = context.owner().setPeriodic(TimeUnit.NANOSECONDS.toMillis(tickNanos), unused -> {
+				if (Vertx.currentContext() == context)
+					tick();
+				else
+					context.runOnContext(v -> tick());
+			});
+		}
+
+		long deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(delay);
+		// round up, never fire early
+		long deadlineTick = Math.max((deadline + tickNanos - 1) / tickNanos, lastTick + 1);
+
+		Timeout timeout = new Timeout(nextId++, deadlineTick, handler);
+		timeouts.put(timeout.id, timeout);
+		wheel[(int) (deadlineTick & mask)].add(timeout);
+		return timeout.id;
+	}
+
+	@Override
+	public boolean cancelTimer(long timerId) {
+		if (timerId >= 0)
+			return context.owner().cancelTimer(timerId);
+
+		Timeout timeout = timeouts.remove(timerId);
+		if (timeout == null)
+			return false;
+
+		if (timeout.slot != null)
+			timeout.slot.remove(timeout);
+
+		if (timeouts.isEmpty())
+			stopTicking();
+
+		return true;
+	}
+
+	/**
+	 * Cancels all the pending one-shot timers and stops the wheel. The periodic timers are not
+	 * affected.
+	 */
+	public void clear() {
+		for (Slot slot : wheel)
+			slot.head = null;
+
+		timeouts.clear();
+		stopTicking();
+	}
+
+	private long currentTick() {
+		return (System.nanoTime() - startTime) / tickNanos;
+	}
+
+	private void stopTicking() {
+		if (tickTimer != -1) {
+			context.owner().cancelTimer(tickTimer);
+			tickTimer = -1;
+		}
+	}
+
+	private void tick() {
+		if (tickTimer == -1)
+			return;
+
+		long current = currentTick();
+		if (current <= lastTick)
+			return;
+
+		// Sweep each slot at most once, even if the event loop was stalled for more than a round
+		long slots = Math.min(current - lastTick, wheel.length);
+		for (long t = lastTick + 1; t <= lastTick + slots; t++) {
+			Slot slot = wheel[(int) (t & mask)];
+			Timeout timeout = slot.head;
+			while (timeout != null) {
+				Timeout next = timeout.next;
+				if (timeout.deadlineTick <= current) {
+					slot.remove(timeout);
+					expired.add(timeout);
+				}
+				timeout = next;
+			}
+		}
+		lastTick = current;
+
+		// The handlers may schedule or cancel the timers, invoke them after the sweep
+		try {
+			for (Timeout timeout : expired) {
+				// skip the timers cancelled by the handlers invoked before
+				if (timeouts.remove(timeout.id) == null)
+					continue;
+
+				try {
+					timeout.handler.accept(timeout.id);
+				} catch (Throwable e) {
+					log.error("Timer handler threw an exception", e);
+				}
+			}
+		} finally {
+			expired.clear();
+		}
+
+		if (timeouts.isEmpty())
+			stopTicking();
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.utils;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+/**
+ * Coalesces the concurrent identical asynchronous operations, so they share one execution and its
+ * result, and optionally reuses the results for a short period.
+ * <p>
+ * The results are kept for a fixed TTL, so the insertion order is also the expiration order, and
+ * the expired results are swept from the head on every insertion. The failures are never reused.
+ * <p>
+ * This class is thread-safe, the operations may complete on any thread.
+ *
+ * @param <K> the operation key type
+ * @param <V> the result type
+ */
+public class SingleFlight<K, V> {
+	public static final int DEFAULT_MAX_RESULTS = 4096;
+
+	private final long ttl;
+	private final int maxResults;
+
+	private final Map<K, Future<V>> inFlight;
+	private final LinkedHashMap<K, Result<V>> results;
+
+	private long executions;
+	private long coalesced;
+	private long hits;
+
+	private record Result<V>(V value, long expiresAt) {
+	}
+
+	/**
+	 * Creates a single-flight group.
+	 *
+	 * @param ttl        how long the results are reused, in milliseconds, 0 to only coalesce the
+	 *                   concurrent operations
+	 * @param maxResults the maximum number of the kept results
+	 */
+	public SingleFlight(long ttl, int maxResults) {
+		if (ttl < 0)
+			throw new IllegalArgumentException("Invalid TTL: " + ttl);
+		if (maxResults <= 0)
+			throw new IllegalArgumentException("Invalid max results: " + maxResults);
+
+		this.ttl = ttl;
+		this.maxResults = maxResults;
+		this.inFlight = new HashMap<>();
+		this.results = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Creates a single-flight group that keeps at most {@link #DEFAULT_MAX_RESULTS} results.
+	 *
+	 * @param ttl how long the results are reused, in milliseconds, 0 to only coalesce the
+	 *            concurrent operations
+	 */
+	public SingleFlight(long ttl) {
+		this(ttl, DEFAULT_MAX_RESULTS);
+	}
+
+	/**
+	 * Executes the operation, unless an identical one is in flight or its result is still fresh.
+	 *
+	 * @param key       the operation key
+	 * @param operation starts the operation
+	 * @return a {@link Future} containing the result, shared by all the identical operations
+	 */
+	public Future<V> execute(K key, Supplier<Future<V>> operation) {
+		Promise<V> promise;
+
+		synchronized (this) {
+			if (ttl > 0) {
+				Result<V> result = results.get(key);
+				if (result != null) {
+					if (result.expiresAt > System.currentTimeMillis()) {
+						hits++;
+						return Future.succeededFuture(result.value);
+					}
+
+					results.remove(key);
+				}
+			}
+
+			Future<V> running = inFlight.get(key);
+			if (running != null) {
+				coalesced++;
+				return running;
+			}
+
+			executions++;
+			promise = Promise.promise();
+			inFlight.put(key, promise.future());
+		}
+
+		Future<V> future = promise.future();
+		future.onComplete(ar -> complete(key, future, ar.succeeded() ? ar.result() : null, ar.succeeded()));
+
+		try {
+			operation.get().onComplete(promise);
+		} catch (Exception e) {
+			promise.fail(e);
+		}
+
+		return future;
+	}
+
+	private synchronized void complete(K key, Future<V> future, V value, boolean succeeded) {
+		// invalidated while in flight, the result may be stale
+		if (!inFlight.remove(key, future))
+			return;
+
+		if (!succeeded || ttl == 0)
+			return;
+
+		long now = System.currentTimeMillis();
+		// re-insert at the tail, keeps the expiration order
+		results.remove(key);
+		results.put(key, new Result<>(value, now + ttl));
+
+		Iterator<Result<V>> it = results.values().iterator();
+		while (it.hasNext()) {
+			Result<V> result = it.next();
+			if (result.expiresAt > now && results.size() <= maxResults)
+				break;
+
+			it.remove();
+		}
+	}
+
+	/**
+	 * Discards the kept results and detaches the in-flight operations of the matching keys. The
+	 * detached operations still complete for their callers, but their results are not kept.
+	 *
+	 * @param filter selects the keys to invalidate
+	 */
+	public synchronized void invalidate(Predicate<K> filter) {
+		results.keySet().removeIf(filter);
+		inFlight.keySet().removeIf(filter);
+	}
+
+	/**
+	 * Discards all the kept results and detaches all the in-flight operations.
+	 */
+	public synchronized void clear() {
+		results.clear();
+		inFlight.clear();
+	}
+
+	/**
+	 * Returns the number of the operations actually executed.
+	 *
+	 * @return the number of executions
+	 */
+	public synchronized long getExecutionCount() {
+		return executions;
+	}
+
+	/**
+	 * Returns the number of the calls joined an identical in-flight operation.
+	 *
+	 * @return the number of coalesced calls
+	 */
+	public synchronized long getCoalescedCount() {
+		return coalesced;
+	}
+
+	/**
+	 * Returns the number of the calls answered by a kept result.
+	 *
+	 * @return the number of result hits
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+}
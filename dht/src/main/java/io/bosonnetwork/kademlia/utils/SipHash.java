@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2023 -      bosonnetwork.io
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package io.bosonnetwork.kademlia.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * SipHash-2-4, the keyed 64-bit short-input PRF by Aumasson and Bernstein.
+ * <p>
+ * An instance absorbs the message a 64-bit word at a time (each word is the little-endian
+ * encoding of 8 message bytes), so a fixed-layout message is hashed straight from its fields,
+ * without a buffer and without allocation. An instance is reusable through {@link #reset()} but
+ * not thread-safe.
+ */
+public final class SipHash {
+	private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private final long k0;
+	private final long k1;
+
+	private long v0;
+	private long v1;
+	private long v2;
+	private long v3;
+	private int length;
+
+	/**
+	 * Creates a SipHash instance with the given 128-bit key.
+	 *
+	 * @param k0 the first half of the key, the little-endian bytes 0 to 7
+	 * @param k1 the second half of the key, the little-endian bytes 8 to 15
+	 */
+	public SipHash(long k0, long k1) {
+		this.k0 = k0;
+		this.k1 = k1;
+		reset();
+	}
+
+	/**
+	 * Creates a SipHash instance with the given 128-bit key.
+	 *
+	 * @param key the 16 bytes key
+	 */
+	public SipHash(byte[] key) {
+		this(readKey(key, 0), readKey(key, 8));
+	}
+
+	private static long readKey(byte[] key, int offset) {
+		if (key.length != 16)
+			throw new IllegalArgumentException("Invalid key length: " + key.length);
+
+		return (long) LONG_LE.get(key, offset);
+	}
+
+	/**
+	 * Starts a new message with the same key.
+	 *
+	 * @return this instance
+	 */
+	public SipHash reset() {
+		v0 = k0 ^ 0x736f6d6570736575L;
+		v1 = k1 ^ 0x646f72616e646f6dL;
+		v2 = k0 ^ 0x6c7967656e657261L;
+		v3 = k1 ^ 0x7465646279746573L;
+		length = 0;
+		return this;
+	}
+
+	private void round() {
+		v0 += v1;
+		v1 = Long.rotateLeft(v1, 13);
+		v1 ^= v0;
+		v0 = Long.rotateLeft(v0, 32);
+		v2 += v3;
+		v3 = Long.rotateLeft(v3, 16);
+		v3 ^= v2;
+		v0 += v3;
+		v3 = Long.rotateLeft(v3, 21);
+		v3 ^= v0;
+		v2 += v1;
+		v1 = Long.rotateLeft(v1, 17);
+		v1 ^= v2;
+		v2 = Long.rotateLeft(v2, 32);
+	}
+
+	private void compress(long m) {
+		v3 ^= m;
+		round();
+		round();
+		v0 ^= m;
+	}
+
+	/**
+	 * Absorbs the next 8 message bytes.
+	 *
+	 * @param word the 8 message bytes, in little-endian order
+	 * @return this instance
+	 */
+	public SipHash update(long word) {
+		compress(word);
+		length += Long.BYTES;
+		return this;
+	}
+
+	/**
+	 * Absorbs the last 0 to 7 message bytes and finishes the message.
+	 *
+	 * @param tail       the remaining message bytes, in little-endian order
+	 * @param tailLength the number of the remaining message bytes
+	 * @return the 64-bit hash value
+	 */
+	public long finish(long tail, int tailLength) {
+		if (tailLength < 0 || tailLength >= Long.BYTES)
+			throw new IllegalArgumentException("Invalid tail length: " + tailLength);
+
+		long mask = (1L << (tailLength << 3)) - 1;
+		compress(((long) (length + tailLength) << 56) | (tail & mask));
+
+		v2 ^= 0xff;
+		round();
+		round();
+		round();
+		round();
+		return v0 ^ v1 ^ v2 ^ v3;
+	}
+
+	/**
+	 * Finishes a message of whole words.
+	 *
+	 * @return the 64-bit hash value
+	 */
+	public long finish() {
+		return finish(0, 0);
+	}
+
+	/**
+	 * Hashes a byte array.
+	 *
+	 * @param data   the message bytes
+	 * @param offset the message offset in the array
+	 * @param length the message length
+	 * @return the 64-bit hash value
+	 */
+	public long hash(byte[] data, int offset, int length) {
+		reset();
+		int end = offset + length;
+		int i = offset;
+		for (; i + Long.BYTES <= end; i += Long.BYTES)
+			update((long) LONG_LE.get(data, i));
+
+		long tail = 0;
+		for (int shift = 0; i < end; i++, shift += 8)
+			tail |= (data[i] & 0xffL) << shift;
+
+		return finish(tail, length & 7);
+	}
+}
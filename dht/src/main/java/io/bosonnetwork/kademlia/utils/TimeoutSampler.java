@@ -330,6 +330,16 @@ public class TimeoutSampler {
 		return snapshot;
 	}
 
+	/**
+	 * Returns the RTT at the given quantile of the last snapshot, e.g. 0.5 for the median.
+	 *
+	 * @param quant the quantile, in the range [0, 1]
+	 * @return the RTT value in milliseconds
+	 */
+	public int getQuantile(float quant) {
+		return (int) snapshot.getQuantile(quant);
+	}
+
 	/**
 	 * Estimates the current stall timeout using the observed RTT distribution.
 	 * Uses the higher of (10th percentile + baseline) or 90th percentile,
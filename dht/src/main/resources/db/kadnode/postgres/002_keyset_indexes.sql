@@ -0,0 +1,26 @@
+-- Composite indexes in the keyset order of the values and peers streams
+
+-- The (updated DESC, id) indexes replace the single column indexes on updated,
+-- so the keyset pages are read in index order without sorting
+
+-- Partial index for persistent + announced queries
+CREATE INDEX IF NOT EXISTS idx_valores_persistent_true_updated_id ON valores (updated DESC, id) WHERE persistent = TRUE;
+-- Partial index for non-persistent + updated queries
+CREATE INDEX IF NOT EXISTS idx_valores_persistent_false_updated_id ON valores (updated DESC, id) WHERE persistent = FALSE;
+-- Full index for all values
+CREATE INDEX IF NOT EXISTS idx_valores_updated_id ON valores (updated DESC, id);
+
+DROP INDEX IF EXISTS idx_valores_persistent_true_updated;
+DROP INDEX IF EXISTS idx_valores_persistent_false_updated;
+DROP INDEX IF EXISTS idx_valores_updated;
+
+-- Partial index for persistent + announced queries
+CREATE INDEX IF NOT EXISTS idx_peers_persistent_true_updated_id ON peers (updated DESC, id, fingerprint) WHERE persistent = TRUE;
+-- Partial index for non-persistent + updated queries
+CREATE INDEX IF NOT EXISTS idx_peers_persistent_false_updated_id ON peers (updated DESC, id, fingerprint) WHERE persistent = FALSE;
+-- Full index for all peers
+CREATE INDEX IF NOT EXISTS idx_peers_updated_id ON peers (updated DESC, id, fingerprint);
+
+DROP INDEX IF EXISTS idx_peers_persistent_true_updated;
+DROP INDEX IF EXISTS idx_peers_persistent_false_updated;
+DROP INDEX IF EXISTS idx_peers_updated;
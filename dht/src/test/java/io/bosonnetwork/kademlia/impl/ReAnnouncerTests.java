@@ -0,0 +1,130 @@
+package io.bosonnetwork.kademlia.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class ReAnnouncerTests {
+	@Test
+	void testRound(Vertx vertx, VertxTestContext testContext) {
+		// record -> announced time
+		Map<Integer, Long> records = new ConcurrentHashMap<>();
+		IntStream.range(0, 1000).forEach(i -> records.put(i, 0L));
+
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		AtomicInteger updates = new AtomicInteger();
+
+		Context context = vertx.getOrCreateContext();
+		ReAnnouncer<Integer> reAnnouncer = new ReAnnouncer<>(context, "record",
+				(before, offset, limit) -> Future.succeededFuture(records.entrySet().stream()
+						.filter(e -> e.getValue() <= before)
+						.map(Map.Entry::getKey)
+						.sorted()
+						.skip(offset)
+						.limit(limit)
+						.toList()),
+				before -> Future.succeededFuture(records.values().stream().filter(t -> t <= before).count()),
+				record -> {
+					maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+					Promise<Void> promise = Promise.promise();
+					vertx.setTimer(1, id -> {
+						inFlight.decrementAndGet();
+						if (record % 7 == 0)
+							promise.fail("announce failed");
+						else
+							promise.complete();
+					});
+					return promise.future();
+				},
+				batch -> {
+					updates.incrementAndGet();
+					long now = System.currentTimeMillis();
+					batch.forEach(r -> records.put(r, now));
+					return Future.succeededFuture();
+				}, 50, 4);
+
+		context.runOnContext(unused -> {
+			reAnnouncer.run(System.currentTimeMillis() - 1000, 0).onComplete(testContext.succeeding(announced -> {
+				testContext.verify(() -> {
+					int failed = (int) IntStream.range(0, 1000).filter(i -> i % 7 == 0).count();
+					assertEquals(1000 - failed, announced);
+					assertEquals(failed, records.values().stream().filter(t -> t == 0L).count());
+					assertTrue(maxInFlight.get() <= 4);
+					// one batch update per page
+					assertEquals(1000 / 50, updates.get());
+				});
+				testContext.completeNow();
+			}));
+		});
+	}
+
+	@Test
+	void testSpreadFirstRound(Vertx vertx, VertxTestContext testContext) {
+		List<Integer> records = IntStream.range(0, 200).boxed().toList();
+		List<Long> loads = new CopyOnWriteArrayList<>();
+
+		Context context = vertx.getOrCreateContext();
+		ReAnnouncer<Integer> reAnnouncer = new ReAnnouncer<>(context, "record",
+				(before, offset, limit) -> {
+					loads.add(System.currentTimeMillis());
+					return Future.succeededFuture(records.stream().skip(offset).limit(limit).toList());
+				},
+				before -> Future.succeededFuture((long) records.size()),
+				record -> Future.succeededFuture(),
+				// keep the records in the query, the offset walks over them
+				batch -> Future.failedFuture("not updated"), 50, 4);
+
+		context.runOnContext(unused -> {
+			// 4 pages over 600ms, paced from the count even without a previous round
+			reAnnouncer.run(System.currentTimeMillis(), 600).onComplete(testContext.succeeding(announced -> {
+				testContext.verify(() -> {
+					assertEquals(5, loads.size());
+					assertTrue(loads.get(4) - loads.get(0) >= 550);
+				});
+				testContext.completeNow();
+			}));
+		});
+	}
+
+	@Test
+	void testSkipOverlappingRound(Vertx vertx, VertxTestContext testContext) {
+		Promise<List<Integer>> page = Promise.promise();
+
+		Context context = vertx.getOrCreateContext();
+		ReAnnouncer<Integer> reAnnouncer = new ReAnnouncer<>(context, "record",
+				(before, offset, limit) -> page.future(),
+				before -> Future.succeededFuture(3L),
+				record -> Future.succeededFuture(),
+				batch -> Future.succeededFuture());
+
+		context.runOnContext(unused -> {
+			Future<Integer> first = reAnnouncer.run(0, 0);
+			reAnnouncer.run(0, 0).onComplete(testContext.succeeding(announced -> {
+				testContext.verify(() -> assertEquals(0, announced));
+				page.complete(List.of(1, 2, 3));
+			}));
+
+			first.onComplete(testContext.succeeding(announced -> {
+				testContext.verify(() -> assertEquals(3, announced));
+				testContext.completeNow();
+			}));
+		});
+	}
+}
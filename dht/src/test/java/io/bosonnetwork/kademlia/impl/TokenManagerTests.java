@@ -0,0 +1,54 @@
+package io.bosonnetwork.kademlia.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import io.vertx.core.net.SocketAddress;
+import org.junit.jupiter.api.Test;
+
+import io.bosonnetwork.Id;
+
+public class TokenManagerTests {
+	@Test
+	void testGenerateAndVerify() throws Exception {
+		TokenManager manager = new TokenManager();
+		Id nodeId = Id.random();
+		Id targetId = Id.random();
+
+		for (String host : new String[] { "203.0.113.10", "2001:db8::10" }) {
+			InetAddress address = InetAddress.getByName(host);
+			int port = 39001;
+
+			int token = manager.generateToken(nodeId, address, port, targetId);
+			assertEquals(token, manager.generateToken(nodeId, new InetSocketAddress(address, port), targetId));
+			assertEquals(token, manager.generateToken(nodeId, SocketAddress.inetSocketAddress(port, host), targetId));
+
+			assertTrue(manager.verifyToken(token, nodeId, address, port, targetId));
+			assertTrue(manager.verifyToken(token, nodeId, new InetSocketAddress(address, port), targetId));
+			assertTrue(manager.verifyToken(token, nodeId, SocketAddress.inetSocketAddress(port, host), targetId));
+
+			assertFalse(manager.verifyToken(token, Id.random(), address, port, targetId));
+			assertFalse(manager.verifyToken(token, nodeId, address, port + 1, targetId));
+			assertFalse(manager.verifyToken(token, nodeId, address, port, Id.random()));
+			assertFalse(manager.verifyToken(token, nodeId, InetAddress.getByName(host.replace("10", "11")), port, targetId));
+
+			// the session keys differ
+			assertNotEquals(token, new TokenManager().generateToken(nodeId, address, port, targetId));
+		}
+	}
+
+	@Test
+	void testIPv4Mapped() throws Exception {
+		TokenManager manager = new TokenManager();
+		Id nodeId = Id.random();
+		Id targetId = Id.random();
+
+		int token = manager.generateToken(nodeId, InetAddress.getByName("203.0.113.10"), 39001, targetId);
+		assertTrue(manager.verifyToken(token, nodeId, SocketAddress.inetSocketAddress(39001, "::ffff:203.0.113.10"), targetId));
+	}
+}
@@ -0,0 +1,72 @@
+package io.bosonnetwork.kademlia.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.net.SocketAddress;
+import org.junit.jupiter.api.Test;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.Network;
+import io.bosonnetwork.kademlia.protocol.Message;
+
+public class MicrometerDHTMetricsTests {
+	@Test
+	void testCounters() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		MicrometerDHTMetrics metrics = new MicrometerDHTMetrics(registry, Network.IPv4);
+
+		SocketAddress remote = SocketAddress.inetSocketAddress(39001, "192.168.8.1");
+		metrics.bytesRead(remote, 100);
+		metrics.bytesRead(remote, 28);
+		metrics.messageReceived(remote);
+		metrics.messageDropped(remote, DHTMetrics.Reason.THROTTLED);
+		metrics.throttledInbound(remote.host());
+
+		Message request = Message.findNodeRequest(Id.random(), true, false);
+		metrics.requestReceived(request);
+		metrics.requestSent(request);
+		metrics.responseSent(Message.pingResponse(1));
+		metrics.responseTimeout(request);
+
+		assertEquals(128.0, registry.get("boson.dht.bytes.read").tag("network", "ipv4").counter().count());
+		assertEquals(1.0, registry.get("boson.dht.messages.received").counter().count());
+		assertEquals(1.0, registry.get("boson.dht.messages.dropped").tag("reason", "throttled").counter().count());
+		assertEquals(0.0, registry.get("boson.dht.messages.dropped").tag("reason", "invalid").counter().count());
+		assertEquals(1.0, registry.get("boson.dht.throttled.inbound").counter().count());
+		assertEquals(1.0, registry.get("boson.dht.requests.received").tag("method", "find_node").counter().count());
+		assertEquals(1.0, registry.get("boson.dht.requests.sent").tag("method", "find_node").counter().count());
+		assertEquals(1.0, registry.get("boson.dht.responses.sent")
+				.tag("method", "ping").tag("type", "response").counter().count());
+		assertEquals(1.0, registry.get("boson.dht.responses.timeout").tag("method", "find_node").counter().count());
+
+		// Remote addresses must never become tags
+		assertTrue(registry.getMeters().stream().allMatch(m ->
+				m.getId().getTags().stream().noneMatch(t -> t.getValue().contains(remote.host()))));
+
+		metrics.close();
+		assertTrue(registry.getMeters().isEmpty());
+	}
+
+	@Test
+	void testLossRate() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		MicrometerDHTMetrics metrics = new MicrometerDHTMetrics(registry, Network.IPv6);
+
+		assertTrue(Double.isNaN(registry.get("boson.dht.loss.rate").tag("verified", "true").gauge().value()));
+
+		metrics.verifiedLossRateUpdate(1.0);
+		metrics.unverifiedLossRateUpdate(0.0);
+
+		double verified = registry.get("boson.dht.loss.rate").tag("network", "ipv6").tag("verified", "true").gauge().value();
+		double unverified = registry.get("boson.dht.loss.rate").tag("verified", "false").gauge().value();
+		assertFalse(Double.isNaN(verified));
+		assertTrue(verified > unverified);
+
+		metrics.close();
+		assertNull(registry.find("boson.dht.loss.rate").gauge());
+	}
+}
@@ -0,0 +1,118 @@
+package io.bosonnetwork.kademlia.protocol;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.NodeInfo;
+import io.bosonnetwork.json.Json;
+import io.bosonnetwork.utils.Hex;
+
+public class MessageEncoderTests {
+	private static final ObjectWriter jacksonWriter = Json.cborMapper().writerFor(Message.class);
+
+	// All the wire format fixtures of CompatibilityTests: name, json, cbor, message
+	static Stream<Arguments> messages() {
+		Stream<Arguments> simple = Stream.of(
+				Arguments.of("pingRequest", null, Hex.decode("bf6179182161740a61761a4f520001ff"),
+						new Message(Message.Type.REQUEST, Message.Method.PING, 10, null)),
+				Arguments.of("pingResponse", null, Hex.decode("bf6179184161740a61761a4f520001ff"),
+						new Message(Message.Type.RESPONSE, Message.Method.PING, 10, null)),
+				Arguments.of("storeValueResponse", null, Hex.decode("bf6179184561740261761a4f520001ff"),
+						new Message(Message.Type.RESPONSE, Message.Method.STORE_VALUE, 2, null))
+		);
+
+		return Stream.of(simple,
+				CompatibilityTests.findNodeRequests(),
+				CompatibilityTests.findNodeResponses(),
+				CompatibilityTests.findValueRequests(),
+				CompatibilityTests.findValueResponses(),
+				CompatibilityTests.storeValueRequests(),
+				CompatibilityTests.findPeerRequests(),
+				CompatibilityTests.findPeerResponses(),
+				CompatibilityTests.announcePeerRequests(),
+				CompatibilityTests.errors()
+		).flatMap(s -> s);
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("messages")
+	void testCompatibility(String name, String json, byte[] cbor, Message ref) throws Exception {
+		MessageEncoder encoder = new MessageEncoder();
+		byte[] encoded = ref.encode(encoder).toByteArray();
+
+		assertArrayEquals(cbor, encoded);
+		assertArrayEquals(jacksonWriter.writeValueAsBytes(ref), encoded);
+		assertArrayEquals(encoded, ref.toBytes());
+
+		Message msg = Message.parse(encoded);
+		assertEquals(ref.getType(), msg.getType());
+		assertEquals(ref.getMethod(), msg.getMethod());
+		assertThat(msg)
+				.usingRecursiveComparison()
+				.withComparatorForType(Id::compare, Id.class)
+				.isEqualTo(ref);
+	}
+
+	@Test
+	void testReuse() throws Exception {
+		Id target = Id.random();
+		List<NodeInfo> nodes = Stream.generate(() -> new NodeInfo(Id.random(), "192.168.1.1", 39001))
+				.limit(8).toList();
+
+		Message large = Message.findNodeResponse(1, nodes, nodes, 0x7FFFFFFF);
+		Message small = Message.findNodeRequest(target, true, false);
+
+		MessageEncoder encoder = new MessageEncoder(16);
+		encoder.encode(large);
+		byte[] buffer = encoder.array();
+		assertArrayEquals(jacksonWriter.writeValueAsBytes(large), encoder.toByteArray());
+
+		encoder.encode(small);
+		assertTrue(encoder.length() < buffer.length);
+		assertArrayEquals(jacksonWriter.writeValueAsBytes(small), encoder.toByteArray());
+		assertArrayEquals(encoder.toByteArray(), Arrays.copyOf(encoder.array(), encoder.length()));
+		// no reallocation for the smaller message
+		assertSame(buffer, encoder.array());
+	}
+
+	@Test
+	void testLargeValues() throws Exception {
+		Message msg = Message.message(Message.Type.ERROR, Message.Method.FIND_VALUE, 0xFFFFFFFFFFL,
+				new Error(Integer.MIN_VALUE, "Long error message: " + "x".repeat(8192)));
+
+		byte[] encoded = new MessageEncoder().encode(msg).toByteArray();
+		assertArrayEquals(jacksonWriter.writeValueAsBytes(msg), encoded);
+
+		Message parsed = Message.parse(encoded);
+		assertEquals(msg.getTxid(), parsed.getTxid());
+		Error expected = msg.getBody();
+		Error actual = parsed.getBody();
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	void testUnsupportedBody() {
+		Object body = new Object();
+		assertFalse(MessageEncoder.canEncode(body));
+		assertTrue(MessageEncoder.canEncode(null));
+
+		Message msg = Message.message(Message.Type.REQUEST, Message.Method.PING, 1, body);
+		assertThrows(IllegalArgumentException.class, () -> new MessageEncoder().encode(msg));
+	}
+}
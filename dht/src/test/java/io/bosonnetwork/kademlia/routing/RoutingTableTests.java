@@ -6,8 +6,10 @@ import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -465,6 +467,43 @@ class RoutingTableTests {
 		assertTrue(closest.isComplete(), "Zero capacity is complete");
 	}
 
+	@Test
+	void testGetClosestNodesMatchesFullSort() {
+		Random rnd = new Random();
+		for (int i = 0; i < 1000; i++)
+			routingTable.put(new StubEntry(Id.random(), rnd.nextBoolean()));
+
+		for (int i = 0; i < 32; i++) {
+			Id targetId = Id.random();
+			List<KBucketEntry> all = new ArrayList<>();
+			routingTable.forEachBucket(bucket -> {
+				all.addAll(bucket.entries());
+				bucket.replacementStream().filter(KBucketEntry::isReachable).forEach(all::add);
+			});
+			all.sort((e1, e2) -> targetId.threeWayCompare(e1.getId(), e2.getId()));
+
+			// capacity beyond the table size walks all the buckets
+			KClosestNodes closest = routingTable.getClosestNodes(targetId, 2000).includeReplacements().fill();
+			assertEquals(all.stream().filter(KBucketEntry::eligibleForNodesList).toList(), closest.entries());
+
+			closest = routingTable.getClosestNodes(targetId, 2000)
+					.filter(KBucketEntry::eligibleForLocalLookup)
+					.fill();
+			List<KBucketEntry> expected = all.stream()
+					.filter(e -> routingTable.bucketOf(e.getId()).entries().contains(e))
+					.filter(KBucketEntry::eligibleForLocalLookup)
+					.toList();
+			assertEquals(expected, closest.entries());
+
+			// the closest ones of a smaller query are the head of the sorted entries it visited
+			closest = routingTable.getClosestNodes(targetId, 8).fill();
+			List<KBucketEntry> sorted = new ArrayList<>(closest.entries());
+			sorted.sort((e1, e2) -> targetId.threeWayCompare(e1.getId(), e2.getId()));
+			assertEquals(sorted, closest.entries());
+			assertTrue(closest.size() <= 8);
+		}
+	}
+
 	/*/
 	@Test
 	void testRandomEntriesBoundary() {
@@ -522,6 +561,61 @@ class RoutingTableTests {
 		Files.delete(tempFile);
 	}
 
+	@Test
+	void testSaveAndLoadKeepsLayout() throws Exception {
+		Random rnd = new Random();
+		for (int i = 0; i < 1000; i++)
+			routingTable.put(new StubEntry(Id.random(), rnd.nextBoolean()));
+
+		Path tempFile = Files.createTempFile("routingTable", ".bin");
+		routingTable.save(tempFile);
+
+		RoutingTableFile.Snapshot snapshot = RoutingTableFile.read(tempFile);
+		assertEquals(localId, snapshot.localId());
+		assertEquals(routingTable.size(), snapshot.buckets().size());
+
+		RoutingTable loaded = new RoutingTable(localId);
+		loaded.load(tempFile);
+		assertEquals(routingTable.size(), loaded.size());
+		for (int i = 0; i < routingTable.size(); i++) {
+			KBucket expected = routingTable.getBucket(i);
+			KBucket actual = loaded.getBucket(i);
+			assertEquals(expected.prefix(), actual.prefix());
+			assertEquals(expected.entries().stream().map(KBucketEntry::getId).toList(),
+					actual.entries().stream().map(KBucketEntry::getId).toList());
+			for (KBucketEntry entry : actual.entries()) {
+				KBucketEntry origin = expected.get(entry.getId(), false);
+				assertEquals(origin.getAddress(), entry.getAddress());
+				assertEquals(origin.isReachable(), entry.isReachable());
+				assertEquals(origin.creationTime(), entry.creationTime());
+				assertEquals(origin.lastSeen(), entry.lastSeen());
+			}
+		}
+
+		Files.delete(tempFile);
+	}
+
+	@Test
+	void testLoadCorruptedFile() throws Exception {
+		for (int i = 0; i < 100; i++)
+			routingTable.put(new StubEntry(Id.random()));
+
+		Path tempFile = Files.createTempFile("routingTable", ".bin");
+		routingTable.save(tempFile);
+
+		byte[] data = Files.readAllBytes(tempFile);
+		data[data.length / 2] ^= 0x5A;
+		Files.write(tempFile, data);
+
+		assertThrows(IOException.class, () -> RoutingTableFile.read(tempFile));
+
+		RoutingTable loaded = new RoutingTable(localId);
+		loaded.load(tempFile);
+		assertEquals(0, loaded.getNumberOfEntries());
+
+		Files.delete(tempFile);
+	}
+
 	@Test
 	void testStressRandomOperations() {
 		final int NUM_OPERATIONS = 10_000;
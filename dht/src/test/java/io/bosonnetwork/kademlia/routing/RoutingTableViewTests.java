@@ -0,0 +1,292 @@
+package io.bosonnetwork.kademlia.routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.bosonnetwork.Id;
+
+public class RoutingTableViewTests {
+	private static final AtomicInteger nextAddress = new AtomicInteger();
+
+	private RoutingTable routingTable;
+
+	@BeforeEach
+	void setUp() {
+		routingTable = new RoutingTable(Id.random());
+	}
+
+	private static KBucketEntry newEntry(Id id) {
+		int n = nextAddress.incrementAndGet();
+		String host = "10." + ((n >> 16) & 0xFF) + "." + ((n >> 8) & 0xFF) + "." + (n & 0xFF);
+		KBucketEntry entry = new KBucketEntry(id, new InetSocketAddress(host, 39001));
+		entry.setReachable(true);
+		return entry;
+	}
+
+	private void populate(int count) {
+		for (int i = 0; i < count; i++)
+			routingTable.put(newEntry(Id.random()));
+	}
+
+	private int firstNonEmptyBucket() {
+		for (int i = 0; i < routingTable.size(); i++) {
+			if (!routingTable.getBucket(i).isEmpty())
+				return i;
+		}
+
+		throw new IllegalStateException("Empty routing table");
+	}
+
+	@Test
+	void testEmptyView() {
+		RoutingTableView view = routingTable.view();
+		assertNotNull(view);
+		assertEquals(1, view.size());
+		assertEquals(0, view.getNumberOfEntries());
+		assertEquals(0, view.getNumberOfReplacements());
+		assertTrue(view.getRandomEntries(8).isEmpty());
+		assertTrue(view.getClosestNodes(Id.random(), 8).fill().entries().isEmpty());
+	}
+
+	@Test
+	void testPublishedAfterChanges() {
+		populate(500);
+
+		RoutingTableView view = routingTable.view();
+		assertEquals(routingTable.size(), view.size());
+		assertEquals(routingTable.stream().mapToInt(KBucket::size).sum(), view.getNumberOfEntries());
+		assertEquals(routingTable.stream().mapToInt(KBucket::replacementSize).sum(), view.getNumberOfReplacements());
+		assertEquals(view.getNumberOfEntries(), routingTable.getNumberOfEntries());
+
+		for (int i = 0; i < view.size(); i++) {
+			KBucket live = routingTable.getBucket(i);
+			KBucket copy = view.buckets().get(i);
+			assertEquals(live.prefix(), copy.prefix());
+			assertEquals(live.entries(), copy.entries());
+			assertEquals(live.replacements(), copy.replacements());
+		}
+
+		KBucketEntry entry = routingTable.getBucket(firstNonEmptyBucket()).get(0);
+		assertTrue(routingTable.remove(entry.getId()));
+		assertNotSame(view, routingTable.view());
+		assertEquals(view.getNumberOfEntries() - 1, routingTable.view().getNumberOfEntries());
+		assertNotNull(view.getEntry(entry.getId(), false));
+	}
+
+	@Test
+	void testCopyOnWrite() {
+		populate(500);
+
+		RoutingTableView before = routingTable.view();
+		int index = firstNonEmptyBucket();
+		KBucketEntry entry = routingTable.getBucket(index).get(0);
+		routingTable.onResponded(entry.getId(), 100);
+		// the metadata updates are published on demand
+		assertSame(before, routingTable.view());
+		routingTable.publish();
+		RoutingTableView after = routingTable.view();
+
+		assertNotSame(before, after);
+		assertNotSame(before.buckets().get(index), after.buckets().get(index));
+		// the unchanged buckets are shared
+		for (int i = 0; i < after.size(); i++) {
+			if (i != index)
+				assertSame(before.buckets().get(i), after.buckets().get(i));
+		}
+
+		// the published entries are detached from the live ones
+		KBucketEntry copy = after.getEntry(entry.getId(), false);
+		assertNotSame(entry, copy);
+		assertEquals(entry.lastSeen(), copy.lastSeen());
+		assertEquals(entry.getRTT(), copy.getRTT());
+
+		int failed = copy.failedRequests();
+		entry.onTimeout();
+		assertEquals(failed, copy.failedRequests());
+
+		// no changes for an unknown node
+		routingTable.onRequestSent(Id.random());
+		routingTable.publish();
+		assertSame(after, routingTable.view());
+	}
+
+	@Test
+	void testCoalescedPublication() {
+		List<Runnable> tasks = new ArrayList<>();
+		routingTable.setPublisher(tasks::add);
+
+		RoutingTableView before = routingTable.view();
+		populate(500);
+		assertEquals(1, tasks.size());
+		assertSame(before, routingTable.view());
+
+		tasks.remove(0).run();
+		RoutingTableView after = routingTable.view();
+		assertNotSame(before, after);
+		assertEquals(routingTable.stream().mapToInt(KBucket::size).sum(), after.getNumberOfEntries());
+
+		// the metadata updates do not schedule a publication
+		KBucketEntry entry = routingTable.getBucket(firstNonEmptyBucket()).get(0);
+		routingTable.onRequestSent(entry.getId());
+		routingTable.onResponded(entry.getId(), 100);
+		assertTrue(tasks.isEmpty());
+		assertSame(after, routingTable.view());
+
+		// but they go with the next structural change
+		KBucketEntry other = routingTable.stream().flatMap(KBucket::stream)
+				.filter(e -> !e.getId().equals(entry.getId())).findFirst().orElseThrow();
+		assertTrue(routingTable.remove(other.getId()));
+		assertEquals(1, tasks.size());
+		tasks.remove(0).run();
+		assertEquals(entry.getRTT(), routingTable.view().getEntry(entry.getId(), false).getRTT());
+	}
+
+	@Test
+	void testIncrementalCounts() {
+		for (int i = 0; i < 2000; i++) {
+			KBucketEntry entry = newEntry(Id.random());
+			routingTable.put(entry);
+			if (i % 3 == 0)
+				routingTable.remove(entry.getId());
+
+			if (i % 500 == 0)
+				routingTable.maintenance(List.of(), bucket -> {});
+
+			RoutingTableView view = routingTable.view();
+			int entries = 0;
+			int replacements = 0;
+			for (KBucket bucket : view.buckets()) {
+				entries += bucket.size();
+				replacements += bucket.replacementSize();
+			}
+
+			assertEquals(entries, view.getNumberOfEntries());
+			assertEquals(replacements, view.getNumberOfReplacements());
+		}
+	}
+
+	@Test
+	void testLiveCounts() throws Exception {
+		List<Runnable> tasks = new ArrayList<>();
+		routingTable.setPublisher(tasks::add);
+
+		for (int i = 0; i < 2000; i++) {
+			KBucketEntry entry = newEntry(Id.random());
+			routingTable.put(entry);
+			if (i % 3 == 0)
+				routingTable.remove(entry.getId());
+			if (i % 7 == 0)
+				routingTable.removeIfBad(entry.getId(), true);
+
+			// the owner thread sees the changes right away, before the publication
+			assertEquals(routingTable.stream().mapToInt(KBucket::size).sum(), routingTable.getNumberOfEntries());
+			assertEquals(routingTable.stream().mapToInt(KBucket::replacementSize).sum(),
+					routingTable.getNumberOfReplacements());
+
+			if (i % 100 == 0) {
+				tasks.forEach(Runnable::run);
+				tasks.clear();
+			}
+		}
+
+		// the other threads get the published counts
+		int live = routingTable.getNumberOfEntries();
+		AtomicInteger published = new AtomicInteger();
+		Thread reader = new Thread(() -> published.set(routingTable.getNumberOfEntries()));
+		reader.start();
+		reader.join();
+		assertEquals(routingTable.view().getNumberOfEntries(), published.get());
+
+		tasks.forEach(Runnable::run);
+		assertEquals(live, routingTable.view().getNumberOfEntries());
+	}
+
+	@Test
+	void testClosestNodes() {
+		populate(1000);
+
+		RoutingTableView view = routingTable.view();
+		for (int i = 0; i < 16; i++) {
+			Id target = Id.random();
+			List<Id> expected = routingTable.getClosestNodes(target, 16).fill().entries()
+					.stream().map(KBucketEntry::getId).toList();
+			List<Id> actual = view.getClosestNodes(target, 16).fill().entries()
+					.stream().map(KBucketEntry::getId).toList();
+			assertEquals(expected, actual);
+		}
+	}
+
+	@Test
+	void testRandomEntries() {
+		populate(1000);
+
+		RoutingTableView view = routingTable.view();
+		List<KBucketEntry> entries = view.getRandomEntries(32);
+		assertEquals(32, entries.size());
+
+		Set<Id> ids = new HashSet<>();
+		for (KBucketEntry entry : entries) {
+			assertTrue(ids.add(entry.getId()));
+			assertTrue(routingTable.contains(entry.getId(), false));
+		}
+
+		assertEquals(view.getNumberOfEntries(), view.getRandomEntries(view.getNumberOfEntries() + 1).size());
+		assertTrue(view.getRandomEntries(0).isEmpty());
+	}
+
+	@Test
+	void testConcurrentReaders() throws Exception {
+		AtomicBoolean done = new AtomicBoolean();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		Thread reader = new Thread(() -> {
+			try {
+				while (!done.get()) {
+					RoutingTableView view = routingTable.view();
+					int entries = 0;
+					for (KBucket bucket : view.buckets())
+						entries += bucket.size();
+
+					assertEquals(view.getNumberOfEntries(), entries);
+					assertTrue(view.getClosestNodes(Id.random(), 8).fill().size() <= 8);
+					assertTrue(view.getRandomEntries(8).size() <= 8);
+				}
+			} catch (Throwable e) {
+				failure.set(e);
+			}
+		});
+
+		reader.start();
+		try {
+			for (int i = 0; i < 2000; i++) {
+				KBucketEntry entry = newEntry(Id.random());
+				routingTable.put(entry);
+				if (i % 3 == 0)
+					routingTable.remove(entry.getId());
+				else
+					routingTable.onResponded(entry.getId(), i % 500);
+			}
+		} finally {
+			done.set(true);
+			reader.join();
+		}
+
+		if (failure.get() != null)
+			throw new AssertionError(failure.get());
+	}
+}
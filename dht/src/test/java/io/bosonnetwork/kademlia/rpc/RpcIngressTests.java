@@ -0,0 +1,246 @@
+package io.bosonnetwork.kademlia.rpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.net.Inet4Address;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.datagram.DatagramPacket;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.bosonnetwork.Id;
+import io.bosonnetwork.Identity;
+import io.bosonnetwork.Network;
+import io.bosonnetwork.NodeInfo;
+import io.bosonnetwork.crypto.CryptoIdentity;
+import io.bosonnetwork.crypto.Random;
+import io.bosonnetwork.kademlia.impl.KadContext;
+import io.bosonnetwork.kademlia.protocol.Message;
+import io.bosonnetwork.kademlia.security.Blacklist;
+import io.bosonnetwork.kademlia.security.DisabledSuspiciousNodeDetector;
+import io.bosonnetwork.utils.AddressUtils;
+import io.bosonnetwork.vertx.BosonVerticle;
+
+@ExtendWith(VertxExtension.class)
+public class RpcIngressTests {
+	private static final int TEST_REQUESTS = 256;
+	private static final int INGRESS_SHARDS = 2;
+
+	@SuppressWarnings("ConstantConditions")
+	private static final String localAddr = AddressUtils.getDefaultRouteAddress(Inet4Address.class).getHostAddress();
+
+	// Records the contexts the malformed messages are reported on
+	static class RecordingDetector extends DisabledSuspiciousNodeDetector {
+		final List<Context> malformed = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void malformedMessage(SocketAddress addr) {
+			malformed.add(Vertx.currentContext());
+		}
+	}
+
+	static class TestNode extends BosonVerticle {
+		final Identity identity;
+		final int port;
+		final RecordingDetector detector;
+		KadContext kadContext;
+		RpcServer rpcServer;
+
+		// updated on the DHT context only
+		int receivedRequests = 0;
+		int receivedResponses = 0;
+
+		TestNode(int port) {
+			this.identity = new CryptoIdentity();
+			this.port = port;
+			this.detector = new RecordingDetector();
+		}
+
+		@Override
+		protected void prepare(Vertx vertx, Context context) {
+			super.prepare(vertx, context);
+
+			kadContext = new KadContext(vertx, context, identity, Network.IPv4, null);
+			rpcServer = new RpcServer(kadContext, localAddr, port, Blacklist.empty(), detector, false, null,
+					INGRESS_SHARDS);
+			rpcServer.setMessageHandler(this::onMessage);
+		}
+
+		@Override
+		protected Future<Void> deploy() {
+			return rpcServer.start();
+		}
+
+		@Override
+		protected Future<Void> undeploy() {
+			return rpcServer.stop();
+		}
+
+		NodeInfo getNodeInfo() {
+			return new NodeInfo(identity.getId(), localAddr, port);
+		}
+
+		void sendPings(TestNode remote, int count) {
+			runOnContext(v -> {
+				for (int i = 0; i < count; i++)
+					rpcServer.sendCall(new RpcCall(remote.getNodeInfo(), Message.pingRequest()));
+			});
+		}
+
+		private void onMessage(Message message) {
+			if (message.isRequest()) {
+				receivedRequests++;
+
+				Message response = Message.pingResponse(message.getTxid());
+				response.setRemote(message.getId(), message.getRemoteAddress());
+				rpcServer.sendMessage(response);
+			} else if (message.isResponse()) {
+				receivedResponses++;
+			}
+		}
+	}
+
+	private static Future<Void> sleep(Vertx vertx, long delay) {
+		Promise<Void> promise = Promise.promise();
+		vertx.setTimer(delay, id -> promise.complete());
+		return promise.future();
+	}
+
+	// Encrypts the message from the sender to the receiver, in the wire format of the RPC server
+	private static Buffer packet(Identity sender, Id receiver, Message message) throws Exception {
+		message.setId(sender.getId());
+		byte[] packet = sender.encrypt(receiver, message.toBytes(), Id.BYTES);
+		System.arraycopy(sender.getId().bytes(), 0, packet, 0, Id.BYTES);
+		return Buffer.buffer(packet);
+	}
+
+	private static DatagramPacket datagram(Buffer data, int senderPort) {
+		SocketAddress sender = SocketAddress.inetSocketAddress(senderPort, localAddr);
+		return new DatagramPacket() {
+			@Override
+			public SocketAddress sender() {
+				return sender;
+			}
+
+			@Override
+			public Buffer data() {
+				return data;
+			}
+		};
+	}
+
+	private static Future<Void> exchange(Vertx vertx, VertxTestContext context, int expectedShards, int port1, int port2) {
+		TestNode node1 = new TestNode(port1);
+		TestNode node2 = new TestNode(port2);
+
+		return Future.all(vertx.deployVerticle(node1), vertx.deployVerticle(node2)).compose(v -> {
+			context.verify(() -> {
+				assertEquals(expectedShards, node1.rpcServer.getIngressShards());
+				assertEquals(expectedShards, node2.rpcServer.getIngressShards());
+			});
+
+			node1.sendPings(node2, TEST_REQUESTS);
+			node2.sendPings(node1, TEST_REQUESTS);
+			return sleep(vertx, 2000);
+		}).compose(v ->
+				Future.all(vertx.undeploy(node1.deploymentID()), vertx.undeploy(node2.deploymentID()))
+		).andThen(ar -> context.verify(() -> {
+			assertEquals(TEST_REQUESTS, node1.receivedRequests);
+			assertEquals(TEST_REQUESTS, node1.receivedResponses);
+			assertEquals(TEST_REQUESTS, node2.receivedRequests);
+			assertEquals(TEST_REQUESTS, node2.receivedResponses);
+			assertEquals(0, node1.detector.malformed.size());
+			assertEquals(0, node2.detector.malformed.size());
+		})).mapEmpty();
+	}
+
+	@Test
+	@Timeout(value = 30, timeUnit = TimeUnit.SECONDS)
+	void testShardedExchange(VertxTestContext context) {
+		Vertx vertx = Vertx.vertx(new VertxOptions().setPreferNativeTransport(true));
+		// sharded with the native transport, otherwise falls back to the single socket
+		int expectedShards = vertx.isNativeTransportEnabled() ? INGRESS_SHARDS : 1;
+
+		exchange(vertx, context, expectedShards, 8890, 8891).andThen(ar -> vertx.close())
+				.onComplete(context.succeedingThenComplete());
+	}
+
+	@Test
+	@Timeout(value = 30, timeUnit = TimeUnit.SECONDS)
+	void testFallbackWithoutNativeTransport(Vertx vertx, VertxTestContext context) {
+		context.verify(() -> assertFalse(vertx.isNativeTransportEnabled()));
+		exchange(vertx, context, 1, 8892, 8893).onComplete(context.succeedingThenComplete());
+	}
+
+	@Test
+	@Timeout(value = 30, timeUnit = TimeUnit.SECONDS)
+	void testMalformedIngressPacket(Vertx vertx, VertxTestContext context) {
+		TestNode node = new TestNode(8894);
+		// stands in for the event loop of an ingress shard
+		Context shard = vertx.getOrCreateContext();
+
+		vertx.deployVerticle(node).compose(v -> {
+			shard.runOnContext(x -> {
+				// too short, and not decryptable
+				node.rpcServer.handleIngressPacket(datagram(Buffer.buffer(new byte[16]), 39001));
+				node.rpcServer.handleIngressPacket(datagram(Buffer.buffer(Random.randomBytes(256)), 39002));
+			});
+			return sleep(vertx, 500);
+		}).compose(v -> {
+			context.verify(() -> {
+				// reported to the detector on the DHT context, never on the shard
+				assertNotSame(shard, node.kadContext.getVertxContext());
+				assertEquals(2, node.detector.malformed.size());
+				for (Context reported : node.detector.malformed)
+					assertSame(node.kadContext.getVertxContext(), reported);
+				assertEquals(0, node.receivedRequests);
+			});
+			return vertx.undeploy(node.deploymentID());
+		}).onComplete(context.succeedingThenComplete());
+	}
+
+	@Test
+	@Timeout(value = 30, timeUnit = TimeUnit.SECONDS)
+	void testNoDispatchAfterStop(Vertx vertx, VertxTestContext context) throws Exception {
+		TestNode node = new TestNode(8895);
+		Context shard = vertx.getOrCreateContext();
+
+		Identity peer = new CryptoIdentity();
+		Buffer ping1 = packet(peer, node.identity.getId(), Message.pingRequest());
+		Buffer ping2 = packet(peer, node.identity.getId(), Message.pingRequest());
+
+		vertx.deployVerticle(node).compose(v -> {
+			shard.runOnContext(x -> node.rpcServer.handleIngressPacket(datagram(ping1, 39003)));
+			return sleep(vertx, 500);
+		}).compose(v -> {
+			context.verify(() -> assertEquals(1, node.receivedRequests));
+
+			Promise<Void> promise = Promise.promise();
+			node.kadContext.runOnContext(() -> node.rpcServer.stop().onComplete(promise));
+			return promise.future();
+		}).compose(v -> {
+			// decoded on the shard after the server stopped, must not be dispatched
+			shard.runOnContext(x -> node.rpcServer.handleIngressPacket(datagram(ping2, 39003)));
+			return sleep(vertx, 500);
+		}).compose(v -> {
+			context.verify(() -> assertEquals(1, node.receivedRequests));
+			return vertx.undeploy(node.deploymentID());
+		}).onComplete(context.succeedingThenComplete());
+	}
+}
@@ -0,0 +1,112 @@
+package io.bosonnetwork.kademlia.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.bosonnetwork.PeerInfo;
+import io.bosonnetwork.Value;
+import io.bosonnetwork.crypto.CryptoIdentity;
+
+@ExtendWith(VertxExtension.class)
+public class SignatureVerifierTests {
+	private static List<PeerInfo> peers(int count) {
+		List<PeerInfo> peers = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+			peers.add(PeerInfo.builder().node(new CryptoIdentity()).endpoint("tcp://203.0.113.10:" + (1000 + i)).build());
+		return peers;
+	}
+
+	@Test
+	void testVerify(Vertx vertx, VertxTestContext context) {
+		SignatureVerifier verifier = new SignatureVerifier(vertx, new VerificationCache());
+		Context ctx = vertx.getOrCreateContext();
+
+		List<PeerInfo> peers = peers(16);
+		PeerInfo peer = peers.get(8);
+		List<PeerInfo> tampered = new ArrayList<>(peers);
+		tampered.set(8, PeerInfo.of(peer.getId(), peer.getNonce(), peer.getSequenceNumber(), peer.getNodeId(),
+				peer.getNodeSignature(), peer.getSignature(), peer.getFingerprint(), "tcp://203.0.113.11:1234",
+				peer.getExtraData()));
+
+		Value value = Value.signedBuilder().data("Hello Boson".getBytes()).build();
+
+		ctx.runOnContext(v -> verifier.verify(peers).compose(valid -> {
+			context.verify(() -> {
+				assertTrue(valid);
+				assertSame(ctx, Vertx.currentContext());
+				assertEquals(1, verifier.getOffloadedCount());
+			});
+			return verifier.verify(tampered);
+		}).compose(valid -> {
+			context.verify(() -> {
+				assertFalse(valid);
+				assertSame(ctx, Vertx.currentContext());
+				assertEquals(2, verifier.getOffloadedCount());
+			});
+
+			// all cached now, no more offloading
+			Future<Boolean> cached = verifier.verify(peers);
+			context.verify(() -> assertTrue(cached.isComplete()));
+			return cached;
+		}).compose(valid -> {
+			context.verify(() -> {
+				assertTrue(valid);
+				assertEquals(2, verifier.getOffloadedCount());
+			});
+			return verifier.verify(value);
+		}).onComplete(context.succeeding(valid -> context.verify(() -> {
+			assertTrue(valid);
+			assertEquals(3, verifier.getOffloadedCount());
+			assertEquals(0, verifier.getPendingCount());
+			verifier.close();
+			context.completeNow();
+		}))));
+	}
+
+	@Test
+	void testLoadShedding(Vertx vertx, VertxTestContext context) {
+		SignatureVerifier verifier = new SignatureVerifier(vertx, new VerificationCache(), 1, 2);
+		Context ctx = vertx.getOrCreateContext();
+
+		List<List<PeerInfo>> batches = new ArrayList<>();
+		for (int i = 0; i < 8; i++)
+			batches.add(peers(8));
+
+		ctx.runOnContext(v -> {
+			List<Future<Boolean>> futures = new ArrayList<>();
+			for (List<PeerInfo> batch : batches)
+				futures.add(verifier.verify(batch));
+
+			Future.join(futures).onComplete(ar -> context.verify(() -> {
+				assertEquals(2, verifier.getOffloadedCount());
+				assertEquals(6, verifier.getRejectedCount());
+				for (int i = 0; i < futures.size(); i++) {
+					if (i < 2) {
+						assertTrue(futures.get(i).result());
+					} else {
+						assertTrue(futures.get(i).failed());
+						assertInstanceOf(RejectedExecutionException.class, futures.get(i).cause());
+					}
+				}
+
+				verifier.close();
+				context.completeNow();
+			}));
+		});
+	}
+}
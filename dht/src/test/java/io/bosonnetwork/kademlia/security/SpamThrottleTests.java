@@ -9,6 +9,8 @@ import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 
+import io.bosonnetwork.kademlia.utils.AddressKeys;
+
 public class SpamThrottleTests {
 	private static final int LIMIT_PER_SECOND = 16;
 	private static final int BURST_CAPACITY = 48;
@@ -88,4 +90,103 @@ public class SpamThrottleTests {
 			assertFalse(limited);
 		}
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testIPv6Prefix() throws Exception {
+		var throttle = SpamThrottle.create(LIMIT_PER_SECOND, BURST_CAPACITY);
+
+		// the addresses of a /64 share the count
+		for (var i = 1; i < BURST_CAPACITY; i++)
+			assertFalse(throttle.incrementAndCheck("2001:db8:1:2::" + Integer.toHexString(i)));
+		assertTrue(throttle.incrementAndCheck(InetAddress.getByName("2001:db8:1:2:ffff:ffff:ffff:ffff")));
+		assertTrue(throttle.isLimitReached(AddressKeys.of("2001:db8:1:2::1")));
+
+		assertFalse(throttle.isLimitReached(InetAddress.getByName("2001:db8:1:3::1")));
+		assertFalse(throttle.incrementAndCheck("2001:db8:1:3::1"));
+
+		// throttle the invalid literals
+		assertTrue(throttle.incrementAndCheck("not-an-address"));
+	}
+
+	@Test
+	public void testIPv6Hosts() throws Exception {
+		var throttle = SpamThrottle.create(LIMIT_PER_SECOND, BURST_CAPACITY);
+		var host1 = InetAddress.getByName("2001:db8:1:2::1");
+		var host2 = InetAddress.getByName("2001:db8:1:2::2");
+
+		// the outbound delays are per host
+		for (var i = 1; i < BURST_CAPACITY + 8; i++)
+			throttle.incrementAndEstimateDelay(host1);
+		assertTrue(throttle.incrementAndEstimateDelay(host1) > 0);
+		assertEquals(0, throttle.incrementAndEstimateDelay(host2));
+
+		// the inbound count is per /64
+		for (var i = 1; i < BURST_CAPACITY; i++)
+			assertFalse(throttle.incrementAndCheck(host2));
+		assertTrue(throttle.incrementAndCheck(host1));
+		assertTrue(throttle.isLimitReached(host2));
+
+		// a call sent to a host clears the inbound count of its /64, the response is accepted
+		throttle.clear(AddressKeys.of(host1));
+		assertFalse(throttle.isLimitReached(host1));
+		assertFalse(throttle.incrementAndCheck(host1));
+		assertFalse(throttle.incrementAndCheck(host2));
+
+		// the address overload clears the same key
+		for (var i = 0; i < BURST_CAPACITY; i++)
+			throttle.incrementAndCheck(host2);
+		assertTrue(throttle.isLimitReached(host1));
+		throttle.clear(host1);
+		assertFalse(throttle.incrementAndCheck(host2));
+	}
+
+	@Test
+	public void testManyAddresses() throws Exception {
+		// completes well within the first decay period of the throttle
+		var throttle = SpamThrottle.create(LIMIT_PER_SECOND, BURST_CAPACITY);
+		final int addresses = 4096;
+
+		for (var round = 0; round < 3; round++) {
+			for (var i = 0; i < addresses; i++) {
+				var limited = throttle.incrementAndCheck(0x0a000000L + i);
+				assertFalse(limited);
+			}
+		}
+
+		for (var i = 0; i < addresses; i++) {
+			if (i % 2 == 0)
+				throttle.clear(0x0a000000L + i);
+			else
+				throttle.decrement(0x0a000000L + i);
+		}
+
+		for (var i = 0; i < addresses; i++) {
+			var key = 0x0a000000L + i;
+			for (var n = i % 2 == 0 ? 1 : 3; n < BURST_CAPACITY; n++)
+				assertFalse(throttle.incrementAndCheck(key));
+
+			assertTrue(throttle.incrementAndCheck(key));
+			assertTrue(throttle.isLimitReached(key));
+		}
+
+		throttle.clear();
+		for (var i = 0; i < addresses; i++)
+			assertFalse(throttle.isLimitReached(0x0a000000L + i));
+	}
+
+	@Test
+	public void testDecayExpired() throws Exception {
+		var throttle = SpamThrottle.create(LIMIT_PER_SECOND, BURST_CAPACITY);
+		var addr = InetAddress.getByName("192.168.8.1");
+
+		for (var i = 1; i < BURST_CAPACITY; i++)
+			assertFalse(throttle.incrementAndCheck(addr));
+		assertTrue(throttle.incrementAndCheck(addr));
+
+		// BURST_CAPACITY / LIMIT_PER_SECOND seconds to decay to zero
+		TimeUnit.MILLISECONDS.sleep(BURST_CAPACITY * 1000L / LIMIT_PER_SECOND + 1000);
+		throttle.decay();
+		assertFalse(throttle.isLimitReached(addr));
+		assertEquals(0, throttle.incrementAndEstimateDelay(addr));
+	}
+}
@@ -0,0 +1,106 @@
+package io.bosonnetwork.kademlia.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import io.bosonnetwork.PeerInfo;
+import io.bosonnetwork.Value;
+import io.bosonnetwork.crypto.CryptoIdentity;
+
+public class VerificationCacheTests {
+	@Test
+	public void testValue() {
+		VerificationCache cache = new VerificationCache();
+
+		Value value = Value.signedBuilder().data("Hello Boson".getBytes()).build();
+		// a fresh copy, as received from another node
+		Value copy = Value.of(value.getPublicKey(), value.getNonce(), value.getSequenceNumber(),
+				value.getSignature(), value.getData());
+
+		assertTrue(cache.isValid(value));
+		assertEquals(0, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		assertTrue(cache.isValid(copy));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		// the tampered data with the same id, sequence number and signature must be verified
+		Value tampered = Value.of(value.getPublicKey(), value.getNonce(), value.getSequenceNumber(),
+				value.getSignature(), "Hello World".getBytes());
+		assertFalse(cache.isValid(tampered));
+		assertEquals(2, cache.getMissCount());
+		assertFalse(cache.isValid(tampered));
+		assertEquals(2, cache.getHitCount());
+		assertEquals(2, cache.getInvalidCount());
+
+		// the cached negative result never shadows the valid record
+		assertTrue(cache.isValid(copy));
+		assertEquals(3, cache.getHitCount());
+
+		// immutable values are not cached
+		Value immutable = Value.immutableBuilder().data("Hello Boson".getBytes()).build();
+		assertTrue(cache.isValid(immutable));
+		assertEquals(3, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void testPeer() {
+		VerificationCache cache = new VerificationCache();
+
+		PeerInfo peer = PeerInfo.builder().node(new CryptoIdentity()).endpoint("tcp://203.0.113.10:1234").build();
+		PeerInfo copy = PeerInfo.of(peer.getId(), peer.getNonce(), peer.getSequenceNumber(), peer.getNodeId(),
+				peer.getNodeSignature(), peer.getSignature(), peer.getFingerprint(), peer.getEndpoint(),
+				peer.getExtraData());
+
+		assertTrue(cache.isValid(peer));
+		assertTrue(cache.isValid(copy));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+
+		PeerInfo tampered = PeerInfo.of(peer.getId(), peer.getNonce(), peer.getSequenceNumber(), peer.getNodeId(),
+				peer.getNodeSignature(), peer.getSignature(), peer.getFingerprint(), "tcp://203.0.113.11:1234",
+				peer.getExtraData());
+		assertFalse(cache.isValid(tampered));
+		assertFalse(cache.isValid(tampered));
+		assertTrue(cache.isValid(copy));
+		assertEquals(3, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+		assertEquals(2, cache.getInvalidCount());
+	}
+
+	@Test
+	public void testNegativeExpiration() throws Exception {
+		VerificationCache cache = new VerificationCache(1024, Duration.ofMinutes(10), Duration.ofMillis(100));
+
+		Value value = Value.signedBuilder().data("Hello Boson".getBytes()).build();
+		Value tampered = Value.of(value.getPublicKey(), value.getNonce(), value.getSequenceNumber(),
+				value.getSignature(), "Hello World".getBytes());
+
+		assertTrue(cache.isValid(value));
+		assertFalse(cache.isValid(tampered));
+		Thread.sleep(200);
+
+		assertTrue(cache.isValid(value));
+		assertFalse(cache.isValid(tampered));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+	}
+
+	@Test
+	public void testDisabled() {
+		VerificationCache cache = VerificationCache.disabled();
+
+		Value value = Value.signedBuilder().data("Hello Boson".getBytes()).build();
+		assertTrue(cache.isValid(value));
+		assertTrue(cache.isValid(value));
+		assertEquals(0, cache.getHitCount());
+		assertEquals(0, cache.size());
+	}
+}
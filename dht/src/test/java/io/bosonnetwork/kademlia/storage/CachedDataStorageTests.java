@@ -0,0 +1,221 @@
+package io.bosonnetwork.kademlia.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.bosonnetwork.PeerInfo;
+import io.bosonnetwork.Value;
+import io.bosonnetwork.crypto.Signature;
+import io.bosonnetwork.utils.FileUtils;
+
+@ExtendWith(VertxExtension.class)
+public class CachedDataStorageTests {
+	private static final Path testRoot = Path.of(System.getProperty("java.io.tmpdir"), "boson");
+	private static final Path testDir = Path.of(testRoot.toString(), "dht", "CachedDataStorageTests");
+
+	private static final long expiration = TimeUnit.MINUTES.toMillis(10);
+
+	@BeforeAll
+	static void setup() throws IOException {
+		FileUtils.deleteFile(testDir);
+		Files.createDirectories(testDir);
+	}
+
+	@AfterAll
+	static void teardown() throws IOException {
+		FileUtils.deleteFile(testRoot);
+	}
+
+	private static CachedDataStorage createStorage(String name) {
+		SQLiteStorage storage = new SQLiteStorage("jdbc:sqlite:" + testDir.resolve(name + ".db"));
+		return new CachedDataStorage(storage, 16 * 1024 * 1024);
+	}
+
+	private static Future<Void> sleep(Vertx vertx, long delay) {
+		Promise<Void> promise = Promise.promise();
+		vertx.setTimer(delay, id -> promise.complete());
+		return promise.future();
+	}
+
+	@Test
+	void testValueCache(Vertx vertx, VertxTestContext context) {
+		CachedDataStorage storage = createStorage("values");
+
+		Signature.KeyPair keyPair = Signature.KeyPair.random();
+		Value v1 = Value.signedBuilder().key(keyPair).sequenceNumber(1).data("v1".getBytes()).build();
+		Value v2 = Value.signedBuilder().key(keyPair).sequenceNumber(2).data("v2".getBytes()).build();
+
+		storage.initialize(vertx, expiration, expiration).compose(v ->
+				storage.getValue(v1.getId())
+		).compose(value -> {
+			context.verify(() -> assertNull(value));
+			// the negative result is cached
+			return storage.getValue(v1.getId());
+		}).compose(value -> {
+			context.verify(() -> {
+				assertNull(value);
+				assertEquals(1, storage.getValueHits());
+				assertEquals(1, storage.getValueMisses());
+			});
+			return storage.putValue(v1);
+		}).compose(v ->
+				storage.getValue(v1.getId())
+		).compose(value -> {
+			context.verify(() -> {
+				assertEquals(v1, value);
+				assertEquals(2, storage.getValueMisses());
+			});
+			return storage.getValue(v1.getId());
+		}).compose(value -> {
+			context.verify(() -> {
+				assertEquals(v1, value);
+				assertEquals(2, storage.getValueHits());
+			});
+			return storage.putValue(v2);
+		}).compose(v ->
+				storage.getValue(v1.getId())
+		).compose(value -> {
+			context.verify(() -> {
+				assertEquals(v2, value);
+				assertEquals(3, storage.getValueMisses());
+			});
+			return storage.removeValue(v1.getId());
+		}).compose(removed ->
+				storage.getValue(v1.getId())
+		).compose(value -> {
+			context.verify(() -> {
+				assertNull(value);
+				assertEquals(4, storage.getValueMisses());
+			});
+			return storage.close();
+		}).onComplete(context.succeedingThenComplete());
+	}
+
+	@Test
+	void testPeerCache(Vertx vertx, VertxTestContext context) {
+		CachedDataStorage storage = createStorage("peers");
+
+		Signature.KeyPair keyPair = Signature.KeyPair.random();
+		PeerInfo p1 = PeerInfo.builder().key(keyPair).fingerprint(1).endpoint("tcp://203.0.113.1:8001").build();
+		PeerInfo p2 = PeerInfo.builder().key(keyPair).fingerprint(2).endpoint("tcp://203.0.113.2:8002").build();
+
+		storage.initialize(vertx, expiration, expiration).compose(v ->
+				storage.putPeer(p1)
+		).compose(v ->
+				storage.getPeers(p1.getId(), 0, 16)
+		).compose(peers -> {
+			context.verify(() -> assertEquals(1, peers.size()));
+			return storage.getPeers(p1.getId(), 0, 16);
+		}).compose(peers -> {
+			context.verify(() -> {
+				assertEquals(1, peers.size());
+				assertEquals(1, storage.getPeerHits());
+				assertEquals(1, storage.getPeerMisses());
+			});
+			// the queries with different limits are cached separately
+			return storage.getPeers(p1.getId(), 0, 1);
+		}).compose(peers -> {
+			context.verify(() -> assertEquals(2, storage.getPeerMisses()));
+			return storage.putPeer(p2);
+		}).compose(v ->
+				storage.getPeers(p1.getId(), 0, 16)
+		).compose(peers -> {
+			context.verify(() -> {
+				assertEquals(2, peers.size());
+				assertEquals(3, storage.getPeerMisses());
+			});
+			return storage.purge();
+		}).compose(v ->
+				storage.getPeers(p1.getId(), 0, 16)
+		).compose(peers -> {
+			// the unexpired records survive the purge
+			context.verify(() -> {
+				assertEquals(2, peers.size());
+				assertEquals(2, storage.getPeerHits());
+				assertEquals(3, storage.getPeerMisses());
+			});
+			return storage.close();
+		}).onComplete(context.succeedingThenComplete());
+	}
+
+	@Test
+	void testRecordExpiration(Vertx vertx, VertxTestContext context) {
+		CachedDataStorage storage = createStorage("expiration");
+
+		long shortExpiration = 1000;
+		Value value = Value.immutableBuilder().data("expiring".getBytes()).build();
+		long[] stored = new long[1];
+
+		storage.initialize(vertx, shortExpiration, shortExpiration).compose(v -> {
+			stored[0] = System.currentTimeMillis();
+			return storage.putValue(value);
+		}).compose(v ->
+				sleep(vertx, shortExpiration / 2)
+		).compose(v ->
+				storage.getExpiringValue(value.getId())
+		).compose(expiring -> {
+			context.verify(() -> {
+				assertEquals(value, expiring.result());
+				assertTrue(expiring.expiresAt() >= stored[0] + shortExpiration);
+				assertTrue(expiring.expiresAt() <= System.currentTimeMillis() + shortExpiration / 2);
+			});
+			// cached half way through the lifetime of the record
+			return storage.getValue(value.getId());
+		}).compose(result -> {
+			context.verify(() -> assertEquals(1, storage.getValueMisses()));
+			return sleep(vertx, shortExpiration / 2 + 100);
+		}).compose(v ->
+				storage.purge()
+		).compose(v ->
+				storage.getValue(value.getId())
+		).compose(result -> {
+			// the cached record expired with its row, not a full expiration after it was cached
+			context.verify(() -> {
+				assertNull(result);
+				assertEquals(0, storage.getValueHits());
+				assertEquals(2, storage.getValueMisses());
+			});
+			return storage.close();
+		}).onComplete(context.succeedingThenComplete());
+	}
+
+	@Test
+	void testConcurrentLookups(Vertx vertx, VertxTestContext context) {
+		CachedDataStorage storage = createStorage("concurrent");
+
+		Value value = Value.immutableBuilder().data("immutable".getBytes()).build();
+
+		storage.initialize(vertx, expiration, expiration).compose(v ->
+				storage.putValue(value)
+		).compose(v -> {
+			// the concurrent lookups share one query
+			var f1 = storage.getValue(value.getId());
+			var f2 = storage.getValue(value.getId());
+			context.verify(() -> {
+				assertSame(f1, f2);
+				assertEquals(1, storage.getValueMisses());
+			});
+			return f2;
+		}).compose(result -> {
+			context.verify(() -> assertEquals(value, result));
+			return storage.close();
+		}).onComplete(context.succeedingThenComplete());
+	}
+}
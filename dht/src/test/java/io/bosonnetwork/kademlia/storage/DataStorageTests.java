@@ -24,6 +24,7 @@ import java.util.stream.Stream;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.streams.ReadStream;
 import net.datafaker.Faker;
 
 import org.junit.jupiter.api.AfterAll;
@@ -55,7 +56,7 @@ public class DataStorageTests {
 	private static final Path testRoot = Path.of(System.getProperty("java.io.tmpdir"), "boson");
 	private static final Path testDir = Path.of(testRoot.toString(), "dht", "DataStorageTests");
 
-	private static final int CURRENT_SCHEMA_VERSION = 1;
+	private static final int CURRENT_SCHEMA_VERSION = 2;
 
 	private static final Faker faker = new Faker();
 
@@ -119,6 +120,14 @@ public class DataStorageTests {
 		}));
 		futures.add(future2);
 
+		var inMemoryURI = "memory:" + testDir.resolve("storage.snapshot");
+		inMemoryStorage = new InMemoryStorage(inMemoryURI);
+		var future3 = inMemoryStorage.initialize(vertx, valueExpiration, peerInfoExpiration).onComplete(context.succeeding(version -> {
+			context.verify(() -> assertEquals(CURRENT_SCHEMA_VERSION, version));
+			dataStorages.add(Arguments.of("InMemoryStorage", inMemoryStorage));
+		}));
+		futures.add(future3);
+
 		Future.all(futures).onSuccess(unused -> {
 			try {
 				nodeIdentities = IntStream.range(0, 32).mapToObj(i -> new CryptoIdentity())
@@ -443,7 +452,8 @@ public class DataStorageTests {
 	@MethodSource("testStoragesProvider")
 	@Order(6)
 	void testGetPersistentValuesUpdatedBefore(String name, DataStorage storage, Vertx vertx, VertxTestContext context) {
-		storage.getValues(true, System.currentTimeMillis()).onComplete(context.succeeding(result -> {
+		long now = System.currentTimeMillis();
+		storage.getValues(true, now).onComplete(context.succeeding(result -> {
 			context.verify(() -> {
 				var expected = new ArrayList<>(persistentValues);
 				assertEquals(expected.size(), result.size());
@@ -453,6 +463,8 @@ public class DataStorageTests {
 				expected.sort((v1, v2) -> Id.compare(v1.getId(), v2.getId()));
 				assertEquals(expected, copy);
 			});
+		})).compose(v -> storage.countValues(true, now)).onComplete(context.succeeding(count -> {
+			context.verify(() -> assertEquals(persistentValues.size(), count.intValue()));
 		})).onComplete(context.succeedingThenComplete());
 	}
 
@@ -798,6 +810,33 @@ public class DataStorageTests {
 		})).onComplete(context.succeedingThenComplete());
 	}
 
+	private static <T> Future<List<T>> collect(ReadStream<T> stream) {
+		Promise<List<T>> promise = Promise.promise();
+		List<T> result = new ArrayList<>();
+		stream.exceptionHandler(promise::fail)
+				.endHandler(v -> promise.complete(result))
+				.handler(result::add);
+		return promise.future();
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("testStoragesProvider")
+	@Order(16)
+	void testStreamValues(String name, DataStorage storage, Vertx vertx, VertxTestContext context) {
+		var now = System.currentTimeMillis();
+
+		storage.getValues().compose(expected ->
+				collect(storage.streamValues()).andThen(context.succeeding(result ->
+						context.verify(() -> assertEquals(expected, result))))
+		).compose(v -> storage.getValues(true, now)).compose(expected ->
+				collect(storage.streamValues(true, now)).andThen(context.succeeding(result ->
+						context.verify(() -> assertEquals(expected, result))))
+		).compose(v -> storage.getValues(false, now)).compose(expected ->
+				collect(storage.streamValues(false, now)).andThen(context.succeeding(result ->
+						context.verify(() -> assertEquals(expected, result))))
+		).onComplete(context.succeedingThenComplete());
+	}
+
 	@ParameterizedTest(name = "{0}")
 	@MethodSource("testStoragesProvider")
 	@Order(101)
@@ -992,7 +1031,8 @@ public class DataStorageTests {
 	@MethodSource("testStoragesProvider")
 	@Order(108)
 	void testGetPersistentPeersUpdatedBefore(String name, DataStorage storage, Vertx vertx, VertxTestContext context) {
-		storage.getPeers(true, System.currentTimeMillis()).onComplete(context.succeeding(result -> {
+		long now = System.currentTimeMillis();
+		storage.getPeers(true, now).onComplete(context.succeeding(result -> {
 			context.verify(() -> {
 				var expected = new ArrayList<>(persistentPeerInfos);
 				assertEquals(expected.size(), result.size());
@@ -1003,6 +1043,8 @@ public class DataStorageTests {
 				expected.sort(comparator);
 				assertEquals(expected, copy);
 			});
+		})).compose(v -> storage.countPeers(true, now)).onComplete(context.succeeding(count -> {
+			context.verify(() -> assertEquals(persistentPeerInfos.size(), count.intValue()));
 		})).onComplete(context.succeedingThenComplete());
 	}
 
@@ -1502,4 +1544,56 @@ public class DataStorageTests {
 			}));
 		}).onComplete(context.succeedingThenComplete());
 	}
-}
\ No newline at end of file
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("testStoragesProvider")
+	@Order(123)
+	void testBatchUpdateAnnouncedTime(String name, DataStorage storage, Vertx vertx, VertxTestContext context) {
+		var now = System.currentTimeMillis();
+
+		storage.getValues(true, Long.MAX_VALUE).compose(values -> {
+			context.verify(() -> assertFalse(values.isEmpty()));
+			return storage.updateValuesAnnouncedTime(values.stream().map(Value::getId).toList());
+		}).compose(updated -> {
+			context.verify(() -> assertTrue(updated >= now));
+			return storage.getValues(true, now - 1);
+		}).compose(values -> {
+			context.verify(() -> assertTrue(values.isEmpty()));
+			return storage.getPeers(true, Long.MAX_VALUE);
+		}).compose(peers -> {
+			context.verify(() -> assertFalse(peers.isEmpty()));
+			return storage.updatePeersAnnouncedTime(peers);
+		}).compose(updated -> {
+			context.verify(() -> assertTrue(updated >= now));
+			return storage.getPeers(true, now - 1);
+		}).compose(peers -> {
+			context.verify(() -> assertTrue(peers.isEmpty()));
+			return storage.updateValuesAnnouncedTime(List.of());
+		}).onComplete(context.succeeding(updated -> {
+			context.verify(() -> assertEquals(0L, updated));
+			context.completeNow();
+		}));
+	}
+
+	@ParameterizedTest(name = "{0}")
+	@MethodSource("testStoragesProvider")
+	@Order(124)
+	void testStreamPeers(String name, DataStorage storage, Vertx vertx, VertxTestContext context) {
+		var now = System.currentTimeMillis();
+
+		storage.getPeers().compose(expected ->
+				collect(storage.streamPeers()).andThen(context.succeeding(result ->
+						context.verify(() -> assertEquals(expected, result))))
+		).compose(v -> fetchPeers(storage, 0, 8, new ArrayList<>())).compose(expected ->
+				// the paginated query breaks the ties the same way as the keyset stream
+				collect(storage.streamPeers()).andThen(context.succeeding(result ->
+						context.verify(() -> assertEquals(expected, result))))
+		).compose(v -> storage.getPeers(true, now)).compose(expected ->
+				collect(storage.streamPeers(true, now)).andThen(context.succeeding(result ->
+						context.verify(() -> assertEquals(expected, result))))
+		).compose(v -> storage.getPeers(false, now)).compose(expected ->
+				collect(storage.streamPeers(false, now)).andThen(context.succeeding(result ->
+						context.verify(() -> assertEquals(expected, result))))
+		).onComplete(context.succeedingThenComplete());
+	}
+}
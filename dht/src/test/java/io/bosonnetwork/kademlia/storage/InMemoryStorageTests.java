@@ -0,0 +1,199 @@
+package io.bosonnetwork.kademlia.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.bosonnetwork.PeerInfo;
+import io.bosonnetwork.Value;
+import io.bosonnetwork.crypto.CryptoIdentity;
+import io.bosonnetwork.utils.FileUtils;
+
+@ExtendWith(VertxExtension.class)
+public class InMemoryStorageTests {
+	private static final Path testRoot = Path.of(System.getProperty("java.io.tmpdir"), "boson");
+	private static final Path testDir = Path.of(testRoot.toString(), "dht", "InMemoryStorageTests");
+
+	private static final long expiration = TimeUnit.MINUTES.toMillis(10);
+
+	@BeforeAll
+	static void setup() throws IOException {
+		FileUtils.deleteFile(testDir);
+		Files.createDirectories(testDir);
+	}
+
+	@AfterAll
+	static void teardown() throws IOException {
+		FileUtils.deleteFile(testRoot);
+	}
+
+	@Test
+	void testVolatileStorage(Vertx vertx, VertxTestContext context) {
+		InMemoryStorage storage = new InMemoryStorage("memory:");
+		Value value = Value.immutableBuilder().data("volatile".getBytes()).build();
+
+		storage.initialize(vertx, expiration, expiration).compose(version -> {
+			context.verify(() -> assertEquals(2, version));
+			return storage.putValue(value);
+		}).compose(v ->
+				storage.getValue(value.getId())
+		).compose(result -> {
+			context.verify(() -> assertEquals(value, result));
+			return storage.close();
+		}).onComplete(context.succeedingThenComplete());
+	}
+
+	@Test
+	void testSnapshot(Vertx vertx, VertxTestContext context) {
+		Path snapshotFile = testDir.resolve("node.snapshot");
+		InMemoryStorage storage = new InMemoryStorage("memory:" + snapshotFile);
+
+		List<Value> values = new ArrayList<>();
+		for (int i = 0; i < 16; i++) {
+			values.add(switch (i % 3) {
+				case 0 -> Value.immutableBuilder().data(("value-" + i).getBytes()).build();
+				case 1 -> Value.signedBuilder().sequenceNumber(i).data(("value-" + i).getBytes()).build();
+				default -> Value.encryptedBuilder().recipient(new CryptoIdentity().getId())
+						.sequenceNumber(i).data(("value-" + i).getBytes()).build();
+			});
+		}
+
+		List<PeerInfo> peers = new ArrayList<>();
+		for (int i = 0; i < 16; i++) {
+			peers.add(switch (i % 3) {
+				case 0 -> PeerInfo.builder().endpoint("tcp://203.0.113.1:" + (8000 + i)).build();
+				case 1 -> PeerInfo.builder().endpoint("tcp://203.0.113.2:" + (8000 + i))
+						.extra(Map.of("foo", i)).build();
+				default -> PeerInfo.builder().endpoint("tcp://203.0.113.3:" + (8000 + i))
+						.node(new CryptoIdentity()).build();
+			});
+		}
+
+		storage.initialize(vertx, expiration, expiration).compose(v -> {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < values.size(); i++)
+				futures.add(storage.putValue(values.get(i), i % 2 == 0));
+			for (int i = 0; i < peers.size(); i++)
+				futures.add(storage.putPeer(peers.get(i), i % 2 == 0));
+			return Future.all(futures);
+		}).compose(v ->
+				storage.close()
+		).compose(v -> {
+			context.verify(() -> assertTrue(Files.exists(snapshotFile)));
+
+			InMemoryStorage reloaded = new InMemoryStorage("memory:" + snapshotFile);
+			return reloaded.initialize(vertx, expiration, expiration).compose(version -> {
+				List<Future<?>> futures = new ArrayList<>();
+				for (Value value : values) {
+					futures.add(reloaded.getValue(value.getId()).andThen(context.succeeding(result ->
+							context.verify(() -> {
+								assertEquals(value, result);
+								assertEquals(value.hasPrivateKey(), result.hasPrivateKey());
+							}))));
+				}
+				for (PeerInfo peer : peers) {
+					futures.add(reloaded.getPeer(peer.getId(), peer.getFingerprint()).andThen(context.succeeding(result ->
+							context.verify(() -> assertEquals(peer, result)))));
+				}
+				futures.add(reloaded.getValues(true, System.currentTimeMillis()).andThen(context.succeeding(result ->
+						context.verify(() -> assertEquals(values.size() / 2, result.size())))));
+				futures.add(reloaded.getPeers(true, System.currentTimeMillis()).andThen(context.succeeding(result ->
+						context.verify(() -> assertEquals(peers.size() / 2, result.size())))));
+				return Future.all(futures);
+			}).compose(x -> reloaded.close());
+		}).compose(v -> {
+			// reload with a short expiration, the expired non-persistent records are skipped
+			InMemoryStorage reloaded = new InMemoryStorage("memory:" + snapshotFile);
+			return reloaded.initialize(vertx, -1, -1)
+					.compose(version -> reloaded.getValues())
+					.andThen(context.succeeding(result ->
+							context.verify(() -> assertEquals(values.size() / 2, result.size()))))
+					.compose(x -> reloaded.getPeers())
+					.andThen(context.succeeding(result ->
+							context.verify(() -> assertEquals(peers.size() / 2, result.size()))))
+					.compose(x -> reloaded.close());
+		}).onComplete(context.succeedingThenComplete());
+	}
+
+	@Test
+	void testPurge(Vertx vertx, VertxTestContext context) {
+		InMemoryStorage storage = new InMemoryStorage("memory:");
+		Value value = Value.immutableBuilder().data("expiring".getBytes()).build();
+		Value persistent = Value.immutableBuilder().data("persistent".getBytes()).build();
+		PeerInfo peer = PeerInfo.builder().endpoint("tcp://203.0.113.1:8000").build();
+
+		storage.initialize(vertx, 50, 50).compose(v ->
+				Future.all(storage.putValue(value), storage.putValue(persistent, true), storage.putPeer(peer))
+		).compose(v -> {
+			Promise<Void> promise = Promise.promise();
+			vertx.setTimer(100, id -> promise.complete());
+			return promise.future();
+		}).compose(v ->
+				storage.purge()
+		).compose(v ->
+				storage.getValue(value.getId())
+		).compose(result -> {
+			context.verify(() -> assertNull(result));
+			return storage.getValue(persistent.getId());
+		}).compose(result -> {
+			context.verify(() -> assertEquals(persistent, result));
+			return storage.getPeers(peer.getId());
+		}).compose(result -> {
+			context.verify(() -> assertTrue(result.isEmpty()));
+			return storage.close();
+		}).onComplete(context.succeedingThenComplete());
+	}
+
+	@Test
+	void testExpiringLookups(Vertx vertx, VertxTestContext context) {
+		InMemoryStorage storage = new InMemoryStorage("memory:");
+		Value value = Value.immutableBuilder().data("expiring".getBytes()).build();
+		PeerInfo p1 = PeerInfo.builder().endpoint("tcp://203.0.113.1:8000").build();
+		long[] stored = new long[1];
+
+		storage.initialize(vertx, expiration, expiration).compose(v -> {
+			stored[0] = System.currentTimeMillis();
+			return Future.all(storage.putValue(value), storage.putPeer(p1));
+		}).compose(v ->
+				storage.getExpiringValue(value.getId())
+		).compose(result -> {
+			context.verify(() -> {
+				assertEquals(value, result.result());
+				assertTrue(result.expiresAt() >= stored[0] + expiration);
+				assertTrue(result.expiresAt() <= System.currentTimeMillis() + expiration);
+			});
+			return storage.getExpiringPeers(p1.getId(), 0, 16);
+		}).compose(result -> {
+			context.verify(() -> {
+				assertEquals(List.of(p1), result.result());
+				assertTrue(result.expiresAt() >= stored[0] + expiration);
+			});
+			return storage.getExpiringValue(p1.getId());
+		}).compose(result -> {
+			// nothing found, nothing expires
+			context.verify(() -> {
+				assertNull(result.result());
+				assertEquals(Long.MAX_VALUE, result.expiresAt());
+			});
+			return storage.close();
+		}).onComplete(context.succeedingThenComplete());
+	}
+}
@@ -0,0 +1,107 @@
+package io.bosonnetwork.kademlia.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class KeysetReadStreamTests {
+	private static KeysetReadStream.PageLoader<Integer, Integer> loader(int total, List<Integer> cursors) {
+		return (after, limit) -> {
+			cursors.add(after);
+			int from = after == null ? 0 : after + 1;
+			List<Integer> items = IntStream.range(from, Math.min(from + limit, total)).boxed().toList();
+			return Future.succeededFuture(new KeysetReadStream.Page<>(items, items.isEmpty() ? null : items.get(items.size() - 1)));
+		};
+	}
+
+	@Test
+	void testPaging(Vertx vertx, VertxTestContext context) {
+		Context ctx = vertx.getOrCreateContext();
+		List<Integer> cursors = new ArrayList<>();
+		List<Integer> received = new ArrayList<>();
+
+		ctx.runOnContext(v -> new KeysetReadStream<>(ctx, 10, loader(25, cursors))
+				.exceptionHandler(context::failNow)
+				.endHandler(unused -> context.verify(() -> {
+					assertEquals(IntStream.range(0, 25).boxed().toList(), received);
+					// keyset cursors, not offsets
+					assertEquals(List.of(-1, 9, 19), cursors.stream().map(c -> c == null ? -1 : c).toList());
+					context.completeNow();
+				}))
+				.handler(received::add));
+	}
+
+	@Test
+	void testExactPages(Vertx vertx, VertxTestContext context) {
+		Context ctx = vertx.getOrCreateContext();
+		List<Integer> cursors = new ArrayList<>();
+		List<Integer> received = new ArrayList<>();
+
+		ctx.runOnContext(v -> new KeysetReadStream<>(ctx, 10, loader(20, cursors))
+				.exceptionHandler(context::failNow)
+				.endHandler(unused -> context.verify(() -> {
+					assertEquals(20, received.size());
+					// the last full page needs one more empty read to end
+					assertEquals(3, cursors.size());
+					context.completeNow();
+				}))
+				.handler(received::add));
+	}
+
+	@Test
+	void testBackpressure(Vertx vertx, VertxTestContext context) {
+		Context ctx = vertx.getOrCreateContext();
+		List<Integer> cursors = new ArrayList<>();
+		List<Integer> received = new ArrayList<>();
+
+		ctx.runOnContext(v -> {
+			KeysetReadStream<Integer, Integer> stream = new KeysetReadStream<>(ctx, 10, loader(100, cursors));
+			stream.pause();
+			stream.exceptionHandler(context::failNow)
+					.endHandler(unused -> context.verify(() -> {
+						assertEquals(100, received.size());
+						context.completeNow();
+					}))
+					.handler(i -> {
+						received.add(i);
+						// one element at a time, on demand
+						vertx.setTimer(1, id -> stream.fetch(1));
+					});
+
+			vertx.setTimer(50, id -> context.verify(() -> {
+				assertTrue(received.isEmpty());
+				assertTrue(cursors.isEmpty());
+				stream.fetch(1);
+			}));
+		});
+	}
+
+	@Test
+	void testFailure(Vertx vertx, VertxTestContext context) {
+		Context ctx = vertx.getOrCreateContext();
+		List<Integer> received = new ArrayList<>();
+
+		ctx.runOnContext(v -> new KeysetReadStream<Integer, Integer>(ctx, 10, (after, limit) -> after == null ?
+						Future.succeededFuture(new KeysetReadStream.Page<>(IntStream.range(0, 10).boxed().toList(), 9)) :
+						Future.failedFuture(new DataStorageException("broken")))
+				.endHandler(unused -> context.failNow("Should not end"))
+				.exceptionHandler(e -> context.verify(() -> {
+					assertEquals(10, received.size());
+					assertTrue(e instanceof DataStorageException);
+					context.completeNow();
+				}))
+				.handler(received::add));
+	}
+}
@@ -0,0 +1,212 @@
+package io.bosonnetwork.kademlia.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.bosonnetwork.PeerInfo;
+import io.bosonnetwork.Value;
+import io.bosonnetwork.crypto.Signature;
+import io.bosonnetwork.utils.FileUtils;
+
+@ExtendWith(VertxExtension.class)
+public class WriteBehindTests {
+	private static final Path testRoot = Path.of(System.getProperty("java.io.tmpdir"), "boson");
+	private static final Path testDir = Path.of(testRoot.toString(), "dht", "WriteBehindTests");
+
+	private static final long expiration = TimeUnit.MINUTES.toMillis(10);
+
+	@BeforeAll
+	static void setup() throws IOException {
+		FileUtils.deleteFile(testDir);
+		Files.createDirectories(testDir);
+	}
+
+	@AfterAll
+	static void teardown() throws IOException {
+		FileUtils.deleteFile(testRoot);
+	}
+
+	// Fails the first given number of batch writes, runs the hook before each failure
+	private static class FailingStorage extends SQLiteStorage {
+		private final AtomicInteger failures;
+		private Runnable beforeFailure = () -> {};
+
+		FailingStorage(String name, int failures) {
+			super("jdbc:sqlite:" + testDir.resolve(name + ".db"));
+			this.failures = new AtomicInteger(failures);
+		}
+
+		@Override
+		Future<Void> writeBatch(List<Map<String, Object>> valueAnnounces, List<Map<String, Object>> peerAnnounces,
+								List<Map<String, Object>> values, List<Map<String, Object>> peers) {
+			if (failures.getAndDecrement() <= 0)
+				return super.writeBatch(valueAnnounces, peerAnnounces, values, peers);
+
+			beforeFailure.run();
+			return Future.failedFuture(new DataStorageException("Injected failure"));
+		}
+	}
+
+	private static SQLiteStorage createStorage(String name, int delay, int batchSize, boolean durable) {
+		SQLiteStorage storage = new SQLiteStorage("jdbc:sqlite:" + testDir.resolve(name + ".db"));
+		storage.setWriteBehind(delay, batchSize, durable);
+		return storage;
+	}
+
+	@Test
+	void testBufferedWrites(Vertx vertx, VertxTestContext context) throws Exception {
+		SQLiteStorage storage = createStorage("buffered", 60_000, 64, false);
+
+		List<Value> values = new ArrayList<>();
+		for (int i = 0; i < 100; i++)
+			values.add(Value.signedBuilder().sequenceNumber(1).data(("value-" + i).getBytes()).build());
+
+		List<PeerInfo> peers = new ArrayList<>();
+		for (int i = 0; i < 20; i++)
+			peers.add(PeerInfo.builder().endpoint("tcp://203.0.113.1:" + (8000 + i)).build());
+
+		storage.initialize(vertx, expiration, expiration).compose(v -> {
+			WriteBehind writeBehind = storage.getWriteBehind();
+			context.verify(() -> assertNotNull(writeBehind));
+
+			List<Future<?>> futures = new ArrayList<>();
+			values.forEach(value -> futures.add(storage.putValue(value, true)));
+			peers.forEach(peer -> futures.add(storage.putPeer(peer)));
+			// coalesced into the buffered rows
+			values.forEach(value -> futures.add(storage.updateValueAnnouncedTime(value.getId())));
+			return Future.all(futures);
+		}).compose(v -> {
+			WriteBehind writeBehind = storage.getWriteBehind();
+			context.verify(() -> assertEquals(220, writeBehind.getWrites()));
+
+			// reads see the buffered writes
+			return storage.getValue(values.get(99).getId());
+		}).compose(value -> {
+			context.verify(() -> assertEquals(values.get(99), value));
+			return storage.getPeer(peers.get(0).getId(), peers.get(0).getFingerprint());
+		}).compose(peer -> {
+			context.verify(() -> assertEquals(peers.get(0), peer));
+			return storage.getValues(true, Long.MAX_VALUE);
+		}).compose(result -> {
+			context.verify(() -> {
+				assertEquals(values.size(), result.size());
+				assertEquals(0, storage.getWriteBehind().getPendingWrites());
+				assertEquals(0, storage.getWriteBehind().getFailedFlushes());
+			});
+			return storage.close();
+		}).onComplete(context.succeedingThenComplete());
+	}
+
+	@Test
+	void testCoalesceBySequenceNumber(Vertx vertx, VertxTestContext context) throws Exception {
+		SQLiteStorage storage = createStorage("coalesce", 60_000, 0, false);
+
+		Signature.KeyPair keyPair = Signature.KeyPair.random();
+		Value v1 = Value.signedBuilder().key(keyPair).sequenceNumber(1).data("v1".getBytes()).build();
+		Value v3 = Value.signedBuilder().key(keyPair).sequenceNumber(3).data("v3".getBytes()).build();
+		Value v2 = Value.signedBuilder().key(keyPair).sequenceNumber(2).data("v2".getBytes()).build();
+
+		storage.initialize(vertx, expiration, expiration).compose(v ->
+				Future.all(storage.putValue(v1), storage.putValue(v3), storage.putValue(v2))
+		).compose(v ->
+				storage.getValue(v1.getId())
+		).compose(value -> {
+			context.verify(() -> {
+				assertEquals(v3.getSequenceNumber(), value.getSequenceNumber());
+				assertEquals(1, storage.getWriteBehind().getFlushedRecords());
+			});
+			return storage.close();
+		}).onComplete(context.succeedingThenComplete());
+	}
+
+	@Test
+	void testDurableWrites(Vertx vertx, VertxTestContext context) throws Exception {
+		SQLiteStorage storage = createStorage("durable", 20, 0, true);
+
+		List<Value> values = new ArrayList<>();
+		for (int i = 0; i < 10; i++)
+			values.add(Value.immutableBuilder().data(("value-" + i).getBytes()).build());
+
+		storage.initialize(vertx, expiration, expiration).compose(v ->
+				Future.all(values.stream().map(storage::putValue).toList())
+		).compose(v -> {
+			// acknowledged after the group commit
+			context.verify(() -> {
+				assertEquals(0, storage.getWriteBehind().getPendingWrites());
+				assertEquals(values.size(), storage.getWriteBehind().getFlushedRecords());
+				assertEquals(1, storage.getWriteBehind().getFlushes());
+			});
+			return storage.close();
+		}).onComplete(context.succeedingThenComplete());
+	}
+
+	@Test
+	void testRetryMergesFailedBatch(Vertx vertx, VertxTestContext context) throws Exception {
+		FailingStorage storage = new FailingStorage("retry", 1);
+		storage.setWriteBehind(20, 0, true);
+
+		Signature.KeyPair keyPair = Signature.KeyPair.random();
+		Value v1 = Value.signedBuilder().key(keyPair).sequenceNumber(1).data("v1".getBytes()).build();
+		Value v2 = Value.signedBuilder().key(keyPair).sequenceNumber(2).data("v2".getBytes()).build();
+
+		// an older version is written while the batch of the newer one is failing
+		List<Future<Void>> older = new ArrayList<>();
+		storage.beforeFailure = () -> older.add(storage.putValue(v1).mapEmpty());
+
+		storage.initialize(vertx, expiration, expiration).compose(v ->
+				// durable: acknowledged by the retry, not failed by the first flush
+				storage.putValue(v2)
+		).compose(v ->
+				Future.all(older)
+		).compose(v ->
+				storage.getValue(v1.getId())
+		).compose(value -> {
+			context.verify(() -> {
+				assertEquals(v2.getSequenceNumber(), value.getSequenceNumber());
+				assertEquals(1, storage.getWriteBehind().getFailedFlushes());
+				assertEquals(0, storage.getWriteBehind().getDroppedRecords());
+			});
+			return storage.close();
+		}).onComplete(context.succeedingThenComplete());
+	}
+
+	@Test
+	void testDropAfterRetries(Vertx vertx, VertxTestContext context) throws Exception {
+		FailingStorage storage = new FailingStorage("drop", Integer.MAX_VALUE);
+		storage.setWriteBehind(20, 0, true);
+
+		Value value = Value.immutableBuilder().data("dropped".getBytes()).build();
+
+		storage.initialize(vertx, expiration, expiration).compose(v ->
+				storage.putValue(value)
+		).transform(ar -> {
+			context.verify(() -> {
+				assertTrue(ar.failed());
+				WriteBehind writeBehind = storage.getWriteBehind();
+				assertEquals(WriteBehind.MAX_FLUSH_RETRIES + 1, writeBehind.getFailedFlushes());
+				assertEquals(1, writeBehind.getDroppedRecords());
+				assertEquals(0, writeBehind.getPendingWrites());
+			});
+			return storage.close();
+		}).onComplete(context.succeedingThenComplete());
+	}
+}
@@ -1,6 +1,9 @@
 package io.bosonnetwork.kademlia.tasks;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -16,6 +19,7 @@ import org.junit.jupiter.api.Test;
 import io.bosonnetwork.Id;
 import io.bosonnetwork.NodeInfo;
 import io.bosonnetwork.crypto.Random;
+import io.bosonnetwork.kademlia.routing.KBucketEntry;
 import io.bosonnetwork.utils.AddressUtils;
 
 public class ClosestCandidatesTests {
@@ -102,6 +106,108 @@ public class ClosestCandidatesTests {
 		}
 	}
 
+	@Test
+	void testRequeue() {
+		List<NodeInfo> nodes = new ArrayList<>();
+		for (int i = 0; i < 4; i++)
+			nodes.add(new NodeInfo(Id.random(), randomAddress()));
+		candidates.add(nodes);
+
+		List<CandidateNode> sent = new ArrayList<>();
+		CandidateNode next;
+		while ((next = candidates.next()) != null) {
+			next.setSent();
+			sent.add(next);
+		}
+		assertEquals(4, sent.size());
+		assertEquals(4, candidates.size());
+
+		// timeout, retry the farthest one
+		CandidateNode retry = sent.get(3);
+		retry.clearSent();
+		candidates.requeue(retry);
+		assertSame(retry, candidates.next());
+		assertEquals(1, retry.getPinged());
+
+		// removed nodes never come back
+		candidates.remove(retry.getId());
+		candidates.requeue(retry);
+		assertNull(candidates.next());
+	}
+
+	@Test
+	void testEvictionKeepsInFlight() {
+		List<NodeInfo> nodes = new ArrayList<>();
+		for (int i = 0; i < 16; i++)
+			nodes.add(new NodeInfo(Id.random(), randomAddress()));
+		candidates.add(nodes);
+
+		List<CandidateNode> inFlight = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			CandidateNode cn = candidates.next();
+			cn.setSent();
+			inFlight.add(cn);
+		}
+
+		// The new nodes are all closer than the existing ones, the in-flight nodes must be kept
+		List<NodeInfo> closer = new ArrayList<>();
+		while (closer.size() < 16) {
+			Id id = Id.random();
+			if (target.threeWayCompare(id, candidates.head()) < 0)
+				closer.add(new NodeInfo(id, randomAddress()));
+		}
+		candidates.add(closer);
+
+		assertEquals(20, candidates.size());
+		for (CandidateNode cn : inFlight)
+			assertSame(cn, candidates.get(cn.getId()));
+
+		closer.sort((n1, n2) -> target.threeWayCompare(n1.getId(), n2.getId()));
+		for (NodeInfo node : closer) {
+			CandidateNode cn = candidates.next();
+			assertEquals(node, cn);
+			assertTrue(cn.isEligible());
+			cn.setSent();
+		}
+		assertNull(candidates.next());
+	}
+
+	// A node at the given log distance to the target, with the given RTT known from the routing table
+	private KBucketEntry nodeAt(int leadingByte, int rtt) {
+		byte[] distance = Random.randomBytes(Id.BYTES);
+		distance[0] = (byte) leadingByte;
+		KBucketEntry entry = new KBucketEntry(target.distance(Id.of(distance)), randomAddress());
+		entry.onResponded(rtt);
+		return entry;
+	}
+
+	@Test
+	void testNextPrefersFastest() {
+		List<NodeInfo> nodes = new ArrayList<>();
+		for (int i = 0; i < ClosestCandidates.RTT_WINDOW; i++)
+			nodes.add(nodeAt(0x01, 300 - i * 100));
+		candidates.add(nodes);
+
+		// same log distance, the fastest one first
+		CandidateNode cn = candidates.next();
+		assertEquals(100, cn.getRTT());
+		cn.setSent();
+		cn = candidates.next();
+		assertEquals(200, cn.getRTT());
+		cn.setSent();
+		assertEquals(300, candidates.next().getRTT());
+	}
+
+	@Test
+	void testNextPrefersCloser() {
+		KBucketEntry closer = nodeAt(0x01, 500);
+		KBucketEntry farther = nodeAt(0x02, 10);
+		candidates.add(List.of(farther, closer));
+
+		// the faster node is in a farther log distance
+		assertEquals(closer.getId(), candidates.next().getId());
+	}
+
 	@Test
 	void testRemove() {
 		List<NodeInfo> nodes = new ArrayList<>();
@@ -1,6 +1,7 @@
 package io.bosonnetwork.kademlia.tasks;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.concurrent.CountDownLatch;
@@ -17,9 +18,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
 
+import io.bosonnetwork.Id;
 import io.bosonnetwork.Network;
+import io.bosonnetwork.NodeInfo;
 import io.bosonnetwork.crypto.CryptoIdentity;
 import io.bosonnetwork.kademlia.impl.KadContext;
+import io.bosonnetwork.kademlia.protocol.Message;
 import io.bosonnetwork.kademlia.rpc.RpcCall;
 
 @ExtendWith(VertxExtension.class)
@@ -226,4 +230,120 @@ class TaskManagerTests {
 			context.completeNow();
 		}));
 	}
-}
\ No newline at end of file
+
+	// Runs the action after the tasks dequeued and started by the current event loop turn
+	private void afterStarted(Runnable action) {
+		kadContext.runOnContext(() -> kadContext.runOnContext(action));
+	}
+
+	@Test
+	void testPriorityBudgets(VertxTestContext context) {
+		int max = Task.Priority.MAINTENANCE.maxRunningTasks();
+		TestTask interactive = new TestTask(kadContext).setName("Interactive");
+
+		kadContext.runOnContext(() -> {
+			for (int i = 0; i < max + 2; i++)
+				manager.add(new TestTask(kadContext).setName("Maintenance" + i).lowPriority());
+
+			afterStarted(() -> {
+				context.verify(() -> {
+					assertEquals(max, manager.getRunningTasks(Task.Priority.MAINTENANCE));
+					assertEquals(2, manager.getQueuedTasks(Task.Priority.MAINTENANCE));
+				});
+
+				manager.add(interactive);
+				afterStarted(() -> {
+					context.verify(() -> {
+						assertTrue(interactive.isRunning());
+						assertEquals(1, manager.getRunningTasks(Task.Priority.INTERACTIVE));
+						assertEquals(max, manager.getRunningTasks(Task.Priority.MAINTENANCE));
+						assertEquals(2, manager.getQueuedTasks());
+					});
+					context.completeNow();
+				});
+			});
+		});
+	}
+
+	@Test
+	void testExpiredTaskDropped(VertxTestContext context) {
+		TestTask task = new TestTask(kadContext).setName("Expired")
+				.setDeadline(System.currentTimeMillis() - 1);
+
+		kadContext.runOnContext(() -> {
+			manager.add(task);
+			afterStarted(() -> {
+				context.verify(() -> {
+					assertTrue(task.isCanceled());
+					assertEquals(0, task.getStartTime());
+					assertEquals(0, manager.getRunningTasks());
+					assertEquals(0, manager.getQueuedTasks());
+				});
+				context.completeNow();
+			});
+		});
+	}
+
+	@Test
+	void testDeadlineShortcut(VertxTestContext context) {
+		TestTask task = new TestTask(kadContext).setName("Deadline");
+
+		kadContext.runOnContext(() -> {
+			manager.add(task);
+			afterStarted(() -> {
+				task.setDeadline(System.currentTimeMillis() - 1);
+				task.resume();
+
+				context.verify(() -> {
+					assertTrue(task.isComplete());
+					assertEquals(0, manager.getRunningTasks());
+				});
+				context.completeNow();
+			});
+		});
+	}
+
+	@Test
+	void testRequestBudget(VertxTestContext context) {
+		int budget = Task.Priority.MAINTENANCE.requestBudget();
+		int perTask = Task.Priority.INTERACTIVE.maxConcurrentRequests();
+		TestTask[] tasks = new TestTask[budget / perTask];
+		TestTask maintenance = new TestTask(kadContext).setName("Maintenance").lowPriority();
+		TestTask interactive = new TestTask(kadContext).setName("Interactive");
+
+		kadContext.runOnContext(() -> {
+			for (int i = 0; i < tasks.length; i++) {
+				tasks[i] = new TestTask(kadContext).setName("Interactive" + i);
+				tasks[i].start();
+				manager.add(tasks[i]);
+				for (int j = 0; j < perTask; j++) {
+					NodeInfo node = new NodeInfo(Id.random(), "192.168.1.8", 39001 + j);
+					assertTrue(tasks[i].sendCall(node, Message.pingRequest()));
+				}
+			}
+
+			maintenance.start();
+			manager.add(maintenance);
+			interactive.start();
+			manager.add(interactive);
+
+			context.verify(() -> {
+				assertEquals(budget, manager.getOutstandingRequests());
+				assertFalse(maintenance.canDoRequest());
+				// the interactive tasks can use the rest of the budget
+				assertTrue(interactive.canDoRequest());
+			});
+
+			// releases the budget and resumes the held back task
+			tasks[0].cancel();
+			kadContext.runOnContext(() -> {
+				context.verify(() -> {
+					assertEquals(budget - perTask, manager.getOutstandingRequests());
+					assertTrue(maintenance.canDoRequest());
+					assertEquals(tasks.length + 1, manager.getRunningTasks());
+				});
+				context.completeNow();
+			});
+		});
+	}
+}
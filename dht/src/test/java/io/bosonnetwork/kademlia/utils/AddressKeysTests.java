@@ -0,0 +1,112 @@
+package io.bosonnetwork.kademlia.utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Random;
+
+import io.vertx.core.net.SocketAddress;
+import org.junit.jupiter.api.Test;
+
+public class AddressKeysTests {
+	@Test
+	void testIPv4() throws Exception {
+		assertEquals(0xc0a80801L, AddressKeys.of("192.168.8.1"));
+		assertEquals(0L, AddressKeys.of("0.0.0.0"));
+		assertEquals(0xffffffffL, AddressKeys.of("255.255.255.255"));
+		assertEquals(AddressKeys.of(InetAddress.getByName("203.0.113.10")), AddressKeys.of("203.0.113.10"));
+
+		for (String invalid : new String[] { "", "1.2.3", "1.2.3.4.5", "256.1.1.1", "1..2.3", "1.2.3.", "a.b.c.d", "1234.1.1.1" })
+			assertEquals(AddressKeys.INVALID, AddressKeys.of(invalid), invalid);
+	}
+
+	@Test
+	void testIPv6() throws Exception {
+		String[] literals = {
+				"2001:db8:85a3:8d3:1319:8a2e:370:7348",
+				"2001:db8::1",
+				"2001:DB8:0:0:0:0:0:1",
+				"::1",
+				"::",
+				"fe80::1%lo0",
+				"[2001:db8::ff00:42:8329]",
+				"2001:db8:1:2::",
+				"::ffff:192.168.8.1",
+				"64:ff9b::192.0.2.33",
+				"1:2:3:4:5:6:7::",
+				"::2:3:4:5:6:7:8"
+		};
+
+		for (String literal : literals) {
+			// the brackets and the scope are not part of the address
+			String host = literal.replaceAll("[\\[\\]]|%.*", "");
+			InetAddress addr = InetAddress.getByName(host);
+
+			byte[] raw = new byte[16];
+			int length = AddressKeys.toBytes(literal, raw);
+			assertArrayEquals(addr.getAddress(), Arrays.copyOf(raw, length), literal);
+			assertEquals(AddressKeys.of(addr), AddressKeys.of(literal), literal);
+		}
+
+		// the /64 prefix
+		assertEquals(0x20010db800010002L, AddressKeys.of("2001:db8:1:2:aaaa:bbbb:cccc:dddd"));
+		assertEquals(AddressKeys.of("2001:db8:1:2::1"), AddressKeys.of("2001:db8:1:2::2"));
+		assertNotEquals(AddressKeys.of("2001:db8:1:2::1"), AddressKeys.of("2001:db8:1:3::1"));
+		// IPv4-mapped
+		assertEquals(AddressKeys.of("192.168.8.1"), AddressKeys.of("::ffff:192.168.8.1"));
+
+		for (String invalid : new String[] { ":", ":::", "1:2", "1::2::3", "1:2:3:4:5:6:7:8:9", "12345::", "1:2:3:4:5:6:7:8::",
+				"::1.2.3", "1:2:3:4:5:6:7:1.2.3.4", "g::1", "1:", "[::1" })
+			assertEquals(AddressKeys.INVALID, AddressKeys.of(invalid), invalid);
+	}
+
+	@Test
+	void testRandomAddresses() throws Exception {
+		Random random = new Random();
+		byte[] raw = new byte[16];
+		for (int i = 0; i < 10000; i++) {
+			byte[] bytes = new byte[i % 2 == 0 ? 4 : 16];
+			random.nextBytes(bytes);
+			InetAddress addr = InetAddress.getByAddress(bytes);
+
+			String literal = addr.getHostAddress();
+			assertEquals(AddressKeys.of(addr), AddressKeys.of(literal), literal);
+			int length = AddressKeys.toBytes(literal, raw);
+			assertArrayEquals(bytes, Arrays.copyOf(raw, length), literal);
+
+			if (addr instanceof Inet6Address) {
+				// the compressed form
+				literal = literal.replaceFirst("(^|:)(0:)+", "::");
+				assertEquals(AddressKeys.of(addr), AddressKeys.of(literal), literal);
+			}
+		}
+	}
+
+	@Test
+	void testSocketAddress() {
+		assertEquals(AddressKeys.of("203.0.113.10"), AddressKeys.of(SocketAddress.inetSocketAddress(39001, "203.0.113.10")));
+		assertEquals(AddressKeys.of("2001:db8::1"), AddressKeys.of(SocketAddress.inetSocketAddress(39001, "2001:db8::1")));
+	}
+
+	@Test
+	void testHostKeys() throws Exception {
+		InetAddress v4 = InetAddress.getByName("203.0.113.10");
+		assertEquals(AddressKeys.of(v4), AddressKeys.ofHost(v4));
+		assertEquals(AddressKeys.of(v4), AddressKeys.ofHost(InetAddress.getByName("::ffff:203.0.113.10").getAddress()));
+
+		// the hosts of a /64 have distinct keys, outside of the IPv4 key range
+		long host1 = AddressKeys.ofHost(InetAddress.getByName("2001:db8:1:2::1"));
+		long host2 = AddressKeys.ofHost(InetAddress.getByName("2001:db8:1:2::2"));
+		assertNotEquals(host1, host2);
+		assertEquals(host1, AddressKeys.ofHost(InetAddress.getByName("2001:db8:1:2:0:0:0:1")));
+		assertTrue(host1 < 0 && host1 != AddressKeys.INVALID);
+		assertTrue(host2 < 0 && host2 != AddressKeys.INVALID);
+
+		assertEquals(AddressKeys.INVALID, AddressKeys.ofHost(new byte[5]));
+	}
+}
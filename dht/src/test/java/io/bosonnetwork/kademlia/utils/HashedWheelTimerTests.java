@@ -0,0 +1,119 @@
+package io.bosonnetwork.kademlia.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.Checkpoint;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+@ExtendWith(VertxExtension.class)
+public class HashedWheelTimerTests {
+	// generous upper bound for the event loop latency on a busy CI host
+	private static final long SLACK = 200;
+
+	@Test
+	void testFire(Vertx vertx, VertxTestContext testContext) {
+		Context context = vertx.getOrCreateContext();
+		HashedWheelTimer timer = new HashedWheelTimer(context, 10, 64);
+		int count = 50;
+		Checkpoint fired = testContext.checkpoint(count);
+
+		context.runOnContext(unused -> {
+			for (int i = 0; i < count; i++) {
+				long delay = 5 + i * 5;
+				long start = System.nanoTime();
+				timer.setTimer(delay, id -> {
+					long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+					testContext.verify(() -> {
+						assertSame(context, Vertx.currentContext());
+						assertTrue(elapsed >= delay, "fired early: " + elapsed + " < " + delay);
+						assertTrue(elapsed <= delay + 10 + SLACK, "fired late: " + elapsed + " > " + delay);
+					});
+					fired.flag();
+				});
+			}
+
+			testContext.verify(() -> assertEquals(count, timer.getPendingCount()));
+		});
+	}
+
+	@Test
+	void testCancel(Vertx vertx, VertxTestContext testContext) {
+		Context context = vertx.getOrCreateContext();
+		HashedWheelTimer timer = new HashedWheelTimer(context, 5, 32);
+		Set<Integer> fired = ConcurrentHashMap.newKeySet();
+
+		context.runOnContext(unused -> {
+			List<Long> ids = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				int n = i;
+				ids.add(timer.setTimer(20 + i % 10, id -> fired.add(n)));
+			}
+
+			testContext.verify(() -> {
+				for (int i = 0; i < 100; i += 2)
+					assertTrue(timer.cancelTimer(ids.get(i)));
+
+				assertEquals(50, timer.getPendingCount());
+			});
+
+			vertx.setTimer(200, id -> context.runOnContext(v -> testContext.verify(() -> {
+				assertEquals(50, fired.size());
+				assertTrue(fired.stream().allMatch(n -> n % 2 == 1));
+				assertEquals(0, timer.getPendingCount());
+				// already fired
+				assertFalse(timer.cancelTimer(ids.get(1)));
+				testContext.completeNow();
+			})));
+		});
+	}
+
+	@Test
+	void testMultipleRounds(Vertx vertx, VertxTestContext testContext) {
+		Context context = vertx.getOrCreateContext();
+		// 8 slots of 5ms, one round is 40ms
+		HashedWheelTimer timer = new HashedWheelTimer(context, 5, 8);
+
+		context.runOnContext(unused -> {
+			long start = System.nanoTime();
+			timer.setTimer(130, id -> testContext.verify(() -> {
+				long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+				assertTrue(elapsed >= 130, "fired early: " + elapsed);
+				assertTrue(elapsed <= 130 + 5 + SLACK, "fired late: " + elapsed);
+				testContext.completeNow();
+			}));
+		});
+	}
+
+	@Test
+	void testRescheduleFromHandler(Vertx vertx, VertxTestContext testContext) {
+		Context context = vertx.getOrCreateContext();
+		HashedWheelTimer timer = new HashedWheelTimer(context, 5, 16);
+		long[] other = new long[1];
+
+		context.runOnContext(unused -> {
+			other[0] = timer.setTimer(20, id -> testContext.failNow("cancelled timer fired"));
+			// due no later than the timer above, fires first and cancels it in the same sweep
+			timer.setTimer(19, id -> {
+				testContext.verify(() -> assertTrue(timer.cancelTimer(other[0])));
+				timer.setTimer(20, id2 -> testContext.verify(() -> {
+					assertEquals(0, timer.getPendingCount());
+					testContext.completeNow();
+				}));
+			});
+		});
+	}
+}
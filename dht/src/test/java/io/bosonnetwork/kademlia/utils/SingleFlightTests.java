@@ -0,0 +1,113 @@
+package io.bosonnetwork.kademlia.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import org.junit.jupiter.api.Test;
+
+public class SingleFlightTests {
+	@Test
+	public void testCoalesce() {
+		SingleFlight<String, String> group = new SingleFlight<>(0);
+		AtomicInteger executions = new AtomicInteger();
+		Promise<String> promise = Promise.promise();
+
+		Future<String> f1 = group.execute("foo", () -> {
+			executions.incrementAndGet();
+			return promise.future();
+		});
+		Future<String> f2 = group.execute("foo", () -> {
+			executions.incrementAndGet();
+			return Future.succeededFuture("other");
+		});
+		Future<String> f3 = group.execute("bar", () -> {
+			executions.incrementAndGet();
+			return Future.succeededFuture("bar");
+		});
+
+		assertSame(f1, f2);
+		assertEquals("bar", f3.result());
+		assertEquals(2, executions.get());
+		assertEquals(1, group.getCoalescedCount());
+
+		promise.complete("foo");
+		assertEquals("foo", f2.result());
+
+		// no result reuse without TTL
+		Future<String> f4 = group.execute("foo", () -> {
+			executions.incrementAndGet();
+			return Future.succeededFuture("foo2");
+		});
+		assertEquals("foo2", f4.result());
+		assertEquals(3, executions.get());
+		assertEquals(0, group.getHitCount());
+	}
+
+	@Test
+	public void testResultCache() throws Exception {
+		SingleFlight<String, String> group = new SingleFlight<>(200);
+		AtomicInteger executions = new AtomicInteger();
+
+		// negative results are reused too
+		assertNull(group.execute("foo", () -> {
+			executions.incrementAndGet();
+			return Future.succeededFuture(null);
+		}).result());
+		assertNull(group.execute("foo", () -> {
+			executions.incrementAndGet();
+			return Future.succeededFuture("foo");
+		}).result());
+		assertEquals(1, executions.get());
+		assertEquals(1, group.getHitCount());
+
+		// failures are not reused
+		assertTrue(group.execute("bar", () -> Future.failedFuture(new Exception("bar"))).failed());
+		assertEquals("bar", group.execute("bar", () -> Future.succeededFuture("bar")).result());
+
+		Thread.sleep(300);
+		assertEquals("foo", group.execute("foo", () -> {
+			executions.incrementAndGet();
+			return Future.succeededFuture("foo");
+		}).result());
+		assertEquals(2, executions.get());
+	}
+
+	@Test
+	public void testInvalidate() {
+		SingleFlight<String, String> group = new SingleFlight<>(60000);
+		Promise<String> promise = Promise.promise();
+
+		assertEquals("foo", group.execute("foo", () -> Future.succeededFuture("foo")).result());
+		Future<String> bar = group.execute("bar", promise::future);
+
+		group.invalidate(k -> true);
+
+		assertEquals("foo2", group.execute("foo", () -> Future.succeededFuture("foo2")).result());
+
+		// the detached in-flight lookup still completes, but its result is not kept
+		Future<String> bar2 = group.execute("bar", () -> Future.succeededFuture("bar2"));
+		promise.complete("bar");
+		assertEquals("bar", bar.result());
+		assertEquals("bar2", bar2.result());
+		assertEquals("bar2", group.execute("bar", () -> Future.succeededFuture("bar3")).result());
+	}
+
+	@Test
+	public void testMaxResults() {
+		SingleFlight<Integer, Integer> group = new SingleFlight<>(60000, 4);
+		for (int i = 0; i < 8; i++) {
+			int n = i;
+			group.execute(n, () -> Future.succeededFuture(n));
+		}
+
+		// the oldest results are evicted first
+		assertEquals(100, group.execute(0, () -> Future.succeededFuture(100)).result());
+		assertEquals(7, group.execute(7, () -> Future.succeededFuture(100)).result());
+	}
+}
@@ -0,0 +1,48 @@
+package io.bosonnetwork.kademlia.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class SipHashTests {
+	private static byte[] sequence(int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++)
+			bytes[i] = (byte) i;
+		return bytes;
+	}
+
+	@Test
+	void testReferenceVectors() {
+		// key 00..0f, message 00..(n-1), from the SipHash reference implementation
+		SipHash sip = new SipHash(sequence(16));
+		byte[] message = sequence(64);
+
+		assertEquals(0x726fdb47dd0e0e31L, sip.hash(message, 0, 0));
+		assertEquals(0x93f5f5799a932462L, sip.hash(message, 0, 8));
+		assertEquals(0xa129ca6149be45e5L, sip.hash(message, 0, 15));
+		assertEquals(0x958a324ceb064572L, sip.hash(message, 0, 63));
+	}
+
+	@Test
+	void testWords() {
+		SipHash sip = new SipHash(sequence(16));
+		byte[] message = sequence(64);
+
+		// the words are the little-endian encoding of the message bytes
+		assertEquals(sip.hash(message, 0, 16), hashWords(sip, 2, 0, 0));
+		assertEquals(sip.hash(message, 0, 63), hashWords(sip, 7, 0x3e3d3c3b3a3938L, 7));
+		// reusable
+		assertEquals(sip.hash(message, 0, 63), hashWords(sip, 7, 0x3e3d3c3b3a3938L, 7));
+
+		assertNotEquals(sip.hash(message, 0, 16), new SipHash(0, 0).hash(message, 0, 16));
+	}
+
+	private static long hashWords(SipHash sip, int words, long tail, int tailLength) {
+		sip.reset();
+		for (int i = 0; i < words; i++)
+			sip.update(0x0706050403020100L + 0x0808080808080808L * i);
+		return sip.finish(tail, tailLength);
+	}
+}
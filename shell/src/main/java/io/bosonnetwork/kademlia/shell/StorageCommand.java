@@ -25,6 +25,7 @@ package io.bosonnetwork.kademlia.shell;
 
 import java.util.concurrent.Callable;
 
+import io.vertx.core.Promise;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Parameters;
 
@@ -58,13 +59,19 @@ public class StorageCommand {
 		public Integer call() throws Exception {
 			DataStorage storage = Main.getBosonNode().getStorage();
 
-			VertxFuture.of(storage.getValues().map(values -> {
-				values.forEach(v -> {
-					System.out.printf("%44s, %s\n", v.getId(), v.isMutable() ? "mutable" : "immutable");
-				});
-				System.out.println("Total " + values.size() + " values.");
-				return null;
-			})).get();
+			long[] total = {0};
+			Promise<Void> promise = Promise.promise();
+			// streamed page by page, the storage could be large
+			storage.streamValues()
+					.exceptionHandler(promise::fail)
+					.endHandler(promise::complete)
+					.handler(v -> {
+						System.out.printf("%44s, %s\n", v.getId(), v.isMutable() ? "mutable" : "immutable");
+						total[0]++;
+					});
+
+			VertxFuture.of(promise.future()).get();
+			System.out.println("Total " + total[0] + " values.");
 
 			return 0;
 		}
@@ -114,13 +121,19 @@ public class StorageCommand {
 		public Integer call() throws Exception {
 			DataStorage storage = Main.getBosonNode().getStorage();
 
-			VertxFuture.of(storage.getPeers().map(peers -> {
-				peers.forEach(p -> {
-					System.out.printf("%s:%s\n", p.getId(), p.getNodeId());
-				});
-				System.out.println("Total " + peers.size() + " peers.");
-				return null;
-			})).get();
+			long[] total = {0};
+			Promise<Void> promise = Promise.promise();
+			// streamed page by page, the storage could be large
+			storage.streamPeers()
+					.exceptionHandler(promise::fail)
+					.endHandler(promise::complete)
+					.handler(p -> {
+						System.out.printf("%s:%s\n", p.getId(), p.getNodeId());
+						total[0]++;
+					});
+
+			VertxFuture.of(promise.future()).get();
+			System.out.println("Total " + total[0] + " peers.");
 
 			return 0;
 		}